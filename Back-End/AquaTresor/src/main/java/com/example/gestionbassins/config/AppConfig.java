@@ -1,7 +1,9 @@
 package com.example.gestionbassins.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
@@ -10,4 +12,34 @@ public class AppConfig {
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+
+    // Pool borné pour la génération des déclinaisons d'images (décodage gourmand en mémoire)
+    @Bean(name = "imageRenditionExecutor")
+    public ThreadPoolTaskExecutor imageRenditionExecutor(
+            @Value("${images.renditions.threads:2}") int threads,
+            @Value("${images.renditions.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-rendition-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Pool borné pour les rapports PDF en tâche de fond : au-delà de la file, les demandes sont refusées
+    @Bean(name = "rapportExecutor")
+    public ThreadPoolTaskExecutor rapportExecutor(
+            @Value("${rapports.threads:2}") int threads,
+            @Value("${rapports.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("rapport-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
 }
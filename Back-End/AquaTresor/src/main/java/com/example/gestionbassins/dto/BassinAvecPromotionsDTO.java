@@ -0,0 +1,23 @@
+package com.example.gestionbassins.dto;
+
+import java.util.List;
+
+import com.example.gestionbassins.projections.BassinCatalogueView;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Ligne de l'écran d'administration des promotions : le bassin (champs de la vue catalogue, à plat)
+ * et ses promotions en cours, directes ou via sa catégorie. activePromotion est la plus forte ;
+ * promotionsActives et activePromotion sont null quand les promotions ne sont pas demandées.
+ */
+@Getter
+@AllArgsConstructor
+public class BassinAvecPromotionsDTO {
+    @JsonUnwrapped
+    private final BassinCatalogueView bassin;
+    private final List<PromotionResume> promotionsActives;
+    private final PromotionResume activePromotion;
+}
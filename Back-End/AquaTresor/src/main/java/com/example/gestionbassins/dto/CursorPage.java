@@ -0,0 +1,22 @@
+package com.example.gestionbassins.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Page d'un listing paginé par curseur (keyset).
+ * nextCursor est à renvoyer tel quel pour obtenir la page suivante.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int size;
+    private String sort;
+}
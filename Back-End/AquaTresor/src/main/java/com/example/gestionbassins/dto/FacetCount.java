@@ -0,0 +1,19 @@
+package com.example.gestionbassins.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Une valeur de facette et le nombre de bassins qu'on obtiendrait en la cochant.
+ * La valeur (normalisée, en minuscules) est celle à renvoyer dans les filtres ; le libellé est à afficher.
+ * Pour la catégorie, la valeur est l'id et le libellé le nom.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCount {
+    private String valeur;
+    private String libelle;
+    private long nombre;
+}
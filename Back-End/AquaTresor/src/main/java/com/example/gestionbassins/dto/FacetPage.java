@@ -0,0 +1,27 @@
+package com.example.gestionbassins.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Page filtrée du catalogue avec les compteurs de chaque facette.
+ * Les compteurs d'une facette ignorent ses propres filtres (les autres valeurs restent cochables) ;
+ * prixMin/prixMax bornent les prix des bassins retenus par les autres filtres.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetPage<T> {
+    private List<T> items;
+    private long total;
+    private int page;
+    private int size;
+    private boolean hasMore;
+    private Map<String, List<FacetCount>> facettes;
+    private Double prixMin;
+    private Double prixMax;
+}
@@ -0,0 +1,23 @@
+package com.example.gestionbassins.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtres du catalogue : plusieurs valeurs d'une même facette s'additionnent (OU),
+ * les facettes se combinent entre elles (ET). Une facette vide ne filtre pas.
+ */
+@Data
+@NoArgsConstructor
+public class FiltreCatalogue {
+    private List<String> materiaux = new ArrayList<>();
+    private List<String> couleurs = new ArrayList<>();
+    private List<Long> categories = new ArrayList<>();
+    private List<String> statuts = new ArrayList<>();
+    private Boolean archive;
+    private Double prixMin;
+    private Double prixMax;
+}
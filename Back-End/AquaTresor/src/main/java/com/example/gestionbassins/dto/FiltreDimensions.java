@@ -0,0 +1,23 @@
+package com.example.gestionbassins.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Intervalles de recherche par dimensions (cm), volume (litres) et prix. Bornes incluses et facultatives.
+ */
+@Data
+@NoArgsConstructor
+public class FiltreDimensions {
+    private Double longueurMin;
+    private Double longueurMax;
+    private Double largeurMin;
+    private Double largeurMax;
+    private Double profondeurMin;
+    private Double profondeurMax;
+    private Double volumeMin;
+    private Double volumeMax;
+    private Double prixMin;
+    private Double prixMax;
+    private Boolean archive;
+}
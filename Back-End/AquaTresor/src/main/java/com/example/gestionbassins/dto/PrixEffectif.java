@@ -0,0 +1,29 @@
+package com.example.gestionbassins.dto;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Prix courant d'un bassin : prix de base, meilleure promotion en cours (directe ou via sa catégorie)
+ * et prix remisé. validJusqua est le prochain début ou la prochaine fin de promotion qui le change
+ * (null si aucun n'est prévu). tauxReduction, idPromotion et nomPromotion sont null sans promotion.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PrixEffectif {
+    private final Long idBassin;
+    private final Double prix;
+    private final Double prixEffectif;
+    private final Double tauxReduction;
+    private final Long idPromotion;
+    private final String nomPromotion;
+    private final Date validJusqua;
+
+    public boolean isPromotionActive() {
+        return idPromotion != null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.gestionbassins.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bilan de l'application d'une promotion à des bassins ou à une catégorie : nombres de liens
+ * ajoutés / retirés et ids demandés qui n'existent pas, sans les bassins eux-mêmes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionAppliquee {
+    private Long idPromotion;
+    private String nomPromotion;
+    private Long idCategorie;
+    private int bassinsAjoutes;
+    private int bassinsRetires;
+    private List<Long> bassinsIntrouvables;
+}
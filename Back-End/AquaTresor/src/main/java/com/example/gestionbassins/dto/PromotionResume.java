@@ -0,0 +1,28 @@
+package com.example.gestionbassins.dto;
+
+import java.util.Date;
+
+import com.example.gestionbassins.projections.PromotionCible;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Champs d'une promotion utiles aux listes de bassins, sans ses bassins ni ses catégories.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionResume {
+    private Long idPromotion;
+    private String nomPromotion;
+    private Double tauxReduction;
+    private Date dateDebut;
+    private Date dateFin;
+
+    public static PromotionResume de(PromotionCible cible) {
+        return new PromotionResume(cible.getIdPromotion(), cible.getNomPromotion(), cible.getTauxReduction(),
+                cible.getDateDebut(), cible.getDateFin());
+    }
+}
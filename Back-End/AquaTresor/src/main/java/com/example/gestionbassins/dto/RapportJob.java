@@ -0,0 +1,72 @@
+package com.example.gestionbassins.dto;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+
+/**
+ * Rapport PDF généré en tâche de fond (RapportJobService). L'état est lu par les requêtes de suivi
+ * pendant que le thread du rapport l'écrit : les champs modifiables sont volatils.
+ */
+@Getter
+public class RapportJob {
+
+    public enum Statut { EN_ATTENTE, EN_COURS, TERMINE, ECHEC }
+
+    private final String id;
+    private final String type;
+    private final Map<String, Object> parametres;
+    private final String nomFichier;
+    private final Date dateCreation = new Date();
+
+    // Type et paramètres : deux demandes identiques ont la même clé
+    @JsonIgnore
+    private final String cle;
+
+    private volatile Statut statut = Statut.EN_ATTENTE;
+    private volatile Date dateDebut;
+    private volatile Date dateFin;
+    // Progression : octets du PDF déjà écrits (taille finale une fois terminé)
+    private volatile long octetsEcrits;
+    private volatile String erreur;
+
+    @JsonIgnore
+    private volatile Path fichier;
+
+    public RapportJob(String id, String type, Map<String, Object> parametres, String nomFichier) {
+        this.id = id;
+        this.type = type;
+        this.parametres = parametres;
+        this.nomFichier = nomFichier;
+        this.cle = type + parametres;
+    }
+
+    public boolean isFini() {
+        return statut == Statut.TERMINE || statut == Statut.ECHEC;
+    }
+
+    public void demarrer() {
+        dateDebut = new Date();
+        statut = Statut.EN_COURS;
+    }
+
+    public void progresser(long octets) {
+        octetsEcrits += octets;
+    }
+
+    public void terminer(Path fichier) {
+        this.fichier = fichier;
+        dateFin = new Date();
+        statut = Statut.TERMINE;
+    }
+
+    public void echouer(String erreur) {
+        this.erreur = erreur;
+        dateFin = new Date();
+        statut = Statut.ECHEC;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.gestionbassins.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Résultat d'une ligne d'un lot de mouvements de stock : appliquée (stock après la ligne) ou refusée
+ * (bassin inconnu, stock insuffisant) avec le motif.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultatMouvementStock {
+    private int ligne;
+    private Long bassinId;
+    private int quantite;
+    private boolean applique;
+    private Integer stock;
+    private String message;
+}
@@ -0,0 +1,23 @@
+package com.example.gestionbassins.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Page de résultats d'une recherche, classés par pertinence.
+ * Pagination par numéro de page : le classement n'offre pas de clé stable pour un curseur.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPage<T> {
+    private List<T> items;
+    private long total;
+    private int page;
+    private int size;
+    private boolean hasMore;
+    private String query;
+}
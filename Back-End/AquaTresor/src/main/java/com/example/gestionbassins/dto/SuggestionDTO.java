@@ -0,0 +1,20 @@
+package com.example.gestionbassins.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Suggestion de la barre de recherche : un bassin ou une catégorie.
+ * thumbnailPath (relatif au contexte de l'application) n'est renseigné que pour les bassins illustrés.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+    private String type;
+    private Long id;
+    private String nom;
+    private String imagePath;
+    private String thumbnailPath;
+}
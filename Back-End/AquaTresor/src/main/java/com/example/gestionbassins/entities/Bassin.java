@@ -11,22 +11,30 @@ import java.util.Set;
 import com.example.gestionbassins.projections.BassinBase;
 import com.example.gestionbassins.projections.BassinMetadata;
 import com.example.gestionbassins.projections.BassinPromotionInfo;
+import com.example.gestionbassins.service.CatalogueIndexListener;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -36,6 +44,14 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_bassin_longueur_prix", columnList = "longueur_cm, prix"),
+        @Index(name = "idx_bassin_largeur_prix", columnList = "largeur_cm, prix"),
+        @Index(name = "idx_bassin_profondeur_prix", columnList = "profondeur_cm, prix"),
+        @Index(name = "idx_bassin_volume_prix", columnList = "volume_litres, prix"),
+        @Index(name = "idx_bassin_prix", columnList = "prix")
+})
+@EntityListeners(CatalogueIndexListener.class)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Bassin implements BassinBase, BassinMetadata, BassinPromotionInfo {
 
@@ -56,6 +72,10 @@ public class Bassin implements BassinBase, BassinMetadata, BassinPromotionInfo {
     private String couleur;
     private String dimensions; 
 
+    // Dimensions numériques déduites du texte ci-dessus, pour les recherches par intervalle
+    @Embedded
+    private Dimensions dimensionsMesurees;
+
     private boolean disponible; 
 
     private int stock;
@@ -75,6 +95,11 @@ public class Bassin implements BassinBase, BassinMetadata, BassinPromotionInfo {
     // Metadata (BassinMetadata)
     @Column(nullable = false, columnDefinition = "boolean default false")
     private boolean archive;
+
+    // Verrouillage optimiste ; aussi incrémentée par les UPDATE en masse (stock, promotions)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
     private int quantity;
     
     @Column(name = "is_favorite")
@@ -149,21 +174,16 @@ public class Bassin implements BassinBase, BassinMetadata, BassinPromotionInfo {
     
     @Override
     public Double getPrixPromotionnel() {
-        if (!hasActivePromotion()) {
+        if (!hasActivePromotion() || this.prixPromo == null) {
             return this.prix; // Retourne le prix normal si pas de promotion active
         }
-        return this.prix * (1 - (this.promotion.getTauxReduction() / 100));
+        return this.prixPromo;
     }
 
     // Méthodes utilitaires
+    // promotion_active et prix_promo sont tenus à jour à chaque début et fin de promotion (PromotionPlanificateur)
     public boolean hasActivePromotion() {
-        if (promotion == null) return false;
-        Date now = new Date();
-        return promotionActive && 
-               promotion.getDateDebut() != null &&
-               promotion.getDateFin() != null &&
-               promotion.getDateDebut().before(now) && 
-               promotion.getDateFin().after(now);
+        return promotionActive;
     }
 
     public boolean isEnPromotion() {
@@ -221,11 +241,7 @@ public class Bassin implements BassinBase, BassinMetadata, BassinPromotionInfo {
     }
 
     public Double getCurrentPrice() {
-        Promotion activePromo = getActivePromotion();
-        if (activePromo != null) {
-            return prix * (1 - (activePromo.getTauxReduction() / 100));
-        }
-        return prix;
+        return getPrixPromotionnel();
     }
     
     
@@ -286,6 +302,12 @@ public class Bassin implements BassinBase, BassinMetadata, BassinPromotionInfo {
         }
     }
 
+    @PrePersist
+    @PreUpdate
+    public void mesurerDimensions() {
+        this.dimensionsMesurees = Dimensions.analyser(dimensions);
+    }
+
     // Méthode pour obtenir la durée moyenne
     public Integer getDureeFabricationMoyenne() {
         if (dureeFabricationJoursMin == null || dureeFabricationJoursMax == null) {
@@ -296,13 +318,18 @@ public class Bassin implements BassinBase, BassinMetadata, BassinPromotionInfo {
 
 
     public String getDureeFabricationDisplay() {
-        if (dureeFabricationJours != null) {
-            return dureeFabricationJours + " jours";
-        } else if (dureeFabricationJoursMin != null && dureeFabricationJoursMax != null) {
-            if (dureeFabricationJoursMin.equals(dureeFabricationJoursMax)) {
-                return dureeFabricationJoursMin + " jours";
+        return formatDureeFabrication(dureeFabricationJours, dureeFabricationJoursMin, dureeFabricationJoursMax);
+    }
+
+    // Partagé avec les vues de lecture (BassinCatalogueView)
+    public static String formatDureeFabrication(Integer duree, Integer dureeMin, Integer dureeMax) {
+        if (duree != null) {
+            return duree + " jours";
+        } else if (dureeMin != null && dureeMax != null) {
+            if (dureeMin.equals(dureeMax)) {
+                return dureeMin + " jours";
             }
-            return dureeFabricationJoursMin + " à " + dureeFabricationJoursMax + " jours";
+            return dureeMin + " à " + dureeMax + " jours";
         }
         return "3 à 15 jours (estimation)";
     }
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -29,6 +30,16 @@ public class BassinPersonnalise {
     @Column(name = "dimension")
     private List<String> dimensions;
 
+    // Les mêmes dimensions en valeurs numériques, pour les recherches par intervalle
+    @ElementCollection
+    @CollectionTable(name = "bassin_personnalise_dimension_mesuree",
+            joinColumns = @JoinColumn(name = "idBassinPersonnalise"),
+            indexes = {
+                    @Index(name = "idx_bp_dimension_longueur", columnList = "longueur_cm"),
+                    @Index(name = "idx_bp_dimension_volume", columnList = "volume_litres")
+            })
+    private List<Dimensions> dimensionsMesurees = new ArrayList<>();
+
     @OneToMany(mappedBy = "bassinPersonnalise", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Accessoire> accessoires;
     
@@ -39,7 +50,7 @@ public class BassinPersonnalise {
     public BassinPersonnalise(Bassin bassin, List<String> materiaux, List<String> dimensions, List<Accessoire> accessoires, Integer dureeFabrication) {
         this.bassin = bassin;
         this.materiaux = materiaux;
-        this.dimensions = dimensions;
+        setDimensions(dimensions);
         this.dureeFabrication = dureeFabrication;
 
      // Associer chaque accessoire à ce bassin personnalisé
@@ -49,8 +60,24 @@ public class BassinPersonnalise {
             }
         }
     }
-    
-    
+
+    // Toute modification des dimensions passe par ici : les valeurs numériques suivent
+    public void setDimensions(List<String> dimensions) {
+        this.dimensions = dimensions;
+        if (this.dimensionsMesurees == null) {
+            this.dimensionsMesurees = new ArrayList<>();
+        }
+        this.dimensionsMesurees.clear();
+        if (dimensions != null) {
+            for (String dimension : dimensions) {
+                Dimensions mesurees = Dimensions.analyser(dimension);
+                if (mesurees != null) {
+                    this.dimensionsMesurees.add(mesurees);
+                }
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "BassinPersonnalise{" +
@@ -5,9 +5,11 @@ import lombok.*;
 
 import java.util.List;
 
+import com.example.gestionbassins.service.CatalogueIndexListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@EntityListeners(CatalogueIndexListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
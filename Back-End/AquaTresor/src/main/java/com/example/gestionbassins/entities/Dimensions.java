@@ -0,0 +1,114 @@
+package com.example.gestionbassins.entities;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dimensions d'un bassin en valeurs numériques (cm et litres), interrogeables par intervalle.
+ * Déduites du texte saisi ("300x200x150 cm (≈ 9 000L)", "2m x 1.5m x 1m", "3x2"…) qui reste la référence
+ * affichée. Le volume est celui indiqué dans le texte, sinon calculé quand les trois côtés sont connus.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class Dimensions {
+
+    @Column(name = "longueur_cm")
+    private Double longueurCm;
+
+    @Column(name = "largeur_cm")
+    private Double largeurCm;
+
+    @Column(name = "profondeur_cm")
+    private Double profondeurCm;
+
+    @Column(name = "volume_litres")
+    private Double volumeLitres;
+
+    // Sans unité, des côtés de 30 ou moins sont des mètres ("3x2"), au-delà des centimètres ("200x150x100")
+    private static final double MAX_COTE_EN_METRES = 30;
+
+    private static final Pattern VOLUME = Pattern.compile(
+            "(\\d[\\d\\s\\u00a0\\u202f]*(?:[.,]\\d+)?)\\s*(?:l|litres?)(?![a-z])");
+    private static final Pattern COTE = Pattern.compile("^(\\d+(?:[.,]\\d+)?)\\s*(mm|cm|m)?$");
+    private static final Pattern UNITE = Pattern.compile("\\d\\s*(mm|cm|m)(?![a-z])");
+
+    /**
+     * @return null si le texte ne contient pas au moins longueur x largeur
+     */
+    public static Dimensions analyser(String texte) {
+        if (texte == null || texte.isBlank()) {
+            return null;
+        }
+        String t = texte.toLowerCase(Locale.ROOT).replace('×', 'x').replace('*', 'x');
+
+        Double volume = null;
+        Matcher m = VOLUME.matcher(t);
+        if (m.find()) {
+            volume = nombre(m.group(1).replaceAll("[\\s\\u00a0\\u202f]", ""));
+            t = t.substring(0, m.start()) + t.substring(m.end());
+        }
+        // Ce qui suit une parenthèse est un commentaire ("(≈ 9 000L)")
+        int parenthese = t.indexOf('(');
+        if (parenthese >= 0) {
+            t = t.substring(0, parenthese);
+        }
+
+        String[] parties = t.trim().split("\\s*x\\s*");
+        if (parties.length < 2 || parties.length > 3) {
+            return null;
+        }
+        // Unité commune : la dernière écrite ("200x150x100 cm")
+        String uniteCommune = null;
+        Matcher u = UNITE.matcher(t);
+        while (u.find()) {
+            uniteCommune = u.group(1);
+        }
+
+        double[] cotes = new double[parties.length];
+        String[] unites = new String[parties.length];
+        double plusGrand = 0;
+        for (int i = 0; i < parties.length; i++) {
+            Matcher c = COTE.matcher(parties[i].trim());
+            if (!c.matches()) {
+                return null;
+            }
+            cotes[i] = nombre(c.group(1));
+            unites[i] = c.group(2) != null ? c.group(2) : uniteCommune;
+            plusGrand = Math.max(plusGrand, cotes[i]);
+        }
+        for (int i = 0; i < cotes.length; i++) {
+            String unite = unites[i] != null ? unites[i] : (plusGrand <= MAX_COTE_EN_METRES ? "m" : "cm");
+            cotes[i] = Math.round(enCentimetres(cotes[i], unite) * 100) / 100.0;
+        }
+
+        Double profondeur = cotes.length == 3 ? cotes[2] : null;
+        if (volume == null && profondeur != null) {
+            volume = Math.round(cotes[0] * cotes[1] * profondeur / 1000.0 * 100) / 100.0;
+        }
+        return new Dimensions(cotes[0], cotes[1], profondeur, volume);
+    }
+
+    private static double enCentimetres(double valeur, String unite) {
+        switch (unite) {
+            case "m":
+                return valeur * 100;
+            case "mm":
+                return valeur / 10;
+            default:
+                return valeur;
+        }
+    }
+
+    private static Double nombre(String texte) {
+        return Double.valueOf(texte.replace(',', '.'));
+    }
+}
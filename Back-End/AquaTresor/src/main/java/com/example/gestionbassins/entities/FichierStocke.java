@@ -0,0 +1,71 @@
+package com.example.gestionbassins.entities;
+
+import java.util.Date;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contenu stocké une seule fois, identifié par son empreinte SHA-256.
+ * nbReferences compte les lignes (images de bassin, accessoires…) qui pointent
+ * sur la clé sha256 + extension ; le contenu est supprimé quand il retombe à 0.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "fichier_stocke")
+public class FichierStocke implements Persistable<String> {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(length = 16, nullable = false)
+    private String extension;
+
+    private long taille;
+
+    private String contentType;
+
+    private int nbReferences;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date dateCreation;
+
+    // Identifiant fourni (empreinte) : forcer un INSERT plutôt qu'un merge qui écraserait le compteur
+    @Transient
+    private boolean nouveau;
+
+    public FichierStocke(String sha256, String extension, long taille, String contentType) {
+        this.sha256 = sha256;
+        this.extension = extension;
+        this.taille = taille;
+        this.contentType = contentType;
+        this.nbReferences = 1;
+        this.dateCreation = new Date();
+        this.nouveau = true;
+    }
+
+    public String getCle() {
+        return sha256 + extension;
+    }
+
+    @Override
+    public String getId() {
+        return sha256;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nouveau;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marquerExistant() {
+        this.nouveau = false;
+    }
+}
@@ -1,8 +1,6 @@
 package com.example.gestionbassins.entities;
 
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
-
+import com.example.gestionbassins.service.CatalogueIndexListener;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -13,6 +11,8 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @Entity
+@EntityListeners(CatalogueIndexListener.class)
+@Table(indexes = @Index(name = "idx_image_bassin_bassin", columnList = "id_bassin"))
 public class ImageBassin {
 
     @Id
@@ -25,11 +25,7 @@ public class ImageBassin {
     @Column(nullable=false)
     private String type;
     
-    @Lob
-    @JdbcTypeCode(SqlTypes.BINARY)  // Use this instead of @Type
-    @Column(columnDefinition = "BYTEA")   
-    //@JsonBackReference
-    private byte[] image;
+    // Le contenu est dans le stockage par empreinte (imagePath = clé), une seule copie par contenu
     
     @Column(name = "image_path")
     private String imagePath;
@@ -41,10 +37,9 @@ public class ImageBassin {
     @JsonBackReference
     private Bassin bassin;
     
-    public ImageBassin(String name, String type, byte[] image, String imagePath) {
+    public ImageBassin(String name, String type, String imagePath) {
         this.name = name;
         this.type = type;
-        this.image = image;
         this.imagePath = imagePath;
     }
    
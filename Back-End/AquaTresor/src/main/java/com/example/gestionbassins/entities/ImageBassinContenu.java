@@ -0,0 +1,44 @@
+package com.example.gestionbassins.entities;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Contenu binaire des images enregistrées avant le stockage par empreinte, recopié de l'ancienne
+ * colonne image_bassin.image (ImageBassinContenuMigration). Les nouvelles images n'y sont plus
+ * écrites : leur contenu est dans le stockage, sous la clé de ImageBassin.imagePath.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "image_bassin_contenu")
+public class ImageBassinContenu {
+
+    @Id
+    private Long idImage;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "id_image")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    private ImageBassin imageBassin;
+
+    @Lob
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BYTEA", nullable = false)
+    @ToString.Exclude
+    private byte[] contenu;
+
+    public ImageBassinContenu(ImageBassin imageBassin, byte[] contenu) {
+        this.imageBassin = imageBassin;
+        this.contenu = contenu;
+    }
+}
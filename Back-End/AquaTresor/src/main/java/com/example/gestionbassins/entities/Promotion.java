@@ -6,11 +6,13 @@ import jakarta.validation.constraints.NotNull;
 import lombok.*;
 import java.util.*;
 
+import com.example.gestionbassins.service.CatalogueIndexListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Data
 @NoArgsConstructor
 @Entity
+@EntityListeners(CatalogueIndexListener.class)
 public class Promotion {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,52 @@
+package com.example.gestionbassins.entities;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Quantité d'un bassin retenue par un panier (orders-microservice) jusqu'à son expiration.
+ * Le stock disponible d'un bassin est son stock moins ses réservations (ReservationStockService).
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_reservation_panier_bassin", columnNames = { "panier", "id_bassin" }),
+        indexes = {
+        @Index(name = "idx_reservation_panier", columnList = "panier"),
+        @Index(name = "idx_reservation_expiration", columnList = "expiration")
+})
+public class ReservationStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long idReservation;
+
+    // Identifiant du panier chez orders-microservice
+    @Column(nullable = false)
+    private String panier;
+
+    @Column(name = "id_bassin", nullable = false)
+    private Long idBassin;
+
+    private int quantite;
+
+    @Column(nullable = false)
+    private Date expiration;
+
+    public ReservationStock(String panier, Long idBassin, int quantite, Date expiration) {
+        this.panier = panier;
+        this.idBassin = idBassin;
+        this.quantite = quantite;
+        this.expiration = expiration;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.gestionbassins.entities;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dernier numéro d'image attribué pour un bassin (noms logiques idBassin_n.ext).
+ * Avancé par un UPDATE atomique : deux uploads simultanés ne reçoivent jamais le même numéro.
+ * Table dédiée plutôt qu'une colonne de Bassin, que les mises à jour du bassin écraseraient.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "sequence_image_bassin")
+public class SequenceImageBassin implements Persistable<Long> {
+
+    @Id
+    private Long idBassin;
+
+    private int dernierNumero;
+
+    // Identifiant fourni (id du bassin) : forcer un INSERT plutôt qu'un merge
+    @Transient
+    private boolean nouveau;
+
+    public SequenceImageBassin(Long idBassin, int dernierNumero) {
+        this.idBassin = idBassin;
+        this.dernierNumero = dernierNumero;
+        this.nouveau = true;
+    }
+
+    @Override
+    public Long getId() {
+        return idBassin;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nouveau;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marquerExistant() {
+        this.nouveau = false;
+    }
+}
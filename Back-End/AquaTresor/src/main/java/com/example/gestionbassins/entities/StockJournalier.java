@@ -0,0 +1,54 @@
+package com.example.gestionbassins.entities;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cumul des transactions de stock d'un bassin, par utilisateur et par jour : tenu à jour à chaque
+ * écriture de Transaction et reconstruit depuis l'historique par StockJournalierService. Les rapports
+ * lisent ces cumuls (un par jour de la période) au lieu de l'historique complet.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_journalier",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_journalier", columnNames = { "jour", "bassin_id", "user_id" }),
+        indexes = @Index(name = "idx_stock_journalier_jour", columnList = "jour"))
+public class StockJournalier {
+
+    // Utilisateur des transactions sans auteur ("Système")
+    public static final long SYSTEME = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Temporal(TemporalType.DATE)
+    @Column(nullable = false)
+    private Date jour;
+
+    @Column(name = "bassin_id", nullable = false)
+    private Long bassinId;
+
+    @Column(name = "user_id", nullable = false)
+    private long userId;
+
+    private int nbTransactions;
+    private int nbEntrees;
+    private int nbSorties;
+    private int quantiteEntrees;
+    // Négative, comme les quantites des transactions de sortie
+    private int quantiteSorties;
+}
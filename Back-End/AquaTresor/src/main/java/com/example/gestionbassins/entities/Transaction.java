@@ -8,6 +8,10 @@ import java.util.Date;
 @Data
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_transaction_bassin_date", columnList = "bassin_id, date_transaction"),
+    @Index(name = "idx_transaction_date", columnList = "date_transaction")
+})
 public class Transaction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,20 @@
+package com.example.gestionbassins.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Stock saisi sur une fiche lue avant un mouvement de stock : le client doit recharger le bassin
+@ResponseStatus(HttpStatus.CONFLICT)
+public class StockConflictException extends RuntimeException {
+
+    private final int currentStock;
+
+    public StockConflictException(String message, int currentStock) {
+        super(message);
+        this.currentStock = currentStock;
+    }
+
+    public int getCurrentStock() {
+        return currentStock;
+    }
+}
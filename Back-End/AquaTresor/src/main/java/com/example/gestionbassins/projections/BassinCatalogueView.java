@@ -0,0 +1,94 @@
+package com.example.gestionbassins.projections;
+
+import java.util.Date;
+
+import com.example.gestionbassins.dto.PrixEffectif;
+import com.example.gestionbassins.entities.Bassin;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Vue en lecture seule d'un bassin pour les listings du catalogue.
+ * Remplie par une expression constructeur JPQL (voir BassinRepository.findCatalogueViewsByIds) :
+ * aucune entité n'est chargée, donc pas de chargement paresseux à la sérialisation.
+ * La promotion en cours vient du moteur de prix (appliquerPrix), pas de la requête.
+ */
+@Getter
+@ToString
+public class BassinCatalogueView {
+
+    private final Long idBassin;
+    private final String nomBassin;
+    private final String description;
+    private final Double prix;
+    private final String materiau;
+    private final String couleur;
+    private final String dimensions;
+    private final boolean disponible;
+    private final int stock;
+    private final boolean archive;
+    private final String statut;
+    private final boolean surCommande;
+    private final Integer dureeFabricationJours;
+    private final Integer dureeFabricationJoursMin;
+    private final Integer dureeFabricationJoursMax;
+    private final Date dateAjout;
+    private final CategorieRef categorie;
+    private final String imagePath;
+    private final String image3DPath;
+    private boolean promotionActive;
+    private Double tauxReduction;
+    private Double prixPromo;
+
+    public BassinCatalogueView(Long idBassin, String nomBassin, String description, Double prix,
+                               String materiau, String couleur, String dimensions,
+                               boolean disponible, int stock, boolean archive, String statut,
+                               Boolean surCommande, Integer dureeFabricationJours,
+                               Integer dureeFabricationJoursMin, Integer dureeFabricationJoursMax,
+                               Date dateAjout, Long idCategorie, String nomCategorie,
+                               String imagePath, String image3DPath) {
+        this.idBassin = idBassin;
+        this.nomBassin = nomBassin;
+        this.description = description;
+        this.prix = prix;
+        this.materiau = materiau;
+        this.couleur = couleur;
+        this.dimensions = dimensions;
+        this.disponible = disponible;
+        this.stock = stock;
+        this.archive = archive;
+        this.statut = statut;
+        this.surCommande = Boolean.TRUE.equals(surCommande);
+        this.dureeFabricationJours = dureeFabricationJours;
+        this.dureeFabricationJoursMin = dureeFabricationJoursMin;
+        this.dureeFabricationJoursMax = dureeFabricationJoursMax;
+        this.dateAjout = dateAjout;
+        this.categorie = idCategorie != null ? new CategorieRef(idCategorie, nomCategorie) : null;
+        this.imagePath = imagePath;
+        this.image3DPath = image3DPath;
+        this.prixPromo = prix;
+    }
+
+    public void appliquerPrix(PrixEffectif prixEffectif) {
+        this.promotionActive = prixEffectif.isPromotionActive();
+        this.tauxReduction = prixEffectif.getTauxReduction();
+        this.prixPromo = prixEffectif.getPrixEffectif();
+    }
+
+    public String getDureeFabricationDisplay() {
+        return Bassin.formatDureeFabrication(dureeFabricationJours, dureeFabricationJoursMin, dureeFabricationJoursMax);
+    }
+
+    @Getter
+    @ToString
+    public static class CategorieRef {
+        private final Long idCategorie;
+        private final String nomCategorie;
+
+        public CategorieRef(Long idCategorie, String nomCategorie) {
+            this.idCategorie = idCategorie;
+            this.nomCategorie = nomCategorie;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.gestionbassins.projections;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Champs d'un bassin utiles aux index en mémoire du catalogue (recherche, suggestions, facettes, bitmaps).
+ * Remplie par BassinRepository.findIndexables au démarrage, puis relue après chaque modification.
+ */
+@Getter
+@ToString
+public class BassinIndexable {
+
+    private final Long idBassin;
+    private final String nomBassin;
+    private final String description;
+    private final String materiau;
+    private final String couleur;
+    private final Long idCategorie;
+    private final String nomCategorie;
+    private final boolean archive;
+    private final Double prix;
+    private final String statut;
+    // Colonnes tenues à jour par PromotionPlanificateur (promotion en cours, taux et prix remisé)
+    private final boolean promotionActive;
+    private final Double tauxReduction;
+    private final Double prixPromo;
+    private final String imagePath;
+
+    public BassinIndexable(Long idBassin, String nomBassin, String description, String materiau,
+                           String couleur, Long idCategorie, String nomCategorie, boolean archive,
+                           Double prix, String statut, boolean promotionActive, Double tauxReduction,
+                           Double prixPromo, String imagePath) {
+        this.idBassin = idBassin;
+        this.nomBassin = nomBassin;
+        this.description = description;
+        this.materiau = materiau;
+        this.couleur = couleur;
+        this.idCategorie = idCategorie;
+        this.nomCategorie = nomCategorie;
+        this.archive = archive;
+        this.prix = prix;
+        this.statut = statut;
+        this.promotionActive = promotionActive;
+        this.tauxReduction = tauxReduction;
+        this.prixPromo = prixPromo;
+        this.imagePath = imagePath;
+    }
+
+    public BassinIndexable avecCategorie(String nouveauNomCategorie) {
+        return new BassinIndexable(idBassin, nomBassin, description, materiau, couleur, idCategorie,
+                nouveauNomCategorie, archive, prix, statut, promotionActive, tauxReduction, prixPromo, imagePath);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.gestionbassins.projections;
+
+import java.util.Date;
+
+/**
+ * Somme de cumuls journaliers (StockJournalierRepository) sur une période, éventuellement par jour
+ * ou par utilisateur (getJour / getUserId null sinon). Les quantités de sortie sont négatives.
+ */
+public interface BilanStock {
+    Date getJour();
+    Long getUserId();
+    Long getNbTransactions();
+    Long getNbEntrees();
+    Long getNbSorties();
+    Long getQuantiteEntrees();
+    Long getQuantiteSorties();
+
+    default long getVariationNette() {
+        return getQuantiteEntrees() + getQuantiteSorties();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.gestionbassins.projections;
+
+/**
+ * Ligne d'inventaire des rapports de stock (BassinRepository.streamInventaire) : juste ce que la mise
+ * en page affiche, sans entité ni association. getIdCategorie est null pour un bassin sans catégorie.
+ */
+public interface LigneInventaire {
+    Long getIdCategorie();
+    String getNomCategorie();
+    String getNomBassin();
+    Double getPrix();
+    int getStock();
+    String getMateriau();
+    boolean isDisponible();
+    boolean isArchive();
+
+    default double getValeur() {
+        return getPrix() != null ? getPrix() * getStock() : 0;
+    }
+}
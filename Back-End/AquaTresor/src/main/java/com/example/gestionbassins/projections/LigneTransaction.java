@@ -0,0 +1,15 @@
+package com.example.gestionbassins.projections;
+
+import java.util.Date;
+
+/**
+ * Transaction telle que l'affiche le rapport d'un bassin (TransactionRepository.streamHistorique),
+ * sans le bassin ni l'utilisateur.
+ */
+public interface LigneTransaction {
+    Date getDateTransaction();
+    String getTypeOperation();
+    int getQuantite();
+    Long getUserId();
+    String getRaison();
+}
@@ -0,0 +1,32 @@
+package com.example.gestionbassins.projections;
+
+import java.util.Date;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Une promotion et l'un des bassins ou l'une des catégories qu'elle vise (idCible).
+ * Remplie par PromotionRepository (findCiblesBassins, findCiblesCategories…), sans entité.
+ */
+@Getter
+@ToString
+public class PromotionCible {
+
+    private final Long idPromotion;
+    private final String nomPromotion;
+    private final Double tauxReduction;
+    private final Date dateDebut;
+    private final Date dateFin;
+    private final Long idCible;
+
+    public PromotionCible(Long idPromotion, String nomPromotion, Double tauxReduction, Date dateDebut,
+                          Date dateFin, Long idCible) {
+        this.idPromotion = idPromotion;
+        this.nomPromotion = nomPromotion;
+        this.tauxReduction = tauxReduction;
+        this.dateDebut = dateDebut;
+        this.dateFin = dateFin;
+        this.idCible = idCible;
+    }
+}
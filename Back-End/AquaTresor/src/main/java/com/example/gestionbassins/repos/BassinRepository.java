@@ -1,15 +1,29 @@
 package com.example.gestionbassins.repos;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
 import com.example.gestionbassins.entities.Bassin;
 import com.example.gestionbassins.entities.Categorie;
+import com.example.gestionbassins.projections.BassinCatalogueView;
+import com.example.gestionbassins.projections.BassinIndexable;
+import com.example.gestionbassins.projections.LigneInventaire;
+
+import jakarta.persistence.QueryHint;
 
 
 @RepositoryRestResource(path= "rest")
@@ -49,5 +63,191 @@ public interface BassinRepository extends JpaRepository<Bassin, Long> {
 	
 	 List<Bassin> findByArchiveFalse(); // Récupérer les bassins non archivés
 	 List<Bassin> findByArchiveTrue(); 
+	 
+	 // Pagination keyset du catalogue : filtres optionnels + (clé de tri, id) strictement après le curseur.
+	 // Seuls les ids sont lus ici ; la page est ensuite hydratée par findCatalogueViewsByIds.
+	 // Le Pageable ne sert qu'à limiter le nombre de lignes (pas de requête count).
+	 String CATALOGUE_SELECT = "select b.idBassin from Bassin b left join b.categorie c "
+	 		+ "where (:archive is null or b.archive = :archive) "
+	 		+ "and (:categorieId is null or c.idCategorie = :categorieId) "
+	 		+ "and (:nom = '' or lower(b.nomBassin) like lower(concat('%', :nom, '%'))) ";
+	 
+	 @Query(CATALOGUE_SELECT
+	 		+ "and (:afterId is null or b.idBassin > :afterId) "
+	 		+ "order by b.idBassin asc")
+	 List<Long> findCatalogueIdsParId(@Param("archive") Boolean archive,
+	 		@Param("categorieId") Long categorieId,
+	 		@Param("nom") String nom,
+	 		@Param("afterId") Long afterId,
+	 		Pageable limit);
+	 
+	 @Query(CATALOGUE_SELECT
+	 		+ "and (:afterId is null or coalesce(b.nomBassin, '') > :afterNom "
+	 		+ "  or (coalesce(b.nomBassin, '') = :afterNom and b.idBassin > :afterId)) "
+	 		+ "order by coalesce(b.nomBassin, '') asc, b.idBassin asc")
+	 List<Long> findCatalogueIdsParNom(@Param("archive") Boolean archive,
+	 		@Param("categorieId") Long categorieId,
+	 		@Param("nom") String nom,
+	 		@Param("afterNom") String afterNom,
+	 		@Param("afterId") Long afterId,
+	 		Pageable limit);
+	 
+	 @Query(CATALOGUE_SELECT
+	 		+ "and (:afterId is null or b.prix > :afterPrix "
+	 		+ "  or (b.prix = :afterPrix and b.idBassin > :afterId)) "
+	 		+ "order by b.prix asc, b.idBassin asc")
+	 List<Long> findCatalogueIdsParPrixAsc(@Param("archive") Boolean archive,
+	 		@Param("categorieId") Long categorieId,
+	 		@Param("nom") String nom,
+	 		@Param("afterPrix") Double afterPrix,
+	 		@Param("afterId") Long afterId,
+	 		Pageable limit);
+	 
+	 @Query(CATALOGUE_SELECT
+	 		+ "and (:afterId is null or b.prix < :afterPrix "
+	 		+ "  or (b.prix = :afterPrix and b.idBassin < :afterId)) "
+	 		+ "order by b.prix desc, b.idBassin desc")
+	 List<Long> findCatalogueIdsParPrixDesc(@Param("archive") Boolean archive,
+	 		@Param("categorieId") Long categorieId,
+	 		@Param("nom") String nom,
+	 		@Param("afterPrix") Double afterPrix,
+	 		@Param("afterId") Long afterId,
+	 		Pageable limit);
+	 
+	 // Les bassins sans dateAjout sont rangés en fin de liste (date = :epoch)
+	 @Query(CATALOGUE_SELECT
+	 		+ "and (:afterId is null or coalesce(b.dateAjout, :epoch) < :afterDate "
+	 		+ "  or (coalesce(b.dateAjout, :epoch) = :afterDate and b.idBassin < :afterId)) "
+	 		+ "order by coalesce(b.dateAjout, :epoch) desc, b.idBassin desc")
+	 List<Long> findCatalogueIdsParDateDesc(@Param("archive") Boolean archive,
+	 		@Param("categorieId") Long categorieId,
+	 		@Param("nom") String nom,
+	 		@Param("epoch") Date epoch,
+	 		@Param("afterDate") Date afterDate,
+	 		@Param("afterId") Long afterId,
+	 		Pageable limit);
+	 
+	 // Hydratation d'une page du catalogue en une seule requête (image principale = plus petit idImage) ;
+	 // la promotion en cours est ajoutée par PrixEffectifService
+	 @Query("select new com.example.gestionbassins.projections.BassinCatalogueView("
+	 		+ "b.idBassin, b.nomBassin, b.description, b.prix, b.materiau, b.couleur, b.dimensions, "
+	 		+ "b.disponible, b.stock, b.archive, b.statut, b.surCommande, b.dureeFabricationJours, "
+	 		+ "b.dureeFabricationJoursMin, b.dureeFabricationJoursMax, b.dateAjout, c.idCategorie, c.nomCategorie, "
+	 		+ "coalesce((select i.imagePath from ImageBassin i where i.idImage = "
+	 		+ "  (select min(i2.idImage) from ImageBassin i2 where i2.bassin = b)), b.imagePath), "
+	 		+ "b.image3DPath) "
+	 		+ "from Bassin b left join b.categorie c "
+	 		+ "where b.idBassin in :ids")
+	 List<BassinCatalogueView> findCatalogueViewsByIds(@Param("ids") Collection<Long> ids);
+
+	 @Query(value = "select b.idBassin from Bassin b order by b.idBassin", countQuery = "select count(b) from Bassin b")
+	 Page<Long> findIdsPage(Pageable pageable);
+
+	 @Query("select b.idBassin from Bassin b where b.idBassin in :ids")
+	 List<Long> findIdsExistants(@Param("ids") Collection<Long> ids);
+
+	 // Index en mémoire du catalogue : uniquement les champs indexés, sans entité
+	 String INDEXABLE_SELECT = "select new com.example.gestionbassins.projections.BassinIndexable("
+	 		+ "b.idBassin, b.nomBassin, b.description, b.materiau, b.couleur, c.idCategorie, c.nomCategorie, b.archive, "
+	 		+ "b.prix, b.statut, b.promotionActive, b.tauxReduction, b.prixPromo, "
+	 		+ "coalesce((select i.imagePath from ImageBassin i where i.idImage = "
+	 		+ "  (select min(i2.idImage) from ImageBassin i2 where i2.bassin = b)), b.imagePath)) "
+	 		+ "from Bassin b left join b.categorie c ";
+
+	 @Query(INDEXABLE_SELECT)
+	 List<BassinIndexable> findIndexables();
+
+	 @Query(INDEXABLE_SELECT + "where b.idBassin in :ids")
+	 List<BassinIndexable> findIndexablesByIds(@Param("ids") Collection<Long> ids);
+
+	 // Promotions arrivées à échéance (PromotionPlanificateur) : un UPDATE par taux, sans charger d'entité
+	 @Modifying(clearAutomatically = true)
+	 @Query("update Bassin b set b.promotionActive = true, b.tauxReduction = :taux, "
+	 		+ "b.prixPromo = b.prix * (1 - :taux / 100), b.version = b.version + 1 where b.idBassin in :ids")
+	 int appliquerPromotion(@Param("ids") Collection<Long> ids, @Param("taux") Double taux);
+
+	 @Modifying(clearAutomatically = true)
+	 @Query("update Bassin b set b.promotionActive = false, b.tauxReduction = null, b.prixPromo = null, "
+	 		+ "b.version = b.version + 1 where b.idBassin in :ids")
+	 int retirerPromotion(@Param("ids") Collection<Long> ids);
+
+	 // Stock (StockService) : une instruction conditionnelle, sans lecture préalable ; 0 ligne modifiée
+	 // si le bassin n'existe pas ou si le stock deviendrait négatif
+	 @Modifying(clearAutomatically = true)
+	 @Query("update Bassin b set b.stock = b.stock + :delta, b.version = b.version + 1 "
+	 		+ "where b.idBassin = :id and b.stock + :delta >= 0")
+	 int ajusterStock(@Param("id") Long id, @Param("delta") int delta);
+
+	 // Idem, avec le statut déduit du nouveau stock (SUR_COMMANDE à 0, fabrication de 4 à 15 jours)
+	 @Modifying(clearAutomatically = true)
+	 @Query("update Bassin b set b.stock = b.stock + :delta, "
+	 		+ "b.statut = case when b.stock + :delta = 0 then 'SUR_COMMANDE' else 'DISPONIBLE' end, "
+	 		+ "b.surCommande = case when b.stock + :delta = 0 then true else false end, "
+	 		+ "b.dureeFabricationJoursMin = case when b.stock + :delta = 0 then 4 else null end, "
+	 		+ "b.dureeFabricationJoursMax = case when b.stock + :delta = 0 then 15 else null end, "
+	 		+ "b.version = b.version + 1 "
+	 		+ "where b.idBassin = :id and b.stock + :delta >= 0")
+	 int ajusterStockEtStatut(@Param("id") Long id, @Param("delta") int delta);
+
+	 // Stock fixé (désarchivage avec une nouvelle quantité), sans lecture préalable
+	 @Modifying(clearAutomatically = true)
+	 @Query("update Bassin b set b.stock = :stock, b.version = b.version + 1 where b.idBassin = :id")
+	 int definirStock(@Param("id") Long id, @Param("stock") int stock);
+
+	 @Query("select b.stock from Bassin b where b.idBassin = :id")
+	 Integer findStock(@Param("id") Long id);
+
+	 // id, nom et stock des bassins d'un lot de mouvements
+	 @Query("select b.idBassin, b.nomBassin, b.stock from Bassin b where b.idBassin in :ids")
+	 List<Object[]> findStocks(@Param("ids") Collection<Long> ids);
+
+	 // Inventaire des rapports en un seul passage : curseur lu par paquets, à consommer dans une transaction
+	 @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	 @Query("select c.idCategorie as idCategorie, c.nomCategorie as nomCategorie, b.nomBassin as nomBassin, "
+	 		+ "b.prix as prix, b.stock as stock, b.materiau as materiau, b.disponible as disponible, "
+	 		+ "b.archive as archive from Bassin b left join b.categorie c "
+	 		+ "where :archives = true or b.archive = false order by c.idCategorie, b.idBassin")
+	 Stream<LigneInventaire> streamInventaire(@Param("archives") boolean archives);
+
+	 // Recherche par intervalles de dimensions et de prix (index idx_bassin_*_prix) ; seuls les ids sont lus,
+	 // la page est ensuite hydratée par findCatalogueViewsByIds
+	 String DIMENSIONS_WHERE = "where (:archive is null or b.archive = :archive) "
+	 		+ "and (:prixMin is null or b.prix >= :prixMin) and (:prixMax is null or b.prix <= :prixMax) ";
+
+	 @Query(value = "select b.idBassin from Bassin b " + DIMENSIONS_WHERE
+	 		+ "and (:longueurMin is null or b.dimensionsMesurees.longueurCm >= :longueurMin) "
+	 		+ "and (:longueurMax is null or b.dimensionsMesurees.longueurCm <= :longueurMax) "
+	 		+ "and (:largeurMin is null or b.dimensionsMesurees.largeurCm >= :largeurMin) "
+	 		+ "and (:largeurMax is null or b.dimensionsMesurees.largeurCm <= :largeurMax) "
+	 		+ "and (:profondeurMin is null or b.dimensionsMesurees.profondeurCm >= :profondeurMin) "
+	 		+ "and (:profondeurMax is null or b.dimensionsMesurees.profondeurCm <= :profondeurMax) "
+	 		+ "and (:volumeMin is null or b.dimensionsMesurees.volumeLitres >= :volumeMin) "
+	 		+ "and (:volumeMax is null or b.dimensionsMesurees.volumeLitres <= :volumeMax) "
+	 		+ "order by b.prix asc, b.idBassin asc")
+	 Page<Long> findIdsParDimensions(@Param("longueurMin") Double longueurMin, @Param("longueurMax") Double longueurMax,
+	 		@Param("largeurMin") Double largeurMin, @Param("largeurMax") Double largeurMax,
+	 		@Param("profondeurMin") Double profondeurMin, @Param("profondeurMax") Double profondeurMax,
+	 		@Param("volumeMin") Double volumeMin, @Param("volumeMax") Double volumeMax,
+	 		@Param("prixMin") Double prixMin, @Param("prixMax") Double prixMax,
+	 		@Param("archive") Boolean archive, Pageable pageable);
+
+	 // Bassins dont au moins une option de personnalisation est dans les intervalles
+	 @Query(value = "select b.idBassin from Bassin b " + DIMENSIONS_WHERE
+	 		+ "and exists (select 1 from BassinPersonnalise bp join bp.dimensionsMesurees d where bp.bassin = b "
+	 		+ "  and (:longueurMin is null or d.longueurCm >= :longueurMin) "
+	 		+ "  and (:longueurMax is null or d.longueurCm <= :longueurMax) "
+	 		+ "  and (:largeurMin is null or d.largeurCm >= :largeurMin) "
+	 		+ "  and (:largeurMax is null or d.largeurCm <= :largeurMax) "
+	 		+ "  and (:profondeurMin is null or d.profondeurCm >= :profondeurMin) "
+	 		+ "  and (:profondeurMax is null or d.profondeurCm <= :profondeurMax) "
+	 		+ "  and (:volumeMin is null or d.volumeLitres >= :volumeMin) "
+	 		+ "  and (:volumeMax is null or d.volumeLitres <= :volumeMax)) "
+	 		+ "order by b.prix asc, b.idBassin asc")
+	 Page<Long> findIdsPersonnalisablesParDimensions(@Param("longueurMin") Double longueurMin, @Param("longueurMax") Double longueurMax,
+	 		@Param("largeurMin") Double largeurMin, @Param("largeurMax") Double largeurMax,
+	 		@Param("profondeurMin") Double profondeurMin, @Param("profondeurMax") Double profondeurMax,
+	 		@Param("volumeMin") Double volumeMin, @Param("volumeMax") Double volumeMax,
+	 		@Param("prixMin") Double prixMin, @Param("prixMax") Double prixMax,
+	 		@Param("archive") Boolean archive, Pageable pageable);
 }
 
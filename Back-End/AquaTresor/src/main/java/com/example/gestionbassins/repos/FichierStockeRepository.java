@@ -0,0 +1,28 @@
+package com.example.gestionbassins.repos;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.gestionbassins.entities.FichierStocke;
+
+public interface FichierStockeRepository extends JpaRepository<FichierStocke, String> {
+
+    // Mises à jour atomiques en base : pas de lecture-modification-écriture côté Java
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update FichierStocke f set f.nbReferences = f.nbReferences + 1 where f.sha256 = :sha256")
+    int incrementerReferences(@Param("sha256") String sha256);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update FichierStocke f set f.nbReferences = f.nbReferences - 1 where f.sha256 = :sha256 and f.nbReferences > 0")
+    int decrementerReferences(@Param("sha256") String sha256);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from FichierStocke f where f.sha256 = :sha256 and f.nbReferences <= 0")
+    int supprimerSiOrphelin(@Param("sha256") String sha256);
+}
@@ -0,0 +1,8 @@
+package com.example.gestionbassins.repos;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.gestionbassins.entities.ImageBassinContenu;
+
+public interface ImageBassinContenuRepository extends JpaRepository<ImageBassinContenu, Long> {
+}
@@ -11,7 +11,9 @@ import java.util.List;
 public interface ImageBassinRepository extends JpaRepository<ImageBassin, Long> {
     List<ImageBassin> findByBassinIdBassin(Long idBassin);
     
-    @Query("SELECT MAX(CAST(SUBSTRING(i.imagePath, LOCATE('_', i.imagePath) + 1, LOCATE('.', i.imagePath) - LOCATE('_', i.imagePath) - 1) AS int)) " +
+    // Dernier numéro lu dans les noms logiques (idBassin_n.ext) : ne sert plus qu'à initialiser
+    // la séquence d'un bassin (SequenceImageBassinService), une seule fois par bassin
+    @Query("SELECT MAX(CAST(SUBSTRING(i.name, LOCATE('_', i.name) + 1, LOCATE('.', i.name) - LOCATE('_', i.name) - 1) AS int)) " +
     	       "FROM ImageBassin i WHERE i.bassin.idBassin = :idBassin")
     Integer findLastImageIdByBassin(@Param("idBassin") Long idBassin);
 
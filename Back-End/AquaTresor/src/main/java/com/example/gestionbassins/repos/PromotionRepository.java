@@ -1,7 +1,9 @@
 package com.example.gestionbassins.repos;
 
 import com.example.gestionbassins.entities.Promotion;
+import com.example.gestionbassins.projections.PromotionCible;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import com.example.gestionbassins.entities.Promotion;
@@ -9,6 +11,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -79,7 +82,73 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
          @Param("categorieId") Long categorieId, 
          @Param("dateDebut") Date dateDebut,
          @Param("dateFin") Date dateFin);
-    
 
+     // Moteur de prix (PrixEffectifService) : liens promotion -> bassin / catégorie, sans entité
+     String CIBLE_SELECT = "select new com.example.gestionbassins.projections.PromotionCible("
+             + "p.idPromotion, p.nomPromotion, p.tauxReduction, p.dateDebut, p.dateFin, ";
+
+     @Query(CIBLE_SELECT + "b.idBassin) from Promotion p join p.bassins b where p.dateFin >= :depuis")
+     List<PromotionCible> findCiblesBassins(@Param("depuis") Date depuis);
+
+     @Query(CIBLE_SELECT + "c.idCategorie) from Promotion p join p.categories c where p.dateFin >= :depuis")
+     List<PromotionCible> findCiblesCategories(@Param("depuis") Date depuis);
+
+     @Query(CIBLE_SELECT + "b.idBassin) from Promotion p join p.bassins b where p.idPromotion in :ids")
+     List<PromotionCible> findCiblesBassinsByPromotionIds(@Param("ids") Collection<Long> ids);
+
+     @Query(CIBLE_SELECT + "c.idCategorie) from Promotion p join p.categories c where p.idPromotion in :ids")
+     List<PromotionCible> findCiblesCategoriesByPromotionIds(@Param("ids") Collection<Long> ids);
+
+     // Promotions en cours d'une page de bassins (idCible = bassin), directes puis via la catégorie du bassin
+     @Query(CIBLE_SELECT + "b.idBassin) from Promotion p join p.bassins b "
+             + "where b.idBassin in :ids and p.dateDebut <= :now and p.dateFin >= :now")
+     List<PromotionCible> findActivesParBassins(@Param("ids") Collection<Long> ids, @Param("now") Date now);
+
+     @Query(CIBLE_SELECT + "b.idBassin) from Promotion p join p.categories c, Bassin b "
+             + "where b.categorie = c and b.idBassin in :ids and p.dateDebut <= :now and p.dateFin >= :now")
+     List<PromotionCible> findActivesParCategoriesDesBassins(@Param("ids") Collection<Long> ids, @Param("now") Date now);
+
+     // Promotions qui chevauchent [dateDebut, dateFin] sur l'un des bassins / l'une des catégories donnés,
+     // en une requête quel que soit leur nombre (idCible = bassin ou catégorie en conflit)
+     @Query(CIBLE_SELECT + "b.idBassin) from Promotion p join p.bassins b where b.idBassin in :ids "
+             + "and p.dateDebut <= :dateFin and p.dateFin >= :dateDebut "
+             + "and (:promotionId is null or p.idPromotion <> :promotionId)")
+     List<PromotionCible> findChevauchementsBassins(@Param("ids") Collection<Long> ids,
+             @Param("dateDebut") Date dateDebut, @Param("dateFin") Date dateFin,
+             @Param("promotionId") Long promotionId);
+
+     @Query(CIBLE_SELECT + "c.idCategorie) from Promotion p join p.categories c where c.idCategorie in :ids "
+             + "and p.dateDebut <= :dateFin and p.dateFin >= :dateDebut "
+             + "and (:promotionId is null or p.idPromotion <> :promotionId)")
+     List<PromotionCible> findChevauchementsCategories(@Param("ids") Collection<Long> ids,
+             @Param("dateDebut") Date dateDebut, @Param("dateFin") Date dateFin,
+             @Param("promotionId") Long promotionId);
+
+     // Application d'une promotion en base (tables de jointure), sans charger de bassin ;
+     // les liens déjà présents sont conservés tels quels
+     @Modifying(clearAutomatically = true)
+     @Query(value = "insert into promotion_bassin (id_promotion, id_bassin) "
+             + "select cast(:idPromotion as bigint), b.id_bassin from bassin b where b.id_bassin in (:ids) "
+             + "and not exists (select 1 from promotion_bassin pb "
+             + "where pb.id_promotion = :idPromotion and pb.id_bassin = b.id_bassin)", nativeQuery = true)
+     int lierBassins(@Param("idPromotion") Long idPromotion, @Param("ids") Collection<Long> ids);
+
+     @Modifying(clearAutomatically = true)
+     @Query(value = "delete from promotion_bassin where id_promotion = :idPromotion and id_bassin not in (:ids)",
+             nativeQuery = true)
+     int delierBassinsSauf(@Param("idPromotion") Long idPromotion, @Param("ids") Collection<Long> ids);
+
+     @Modifying(clearAutomatically = true)
+     @Query(value = "insert into promotion_bassin (id_promotion, id_bassin) "
+             + "select cast(:idPromotion as bigint), b.id_bassin from bassin b where b.categorie_id_categorie = :idCategorie "
+             + "and not exists (select 1 from promotion_bassin pb "
+             + "where pb.id_promotion = :idPromotion and pb.id_bassin = b.id_bassin)", nativeQuery = true)
+     int lierBassinsDeCategorie(@Param("idPromotion") Long idPromotion, @Param("idCategorie") Long idCategorie);
 
-}
\ No newline at end of file
+     @Modifying(clearAutomatically = true)
+     @Query(value = "insert into promotion_categorie (id_promotion, id_categorie) "
+             + "select cast(:idPromotion as bigint), cast(:idCategorie as bigint) where not exists "
+             + "(select 1 from promotion_categorie pc where pc.id_promotion = :idPromotion "
+             + "and pc.id_categorie = :idCategorie)", nativeQuery = true)
+     int lierCategorie(@Param("idPromotion") Long idPromotion, @Param("idCategorie") Long idCategorie);
+}
@@ -0,0 +1,27 @@
+package com.example.gestionbassins.repos;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.gestionbassins.entities.ReservationStock;
+
+public interface ReservationStockRepository extends JpaRepository<ReservationStock, Long> {
+
+    List<ReservationStock> findByPanier(String panier);
+
+    List<ReservationStock> findByPanierAndExpirationAfter(String panier, Date maintenant);
+
+    // Balayage des réservations expirées, par lots (index idx_reservation_expiration)
+    List<ReservationStock> findTop500ByExpirationLessThanEqualOrderByExpirationAsc(Date maintenant);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update ReservationStock r set r.expiration = :expiration "
+            + "where r.panier = :panier and r.expiration > :maintenant")
+    int prolonger(@Param("panier") String panier, @Param("expiration") Date expiration,
+                  @Param("maintenant") Date maintenant);
+}
@@ -0,0 +1,19 @@
+package com.example.gestionbassins.repos;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.gestionbassins.entities.SequenceImageBassin;
+
+public interface SequenceImageBassinRepository extends JpaRepository<SequenceImageBassin, Long> {
+
+    // Verrouille la ligne jusqu'à la fin de la transaction appelante : la lecture qui suit voit notre valeur
+    @Modifying(clearAutomatically = true)
+    @Query("update SequenceImageBassin s set s.dernierNumero = s.dernierNumero + :nombre where s.idBassin = :idBassin")
+    int avancer(@Param("idBassin") Long idBassin, @Param("nombre") int nombre);
+
+    @Query("select s.dernierNumero from SequenceImageBassin s where s.idBassin = :idBassin")
+    Integer findDernierNumero(@Param("idBassin") Long idBassin);
+}
@@ -0,0 +1,30 @@
+package com.example.gestionbassins.repos;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.gestionbassins.entities.StockJournalier;
+import com.example.gestionbassins.projections.BilanStock;
+
+public interface StockJournalierRepository extends JpaRepository<StockJournalier, Long> {
+
+    String BILAN = "coalesce(sum(s.nbTransactions), 0) as nbTransactions, coalesce(sum(s.nbEntrees), 0) as nbEntrees, "
+            + "coalesce(sum(s.nbSorties), 0) as nbSorties, coalesce(sum(s.quantiteEntrees), 0) as quantiteEntrees, "
+            + "coalesce(sum(s.quantiteSorties), 0) as quantiteSorties from StockJournalier s "
+            + "where s.jour between :debut and :fin ";
+
+    @Query("select " + BILAN)
+    BilanStock findBilan(@Param("debut") Date debut, @Param("fin") Date fin);
+
+    @Query("select s.userId as userId, " + BILAN + "group by s.userId")
+    List<BilanStock> findBilansParUtilisateur(@Param("debut") Date debut, @Param("fin") Date fin);
+
+    @Query("select s.jour as jour, " + BILAN + "and (:bassinId is null or s.bassinId = :bassinId) "
+            + "group by s.jour order by s.jour")
+    List<BilanStock> findBilansParJour(@Param("debut") Date debut, @Param("fin") Date fin,
+                                       @Param("bassinId") Long bassinId);
+}
@@ -1,11 +1,23 @@
 package com.example.gestionbassins.repos;
 
 import com.example.gestionbassins.entities.Transaction;
+import com.example.gestionbassins.projections.LigneTransaction;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -21,4 +33,22 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     
     List<Transaction> findByBassin_IdBassinAndDateTransactionBetweenOrderByDateTransactionDesc(
         Long bassinId, Date startDate, Date endDate);
+    
+    // Historiques paginés (index idx_transaction_bassin_date / idx_transaction_date), bassin chargé dans la même requête ;
+    // période [debut, fin[ : fin exclue
+    @EntityGraph(attributePaths = "bassin")
+    Page<Transaction> findByDateTransactionGreaterThanEqualAndDateTransactionLessThanOrderByDateTransactionDesc(
+        Date debut, Date fin, Pageable pageable);
+    
+    @EntityGraph(attributePaths = "bassin")
+    Page<Transaction> findByBassin_IdBassinAndDateTransactionGreaterThanEqualAndDateTransactionLessThanOrderByDateTransactionDesc(
+        Long bassinId, Date debut, Date fin, Pageable pageable);
+    
+    // Historique d'un bassin pour son rapport : curseur lu par paquets, à consommer dans une transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select t.dateTransaction as dateTransaction, t.typeOperation as typeOperation, t.quantite as quantite, "
+        + "t.userId as userId, t.raison as raison from Transaction t where t.bassin.idBassin = :bassinId "
+        + "and t.dateTransaction >= :debut and t.dateTransaction < :fin order by t.dateTransaction desc")
+    Stream<LigneTransaction> streamHistorique(@Param("bassinId") Long bassinId, @Param("debut") Date debut,
+        @Param("fin") Date fin);
 }
\ No newline at end of file
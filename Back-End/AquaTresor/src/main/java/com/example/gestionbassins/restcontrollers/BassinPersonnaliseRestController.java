@@ -9,6 +9,7 @@ import com.example.gestionbassins.repos.AccessoireRepository;
 import com.example.gestionbassins.repos.BassinPersonnaliseRepository;
 import com.example.gestionbassins.repos.BassinRepository;
 import com.example.gestionbassins.service.BassinPersonnaliseServiceImpl;
+import com.example.gestionbassins.service.FileStorageService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +25,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +52,9 @@ public class BassinPersonnaliseRestController {
 
     @Autowired 
     private BassinRepository bassinRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
     
     @PostMapping("/ajouterBassinPersonnalise/{idBassin}")
     public ResponseEntity<?> ajouterBassinPersonnalise(
@@ -89,6 +94,7 @@ public class BassinPersonnaliseRestController {
             bassinPersonnaliseRepository.save(bassinPersonnalise);
 
             // 8️⃣ Sauvegarder les images des accessoires
+            List<String> clesStockees = new ArrayList<>();
             if (accessoireImages != null && !accessoireImages.isEmpty()) {
                 for (int i = 0; i < accessoireImages.size(); i++) {
                     MultipartFile file = accessoireImages.get(i);
@@ -98,13 +104,20 @@ public class BassinPersonnaliseRestController {
                         if (i < accessoires.size()) {
                             Accessoire accessoire = accessoires.get(i);
                             bassinPersonnaliseService.uploadImageAccessoireForAdd(bassinPersonnalise, accessoire, file); // Utiliser la nouvelle méthode
+                            clesStockees.add(accessoire.getImagePath());
                         }
                     }
                 }
             }
 
             // 9️⃣ Sauvegarder à nouveau pour mettre à jour les chemins d'image
-            bassinPersonnaliseRepository.save(bassinPersonnalise);
+            try {
+                bassinPersonnaliseRepository.save(bassinPersonnalise);
+            } catch (RuntimeException e) {
+                // Chemins non enregistrés : rendre les références prises sur les images
+                clesStockees.forEach(fileStorageService::liberer);
+                throw e;
+            }
 
             // 🔟 Créer une réponse personnalisée avec seulement l'ID du bassin
             BassinPersonnaliseDTO responseDTO = new BassinPersonnaliseDTO();
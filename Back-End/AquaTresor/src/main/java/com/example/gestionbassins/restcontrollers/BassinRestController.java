@@ -1,10 +1,6 @@
 package com.example.gestionbassins.restcontrollers;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
@@ -14,6 +10,7 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -31,17 +28,30 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.example.gestionbassins.dto.BassinDTO;
+import com.example.gestionbassins.dto.CursorPage;
+import com.example.gestionbassins.dto.FiltreCatalogue;
+import com.example.gestionbassins.dto.FiltreDimensions;
+import com.example.gestionbassins.dto.PrixEffectif;
+import com.example.gestionbassins.dto.ResultatMouvementStock;
+import com.example.gestionbassins.dto.SearchPage;
+import com.example.gestionbassins.dto.SuggestionDTO;
 import com.example.gestionbassins.dto.TransactionDTO;
 import com.example.gestionbassins.dto.UpdateStockRequest;
 import com.example.gestionbassins.entities.Bassin;
 import com.example.gestionbassins.entities.ImageBassin;
 import com.example.gestionbassins.entities.Transaction;
+import com.example.gestionbassins.projections.BassinCatalogueView;
 import com.example.gestionbassins.repos.BassinRepository;
 import com.example.gestionbassins.repos.ImageBassinRepository;
 import com.example.gestionbassins.service.BassinService;
 import com.example.gestionbassins.service.ImageBassinService;
+import com.example.gestionbassins.service.FileStorageService;
+import com.example.gestionbassins.service.PrixEffectifService;
+import com.example.gestionbassins.service.StockService;
+import com.example.gestionbassins.service.SuggestionCatalogueService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.web.bind.annotation.PutMapping;
@@ -59,8 +69,6 @@ import com.example.gestionbassins.service.UserServiceClient;
 @CrossOrigin(origins = "http://localhost:4200", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE})
 public class BassinRestController {
 
-	private final String uploadDir = "C:/shared/images/"; 
-	
     @Autowired
     BassinService bassinService; 
     
@@ -70,6 +78,18 @@ public class BassinRestController {
     @Autowired
     ImageBassinRepository imageBassinRepository;
     
+    @Autowired
+    FileStorageService fileStorageService;
+
+    @Autowired
+    SuggestionCatalogueService suggestionCatalogueService;
+
+    @Autowired
+    PrixEffectifService prixEffectifService;
+    
+    @Autowired
+    StockService stockService;
+
     @Autowired
     BassinRepository bassinRepository;
     @Autowired
@@ -82,12 +102,133 @@ public class BassinRestController {
     /*******************Gestion bassin********************/
     
     // Get all events
+    // Liste complète non paginée : préférer /catalogue pour la vitrine
    @RequestMapping(path="all", method=RequestMethod.GET)
     public List<Bassin> getAllBassins() {
         return bassinService.getAllBassins();
     }
+   
+    // Catalogue paginé par curseur : tri = id | nom | prix_asc | prix_desc | date_desc
+    @GetMapping("/catalogue")
+    public ResponseEntity<?> getCatalogue(
+            @RequestParam(value = "archive", required = false) Boolean archive,
+            @RequestParam(value = "categorieId", required = false) Long categorieId,
+            @RequestParam(value = "nom", required = false) String nom,
+            @RequestParam(value = "tri", required = false) String tri,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(bassinService.getBassinsPage(archive, categorieId, nom, tri, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
     
    
+    // Recherche plein texte (nom, description, matériau, couleur, catégorie), classée par pertinence
+    @GetMapping("/catalogue/search")
+    public ResponseEntity<?> rechercherCatalogue(
+            @RequestParam("q") String q,
+            @RequestParam(value = "archive", required = false) Boolean archive,
+            @RequestParam(value = "categorieId", required = false) Long categorieId,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(bassinService.rechercherBassins(q, archive, categorieId, page, size));
+    }
+
+    // Filtres à facettes : plusieurs valeurs d'un même paramètre s'additionnent, les paramètres se combinent
+    @GetMapping("/catalogue/filter")
+    public ResponseEntity<?> filtrerCatalogue(
+            @RequestParam(value = "materiau", required = false) List<String> materiaux,
+            @RequestParam(value = "couleur", required = false) List<String> couleurs,
+            @RequestParam(value = "categorie", required = false) List<Long> categories,
+            @RequestParam(value = "statut", required = false) List<String> statuts,
+            @RequestParam(value = "archive", required = false) Boolean archive,
+            @RequestParam(value = "prixMin", required = false) Double prixMin,
+            @RequestParam(value = "prixMax", required = false) Double prixMax,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        if (prixMin != null && prixMax != null && prixMin > prixMax) {
+            return ResponseEntity.badRequest().body("prixMin doit être inférieur ou égal à prixMax");
+        }
+        FiltreCatalogue filtre = new FiltreCatalogue();
+        if (materiaux != null) filtre.setMateriaux(materiaux);
+        if (couleurs != null) filtre.setCouleurs(couleurs);
+        if (categories != null) filtre.setCategories(categories);
+        if (statuts != null) filtre.setStatuts(statuts);
+        filtre.setArchive(archive);
+        filtre.setPrixMin(prixMin);
+        filtre.setPrixMax(prixMax);
+        return ResponseEntity.ok(bassinService.filtrerBassins(filtre, page, size));
+    }
+
+    // Filtre combiné sur l'index bitmap, ex. "categorie:3 AND (materiau:beton OR materiau:acier) AND NOT archive:true"
+    @GetMapping("/catalogue/query")
+    public ResponseEntity<?> interrogerCatalogue(
+            @RequestParam("filtre") String filtre,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(bassinService.interrogerCatalogue(filtre, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Recherche par intervalles : longueurMin/Max, largeurMin/Max, profondeurMin/Max (cm), volumeMin/Max (litres),
+    // prixMin/Max, archive ; triée par prix
+    @GetMapping("/catalogue/dimensions")
+    public ResponseEntity<?> rechercherParDimensions(FiltreDimensions filtre,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return rechercherParDimensions(filtre, false, page, size);
+    }
+
+    // Mêmes intervalles, appliqués aux options de personnalisation des bassins
+    @GetMapping("/catalogue/dimensions/personnalisables")
+    public ResponseEntity<?> rechercherPersonnalisablesParDimensions(FiltreDimensions filtre,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return rechercherParDimensions(filtre, true, page, size);
+    }
+
+    private ResponseEntity<?> rechercherParDimensions(FiltreDimensions f, boolean personnalisables,
+            Integer page, Integer size) {
+        if (inverse(f.getLongueurMin(), f.getLongueurMax()) || inverse(f.getLargeurMin(), f.getLargeurMax())
+                || inverse(f.getProfondeurMin(), f.getProfondeurMax()) || inverse(f.getVolumeMin(), f.getVolumeMax())
+                || inverse(f.getPrixMin(), f.getPrixMax())) {
+            return ResponseEntity.badRequest().body("Chaque minimum doit être inférieur ou égal à son maximum");
+        }
+        return ResponseEntity.ok(bassinService.rechercherParDimensions(f, personnalisables, page, size));
+    }
+
+    private static boolean inverse(Double min, Double max) {
+        return min != null && max != null && min > max;
+    }
+
+    // Suggestions de la barre de recherche (en mémoire, tolérantes aux fautes de frappe)
+    @GetMapping("/catalogue/suggestions")
+    public List<SuggestionDTO> suggererBassins(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        int nombre = (limit == null || limit <= 0) ? SuggestionCatalogueService.NOMBRE_PAR_DEFAUT
+                : Math.min(limit, SuggestionCatalogueService.NOMBRE_MAX);
+        return suggestionCatalogueService.suggerer(q, nombre);
+    }
+
+    // Prix courant (promotion en cours comprise), précalculé : pour le panier et les fiches produit
+    @GetMapping("/catalogue/prix/{idBassin}")
+    public ResponseEntity<PrixEffectif> getPrixEffectif(@PathVariable("idBassin") Long idBassin) {
+        PrixEffectif prix = prixEffectifService.prix(idBassin);
+        return prix != null ? ResponseEntity.ok(prix) : ResponseEntity.notFound().build();
+    }
+
+    // Prix courants de plusieurs bassins (ids inconnus ignorés), ex. ?ids=1,2,3
+    @GetMapping("/catalogue/prix")
+    public List<PrixEffectif> getPrixEffectifs(@RequestParam("ids") List<Long> ids) {
+        return new ArrayList<>(prixEffectifService.prix(ids).values());
+    }
+
     @RequestMapping(value="getbyid/{idBassin}", method=RequestMethod.GET)
     public Bassin getBassinById(@PathVariable("idBassin") Long id) {
         return bassinService.getBassin(id);
@@ -175,62 +316,79 @@ public class BassinRestController {
         existingBassin.setCouleur(b.getCouleur());
         existingBassin.setDimensions(b.getDimensions());
         existingBassin.setDisponible(b.isDisponible());
-        existingBassin.setStock(b.getStock());
+        stockService.reporterSaisie(existingBassin, b);
         existingBassin.setCategorie(b.getCategorie());
 
-        // Traitement des fichiers images
-        if (files != null && files.length > 0) {
-            for (MultipartFile file : files) {
-                if (file != null && !file.isEmpty()) {
-                    String originalFilename = file.getOriginalFilename();
-
-                    // Extraire l'index de l'image à partir du nom du fichier (format : "id_index.extension")
-                    String[] filenameParts = originalFilename.split("_");
-                    if (filenameParts.length > 1) {
-                        try {
-                            int imageIndex = Integer.parseInt(filenameParts[1].split("\\.")[0]) - 1; // Index commence à 0
-
-                            // Vérifier que l'index est valide
-                            if (imageIndex >= 0 && imageIndex < existingBassin.getImagesBassin().size()) {
-                                ImageBassin oldImage = existingBassin.getImagesBassin().get(imageIndex);
-
-                                // Supprimer l'ancienne image du dossier
-                                Path oldImagePath = Paths.get(uploadDir + oldImage.getName());
-                                Files.deleteIfExists(oldImagePath);
-
-                                // Générer un nouveau nom de fichier
-                                String extension = FilenameUtils.getExtension(originalFilename);
-                                String newImageName = b.getIdBassin() + "_" + (imageIndex + 1) + "." + extension;
-
-                                // Sauvegarder la nouvelle image dans le dossier
-                                Path newImagePath = Paths.get(uploadDir + newImageName);
-                                Files.copy(file.getInputStream(), newImagePath, StandardCopyOption.REPLACE_EXISTING);
-
-                                // Créer un nouvel objet ImageBassin
-                                ImageBassin newImage = new ImageBassin();
-                                newImage.setName(newImageName); // Nom du fichier
-                                newImage.setType(file.getContentType());
-                                newImage.setImage(file.getBytes());
-                                newImage.setBassin(existingBassin);
-
-                                // Définir imagePath avec uniquement le nom du fichier
-                                newImage.setImagePath(newImageName);
-
-                                // Remplacer l'ancienne image par la nouvelle
-                                existingBassin.getImagesBassin().set(imageIndex, newImage);
+        // Contenus remplacés, libérés après la sauvegarde
+        List<String> clesRemplacees = new ArrayList<>();
+
+        // Contenus stockés pour cette requête, rendus si le bassin n'est pas enregistré
+        List<String> clesStockees = new ArrayList<>();
+
+        Bassin saved;
+        try {
+            // Traitement des fichiers images
+            if (files != null && files.length > 0) {
+                for (MultipartFile file : files) {
+                    if (file != null && !file.isEmpty()) {
+                        String originalFilename = file.getOriginalFilename();
+
+                        // Extraire l'index de l'image à partir du nom du fichier (format : "id_index.extension")
+                        String[] filenameParts = originalFilename.split("_");
+                        if (filenameParts.length > 1) {
+                            try {
+                                int imageIndex = Integer.parseInt(filenameParts[1].split("\\.")[0]) - 1; // Index commence à 0
+
+                                // Vérifier que l'index est valide
+                                if (imageIndex >= 0 && imageIndex < existingBassin.getImagesBassin().size()) {
+                                    ImageBassin oldImage = existingBassin.getImagesBassin().get(imageIndex);
+
+                                    // L'ancien contenu sera libéré après la sauvegarde (orphanRemoval supprime la ligne)
+                                    clesRemplacees.add(oldImage.getImagePath());
+
+                                    // Générer un nouveau nom logique
+                                    String extension = FilenameUtils.getExtension(originalFilename);
+                                    String newImageName = b.getIdBassin() + "_" + (imageIndex + 1) + "." + extension;
+
+                                    // Stocker la nouvelle image (dédupliquée par empreinte)
+                                    String cle = fileStorageService.stocker(file);
+                                    clesStockees.add(cle);
+
+                                    // Créer un nouvel objet ImageBassin
+                                    ImageBassin newImage = new ImageBassin();
+                                    newImage.setName(newImageName); // Nom du fichier
+                                    newImage.setType(file.getContentType());
+                                    newImage.setBassin(existingBassin);
+
+                                    // imagePath contient la clé du stockage
+                                    newImage.setImagePath(cle);
+
+                                    // Remplacer l'ancienne image par la nouvelle
+                                    existingBassin.getImagesBassin().set(imageIndex, newImage);
+                                }
+                            } catch (NumberFormatException e) {
+                                throw new RuntimeException("Format de nom de fichier invalide : " + originalFilename);
+                            } catch (IOException e) {
+                                throw new RuntimeException("Erreur lors de l'enregistrement de l'image : " + e.getMessage());
                             }
-                        } catch (NumberFormatException e) {
-                            throw new RuntimeException("Format de nom de fichier invalide : " + originalFilename);
-                        } catch (IOException e) {
-                            throw new RuntimeException("Erreur lors de l'enregistrement de l'image : " + e.getMessage());
                         }
                     }
                 }
             }
-        }
 
-        // Sauvegarder et retourner le bassin mis à jour
-        return bassinRepository.save(existingBassin);
+            // Sauvegarder et retourner le bassin mis à jour ; un mouvement de stock concurrent fait
+            // échouer le contrôle de version : 409, le client recharge plutôt que d'écraser le stock
+            try {
+                saved = bassinRepository.save(existingBassin);
+            } catch (OptimisticLockingFailureException e) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Le bassin a été modifié entre-temps, rechargez-le");
+            }
+        } catch (RuntimeException e) {
+            clesStockees.forEach(fileStorageService::liberer);
+            throw e;
+        }
+        clesRemplacees.forEach(fileStorageService::liberer);
+        return saved;
     }
 
     @DeleteMapping("deletebassin/{idBassin}")
@@ -246,13 +404,19 @@ public class BassinRestController {
     
     //Affiche la liste des bassin appartient à une catégorie 
     @RequestMapping(value="/Categories/{idCategorie}", method=RequestMethod.GET)
-    public List<Bassin> getBassinByCategorieId(@PathVariable("idCategorie") Long idCategorie) {
-        return bassinService.findByCategorieIdCategorie(idCategorie);
+    public CursorPage<BassinCatalogueView> getBassinByCategorieId(@PathVariable("idCategorie") Long idCategorie,
+            @RequestParam(value = "tri", required = false) String tri,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return bassinService.getBassinsPage(null, idCategorie, null, tri, cursor, size);
     }
     
     @RequestMapping(value="/bassinByName/{nom}",method = RequestMethod.GET)
-    public List<Bassin> findByNomBassinContains(@PathVariable("nom") String nom) {
-    	return bassinService.findByNomBassinContains(nom);
+    public CursorPage<BassinCatalogueView> findByNomBassinContains(@PathVariable("nom") String nom,
+            @RequestParam(value = "tri", required = false) String tri,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+    	return bassinService.getBassinsPage(null, null, nom, tri, cursor, size);
     } 
     
     /*******************Gestion Quantité & archive & transaction********************/
@@ -279,13 +443,19 @@ public class BassinRestController {
     }
 
     @GetMapping("/non-archives")
-    public List<Bassin> getBassinsNonArchives() {
-        return bassinService.getBassinsNonArchives();
+    public CursorPage<BassinCatalogueView> getBassinsNonArchives(
+            @RequestParam(value = "tri", required = false) String tri,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return bassinService.getBassinsPage(false, null, null, tri, cursor, size);
     }
 
     @GetMapping("/archives")
-    public List<Bassin> getBassinsArchives() {
-        return bassinService.getBassinsArchives();
+    public CursorPage<BassinCatalogueView> getBassinsArchives(
+            @RequestParam(value = "tri", required = false) String tri,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return bassinService.getBassinsPage(true, null, null, tri, cursor, size);
     }
 
     @GetMapping("/transactions")
@@ -293,6 +463,26 @@ public class BassinRestController {
         return bassinService.getTransactions();
     }
 
+    // Historique paginé, du plus récent au plus ancien ; dates incluses, facultatives
+    @GetMapping("/transactions/page")
+    public ResponseEntity<SearchPage<Transaction>> getTransactionsPage(
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date endDate,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(bassinService.getTransactionsPage(null, startDate, endDate, page, size));
+    }
+
+    @GetMapping("/transactions/{bassinId}/page")
+    public ResponseEntity<SearchPage<Transaction>> getBassinTransactionsPage(
+            @PathVariable Long bassinId,
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date endDate,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(bassinService.getTransactionsPage(bassinId, startDate, endDate, page, size));
+    }
+
     @GetMapping("/notifier-stock-faible")
     public void notifierStockFaible() {
         bassinService.notifierStockFaible();
@@ -350,7 +540,13 @@ public class BassinRestController {
         }
     }
     
-   
+    
+    // Plusieurs mouvements en une transaction ; résultat par ligne (une ligne refusée n'annule pas les autres)
+    @PostMapping("/update-stock/lot")
+    public ResponseEntity<List<ResultatMouvementStock>> updateStockLot(@RequestBody List<TransactionDTO> mouvements) {
+        return ResponseEntity.ok(bassinService.adjustStockLot(mouvements));
+    }
+    
    
     @GetMapping("/transactions/{bassinId}")
     public List<Transaction> getBassinTransactions(@PathVariable Long bassinId) {
@@ -409,8 +605,7 @@ public class BassinRestController {
         
         String newStatus = statusUpdate.get("statut");
         if (newStatus != null) {
-            bassin.setStatut(newStatus);
-            bassin = bassinService.updateBassin(bassin);
+            bassin = bassinService.mettreAJourStatut(id, newStatus);
             return ResponseEntity.ok(bassin);
         }
         
@@ -432,10 +627,12 @@ public class BassinRestController {
                 .body(null); // ou renvoyer un objet d'erreur personnalisé
         }
         
-        bassin.setArchive(true);
-        bassin.setStatut("ARCHIVE");
-        bassin = bassinService.updateBassin(bassin);
-        return ResponseEntity.ok(bassin);
+        try {
+            // Relit le bassin et revérifie son stock dans la transaction d'archivage
+            return ResponseEntity.ok(bassinService.archiverBassin(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
     }
     
     @PostMapping("/{id}/mettre-sur-commande")
@@ -6,15 +6,16 @@ import com.example.gestionbassins.repos.ImageBassinRepository;
 import com.example.gestionbassins.service.BassinService;
 import com.example.gestionbassins.service.FileStorageService;
 import com.example.gestionbassins.service.ImageBassinService;
+import com.example.gestionbassins.service.SequenceImageBassinService;
+import com.example.gestionbassins.service.StaticAssetService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.*;
 import java.util.List;
 
 @RestController
@@ -33,27 +34,24 @@ public class ImageBassinRestController {
     
     @Autowired
     ImageBassinRepository imageBassinRepository;
+    
+    @Autowired
+    StaticAssetService staticAssetService;
+
+    @Autowired
+    SequenceImageBassinService sequenceImageBassinService;
 
-    //Stocker les images dans un dossier + leur path dans la bdd
+    //Stocker les images (stockage par empreinte) + leur clé dans la bdd
     @RequestMapping(value = "/uploadFS/{id}", method = RequestMethod.POST)
     public void uploadImageFS(@RequestParam("image") MultipartFile[] files, @PathVariable("id") Long idBassin) throws IOException {
-        String uploadDir = "C:/shared/images/";  // 📌 Dossier de stockage
-        Path uploadPath = Paths.get(uploadDir);
-
-        // 📌 Créer le dossier s'il n'existe pas
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
         // 📌 Vérifier si le bassin existe
         Bassin b = bassinService.getBassin(idBassin);
         if (b == null) {
             throw new IllegalArgumentException("Bassin introuvable avec l'ID : " + idBassin);
         }
 
-        // 📌 Récupérer le dernier ID d’image enregistré en base pour ce bassin
-        Integer lastImageId = imageBassinRepository.findLastImageIdByBassin(idBassin);
-        int newImageId = (lastImageId == null) ? 1 : lastImageId + 1;  // 📌 Commencer à 1 si aucune image
+        // 📌 Réserver d'un coup les numéros de ces images (séquence atomique par bassin)
+        int newImageId = sequenceImageBassinService.reserver(idBassin, files.length);
 
         // 📌 Parcourir chaque fichier
         for (MultipartFile file : files) {
@@ -63,24 +61,26 @@ public class ImageBassinRestController {
                 ? originalFileName.substring(originalFileName.lastIndexOf(".")) 
                 : "";
 
-            // 📌 Générer le nom de fichier : idBassin_idImage.extension
+            // 📌 Nom logique de l'image : idBassin_idImage.extension
             String fileName = idBassin + "_" + newImageId + extension;
 
-            // 📌 Chemin complet du fichier
-            Path filePath = uploadPath.resolve(fileName);
-
-            // 📌 Écrire l’image sur le disque (sans supprimer les anciennes images)
-            Files.write(filePath, file.getBytes());
+            // 📌 Stocker le contenu (une seule copie si la même image existe déjà)
+            String cle = fileStorageService.stocker(file);
 
             // 📌 Créer et sauvegarder l'entité ImageBassin en base
             ImageBassin imageBassin = new ImageBassin();
             imageBassin.setName(fileName);
             imageBassin.setType(file.getContentType());  // Type MIME de l'image
-            imageBassin.setImage(file.getBytes());  // 📌 Sauvegarde du contenu binaire
-            imageBassin.setImagePath(fileName);  // 📌 Mettre le bon chemin ici
+            imageBassin.setImagePath(cle);  // 📌 Clé du stockage (sha256.extension)
             imageBassin.setBassin(b);
 
-            imageBassinRepository.save(imageBassin);  // 📌 Enregistrer dans la base
+            try {
+                imageBassin = imageBassinRepository.save(imageBassin);  // 📌 Enregistrer dans la base (le contenu reste dans le stockage)
+            } catch (RuntimeException e) {
+                // 📌 Ligne non enregistrée : rendre la référence prise sur le contenu
+                fileStorageService.liberer(cle);
+                throw e;
+            }
 
             System.out.println("Image enregistrée avec succès : " + fileName);
 
@@ -89,28 +89,15 @@ public class ImageBassinRestController {
         }
     }
 
-    @RequestMapping(value = "/loadfromFS/{id}", method = RequestMethod.GET, produces = MediaType.IMAGE_JPEG_VALUE)
-    public byte[] getImageFS(@PathVariable("id") Long id) throws IOException {
+    // Image principale d'un bassin, servie en flux (ETag / Last-Modified / Range)
+    @RequestMapping(value = "/loadfromFS/{id}", method = RequestMethod.GET)
+    public ResponseEntity<Resource> getImageFS(@PathVariable("id") Long id,
+                                               @RequestParam(value = "size", required = false) String size) {
         Bassin ev = bassinService.getBassin(id);
-        
-        // Afficher le chemin de l'image stockée dans l'objet Bassin
-        System.out.println("ImagePath dans l'événement: " + ev.getImagePath());
-        
-        // 📌 Nouveau chemin correct
-        String fullPath = "C:/shared/images/" + ev.getImagePath();
-        Path imagePath = Paths.get(fullPath);
-        
-        // Lister les fichiers dans le dossier pour debug
-        Files.list(Paths.get("C:/shared/images/"))
-             .forEach(file -> System.out.println("Fichier trouvé: " + file.getFileName()));
-        
-        // Vérifier si le fichier existe
-        if (!Files.exists(imagePath)) {
-            throw new RuntimeException("Image non trouvée pour l'événement avec l'ID: " + id 
-                + "\nChemin recherché: " + fullPath);
+        if (ev == null || ev.getMainImagePath() == null) {
+            return ResponseEntity.notFound().build();
         }
-        
-        return Files.readAllBytes(imagePath);
+        return staticAssetService.servirImage(ev.getMainImagePath(), size);
     }
     
     //Affiche les images d'un bassin
@@ -132,22 +119,11 @@ public class ImageBassinRestController {
     }
     
     
- // Récupérer une image depuis le dossier et la retourner sous forme de réponse HTTP
+ // Récupérer une image depuis le dossier et la retourner sous forme de réponse HTTP (sans la charger en mémoire)
     @GetMapping("/getFS/{imageName}")
-    public ResponseEntity<byte[]> getImage(@PathVariable("imageName") String imageName) {
-        String uploadDir = "C:/shared/images/";
-        Path imagePath = Paths.get(uploadDir, imageName);
-
-        if (!Files.exists(imagePath)) {
-            return ResponseEntity.notFound().build();
-        }
-
-        try {
-            byte[] imageBytes = Files.readAllBytes(imagePath);
-            return ResponseEntity.ok().contentType(MediaType.IMAGE_JPEG).body(imageBytes);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public ResponseEntity<Resource> getImage(@PathVariable("imageName") String imageName,
+                                             @RequestParam(value = "size", required = false) String size) {
+        return staticAssetService.servirImage(imageName, size);
     }
 
 	/******************/
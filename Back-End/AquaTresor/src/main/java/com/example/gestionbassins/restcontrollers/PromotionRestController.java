@@ -1,6 +1,9 @@
 package com.example.gestionbassins.restcontrollers;
 
+import com.example.gestionbassins.dto.BassinAvecPromotionsDTO;
+import com.example.gestionbassins.dto.PromotionAppliquee;
 import com.example.gestionbassins.dto.PromotionDTO;
+import com.example.gestionbassins.dto.SearchPage;
 import com.example.gestionbassins.dto.UpdatePromotionDTO;
 import com.example.gestionbassins.entities.Bassin;
 import com.example.gestionbassins.entities.Categorie;
@@ -108,6 +111,28 @@ public class PromotionRestController {
         }
     }
 
+    @PostMapping("/applyToBassins/{idPromotion}")
+    public ResponseEntity<?> applyPromotionToBassins(@PathVariable Long idPromotion, @RequestBody List<Long> bassinIds) {
+        try {
+            PromotionAppliquee bilan = promotionService.applyPromotionToBassins(idPromotion, bassinIds);
+            return ResponseEntity.ok(bilan);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/applyToCategorie/{idPromotion}/{idCategorie}")
+    public ResponseEntity<?> applyPromotionToCategorie(@PathVariable Long idPromotion, @PathVariable Long idCategorie) {
+        try {
+            PromotionAppliquee bilan = promotionService.applyPromotionToCategorie(idPromotion, idCategorie);
+            return ResponseEntity.ok(bilan);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
     @PostMapping("/check-overlaps")
     public ResponseEntity<?> checkOverlaps(@RequestBody Map<String, Object> requestData) {
         try {
@@ -135,69 +160,9 @@ public class PromotionRestController {
                 promotionId = null; // Si promotionId est null, assigner null
             }
 
-            // Vérifier les chevauchements
-            Map<String, List<Map<String, Object>>> result = new HashMap<>();
-            List<Map<String, Object>> overlappingBassins = new ArrayList<>();
-            List<Map<String, Object>> overlappingCategories = new ArrayList<>();
-
-            if (bassinIds != null && !bassinIds.isEmpty()) {
-                for (Long bassinId : bassinIds) {
-                    List<Promotion> overlaps = promotionService.getOverlappingPromotionsForBassin(bassinId, dateDebut, dateFin);
-                    if (promotionId != null) {
-                        overlaps = overlaps.stream()
-                                .filter(p -> !p.getIdPromotion().equals(promotionId)) // Utilisation de promotionId
-                                .collect(Collectors.toList());
-                    }
-
-                    if (!overlaps.isEmpty()) {
-                        Bassin bassin = bassinService.getBassinById(bassinId);
-                        Map<String, Object> bassinInfo = new HashMap<>();
-                        bassinInfo.put("id", bassinId);
-                        bassinInfo.put("nom", bassin.getNomBassin());
-                        bassinInfo.put("promotions", overlaps.stream()
-                                .map(p -> Map.of(
-                                        "id", p.getIdPromotion(),
-                                        "nom", p.getNomPromotion(),
-                                        "dateDebut", p.getDateDebut(),
-                                        "dateFin", p.getDateFin()
-                                ))
-                                .collect(Collectors.toList()));
-
-                        overlappingBassins.add(bassinInfo);
-                    }
-                }
-            }
-
-            if (categorieIds != null && !categorieIds.isEmpty()) {
-                for (Long categorieId : categorieIds) {
-                    List<Promotion> overlaps = promotionService.getOverlappingPromotionsForCategorie(categorieId, dateDebut, dateFin);
-                    if (promotionId != null) {
-                        overlaps = overlaps.stream()
-                                .filter(p -> !p.getIdPromotion().equals(promotionId)) // Utilisation de promotionId
-                                .collect(Collectors.toList());
-                    }
-
-                    if (!overlaps.isEmpty()) {
-                        Categorie categorie = categorieService.getCategorieById(categorieId);
-                        Map<String, Object> categorieInfo = new HashMap<>();
-                        categorieInfo.put("id", categorieId);
-                        categorieInfo.put("nom", categorie.getNomCategorie());
-                        categorieInfo.put("promotions", overlaps.stream()
-                                .map(p -> Map.of(
-                                        "id", p.getIdPromotion(),
-                                        "nom", p.getNomPromotion(),
-                                        "dateDebut", p.getDateDebut(),
-                                        "dateFin", p.getDateFin()
-                                ))
-                                .collect(Collectors.toList()));
-
-                        overlappingCategories.add(categorieInfo);
-                    }
-                }
-            }
-
-            result.put("bassins", overlappingBassins);
-            result.put("categories", overlappingCategories);
+            // Vérifier les chevauchements (une requête pour les bassins, une pour les catégories)
+            Map<String, List<Map<String, Object>>> result = promotionService.verifierChevauchements(
+                    bassinIds, categorieIds, dateDebut, dateFin, promotionId);
 
             return ResponseEntity.ok(result);
         } catch (Exception e) {
@@ -254,46 +219,23 @@ public class PromotionRestController {
         }
     }
     
+    // Bassins par page (id croissant), avec leurs promotions en cours si includePromotions ;
+    // avec ids (ex. ?ids=1,2,3), seulement ces bassins, sur une seule page
     @GetMapping("/bassins")
-    public ResponseEntity<List<Map<String, Object>>> getAllBassins(
-            @RequestParam(required = false) Boolean includePromotions) {
+    public ResponseEntity<SearchPage<BassinAvecPromotionsDTO>> getAllBassins(
+            @RequestParam(required = false) Boolean includePromotions,
+            @RequestParam(value = "ids", required = false) List<Long> ids,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
         try {
-            List<Bassin> bassins = bassinService.getAllBassins();
-            List<Map<String, Object>> result = new ArrayList<>();
-            
-            for (Bassin bassin : bassins) {
-                Map<String, Object> bassinMap = new HashMap<>();
-                bassinMap.put("idBassin", bassin.getIdBassin());
-                bassinMap.put("nomBassin", bassin.getNomBassin());
-                bassinMap.put("description", bassin.getDescription());
-                bassinMap.put("prix", bassin.getPrix());
-                bassinMap.put("materiau", bassin.getMateriau());
-                bassinMap.put("couleur", bassin.getCouleur());
-                bassinMap.put("dimensions", bassin.getDimensions());
-                bassinMap.put("disponible", bassin.isDisponible());
-                bassinMap.put("stock", bassin.getStock());
-                bassinMap.put("archive", bassin.isArchive());
-                bassinMap.put("categorie", bassin.getCategorie());
-                bassinMap.put("imagesBassin", bassin.getImagesBassin());
-                bassinMap.put("imagePath", bassin.getImagePath());
-                
-                if (Boolean.TRUE.equals(includePromotions)) {
-                    List<Promotion> activePromotions = promotionService.getActivePromotionsForBassin(bassin.getIdBassin());
-                    
-                    bassinMap.put("promotionActive", !activePromotions.isEmpty());
-                    if (!activePromotions.isEmpty()) {
-                        Promotion bestPromotion = activePromotions.stream()
-                            .max(Comparator.comparing(Promotion::getTauxReduction))
-                            .orElse(null);
-                        bassinMap.put("activePromotion", bestPromotion);
-                        bassinMap.put("prixPromo", bassin.getPrix() * (1 - (bestPromotion.getTauxReduction() / 100.0)));
-                    }
-                }
-                
-                result.add(bassinMap);
+            if (ids != null) {
+                List<BassinAvecPromotionsDTO> items = promotionService.getBassinsAvecPromotions(
+                        Boolean.TRUE.equals(includePromotions), ids);
+                return ResponseEntity.ok(new SearchPage<>(items, items.size(), 0, items.size(), false, null));
             }
-            
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok(promotionService.getBassinsAvecPromotions(Boolean.TRUE.equals(includePromotions), page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
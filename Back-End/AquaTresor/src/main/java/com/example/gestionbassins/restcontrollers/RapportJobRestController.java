@@ -0,0 +1,96 @@
+package com.example.gestionbassins.restcontrollers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.example.gestionbassins.dto.RapportJob;
+import com.example.gestionbassins.service.RapportJobService;
+
+/**
+ * Rapports PDF en tâche de fond : la demande renvoie aussitôt le job (202, en-tête Location vers
+ * son suivi), le suivi donne son statut et sa progression, le fichier se télécharge une fois terminé.
+ */
+@RestController
+@RequestMapping("/api/rapports/jobs")
+@CrossOrigin(origins = "http://localhost:4200")
+public class RapportJobRestController {
+
+    @Autowired
+    private RapportJobService rapportJobService;
+
+    @PostMapping("/global")
+    public ResponseEntity<?> soumettreGlobal(
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date endDate) {
+        return soumettre(() -> rapportJobService.soumettreGlobal(startDate, endDate));
+    }
+
+    @PostMapping("/bassin/{id}")
+    public ResponseEntity<?> soumettreBassin(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date endDate) {
+        return soumettre(() -> rapportJobService.soumettreBassin(id, startDate, endDate));
+    }
+
+    @PostMapping("/stock")
+    public ResponseEntity<?> soumettreStock(
+            @RequestParam(value = "categorieId", required = false) Long categorieId,
+            @RequestParam(value = "showArchived", defaultValue = "true") boolean showArchived) {
+        return soumettre(() -> rapportJobService.soumettreStock(categorieId, showArchived));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<RapportJob> getJob(@PathVariable String id) {
+        RapportJob job = rapportJobService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    // 409 avec le job tant que le rapport n'est pas terminé
+    @GetMapping("/{id}/fichier")
+    public ResponseEntity<?> telecharger(@PathVariable String id) {
+        RapportJob job = rapportJobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getStatut() != RapportJob.Statut.TERMINE) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(job);
+        }
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .contentLength(Files.size(job.getFichier()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + job.getNomFichier())
+                    .body(new FileSystemResource(job.getFichier()));
+        } catch (IOException e) {
+            // Supprimé entre-temps par le nettoyage
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private ResponseEntity<?> soumettre(Supplier<RapportJob> demande) {
+        try {
+            RapportJob job = demande.get();
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/rapports/jobs/" + job.getId()))
+                    .body(job);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("message", "Trop de rapports en cours de génération, réessayez plus tard"));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.gestionbassins.restcontrollers;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.example.gestionbassins.exceptions.InsufficientStockException;
+import com.example.gestionbassins.service.ReservationStockService;
+
+/**
+ * Réservations de stock des paniers, appelées par orders-microservice à chaque modification,
+ * activité ou fin d'un panier.
+ */
+@RestController
+@RequestMapping("/api/reservations")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ReservationStockRestController {
+
+    @Autowired
+    private ReservationStockService reservationStockService;
+
+    // Corps : id du bassin -> quantité voulue ; les bassins absents du corps sont libérés
+    @PutMapping("/paniers/{panier}")
+    public ResponseEntity<?> reserverPanier(@PathVariable String panier, @RequestBody Map<Long, Integer> quantites) {
+        try {
+            return ResponseEntity.ok(reservationStockService.reserverPanier(panier, quantites));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "message", e.getMessage(),
+                    "availableStock", e.getAvailableStock()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/paniers/{panier}/prolonger")
+    public ResponseEntity<Map<String, Integer>> prolonger(@PathVariable String panier) {
+        return ResponseEntity.ok(Map.of("prolongees", reservationStockService.prolonger(panier)));
+    }
+
+    @DeleteMapping("/paniers/{panier}")
+    public ResponseEntity<Map<String, Integer>> liberer(@PathVariable String panier) {
+        return ResponseEntity.ok(Map.of("liberees", reservationStockService.libererPanier(panier)));
+    }
+
+    @GetMapping("/disponible/{idBassin}")
+    public ResponseEntity<Map<String, Integer>> disponible(@PathVariable Long idBassin) {
+        Integer disponible = reservationStockService.disponible(idBassin);
+        if (disponible == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of(
+                "stock", disponible + reservationStockService.reservees(idBassin),
+                "reservees", reservationStockService.reservees(idBassin),
+                "disponible", disponible));
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.gestionbassins.restcontrollers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.gestionbassins.service.StaticAssetService;
+
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = "http://localhost:4200")
+public class StaticAssetRestController {
+
+    // ?size=thumbnail|card|detail : déclinaison réduite (voir ImageRenditionService), original sinon
+
+    @Autowired
+    private StaticAssetService staticAssetService;
+
+    // Images des bassins
+    @GetMapping("/assets/bassins/{nom:.+}")
+    public ResponseEntity<Resource> getImageBassin(@PathVariable("nom") String nom,
+                                                   @RequestParam(value = "size", required = false) String size) {
+        return staticAssetService.servirImage(nom, size);
+    }
+
+    // Images des accessoires des bassins personnalisés
+    @GetMapping({ "/assets/accessoires/{nom:.+}", "/imagespersonnalise/{nom:.+}" })
+    public ResponseEntity<Resource> getImageAccessoire(@PathVariable("nom") String nom,
+                                                       @RequestParam(value = "size", required = false) String size) {
+        return staticAssetService.servirAccessoire(nom, size);
+    }
+}
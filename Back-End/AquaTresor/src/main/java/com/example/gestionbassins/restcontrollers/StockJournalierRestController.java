@@ -0,0 +1,46 @@
+package com.example.gestionbassins.restcontrollers;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.example.gestionbassins.projections.BilanStock;
+import com.example.gestionbassins.service.StockJournalierService;
+
+/**
+ * Tableau de bord des mouvements de stock, lu dans les cumuls journaliers (stock_journalier).
+ */
+@RestController
+@RequestMapping("/api/stock-journalier")
+@CrossOrigin(origins = "http://localhost:4200")
+public class StockJournalierRestController {
+
+    @Autowired
+    private StockJournalierService stockJournalierService;
+
+    // Entrées, sorties et variation nette par jour (dates incluses, facultatives), d'un bassin ou de tous
+    @GetMapping
+    public ResponseEntity<List<BilanStock>> getBilansParJour(
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date endDate,
+            @RequestParam(value = "bassinId", required = false) Long bassinId) {
+        return ResponseEntity.ok(stockJournalierService.bilansParJour(startDate, endDate, bassinId));
+    }
+
+    @GetMapping("/utilisateurs")
+    public ResponseEntity<List<BilanStock>> getBilansParUtilisateur(
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date endDate) {
+        return ResponseEntity.ok(stockJournalierService.bilansParUtilisateur(startDate, endDate));
+    }
+
+    @PostMapping("/reconstruire")
+    public ResponseEntity<Map<String, Integer>> reconstruire() {
+        return ResponseEntity.ok(Map.of("cumuls", stockJournalierService.reconstruire()));
+    }
+}
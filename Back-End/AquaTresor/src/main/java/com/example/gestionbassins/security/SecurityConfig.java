@@ -9,6 +9,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -26,6 +27,10 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled= true)
 public class SecurityConfig {
+
+    // Secret partagé des appels entre microservices
+    @Value("${services.token}")
+    private String serviceToken;
     
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
@@ -49,8 +54,11 @@ public class SecurityConfig {
 	            .requestMatchers("/api/addbassin").hasAuthority("ADMIN")
 	            .requestMatchers("/api/addBassinWithImages/**").hasAuthority("ADMIN")
 	            .requestMatchers("/api/all").permitAll()
+	            .requestMatchers("/api/catalogue").permitAll()
+	            .requestMatchers("/api/catalogue/**").permitAll()
 	            .requestMatchers("/api/getbyid/**").permitAll()
 	            .requestMatchers("/api/imagesBassin/**").permitAll()
+	            .requestMatchers("/api/assets/**").permitAll()
 	            .requestMatchers("/api/updateBassinWithImg/**").hasAuthority("ADMIN")
 	            .requestMatchers("/api/updatebassin/**").hasAuthority("ADMIN")
 	            .requestMatchers("/api/deletebassin/**").hasAuthority("ADMIN")
@@ -94,9 +102,16 @@ public class SecurityConfig {
 	            .requestMatchers("/api/non-archives").hasAuthority("ADMIN")
 	            .requestMatchers("/api/archives").hasAuthority("ADMIN")
 	            .requestMatchers("/api/transactions").hasAuthority("ADMIN")
+	            .requestMatchers("/api/transactions/page").hasAuthority("ADMIN")
+	            .requestMatchers("/api/transactions/{bassinId}/page").hasAuthority("ADMIN")
+	            .requestMatchers("/api/stock-journalier/**").hasAuthority("ADMIN")
+	            .requestMatchers("/api/rapports/jobs/**").hasAuthority("ADMIN")
 	            .requestMatchers("/api/notifier-stock-faible").hasAuthority("ADMIN")
+	            .requestMatchers("/api/update-stock/lot").hasAnyAuthority("ADMIN", ServiceTokenFilter.AUTORITE)
 	           
 	            .requestMatchers("/api/{id}/mettre-sur-commande").permitAll()
+	            // Réservations des paniers : appels internes d'orders-microservice (ServiceTokenFilter)
+	            .requestMatchers("/api/reservations/**").hasAuthority(ServiceTokenFilter.AUTORITE)
 	           
 	            
 	            //Notifications
@@ -146,6 +161,8 @@ public class SecurityConfig {
 
 	    // Add JWT filter before UsernamePasswordAuthenticationFilter
         http.addFilterBefore(new JWTAuthorizationFilter(), UsernamePasswordAuthenticationFilter.class);
+        // Après le filtre JWT, qui vide le contexte des requêtes sans jeton utilisateur
+        http.addFilterAfter(new ServiceTokenFilter(serviceToken), JWTAuthorizationFilter.class);
         
         return http.build();
 	}
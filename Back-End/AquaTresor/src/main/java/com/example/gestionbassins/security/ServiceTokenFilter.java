@@ -0,0 +1,45 @@
+package com.example.gestionbassins.security;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Appels internes des autres microservices (orders-microservice) : l'en-tête X-Service-Token, s'il
+ * vaut le secret partagé services.token, donne l'autorité SERVICE à la requête.
+ */
+public class ServiceTokenFilter extends OncePerRequestFilter {
+
+	public static final String HEADER = "X-Service-Token";
+	public static final String AUTORITE = "SERVICE";
+
+	private final byte[] token;
+
+	public ServiceTokenFilter(String token) {
+		this.token = token == null ? new byte[0] : token.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+	    throws IOException, ServletException {
+		String recu = request.getHeader(HEADER);
+		// Comparaison en temps constant ; un secret vide ne donne jamais accès
+		if (recu != null && token.length > 0
+				&& MessageDigest.isEqual(recu.getBytes(StandardCharsets.UTF_8), token)) {
+			UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+					"service", null, List.of(new SimpleGrantedAuthority(AUTORITE)));
+			SecurityContextHolder.getContext().setAuthentication(authentication);
+		}
+		chain.doFilter(request, response);
+	}
+}
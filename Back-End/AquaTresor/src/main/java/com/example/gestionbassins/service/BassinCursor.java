@@ -0,0 +1,95 @@
+package com.example.gestionbassins.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import com.example.gestionbassins.projections.BassinCatalogueView;
+
+/**
+ * Curseur opaque pour la pagination keyset du catalogue.
+ * Format encodé (Base64 URL) : tri:valeurDeLaCle:idBassin
+ */
+public class BassinCursor {
+
+    public enum Tri {
+        ID, NOM, PRIX_ASC, PRIX_DESC, DATE_DESC;
+
+        public static Tri from(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return Tri.valueOf(value.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Tri inconnu : " + value
+                        + " (valeurs possibles : id, nom, prix_asc, prix_desc, date_desc)");
+            }
+        }
+    }
+
+    private final Tri tri;
+    private final String valeur;
+    private final Long idBassin;
+
+    private BassinCursor(Tri tri, String valeur, Long idBassin) {
+        this.tri = tri;
+        this.valeur = valeur;
+        this.idBassin = idBassin;
+    }
+
+    public static BassinCursor apres(Tri tri, BassinCatalogueView dernier) {
+        String valeur;
+        switch (tri) {
+            case NOM:
+                valeur = dernier.getNomBassin() != null ? dernier.getNomBassin() : "";
+                break;
+            case PRIX_ASC:
+            case PRIX_DESC:
+                valeur = String.valueOf(dernier.getPrix());
+                break;
+            case DATE_DESC:
+                valeur = String.valueOf(dernier.getDateAjout() != null ? dernier.getDateAjout().getTime() : 0L);
+                break;
+            default:
+                valeur = "";
+        }
+        return new BassinCursor(tri, valeur, dernier.getIdBassin());
+    }
+
+    public static BassinCursor decode(String cursor, Tri triAttendu) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(':');
+            int last = raw.lastIndexOf(':');
+            Tri tri = Tri.valueOf(raw.substring(0, first));
+            if (tri != triAttendu) {
+                throw new IllegalArgumentException("Le curseur ne correspond pas au tri demandé");
+            }
+            return new BassinCursor(tri, raw.substring(first + 1, last), Long.parseLong(raw.substring(last + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Curseur invalide : " + cursor, e);
+        }
+    }
+
+    public String encode() {
+        String raw = tri.name() + ":" + valeur + ":" + idBassin;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Long getIdBassin() {
+        return idBassin;
+    }
+
+    public String getNom() {
+        return valeur;
+    }
+
+    public Double getPrix() {
+        return Double.valueOf(valeur);
+    }
+
+    public Date getDateAjout() {
+        return new Date(Long.parseLong(valeur));
+    }
+}
@@ -15,10 +15,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.FileSystemException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -35,7 +31,8 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
     @Autowired
     private BassinRepository bassinRepository; // Ajout du repository pour Bassin
 
-    private final String UPLOAD_DIR = "C:/shared/imagesaccessoiresbassin/";
+    @Autowired
+    private FileStorageService fileStorageService;
 
     public BassinPersonnalise ajouterBassinPersonnalise(
             Long idBassin, // ID du bassin à personnaliser
@@ -50,17 +47,14 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
                 .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
 
         // Sauvegarder les images des accessoires
+        List<String> clesStockees = new ArrayList<>();
         for (int i = 0; i < accessoires.size(); i++) {
             Accessoire accessoire = accessoires.get(i);
             MultipartFile file = accessoireImages.get(i);
 
             if (file != null && !file.isEmpty()) {
-                String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-                Path path = Paths.get(UPLOAD_DIR + fileName);
-                Files.createDirectories(path.getParent());
-                Files.write(path, file.getBytes());
-
-                accessoire.setImagePath(fileName);
+                accessoire.setImagePath(fileStorageService.stocker(file));
+                clesStockees.add(accessoire.getImagePath());
             }
         }
 
@@ -78,7 +72,13 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
         }
         bassinPersonnalise.setAccessoires(accessoires);
 
-        return bassinPersonnaliseRepository.save(bassinPersonnalise);
+        try {
+            return bassinPersonnaliseRepository.save(bassinPersonnalise);
+        } catch (RuntimeException e) {
+            // Bassin personnalisé non enregistré : rendre les références prises sur les images
+            clesStockees.forEach(fileStorageService::liberer);
+            throw e;
+        }
     }
     
     @Transactional
@@ -270,9 +270,6 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
     }*/
     
     public void uploadImageAccessoireForAdd(BassinPersonnalise bassinPersonnalise, Accessoire accessoire, MultipartFile file) throws IOException {
-        String uploadDir = "C:/shared/imagesaccessoiresbassin/";
-        Path uploadPath = Paths.get(uploadDir);
-
         try {
             // Vérifier que l'ID de l'accessoire n'est pas null
             if (accessoire.getIdAccessoire() == null) {
@@ -284,65 +281,10 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
                 throw new IllegalArgumentException("Le fichier image est vide ou null.");
             }
 
-            // Générer le nom du fichier
-            String originalFileName = file.getOriginalFilename();
-            String extension = originalFileName.substring(originalFileName.lastIndexOf("."));
-            String fileName;
-
-            if (accessoire.getImagePath() != null) {
-                // Accessoire existant : vérifier que l'ID correspond au nom de l'image
-                Long extractedAccessoireId = extractAccessoireIdFromImageName(accessoire.getImagePath());
-
-                System.out.println("ID de l'accessoire : " + accessoire.getIdAccessoire());
-                System.out.println("Chemin de l'image existante : " + accessoire.getImagePath());
-                System.out.println("ID extrait du nom de l'image : " + extractedAccessoireId);
-
-                if (extractedAccessoireId == null || !extractedAccessoireId.equals(accessoire.getIdAccessoire())) {
-                    // Si l'ID ne correspond pas, générer un nouveau nom de fichier
-                    fileName = bassinPersonnalise.getIdBassinPersonnalise() + "_" + accessoire.getIdAccessoire() + extension;
-                } else {
-                    // Conserver le même nom de fichier
-                    fileName = Paths.get(accessoire.getImagePath()).getFileName().toString();
-                }
-            } else {
-                // Nouvel accessoire : générer un nouveau nom de fichier
-                fileName = bassinPersonnalise.getIdBassinPersonnalise() + "_" + accessoire.getIdAccessoire() + extension;
-            }
-
-            System.out.println("Nom du fichier généré : " + fileName);
-            System.out.println("Chemin complet du fichier : " + uploadPath.resolve(fileName));
-
-            // Supprimer l'ancienne image si elle existe
-            if (accessoire.getImagePath() != null) {
-                Path oldFilePath = Paths.get(accessoire.getImagePath());
-                if (Files.exists(oldFilePath)) {
-                    try {
-                        Files.delete(oldFilePath);
-                        System.out.println("Ancien fichier supprimé : " + oldFilePath);
-                    } catch (FileSystemException e) {
-                        System.err.println("Erreur lors de la suppression du fichier : " + e.getMessage());
-                        // Réessayer après un court délai
-                        try {
-                            Thread.sleep(1000); // Attendre 1 seconde
-                            Files.delete(oldFilePath);
-                            System.out.println("Ancien fichier supprimé après réessai : " + oldFilePath);
-                        } catch (Exception ex) {
-                            System.err.println("Échec de la suppression après réessai : " + ex.getMessage());
-                        }
-                    }
-                }
-            }
-
-            // Sauvegarder la nouvelle image
-            Path filePath = uploadPath.resolve(fileName);
-            System.out.println("Chemin du nouveau fichier : " + filePath);
-
-            Files.write(filePath, file.getBytes());
-            System.out.println("Nouveau fichier sauvegardé avec succès : " + filePath);
-
-            // Mettre à jour le chemin de l'image dans l'accessoire
-            accessoire.setImagePath(filePath.toString());
-            System.out.println("Chemin de l'image mis à jour dans l'accessoire : " + filePath);
+            // Stocker l'image (dédupliquée par contenu). Le chemin reçu à la création vient
+            // du client (nom du fichier d'origine) : ce n'est pas une référence à libérer.
+            accessoire.setImagePath(fileStorageService.stocker(file));
+            System.out.println("Chemin de l'image mis à jour dans l'accessoire : " + accessoire.getImagePath());
         } catch (Exception e) {
             // Log de l'erreur
             System.err.println("Erreur lors de l'upload de l'image de l'accessoire : " + e.getMessage());
@@ -351,23 +293,6 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
         }
     }
 
-    // Méthode pour extraire l'ID de l'accessoire du nom de l'image
-    private Long extractAccessoireIdFromImageName(String imageName) {
-        if (imageName == null || !imageName.contains("_")) {
-            return null; // Le nom de l'image ne correspond pas au format attendu
-        }
-
-        try {
-            // Extraire la partie après le premier "_" et avant le "."
-            String idPart = imageName.substring(imageName.indexOf("_") + 1, imageName.lastIndexOf("."));
-            return Long.parseLong(idPart); // Convertir en Long
-        } catch (Exception e) {
-            System.err.println("Erreur lors de l'extraction de l'ID de l'accessoire depuis le nom de l'image : " + imageName);
-            return null;
-        }
-    }
-
-    
     @Transactional
     public void supprimerBassinPersonnalise(Long idBassinPersonnalise) {
         // Récupérer le bassin personnalisé
@@ -381,29 +306,11 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
         bassinPersonnaliseRepository.delete(bassinPersonnalise);
     }
     
-	private final Path imageStorageLocation = Paths.get("C:/shared/imagesaccessoiresbassin").toAbsolutePath().normalize();
-
-
     private void supprimerImagesAccessoires(BassinPersonnalise bassinPersonnalise) {
-        // Parcourir tous les accessoires du bassin personnalisé
+        // Libérer les images des accessoires : le stockage ne supprime que les contenus
+        // qui ne sont plus référencés ailleurs, et seulement après le commit
         for (Accessoire accessoire : bassinPersonnalise.getAccessoires()) {
-            if (accessoire.getImagePath() != null) {
-                try {
-                    // Extraire le nom du fichier à partir du chemin complet
-                    String fileName = Paths.get(accessoire.getImagePath()).getFileName().toString();
-
-                    // Construire le chemin complet du fichier
-                    Path filePath = imageStorageLocation.resolve(fileName).normalize();
-
-                    // Supprimer le fichier s'il existe
-                    if (Files.exists(filePath)) {
-                        Files.delete(filePath);
-                        System.out.println("Fichier supprimé : " + filePath);
-                    }
-                } catch (IOException e) {
-                    System.err.println("Erreur lors de la suppression du fichier : " + e.getMessage());
-                }
-            }
+            fileStorageService.liberer(accessoire.getImagePath());
         }
     }
     
@@ -704,9 +611,6 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
     }
    
     public void uploadImageAccessoireForUpdate(BassinPersonnalise bassinPersonnalise, Accessoire accessoire, MultipartFile file) throws IOException {
-        String uploadDir = "C:/shared/imagesaccessoiresbassin/";
-        Path uploadPath = Paths.get(uploadDir);
-
         try {
             // Vérifier que l'ID de l'accessoire n'est pas null
             if (accessoire.getIdAccessoire() == null) {
@@ -721,43 +625,15 @@ public class BassinPersonnaliseServiceImpl implements BassinPersonnaliseService{
                 return; // Ne rien faire si aucune image n'est fournie
             }
 
-            // Générer le nom du fichier
-            String originalFileName = file.getOriginalFilename();
-            String extension = originalFileName.substring(originalFileName.lastIndexOf("."));
-            String fileName = bassinPersonnalise.getIdBassinPersonnalise() + "_" + accessoire.getIdAccessoire() + extension;
-
-            System.out.println("Nom du fichier généré pour la mise à jour : " + fileName);
-            System.out.println("Chemin complet du fichier : " + uploadPath.resolve(fileName));
 
-            // Supprimer l'ancienne image si elle existe
-            if (accessoire.getImagePath() != null) {
-                Path oldFilePath = Paths.get(accessoire.getImagePath());
-                if (Files.exists(oldFilePath)) {
-                    try {
-                        Files.delete(oldFilePath);
-                        System.out.println("Ancien fichier supprimé : " + oldFilePath);
-                    } catch (FileSystemException e) {
-                        System.err.println("Erreur lors de la suppression du fichier : " + e.getMessage());
-                        // Réessayer après un court délai
-                        try {
-                            Thread.sleep(1000); // Attendre 1 seconde
-                            Files.delete(oldFilePath);
-                            System.out.println("Ancien fichier supprimé après réessai : " + oldFilePath);
-                        } catch (Exception ex) {
-                            System.err.println("Échec de la suppression après réessai : " + ex.getMessage());
-                        }
-                    }
-                }
-            }
 
-            // Sauvegarder la nouvelle image
-            Path filePath = uploadPath.resolve(fileName);
-            Files.write(filePath, file.getBytes());
-            System.out.println("Nouveau fichier sauvegardé avec succès : " + filePath);
+            // Stocker la nouvelle image (dédupliquée par contenu)
+            String ancienneCle = accessoire.getImagePath();
+            accessoire.setImagePath(fileStorageService.stocker(file));
+            System.out.println("Chemin de l'image mis à jour dans l'accessoire : " + accessoire.getImagePath());
 
-            // Mettre à jour le chemin de l'image dans l'accessoire
-            accessoire.setImagePath(filePath.toString());
-            System.out.println("Chemin de l'image mis à jour dans l'accessoire : " + filePath);
+            // Libérer l'ancienne image (supprimée du disque si plus aucun accessoire ne l'utilise)
+            fileStorageService.liberer(ancienneCle);
         } catch (Exception e) {
             // Log de l'erreur
             System.err.println("Erreur lors de l'upload de l'image de l'accessoire pour la mise à jour : " + e.getMessage());
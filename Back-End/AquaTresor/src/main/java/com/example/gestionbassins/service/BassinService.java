@@ -1,5 +1,6 @@
 package com.example.gestionbassins.service;
 
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 
@@ -8,9 +9,17 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import com.example.gestionbassins.dto.BassinDTO;
+import com.example.gestionbassins.dto.CursorPage;
+import com.example.gestionbassins.dto.FacetPage;
+import com.example.gestionbassins.dto.FiltreCatalogue;
+import com.example.gestionbassins.dto.FiltreDimensions;
+import com.example.gestionbassins.dto.ResultatMouvementStock;
+import com.example.gestionbassins.dto.SearchPage;
+import com.example.gestionbassins.dto.TransactionDTO;
 import com.example.gestionbassins.entities.Bassin;
 import com.example.gestionbassins.entities.Categorie;
 import com.example.gestionbassins.entities.Transaction;
+import com.example.gestionbassins.projections.BassinCatalogueView;
 
 public interface BassinService {
     Bassin saveBassin(Bassin b);
@@ -30,9 +39,32 @@ public interface BassinService {
     List<Bassin> findByOrderByNomBassinAsc();
     List<Bassin> trierBassinsNomsPrix();
     
+    // Catalogue paginé (keyset) : archive, categorieId et nom sont des filtres optionnels
+    CursorPage<BassinCatalogueView> getBassinsPage(Boolean archive, Long categorieId, String nom,
+                                      String tri, String cursor, Integer size);
+
+    // Recherche plein texte classée par pertinence (page commence à 0)
+    SearchPage<BassinCatalogueView> rechercherBassins(String q, Boolean archive, Long categorieId,
+                                                      Integer page, Integer size);
+
+    // Filtres à facettes, avec le nombre de bassins par valeur de chaque facette (page commence à 0)
+    FacetPage<BassinCatalogueView> filtrerBassins(FiltreCatalogue filtre, Integer page, Integer size);
+
+    // Filtre combiné (ET / OU / NOT, voir ExpressionFiltre) évalué sur l'index bitmap (page commence à 0)
+    SearchPage<BassinCatalogueView> interrogerCatalogue(String filtre, Integer page, Integer size);
+
+    // Recherche par intervalles de dimensions et de prix, triée par prix (page commence à 0).
+    // personnalisables : sur les options de personnalisation plutôt que sur les dimensions du bassin
+    SearchPage<BassinCatalogueView> rechercherParDimensions(FiltreDimensions filtre, boolean personnalisables,
+                                                            Integer page, Integer size);
+
+    // Vues catalogue des bassins donnés, dans l'ordre des ids (ids inconnus ignorés)
+    List<BassinCatalogueView> getCatalogueViews(List<Long> ids);
+    
     // Gestion archivage et stock
     Bassin archiverBassin(Long id);
     Bassin desarchiverBassin(Long id, int nouvelleQuantite);
+    Bassin mettreAJourStatut(Long id, String statut);
     Bassin mettreAJourQuantite(Long id, int quantite, String raison);
     List<Bassin> getBassinsNonArchives();
     List<Bassin> getBassinsArchives();
@@ -42,12 +74,18 @@ public interface BassinService {
     List<Transaction> getTransactions();
     void adjustStock(Long bassinId, int quantityDelta);
     Bassin adjustStock(Long bassinId, int quantityDelta, String raison, String typeOperation, String username);
+    List<ResultatMouvementStock> adjustStockLot(List<TransactionDTO> mouvements);
     List<Transaction> getBassinTransactions(Long bassinId);
+    SearchPage<Transaction> getTransactionsPage(Long bassinId, Date startDate, Date endDate, Integer page, Integer size);
     
     // Génération de rapports
     byte[] generateStockReport(Long categorieId, boolean showArchived);
     byte[] generateBassinStockReport(Long bassinId, Date startDate, Date endDate);
     byte[] generateGlobalStockReport(Date startDate, Date endDate);
+    // Mêmes rapports écrits directement dans un flux (fichier des rapports en tâche de fond)
+    void writeStockReport(Long categorieId, boolean showArchived, OutputStream out);
+    void writeBassinStockReport(Long bassinId, Date startDate, Date endDate, OutputStream out);
+    void writeGlobalStockReport(Date startDate, Date endDate, OutputStream out);
     
     // DTO
     BassinDTO toBassinDTO(Bassin bassin);
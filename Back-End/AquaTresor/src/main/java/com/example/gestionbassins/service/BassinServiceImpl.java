@@ -2,6 +2,7 @@ package com.example.gestionbassins.service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -9,26 +10,45 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.example.gestionbassins.dto.BassinDTO;
+import com.example.gestionbassins.dto.CursorPage;
+import com.example.gestionbassins.dto.FacetPage;
+import com.example.gestionbassins.dto.FiltreCatalogue;
+import com.example.gestionbassins.dto.FiltreDimensions;
+import com.example.gestionbassins.dto.ResultatMouvementStock;
+import com.example.gestionbassins.dto.SearchPage;
+import com.example.gestionbassins.dto.TransactionDTO;
 import com.example.gestionbassins.entities.Bassin;
 import com.example.gestionbassins.entities.BassinPersonnalise;
 import com.example.gestionbassins.entities.Categorie;
 import com.example.gestionbassins.entities.ImageBassin;
 import com.example.gestionbassins.entities.Notification;
+import com.example.gestionbassins.entities.StockJournalier;
 import com.example.gestionbassins.entities.Transaction;
 import com.example.gestionbassins.entities.User;
+import com.example.gestionbassins.projections.BassinCatalogueView;
+import com.example.gestionbassins.projections.BilanStock;
+import com.example.gestionbassins.projections.LigneInventaire;
+import com.example.gestionbassins.projections.LigneTransaction;
 import com.example.gestionbassins.repos.*;
 import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.io.image.ImageDataFactory;
@@ -95,6 +115,30 @@ public class BassinServiceImpl implements BassinService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private RechercheCatalogueService rechercheCatalogueService;
+
+    @Autowired
+    private FacetteCatalogueService facetteCatalogueService;
+
+    @Autowired
+    private BitmapCatalogueService bitmapCatalogueService;
+
+    @Autowired
+    private PrixEffectifService prixEffectifService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockJournalierService stockJournalierService;
+
+    @Autowired
+    private ReessaiOptimiste reessaiOptimiste;
+
     // Couleurs pour le design des rapports
     private static final DeviceRgb PRIMARY_COLOR = new DeviceRgb(0, 90, 170);      // Bleu principal
     private static final DeviceRgb SECONDARY_COLOR = new DeviceRgb(70, 130, 180);  // Bleu secondaire
@@ -104,6 +148,20 @@ public class BassinServiceImpl implements BassinService {
     private static final DeviceRgb SUCCESS_COLOR = new DeviceRgb(0, 128, 0);       // Vert succès
     private static final DeviceRgb LIGHT_BG_COLOR = new DeviceRgb(240, 248, 255);  // Fond léger
     
+    private static final Date EPOCH = new Date(0L);
+
+    @Value("${catalogue.page.default-size:24}")
+    private int catalogueDefaultPageSize;
+
+    @Value("${catalogue.page.max-size:100}")
+    private int catalogueMaxPageSize;
+
+    @Value("${transactions.page.default-size:50}")
+    private int transactionsDefaultPageSize;
+
+    @Value("${transactions.page.max-size:500}")
+    private int transactionsMaxPageSize;
+    
     @Override
     public Bassin saveBassin(Bassin b) {
         return bassinRepository.save(b);
@@ -111,39 +169,53 @@ public class BassinServiceImpl implements BassinService {
 
     @Override
     public Bassin updateBassin(Bassin b) {
-        // Récupérer le bassin existant
-        Bassin existingBassin = bassinRepository.findByIdWithImages(b.getIdBassin())
-                .orElseThrow(() -> new RuntimeException("Bassin non trouvé avec l'ID : " + b.getIdBassin()));
-
-        // Mettre à jour les propriétés du bassin
-        existingBassin.setNomBassin(b.getNomBassin());
-        existingBassin.setDescription(b.getDescription());
-        existingBassin.setPrix(b.getPrix());
-        existingBassin.setMateriau(b.getMateriau());
-        existingBassin.setCouleur(b.getCouleur());
-        existingBassin.setDimensions(b.getDimensions());
-        existingBassin.setDisponible(b.isDisponible());
-        existingBassin.setStock(b.getStock());
-        existingBassin.setCategorie(b.getCategorie());
-
-        // Mise à jour de la liste des images
-        if (b.getImagesBassin() != null && !b.getImagesBassin().isEmpty()) {
-            // Supprimer les images existantes uniquement si elles ne sont pas dans la
-            // nouvelle liste
-            existingBassin.getImagesBassin().removeIf(existingImage -> b.getImagesBassin().stream()
-                    .noneMatch(newImage -> newImage.getIdImage().equals(existingImage.getIdImage())));
-
-            // Ajouter les nouvelles images
-            for (ImageBassin newImage : b.getImagesBassin()) {
-                if (newImage.getIdImage() == null) { // Nouvelle image
-                    newImage.setBassin(existingBassin);
-                    existingBassin.getImagesBassin().add(newImage);
+        return reessaiOptimiste.executer(() -> {
+            // Récupérer le bassin existant
+            Bassin existingBassin = bassinRepository.findByIdWithImages(b.getIdBassin())
+                    .orElseThrow(() -> new RuntimeException("Bassin non trouvé avec l'ID : " + b.getIdBassin()));
+
+            // Mettre à jour les propriétés du bassin
+            existingBassin.setNomBassin(b.getNomBassin());
+            existingBassin.setDescription(b.getDescription());
+            existingBassin.setPrix(b.getPrix());
+            existingBassin.setMateriau(b.getMateriau());
+            existingBassin.setCouleur(b.getCouleur());
+            existingBassin.setDimensions(b.getDimensions());
+            existingBassin.setDisponible(b.isDisponible());
+            stockService.reporterSaisie(existingBassin, b);
+            existingBassin.setCategorie(b.getCategorie());
+
+            // Contenus des images retirées, libérés une fois le bassin enregistré
+            List<String> clesALiberer = new ArrayList<>();
+
+            // Mise à jour de la liste des images
+            if (b.getImagesBassin() != null && !b.getImagesBassin().isEmpty()) {
+                // Supprimer les images existantes uniquement si elles ne sont pas dans la
+                // nouvelle liste
+                existingBassin.getImagesBassin().removeIf(existingImage -> {
+                    boolean retiree = b.getImagesBassin().stream()
+                            .noneMatch(newImage -> existingImage.getIdImage().equals(newImage.getIdImage()));
+                    if (retiree) {
+                        clesALiberer.add(existingImage.getImagePath());
+                    }
+                    return retiree;
+                });
+
+                // Ajouter les nouvelles images
+                for (ImageBassin newImage : b.getImagesBassin()) {
+                    if (newImage.getIdImage() == null) { // Nouvelle image
+                        newImage.setBassin(existingBassin);
+                        existingBassin.getImagesBassin().add(newImage);
+                    }
                 }
             }
-        }
 
-        // Sauvegarder le bassin mis à jour
-        return bassinRepository.save(existingBassin);
+            // Sauvegarder le bassin mis à jour
+            Bassin enregistre = bassinRepository.save(existingBassin);
+            // Dans la transaction de l'écriture : libération effective à son commit seulement
+            clesALiberer.forEach(fileStorageService::liberer);
+            return enregistre;
+        });
     }
 
     @Override
@@ -159,38 +231,32 @@ public class BassinServiceImpl implements BassinService {
             throw new RuntimeException("Bassin not found with ID: " + id);
         }
 
+        // Contenus à libérer une fois les lignes supprimées
+        List<String> clesALiberer = new ArrayList<>();
+
         // First delete all associated BassinPersonnalise records
         BassinPersonnalise bassinPersonnalise = bassinPersonnaliseRepository.findByBassinId(id);
         if (bassinPersonnalise != null) {
             // Delete associated accessoires first if needed
             if (bassinPersonnalise.getAccessoires() != null && !bassinPersonnalise.getAccessoires().isEmpty()) {
+                bassinPersonnalise.getAccessoires().forEach(a -> clesALiberer.add(a.getImagePath()));
                 accessoireRepository.deleteAll(bassinPersonnalise.getAccessoires());
             }
             bassinPersonnaliseRepository.delete(bassinPersonnalise);
         }
 
-        // Then delete image files
-        if (b.getImagesBassin() != null && !b.getImagesBassin().isEmpty()) {
-            for (ImageBassin image : b.getImagesBassin()) {
-                String filePath = "C:/shared/images/" + image.getImagePath();
-                try {
-                    Path path = Paths.get(filePath);
-                    if (Files.exists(path)) {
-                        Files.delete(path);
-                        System.out.println("Fichier supprimé : " + filePath);
-                    }
-                } catch (IOException e) {
-                    System.err.println("Erreur lors de la suppression du fichier : " + filePath);
-                    e.printStackTrace();
-                }
-            }
-        }
-
         // Delete image records from database
-        imageBassinRepository.deleteAll(b.getImagesBassin());
+        if (b.getImagesBassin() != null) {
+            b.getImagesBassin().forEach(image -> clesALiberer.add(image.getImagePath()));
+            imageBassinRepository.deleteAll(b.getImagesBassin());
+        }
+        clesALiberer.add(b.getImagePath());
         
         // Finally delete the bassin
         bassinRepository.deleteById(id);
+
+        // Then release the stored files (deleted from disk when no longer referenced)
+        clesALiberer.forEach(fileStorageService::liberer);
     }
 
     @Override
@@ -234,6 +300,130 @@ public class BassinServiceImpl implements BassinService {
         return bassinRepository.trierBassinNomPrix();
     }
 
+    @Override
+    public CursorPage<BassinCatalogueView> getBassinsPage(Boolean archive, Long categorieId, String nom,
+                                                          String tri, String cursor, Integer size) {
+        BassinCursor.Tri ordre = BassinCursor.Tri.from(tri);
+        int pageSize = (size == null || size <= 0) ? catalogueDefaultPageSize : Math.min(size, catalogueMaxPageSize);
+        String filtreNom = nom != null ? nom.trim() : "";
+        BassinCursor apres = (cursor != null && !cursor.isBlank()) ? BassinCursor.decode(cursor, ordre) : null;
+        Long afterId = apres != null ? apres.getIdBassin() : null;
+
+        // Une ligne de plus que la taille demandée pour savoir s'il reste une page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Long> ids;
+        switch (ordre) {
+            case NOM:
+                ids = bassinRepository.findCatalogueIdsParNom(archive, categorieId, filtreNom,
+                        apres != null ? apres.getNom() : "", afterId, limit);
+                break;
+            case PRIX_ASC:
+                ids = bassinRepository.findCatalogueIdsParPrixAsc(archive, categorieId, filtreNom,
+                        apres != null ? apres.getPrix() : 0d, afterId, limit);
+                break;
+            case PRIX_DESC:
+                ids = bassinRepository.findCatalogueIdsParPrixDesc(archive, categorieId, filtreNom,
+                        apres != null ? apres.getPrix() : 0d, afterId, limit);
+                break;
+            case DATE_DESC:
+                ids = bassinRepository.findCatalogueIdsParDateDesc(archive, categorieId, filtreNom, EPOCH,
+                        apres != null ? apres.getDateAjout() : EPOCH, afterId, limit);
+                break;
+            default:
+                ids = bassinRepository.findCatalogueIdsParId(archive, categorieId, filtreNom, afterId, limit);
+        }
+
+        boolean hasMore = ids.size() > pageSize;
+        if (hasMore) {
+            ids = ids.subList(0, pageSize);
+        }
+        List<BassinCatalogueView> items = hydraterCatalogue(ids);
+        String nextCursor = (hasMore && !items.isEmpty()) ? BassinCursor.apres(ordre, items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor, hasMore, pageSize, ordre.name().toLowerCase());
+    }
+
+    // Rang du premier élément de la page, calculé sans débordement : une page au-delà de ce qu'un
+    // index peut contenir est simplement vide
+    private static int debutPage(int numeroPage, int pageSize) {
+        return (int) Math.min((long) numeroPage * pageSize, Integer.MAX_VALUE - pageSize);
+    }
+
+    @Override
+    public SearchPage<BassinCatalogueView> rechercherBassins(String q, Boolean archive, Long categorieId,
+                                                             Integer page, Integer size) {
+        int pageSize = (size == null || size <= 0) ? catalogueDefaultPageSize : Math.min(size, catalogueMaxPageSize);
+        int numeroPage = (page == null || page < 0) ? 0 : page;
+        RechercheCatalogueService.Resultat resultat = rechercheCatalogueService.rechercher(q, archive, categorieId,
+                debutPage(numeroPage, pageSize), pageSize);
+        List<BassinCatalogueView> items = hydraterCatalogue(resultat.getIds());
+        boolean hasMore = (long) (numeroPage + 1) * pageSize < resultat.getTotal();
+        return new SearchPage<>(items, resultat.getTotal(), numeroPage, pageSize, hasMore, q);
+    }
+
+    @Override
+    public FacetPage<BassinCatalogueView> filtrerBassins(FiltreCatalogue filtre, Integer page, Integer size) {
+        int pageSize = (size == null || size <= 0) ? catalogueDefaultPageSize : Math.min(size, catalogueMaxPageSize);
+        int numeroPage = (page == null || page < 0) ? 0 : page;
+        FacetteCatalogueService.Resultat resultat = facetteCatalogueService.filtrer(filtre, debutPage(numeroPage, pageSize), pageSize);
+        List<BassinCatalogueView> items = hydraterCatalogue(resultat.getIds());
+        boolean hasMore = (long) (numeroPage + 1) * pageSize < resultat.getTotal();
+        return new FacetPage<>(items, resultat.getTotal(), numeroPage, pageSize, hasMore,
+                resultat.getFacettes(), resultat.getPrixMin(), resultat.getPrixMax());
+    }
+
+    @Override
+    public SearchPage<BassinCatalogueView> interrogerCatalogue(String filtre, Integer page, Integer size) {
+        int pageSize = (size == null || size <= 0) ? catalogueDefaultPageSize : Math.min(size, catalogueMaxPageSize);
+        int numeroPage = (page == null || page < 0) ? 0 : page;
+        BitmapCompresse retenus = bitmapCatalogueService.filtrer(ExpressionFiltre.analyser(filtre));
+        List<BassinCatalogueView> items = hydraterCatalogue(
+                BitmapCatalogueService.page(retenus, debutPage(numeroPage, pageSize), pageSize));
+        long total = retenus.cardinalite();
+        boolean hasMore = (long) (numeroPage + 1) * pageSize < total;
+        return new SearchPage<>(items, total, numeroPage, pageSize, hasMore, filtre);
+    }
+
+    @Override
+    public SearchPage<BassinCatalogueView> rechercherParDimensions(FiltreDimensions f, boolean personnalisables,
+                                                                   Integer page, Integer size) {
+        int pageSize = (size == null || size <= 0) ? catalogueDefaultPageSize : Math.min(size, catalogueMaxPageSize);
+        int numeroPage = (page == null || page < 0) ? 0 : page;
+        Pageable pageable = PageRequest.of(numeroPage, pageSize);
+        Page<Long> ids = personnalisables
+                ? bassinRepository.findIdsPersonnalisablesParDimensions(f.getLongueurMin(), f.getLongueurMax(),
+                        f.getLargeurMin(), f.getLargeurMax(), f.getProfondeurMin(), f.getProfondeurMax(),
+                        f.getVolumeMin(), f.getVolumeMax(), f.getPrixMin(), f.getPrixMax(), f.getArchive(), pageable)
+                : bassinRepository.findIdsParDimensions(f.getLongueurMin(), f.getLongueurMax(),
+                        f.getLargeurMin(), f.getLargeurMax(), f.getProfondeurMin(), f.getProfondeurMax(),
+                        f.getVolumeMin(), f.getVolumeMax(), f.getPrixMin(), f.getPrixMax(), f.getArchive(), pageable);
+        return new SearchPage<>(hydraterCatalogue(ids.getContent()), ids.getTotalElements(), numeroPage, pageSize,
+                ids.hasNext(), null);
+    }
+
+    @Override
+    public List<BassinCatalogueView> getCatalogueViews(List<Long> ids) {
+        return hydraterCatalogue(ids);
+    }
+
+    // Une requête pour toute la page, puis remise dans l'ordre des ids
+    private List<BassinCatalogueView> hydraterCatalogue(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, BassinCatalogueView> parId = bassinRepository.findCatalogueViewsByIds(ids).stream()
+                .collect(Collectors.toMap(BassinCatalogueView::getIdBassin, v -> v));
+        prixEffectifService.prix(ids).forEach((id, prix) -> {
+            BassinCatalogueView vue = parId.get(id);
+            if (vue != null) {
+                vue.appliquerPrix(prix);
+            }
+        });
+        return ids.stream()
+                .map(parId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public BassinDTO toBassinDTO(Bassin bassin) {
         BassinDTO dto = new BassinDTO();
@@ -258,53 +448,52 @@ public class BassinServiceImpl implements BassinService {
 
     @Override
     public Bassin updateBassin(Long id, Bassin bassin) {
-        Bassin existingBassin = bassinRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
-        existingBassin.setNomBassin(bassin.getNomBassin());
-        existingBassin.setDescription(bassin.getDescription());
-        existingBassin.setPrix(bassin.getPrix());
-        existingBassin.setMateriau(bassin.getMateriau());
-        existingBassin.setCouleur(bassin.getCouleur());
-        existingBassin.setDimensions(bassin.getDimensions());
-        existingBassin.setDisponible(bassin.isDisponible());
-        existingBassin.setStock(bassin.getStock());
-        return bassinRepository.save(existingBassin);
+        return reessaiOptimiste.executer(() -> {
+            Bassin existingBassin = bassinRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+            existingBassin.setNomBassin(bassin.getNomBassin());
+            existingBassin.setDescription(bassin.getDescription());
+            existingBassin.setPrix(bassin.getPrix());
+            existingBassin.setMateriau(bassin.getMateriau());
+            existingBassin.setCouleur(bassin.getCouleur());
+            existingBassin.setDimensions(bassin.getDimensions());
+            existingBassin.setDisponible(bassin.isDisponible());
+            stockService.reporterSaisie(existingBassin, bassin);
+            return bassinRepository.save(existingBassin);
+        });
     }
 
 
     @Override
     public Bassin desarchiverBassin(Long id, int nouvelleQuantite) {
-        Bassin bassin = bassinRepository.findById(id).orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
-        bassin.setArchive(false);
-        bassin.setStock(nouvelleQuantite);
-        return bassinRepository.save(bassin);
+        return reessaiOptimiste.executer(() -> {
+            // Stock fixé d'abord en une instruction : l'entité relue ensuite porte déjà sa nouvelle version
+            stockService.definir(id, nouvelleQuantite);
+            Bassin bassin = bassinRepository.findById(id).orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+            bassin.setArchive(false);
+            return bassinRepository.save(bassin);
+        });
+    }
+
+    @Override
+    public Bassin mettreAJourStatut(Long id, String statut) {
+        return reessaiOptimiste.executer(() -> {
+            Bassin bassin = bassinRepository.findById(id).orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+            bassin.setStatut(statut);
+            return bassinRepository.save(bassin);
+        });
     }
 
 
 
 @Transactional
 public Bassin mettreAJourQuantite(Long id, int quantite, String raison) {
-	 Bassin bassin = bassinRepository.findById(id)
-	            .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
-	    
-	    int nouveauStock = bassin.getStock() + quantite;
-	    
-	    if (nouveauStock < 0) {
-	        throw new IllegalArgumentException("La quantité ne peut pas rendre le stock négatif");
-	    }
-        
-        // Mise à jour du stock
-        bassin.setStock(nouveauStock);
-
-        // Gestion automatique du statut SUR_COMMANDE
+        // Stock et statut (SUR_COMMANDE à 0, DISPONIBLE sinon) en une instruction conditionnelle
+        int nouveauStock = stockService.ajusterAvecStatut(id, quantite);
+        Bassin bassin = bassinRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+
         if (nouveauStock == 0) {
-            bassin.setStatut("SUR_COMMANDE");
-            bassin.setSurCommande(true);
-            
-            // Durée de fabrication par défaut entre 4 et 15 jours
-            bassin.setDureeFabricationJoursMin(4);
-            bassin.setDureeFabricationJoursMax(15);
-            
             // Notification
             Notification notification = new Notification();
             notification.setMessage("⚠️ Le bassin " + bassin.getNomBassin() + 
@@ -314,13 +503,8 @@ public Bassin mettreAJourQuantite(Long id, int quantite, String raison) {
             notification.setDate(new Date());
             notification.setRead(false);
             notificationRepository.save(notification);
-        } else {
-            bassin.setStatut("DISPONIBLE");
-            bassin.setSurCommande(false);
-            bassin.setDureeFabricationJoursMin(null);
-            bassin.setDureeFabricationJoursMax(null);
         }
-        return bassinRepository.save(bassin);
+        return bassin;
     }
     
     private Date calculerDateDisponibilite(int jours) {
@@ -329,88 +513,93 @@ public Bassin mettreAJourQuantite(Long id, int quantite, String raison) {
         return calendar.getTime();
     }
     
-@Transactional
 public Bassin updateDureeFabrication(Long id, int dureeMin, int dureeMax) {
-    if (dureeMin <= 0 || dureeMax <= 0 || dureeMin > dureeMax) {
-        throw new IllegalArgumentException("La durée doit être une fourchette valide (min <= max)");
-    }
+    return reessaiOptimiste.executer(() -> {
+        if (dureeMin <= 0 || dureeMax <= 0 || dureeMin > dureeMax) {
+            throw new IllegalArgumentException("La durée doit être une fourchette valide (min <= max)");
+        }
     
-    Bassin bassin = bassinRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+        Bassin bassin = bassinRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
     
-    // Autoriser la modification si le bassin est sur commande ou si le stock est à 0
-    if (bassin.getStock() == 0 && !"SUR_COMMANDE".equals(bassin.getStatut())) {
-        bassin.setStatut("SUR_COMMANDE");
-        bassin.setSurCommande(true);
-    }
+        // Autoriser la modification si le bassin est sur commande ou si le stock est à 0
+        if (bassin.getStock() == 0 && !"SUR_COMMANDE".equals(bassin.getStatut())) {
+            bassin.setStatut("SUR_COMMANDE");
+            bassin.setSurCommande(true);
+        }
     
-    if (!"SUR_COMMANDE".equals(bassin.getStatut())) {
-        throw new IllegalStateException("La durée de fabrication ne peut être modifiée que pour les bassins sur commande");
-    }
+        if (!"SUR_COMMANDE".equals(bassin.getStatut())) {
+            throw new IllegalStateException("La durée de fabrication ne peut être modifiée que pour les bassins sur commande");
+        }
     
-    bassin.setDureeFabricationJoursMin(dureeMin);
-    bassin.setDureeFabricationJoursMax(dureeMax);
+        bassin.setDureeFabricationJoursMin(dureeMin);
+        bassin.setDureeFabricationJoursMax(dureeMax);
     
-    // Notification
-    Notification notification = new Notification();
-    notification.setMessage("ℹ️ Durée de fabrication mise à jour pour " + bassin.getNomBassin() + 
-            ": " + bassin.getDureeFabricationDisplay());
-    notification.setType("info");
-    notification.setDate(new Date());
-    notification.setRead(false);
-    notificationRepository.save(notification);
+        // Notification
+        Notification notification = new Notification();
+        notification.setMessage("ℹ️ Durée de fabrication mise à jour pour " + bassin.getNomBassin() + 
+                ": " + bassin.getDureeFabricationDisplay());
+        notification.setType("info");
+        notification.setDate(new Date());
+        notification.setRead(false);
+        notificationRepository.save(notification);
     
-    return bassinRepository.save(bassin);
+        return bassinRepository.save(bassin);
+    });
 }
 
 
     @Override
     public Bassin archiverBassin(Long id) {
-        Bassin bassin = bassinRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+        return reessaiOptimiste.executer(() -> {
+            Bassin bassin = bassinRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
         
-        // Vérifier que le stock est bien à 0 avant d'archiver
-        if (bassin.getStock() != 0) {
-            throw new IllegalStateException("Impossible d'archiver un bassin dont le stock n'est pas à 0");
-        }
+            // Vérifier que le stock est bien à 0 avant d'archiver
+            if (bassin.getStock() != 0) {
+                throw new IllegalStateException("Impossible d'archiver un bassin dont le stock n'est pas à 0");
+            }
         
-        // Mettre à jour le statut et archiver
-        bassin.setStatut("ARCHIVE");
-        bassin.setArchive(true);
+            // Mettre à jour le statut et archiver
+            bassin.setStatut("ARCHIVE");
+            bassin.setArchive(true);
         
-        // Créer une notification
-        Notification notification = new Notification();
-        notification.setMessage("✅ Bassin " + bassin.getNomBassin() + " a été archivé (Rupture définitive)");
-        notification.setType("success");
-        notification.setDate(new Date());
-        notification.setRead(false);
-        notificationRepository.save(notification);
+            // Créer une notification
+            Notification notification = new Notification();
+            notification.setMessage("✅ Bassin " + bassin.getNomBassin() + " a été archivé (Rupture définitive)");
+            notification.setType("success");
+            notification.setDate(new Date());
+            notification.setRead(false);
+            notificationRepository.save(notification);
         
-        return bassinRepository.save(bassin);
+            return bassinRepository.save(bassin);
+        });
     }
     @Override
     public Bassin mettreSurCommande(Long id) {
-        Bassin bassin = bassinRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+        return reessaiOptimiste.executer(() -> {
+            Bassin bassin = bassinRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
         
-        // Vérifier que le stock est à 0
-        if (bassin.getStock() != 0) {
-            throw new IllegalStateException("Le bassin doit avoir un stock à 0 pour être mis sur commande");
-        }
+            // Vérifier que le stock est à 0
+            if (bassin.getStock() != 0) {
+                throw new IllegalStateException("Le bassin doit avoir un stock à 0 pour être mis sur commande");
+            }
         
-        // Mettre à jour le statut
-        bassin.setStatut("SUR_COMMANDE");
-        bassin.setArchive(false);
+            // Mettre à jour le statut
+            bassin.setStatut("SUR_COMMANDE");
+            bassin.setArchive(false);
         
-        // Créer une notification
-        Notification notification = new Notification();
-        notification.setMessage("ℹ️ Bassin " + bassin.getNomBassin() + " est maintenant sur commande");
-        notification.setType("info");
-        notification.setDate(new Date());
-        notification.setRead(false);
-        notificationRepository.save(notification);
+            // Créer une notification
+            Notification notification = new Notification();
+            notification.setMessage("ℹ️ Bassin " + bassin.getNomBassin() + " est maintenant sur commande");
+            notification.setType("info");
+            notification.setDate(new Date());
+            notification.setRead(false);
+            notificationRepository.save(notification);
         
-        return bassinRepository.save(bassin);
+            return bassinRepository.save(bassin);
+        });
     }
     @Override
     public List<Bassin> getBassinsNonArchives() {
@@ -461,48 +650,51 @@ public Bassin updateDureeFabrication(Long id, int dureeMin, int dureeMax) {
     @Override
     public void adjustStock(Long bassinId, int quantityDelta) {
         // Méthode simple pour ajuster le stock sans info supplémentaire
-        Bassin bassin = getBassinById(bassinId);
-        bassin.setStock(bassin.getStock() + quantityDelta);
-        bassinRepository.save(bassin);
+        stockService.ajuster(bassinId, quantityDelta);
     }
     
     @Override
+    @Transactional
     public Bassin adjustStock(Long bassinId, int quantityDelta, String raison, String typeOperation, String username) {
-        Bassin bassin = getBassinById(bassinId);
-        int oldStock = bassin.getStock();
-        bassin.setStock(oldStock + quantityDelta);
-        
-        // Création d'une transaction avec plus d'informations
-        Transaction transaction = new Transaction();
-        transaction.setBassin(bassin);
-        transaction.setQuantite(quantityDelta);
-        transaction.setRaison(raison);
-        transaction.setTypeOperation(typeOperation);
-        transaction.setDateTransaction(new Date());
-        
-        // Si un utilisateur est fourni, on associe la transaction
+        // Utilisateur résolu avant le mouvement : l'appel distant ne prolonge pas le verrou de la ligne
+        Long userId = null;
         if (username != null && !username.isEmpty()) {
             try {
                 User user = userServiceClient.getUserByUsername(username);
                 if (user != null) {
-                    transaction.setUserId(user.getUserId());
+                    userId = user.getUserId();
                 }
             } catch (Exception e) {
                 // Gérer silencieusement en cas d'échec
             }
         }
+
+        // Mouvement conditionnel : refusé (InsufficientStockException) s'il rendrait le stock négatif
+        int nouveauStock = stockService.ajuster(bassinId, quantityDelta);
+        Bassin bassin = getBassinById(bassinId);
+        
+        // Création d'une transaction avec plus d'informations
+        Transaction transaction = new Transaction();
+        transaction.setBassin(bassin);
+        transaction.setQuantite(quantityDelta);
+        transaction.setRaison(raison);
+        transaction.setTypeOperation(typeOperation);
+        transaction.setDateTransaction(new Date());
+        transaction.setUserId(userId);
         
         transactionRepository.save(transaction);
+        stockJournalierService.cumuler(List.of(new StockJournalierService.Mouvement(
+                bassinId, userId, transaction.getDateTransaction(), quantityDelta)));
         
         // Notification si le stock devient faible
-        if (bassin.getStock() < 5 && bassin.getStock() > 0) {
+        if (nouveauStock < 5 && nouveauStock > 0) {
             Notification notification = new Notification();
-            notification.setMessage("⚠️ Stock faible: " + bassin.getNomBassin() + " - " + bassin.getStock() + " unité(s)");
+            notification.setMessage("⚠️ Stock faible: " + bassin.getNomBassin() + " - " + nouveauStock + " unité(s)");
             notification.setType("warning");
             notification.setDate(new Date());
             notification.setRead(false);
             notificationService.createNotification(notification);
-        } else if (bassin.getStock() == 0) {
+        } else if (nouveauStock == 0) {
             Notification notification = new Notification();
             notification.setMessage("🚫 RUPTURE DE STOCK: " + bassin.getNomBassin());
             notification.setType("danger");
@@ -511,7 +703,29 @@ public Bassin updateDureeFabrication(Long id, int dureeMin, int dureeMax) {
             notificationService.createNotification(notification);
         }
         
-        return bassinRepository.save(bassin);
+        return bassin;
+    }
+    
+    @Override
+    public List<ResultatMouvementStock> adjustStockLot(List<TransactionDTO> mouvements) {
+        // Utilisateurs résolus une fois chacun, avant la transaction du lot
+        Map<String, Long> utilisateurs = new HashMap<>();
+        for (TransactionDTO mouvement : mouvements) {
+            String username = mouvement.getUtilisateur();
+            if (username != null && !username.isEmpty() && !utilisateurs.containsKey(username)) {
+                Long userId = null;
+                try {
+                    User user = userServiceClient.getUserByUsername(username);
+                    if (user != null) {
+                        userId = user.getUserId();
+                    }
+                } catch (Exception e) {
+                    // Gérer silencieusement en cas d'échec
+                }
+                utilisateurs.put(username, userId);
+            }
+        }
+        return stockService.ajusterLot(mouvements, utilisateurs);
     }
     
     @Override
@@ -519,11 +733,96 @@ public Bassin updateDureeFabrication(Long id, int dureeMin, int dureeMax) {
         return transactionRepository.findByBassin_IdBassinOrderByDateTransactionDesc(bassinId);
     }
 
+    @Override
+    public SearchPage<Transaction> getTransactionsPage(Long bassinId, Date startDate, Date endDate, Integer page, Integer size) {
+        int pageSize = (size == null || size <= 0) ? transactionsDefaultPageSize : Math.min(size, transactionsMaxPageSize);
+        int numeroPage = (page == null || page < 0) ? 0 : page;
+        Date[] periode = periode(startDate, endDate);
+        PageRequest pageRequest = PageRequest.of(numeroPage, pageSize);
+        Page<Transaction> transactions = bassinId != null
+                ? transactionRepository
+                        .findByBassin_IdBassinAndDateTransactionGreaterThanEqualAndDateTransactionLessThanOrderByDateTransactionDesc(
+                                bassinId, periode[0], periode[1], pageRequest)
+                : transactionRepository.findByDateTransactionGreaterThanEqualAndDateTransactionLessThanOrderByDateTransactionDesc(
+                        periode[0], periode[1], pageRequest);
+
+        // Infos utilisateur : un appel par utilisateur de la page
+        Map<Long, User> utilisateurs = new HashMap<>();
+        for (Transaction transaction : transactions.getContent()) {
+            Long userId = transaction.getUserId();
+            if (userId != null && !utilisateurs.containsKey(userId)) {
+                User user = null;
+                try {
+                    user = userServiceClient.getUserByUsername(userId.toString());
+                } catch (Exception e) {
+                    // Gérer silencieusement en cas d'échec de récupération
+                }
+                utilisateurs.put(userId, user);
+            }
+            transaction.setUser(userId == null ? null : utilisateurs.get(userId));
+        }
+        return new SearchPage<>(transactions.getContent(), transactions.getTotalElements(), numeroPage, pageSize,
+                transactions.hasNext(), null);
+    }
+
+    /**
+     * Bornes d'une période de rapport : du début de startDate (sinon depuis toujours) à la fin de
+     * endDate incluse (sinon jusqu'à maintenant). La seconde borne est le lendemain de endDate à
+     * minuit, à exclure : une transaction de ce minuit-là appartient au jour suivant.
+     */
+    private static Date[] periode(Date startDate, Date endDate) {
+        Calendar fin = Calendar.getInstance();
+        fin.setTime(endDate != null ? endDate : new Date());
+        fin.add(Calendar.DAY_OF_YEAR, 1);
+        return new Date[] { startDate != null ? startDate : new Date(0), fin.getTime() };
+    }
+
+    // Inventaire des rapports : un seul passage sur les bassins (appelant transactionnel, curseur ouvert)
+    private DonneesRapportStock collecterInventaire(boolean showArchived) {
+        DonneesRapportStock donnees = new DonneesRapportStock();
+        try (Stream<LigneInventaire> lignes = bassinRepository.streamInventaire(showArchived)) {
+            lignes.forEach(donnees::ajouter);
+        }
+        return donnees;
+    }
+
+    // Rapport global : inventaire complet et mouvements de la période, chaque source lue une fois
+    private DonneesRapportStock collecterRapport(Date startDate, Date endDate) {
+        DonneesRapportStock donnees = collecterInventaire(true);
+        donnees.setMouvements(stockJournalierService.bilan(startDate, endDate),
+                stockJournalierService.bilansParUtilisateur(startDate, endDate));
+        return donnees;
+    }
+
+    // Nom affiché d'un utilisateur, résolu une fois par rapport
+    private String nomUtilisateur(Long userId, Map<Long, String> noms) {
+        if (userId == null || userId == StockJournalier.SYSTEME) {
+            return "Système";
+        }
+        return noms.computeIfAbsent(userId, id -> {
+            try {
+                User user = userServiceClient.getUserByUsername(id.toString());
+                return user != null ? user.getUsername() : "Inconnu";
+            } catch (Exception e) {
+                return "Inconnu";
+            }
+        });
+    }
+
     
     @Override
+@Transactional
 public byte[] generateStockReport(Long categorieId, boolean showArchived) {
-    try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-        PdfWriter writer = new PdfWriter(baos);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeStockReport(categorieId, showArchived, baos);
+    return baos.toByteArray();
+}
+
+@Override
+@Transactional
+public void writeStockReport(Long categorieId, boolean showArchived, OutputStream out) {
+    try {
+        PdfWriter writer = new PdfWriter(out);
         writer.setCompressionLevel(9);
         
         PdfDocument pdfDoc = new PdfDocument(writer);
@@ -536,21 +835,28 @@ public byte[] generateStockReport(Long categorieId, boolean showArchived) {
         addReportHeader(document, "RAPPORT DE STOCK COMPLET", showArchived ? "(Inclut les bassins archivés)" : "(Bassins actifs seulement)");
         Map<Categorie, List<Bassin>> bassinsParCategorie = organizeBassinsByCategory(categorieId, showArchived);
         addGlobalStatistics(document, bassinsParCategorie);
-        addDetailedInventory(document, showArchived);
+        addDetailedInventory(document, collecterInventaire(showArchived));
         addFooter(document);
         
         document.getRenderer().flush();
         document.close();
-        
-        return baos.toByteArray();
     } catch (Exception e) {
         throw new RuntimeException("Erreur lors de la génération du rapport: " + e.getMessage(), e);
     }
 }
 @Override
+@Transactional
 public byte[] generateGlobalStockReport(Date startDate, Date endDate) {
-    try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-        PdfWriter writer = new PdfWriter(baos);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeGlobalStockReport(startDate, endDate, baos);
+    return baos.toByteArray();
+}
+
+@Override
+@Transactional
+public void writeGlobalStockReport(Date startDate, Date endDate, OutputStream out) {
+    try {
+        PdfWriter writer = new PdfWriter(out);
         writer.setCompressionLevel(9);
         
         PdfDocument pdfDoc = new PdfDocument(writer);
@@ -561,24 +867,33 @@ public byte[] generateGlobalStockReport(Date startDate, Date endDate) {
         
         addReportHeader(document, "RAPPORT GLOBAL DE STOCK", 
                 "Période: " + formatDateShort(startDate) + " à " + formatDateShort(endDate));
-        addGlobalSummary(document, startDate, endDate);
-        addDetailedInventory(document, true); // Toujours inclure les archivés dans le rapport global
-        addTransactionSummary(document, startDate, endDate);
-        addUserActivitySummary(document, startDate, endDate);
+        // Toujours inclure les archivés dans le rapport global
+        DonneesRapportStock donnees = collecterRapport(startDate, endDate);
+        addGlobalSummary(document, donnees, startDate, endDate);
+        addDetailedInventory(document, donnees);
+        addTransactionSummary(document, donnees, startDate, endDate);
+        addUserActivitySummary(document, donnees);
         addFooter(document);
         
         document.getRenderer().flush();
         document.close();
-        
-        return baos.toByteArray();
     } catch (Exception e) {
         throw new RuntimeException("Erreur lors de la génération du rapport global: " + e.getMessage(), e);
     }
 }
     @Override
+    @Transactional
     public byte[] generateBassinStockReport(Long bassinId, Date startDate, Date endDate) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeBassinStockReport(bassinId, startDate, endDate, baos);
+        return baos.toByteArray();
+    }
+
+    @Override
+    @Transactional
+    public void writeBassinStockReport(Long bassinId, Date startDate, Date endDate, OutputStream out) {
+        try {
+            PdfWriter writer = new PdfWriter(out);
             writer.setCompressionLevel(9); // Compression maximale pour réduire la taille
             
             PdfDocument pdfDoc = new PdfDocument(writer);
@@ -591,15 +906,13 @@ public byte[] generateGlobalStockReport(Date startDate, Date endDate) {
             addReportHeader(document, "RAPPORT DE STOCK - " + bassin.getNomBassin().toUpperCase(), 
                     "Période: " + formatDateShort(startDate) + " à " + formatDateShort(endDate));
             addBassinDetails(document, bassin);
-            addTransactionHistory(document, bassinId, startDate, endDate);
-            addUserSummary(document, bassinId, startDate, endDate);
+            Map<String, long[]> activite = addTransactionHistory(document, bassinId, startDate, endDate);
+            addUserSummary(document, activite);
             addFooter(document);
             
             // Optimisation
             document.getRenderer().flush();
             document.close();
-            
-            return baos.toByteArray();
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Erreur lors de la génération du rapport bassin: " + e.getMessage(), e);
@@ -912,11 +1225,10 @@ private void addGlobalStatistics(Document document, Map<Categorie, List<Bassin>>
         if (bassin.getImagesBassin() != null && !bassin.getImagesBassin().isEmpty()) {
             try {
                 ImageBassin mainImage = bassin.getImagesBassin().get(0);
-                String imagePath = "C:/shared/images/" + mainImage.getImagePath();
-                Path path = Paths.get(imagePath);
+                Path path = fileStorageService.localiserImage(mainImage.getImagePath());
                 
-                if (Files.exists(path)) {
-                    Image img = new Image(ImageDataFactory.create(imagePath))
+                if (path != null) {
+                    Image img = new Image(ImageDataFactory.create(path.toString()))
                         .setWidth(150)
                         .setHeight(150);
                     
@@ -1043,7 +1355,9 @@ private void addGlobalStatistics(Document document, Map<Categorie, List<Bassin>>
         table.addCell(valueCell);
     }
     
-    private void addTransactionHistory(Document document, Long bassinId, Date startDate, Date endDate) {
+    // Un seul passage sur l'historique : le tableau est écrit au fil du curseur (table en mode
+    // « grand tableau », vidée par paquets) et l'activité par utilisateur est cumulée en même temps
+    private Map<String, long[]> addTransactionHistory(Document document, Long bassinId, Date startDate, Date endDate) {
         document.add(new Paragraph("HISTORIQUE DES TRANSACTIONS")
             .setFontSize(14)
             .setBold()
@@ -1051,146 +1365,135 @@ private void addGlobalStatistics(Document document, Map<Categorie, List<Bassin>>
             .setMarginTop(15)
             .setMarginBottom(10));
             
-        // Récupérer les transactions
-        List<Transaction> transactions = transactionRepository.findByBassin_IdBassinOrderByDateTransactionDesc(bassinId);
-        
-        // Filtrer par date si nécessaire
-        if (startDate != null || endDate != null) {
-            LocalDateTime startLocalDate = startDate != null ? 
-                startDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime() : 
-                LocalDateTime.of(1970, 1, 1, 0, 0);
-                
-            LocalDateTime endLocalDate = endDate != null ? 
-                endDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime().plusDays(1) : 
-                LocalDateTime.now().plusDays(1);
-                
-            transactions = transactions.stream()
-                .filter(t -> {
-                    LocalDateTime transDate = t.getDateTransaction().toInstant()
-                        .atZone(ZoneId.systemDefault()).toLocalDateTime();
-                    return !transDate.isBefore(startLocalDate) && !transDate.isAfter(endLocalDate);
-                })
-                .collect(Collectors.toList());
-        }
-        
-        if (transactions.isEmpty()) {
-            document.add(new Paragraph("Aucune transaction trouvée pour la période sélectionnée.")
-                .setItalic()
-                .setFontColor(SECONDARY_COLOR));
-            return;
-        }
-        
-        // Tableau des transactions
-        Table transTable = new Table(UnitValue.createPercentArray(new float[]{1, 2, 1, 1, 2, 2}))
-            .setWidth(UnitValue.createPercentValue(100));
-            
-        // En-têtes
-        Stream.of("Date", "Type", "Quantité", "Utilisateur", "Raison", "Commentaires")
-            .forEach(columnTitle -> {
-                Cell header = new Cell()
-                    .add(new Paragraph(columnTitle).setBold())
-                    .setBackgroundColor(SECONDARY_COLOR)
-                    .setFontColor(ColorConstants.WHITE)
-                    .setTextAlignment(TextAlignment.CENTER);
-                transTable.addHeaderCell(header);
-            });
-            
-        // Données
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        
-        boolean alternate = false;
-        for (Transaction t : transactions) {
-            DeviceRgb rowColor = alternate ? LIGHT_BG_COLOR : (DeviceRgb) ColorConstants.WHITE;
-            alternate = !alternate;
+        // Utilisateur -> transactions, entrées, sorties, impact net
+        Map<String, long[]> activite = new LinkedHashMap<>();
+        Map<Long, String> noms = new HashMap<>();
+        Date[] periode = periode(startDate, endDate);
+        
+        try (Stream<LigneTransaction> transactions = transactionRepository.streamHistorique(bassinId, periode[0], periode[1])) {
+            java.util.Iterator<LigneTransaction> it = transactions.iterator();
+            if (!it.hasNext()) {
+                document.add(new Paragraph("Aucune transaction trouvée pour la période sélectionnée.")
+                    .setItalic()
+                    .setFontColor(SECONDARY_COLOR));
+                return activite;
+            }
             
-            // Date
-            LocalDateTime dateTime = t.getDateTransaction().toInstant()
-                .atZone(ZoneId.systemDefault()).toLocalDateTime();
+            // Tableau des transactions
+            Table transTable = new Table(UnitValue.createPercentArray(new float[]{1, 2, 1, 1, 2, 2}), true)
+                .setWidth(UnitValue.createPercentValue(100));
                 
-            transTable.addCell(new Cell()
-                .add(new Paragraph(dateTime.format(formatter)))
-                .setBackgroundColor(rowColor));
+            // En-têtes
+            Stream.of("Date", "Type", "Quantité", "Utilisateur", "Raison", "Commentaires")
+                .forEach(columnTitle -> {
+                    Cell header = new Cell()
+                        .add(new Paragraph(columnTitle).setBold())
+                        .setBackgroundColor(SECONDARY_COLOR)
+                        .setFontColor(ColorConstants.WHITE)
+                        .setTextAlignment(TextAlignment.CENTER);
+                    transTable.addHeaderCell(header);
+                });
+            document.add(transTable);
                 
-            // Type d'opération
-            String type = t.getTypeOperation() != null ? t.getTypeOperation() : "Ajustement";
-            DeviceRgb typeColor = (DeviceRgb) ColorConstants.BLACK;
-            
-            if ("ENTRÉE".equalsIgnoreCase(type)) {
-                typeColor = SUCCESS_COLOR;
-            } else if ("SORTIE".equalsIgnoreCase(type)) {
-                typeColor = DANGER_COLOR;
-            } else if ("AJUSTEMENT".equalsIgnoreCase(type)) {
-                typeColor = WARNING_COLOR;
-            }
+            // Données
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
             
-            transTable.addCell(new Cell()
-                .add(new Paragraph(type).setFontColor(typeColor))
-                .setBackgroundColor(rowColor)
-                .setTextAlignment(TextAlignment.CENTER));
+            long nbEntrees = 0, nbSorties = 0, totalIn = 0, totalOut = 0;
+            int lignes = 0;
+            boolean alternate = false;
+            while (it.hasNext()) {
+                LigneTransaction t = it.next();
+                DeviceRgb rowColor = alternate ? LIGHT_BG_COLOR : (DeviceRgb) ColorConstants.WHITE;
+                alternate = !alternate;
                 
-            // Quantité
-            int quantite = t.getQuantite();
-            DeviceRgb quantiteColor = quantite >= 0 ? SUCCESS_COLOR : DANGER_COLOR;
-            
-            transTable.addCell(new Cell()
-                .add(new Paragraph(String.valueOf(quantite)).setFontColor(quantiteColor))
-                .setBackgroundColor(rowColor)
-                .setTextAlignment(TextAlignment.CENTER));
+                // Date
+                LocalDateTime dateTime = t.getDateTransaction().toInstant()
+                    .atZone(ZoneId.systemDefault()).toLocalDateTime();
+                    
+                transTable.addCell(new Cell()
+                    .add(new Paragraph(dateTime.format(formatter)))
+                    .setBackgroundColor(rowColor));
+                    
+                // Type d'opération
+                String type = t.getTypeOperation() != null ? t.getTypeOperation() : "Ajustement";
+                DeviceRgb typeColor = (DeviceRgb) ColorConstants.BLACK;
                 
-            // Utilisateur
-            String username = "Système";
-            if (t.getUserId() != null) {
-                try {
-                    User user = userServiceClient.getUserByUsername(t.getUserId().toString());
-                    if (user != null) {
-                        username = user.getUsername();
-                    }
-                } catch (Exception e) {
-                    // Ignorer en cas d'erreur de récupération
+                if ("ENTRÉE".equalsIgnoreCase(type)) {
+                    typeColor = SUCCESS_COLOR;
+                } else if ("SORTIE".equalsIgnoreCase(type)) {
+                    typeColor = DANGER_COLOR;
+                } else if ("AJUSTEMENT".equalsIgnoreCase(type)) {
+                    typeColor = WARNING_COLOR;
                 }
-            }
-            
-            transTable.addCell(new Cell()
-                .add(new Paragraph(username))
-                .setBackgroundColor(rowColor));
                 
-            // Raison
-            transTable.addCell(new Cell()
-                .add(new Paragraph(t.getRaison() != null ? t.getRaison() : "-"))
-                .setBackgroundColor(rowColor));
+                transTable.addCell(new Cell()
+                    .add(new Paragraph(type).setFontColor(typeColor))
+                    .setBackgroundColor(rowColor)
+                    .setTextAlignment(TextAlignment.CENTER));
+                    
+                // Quantité
+                int quantite = t.getQuantite();
+                DeviceRgb quantiteColor = quantite >= 0 ? SUCCESS_COLOR : DANGER_COLOR;
                 
-            // Commentaires / champ vide pour extension future
-            transTable.addCell(new Cell()
-                .add(new Paragraph("-"))
-                .setBackgroundColor(rowColor));
-        }
-        
-        document.add(transTable);
-        
-        // Résumé des transactions
-        int totalIn = transactions.stream()
-            .filter(t -> t.getQuantite() > 0)
-            .mapToInt(Transaction::getQuantite)
-            .sum();
+                transTable.addCell(new Cell()
+                    .add(new Paragraph(String.valueOf(quantite)).setFontColor(quantiteColor))
+                    .setBackgroundColor(rowColor)
+                    .setTextAlignment(TextAlignment.CENTER));
+                    
+                // Utilisateur
+                String username = nomUtilisateur(t.getUserId(), noms);
+                
+                transTable.addCell(new Cell()
+                    .add(new Paragraph(username))
+                    .setBackgroundColor(rowColor));
+                    
+                // Raison
+                transTable.addCell(new Cell()
+                    .add(new Paragraph(t.getRaison() != null ? t.getRaison() : "-"))
+                    .setBackgroundColor(rowColor));
+                    
+                // Commentaires / champ vide pour extension future
+                transTable.addCell(new Cell()
+                    .add(new Paragraph("-"))
+                    .setBackgroundColor(rowColor));
+                
+                // Cumuls de la période et de l'utilisateur
+                long[] activiteUtilisateur = activite.computeIfAbsent(username, u -> new long[4]);
+                activiteUtilisateur[0]++;
+                if (quantite > 0) {
+                    nbEntrees++;
+                    totalIn += quantite;
+                    activiteUtilisateur[1] += quantite;
+                } else if (quantite < 0) {
+                    nbSorties++;
+                    totalOut += quantite;
+                    activiteUtilisateur[2] += quantite;
+                }
+                activiteUtilisateur[3] += quantite;
+                
+                if (++lignes % 200 == 0) {
+                    transTable.flush();
+                }
+            }
             
-        int totalOut = transactions.stream()
-            .filter(t -> t.getQuantite() < 0)
-            .mapToInt(Transaction::getQuantite)
-            .sum();
+            transTable.complete();
             
-        document.add(new Paragraph(String.format(
-            "Résumé: %d entrées (+%d), %d sorties (%d), Net: %d",
-            transactions.stream().filter(t -> t.getQuantite() > 0).count(),
-            totalIn,
-            transactions.stream().filter(t -> t.getQuantite() < 0).count(),
-            totalOut,
-            totalIn + totalOut
-        ))
-        .setMarginTop(10)
-        .setItalic());
+            // Résumé des transactions
+            document.add(new Paragraph(String.format(
+                "Résumé: %d entrées (+%d), %d sorties (%d), Net: %d",
+                nbEntrees,
+                totalIn,
+                nbSorties,
+                totalOut,
+                totalIn + totalOut
+            ))
+            .setMarginTop(10)
+            .setItalic());
+        }
+        return activite;
     }
     
-    private void addUserSummary(Document document, Long bassinId, Date startDate, Date endDate) {
+    private void addUserSummary(Document document, Map<String, long[]> activite) {
         document.add(new Paragraph("ACTIVITÉ PAR UTILISATEUR")
             .setFontSize(14)
             .setBold()
@@ -1198,56 +1501,13 @@ private void addGlobalStatistics(Document document, Map<Categorie, List<Bassin>>
             .setMarginTop(15)
             .setMarginBottom(10));
             
-        // Récupérer les transactions
-        List<Transaction> transactions = transactionRepository.findByBassin_IdBassinOrderByDateTransactionDesc(bassinId);
-        
-        // Filtrer par date si nécessaire
-        if (startDate != null || endDate != null) {
-            LocalDateTime startLocalDate = startDate != null ? 
-                startDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime() : 
-                LocalDateTime.of(1970, 1, 1, 0, 0);
-                
-            LocalDateTime endLocalDate = endDate != null ? 
-                endDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime().plusDays(1) : 
-                LocalDateTime.now().plusDays(1);
-                
-            transactions = transactions.stream()
-                .filter(t -> {
-                    LocalDateTime transDate = t.getDateTransaction().toInstant()
-                        .atZone(ZoneId.systemDefault()).toLocalDateTime();
-                    return !transDate.isBefore(startLocalDate) && !transDate.isAfter(endLocalDate);
-                })
-                .collect(Collectors.toList());
-        }
-        
-        if (transactions.isEmpty()) {
+        if (activite.isEmpty()) {
             document.add(new Paragraph("Aucune transaction à analyser.")
                 .setItalic()
                 .setFontColor(SECONDARY_COLOR));
             return;
         }
         
-        // Grouper par utilisateur
-        Map<String, List<Transaction>> transactionsByUser = new HashMap<>();
-        
-        for (Transaction t : transactions) {
-            String userId = t.getUserId() != null ? t.getUserId().toString() : "Système";
-            String username = "Système";
-            
-            if (!"Système".equals(userId)) {
-                try {
-                    User user = userServiceClient.getUserByUsername(userId);
-                    if (user != null) {
-                        username = user.getUsername();
-                    }
-                } catch (Exception e) {
-                    // Ignorer en cas d'erreur de récupération
-                }
-            }
-            
-            transactionsByUser.computeIfAbsent(username, k -> new java.util.ArrayList<>()).add(t);
-        }
-        
         // Tableau des statistiques par utilisateur
         Table userTable = new Table(UnitValue.createPercentArray(new float[]{2, 1, 1, 1, 1}))
             .setWidth(UnitValue.createPercentValue(100));
@@ -1265,27 +1525,19 @@ private void addGlobalStatistics(Document document, Map<Categorie, List<Bassin>>
             
         // Données
         boolean alternate = false;
-        for (Map.Entry<String, List<Transaction>> entry : transactionsByUser.entrySet()) {
+        for (Map.Entry<String, long[]> entry : activite.entrySet()) {
             DeviceRgb rowColor = alternate ? LIGHT_BG_COLOR : (DeviceRgb) ColorConstants.WHITE;
             alternate = !alternate;
             
             String username = entry.getKey();
-            List<Transaction> userTransactions = entry.getValue();
+            long[] activiteUtilisateur = entry.getValue();
             
-            int entrees = userTransactions.stream()
-                .filter(t -> t.getQuantite() > 0)
-                .mapToInt(Transaction::getQuantite)
-                .sum();
-                
-            int sorties = userTransactions.stream()
-                .filter(t -> t.getQuantite() < 0)
-                .mapToInt(Transaction::getQuantite)
-                .sum();
-                
-            int netImpact = entrees + sorties;
+            long entrees = activiteUtilisateur[1];
+            long sorties = activiteUtilisateur[2];
+            long netImpact = activiteUtilisateur[3];
             
             userTable.addCell(new Cell().add(new Paragraph(username)).setBackgroundColor(rowColor));
-            userTable.addCell(new Cell().add(new Paragraph(String.valueOf(userTransactions.size()))).setTextAlignment(TextAlignment.CENTER).setBackgroundColor(rowColor));
+            userTable.addCell(new Cell().add(new Paragraph(String.valueOf(activiteUtilisateur[0]))).setTextAlignment(TextAlignment.CENTER).setBackgroundColor(rowColor));
             userTable.addCell(new Cell().add(new Paragraph("+" + entrees).setFontColor(SUCCESS_COLOR)).setTextAlignment(TextAlignment.CENTER).setBackgroundColor(rowColor));
             userTable.addCell(new Cell().add(new Paragraph(String.valueOf(sorties)).setFontColor(DANGER_COLOR)).setTextAlignment(TextAlignment.CENTER).setBackgroundColor(rowColor));
             
@@ -1302,7 +1554,7 @@ private void addGlobalStatistics(Document document, Map<Categorie, List<Bassin>>
         document.add(userTable);
     }
     
-    private void addGlobalSummary(Document document, Date startDate, Date endDate) {
+    private void addGlobalSummary(Document document, DonneesRapportStock donnees, Date startDate, Date endDate) {
         document.add(new Paragraph("RÉSUMÉ DE L'INVENTAIRE")
             .setFontSize(14)
             .setBold()
@@ -1310,57 +1562,21 @@ private void addGlobalStatistics(Document document, Map<Categorie, List<Bassin>>
             .setMarginTop(10)
             .setMarginBottom(10));
             
-        // Statistiques globales
-        List<Bassin> allBassins = bassinRepository.findAll();
-        long totalBassins = allBassins.size();
-        long activeBassins = allBassins.stream().filter(b -> !b.isArchive()).count();
-        long archivedBassins = allBassins.stream().filter(Bassin::isArchive).count();
+        // Statistiques globales (collectées avec l'inventaire)
+        long totalBassins = donnees.getTotalBassins();
+        long activeBassins = donnees.getBassinsActifs();
         
         // Statistiques de stock
-        long lowStock = allBassins.stream()
-            .filter(b -> !b.isArchive() && b.getStock() < 5 && b.getStock() > 0)
-            .count();
-            
-        long outOfStock = allBassins.stream()
-            .filter(b -> !b.isArchive() && b.getStock() == 0)
-            .count();
+        long lowStock = donnees.getStockFaible();
+        long outOfStock = donnees.getRuptures();
             
         // Valeur du stock
-        double totalValue = allBassins.stream()
-            .filter(b -> !b.isArchive())
-            .mapToDouble(b -> b.getPrix() * b.getStock())
-            .sum();
-            
-        // Transactions pour la période
-        List<Transaction> transactions = transactionRepository.findAll();
-        
-        if (startDate != null || endDate != null) {
-            LocalDateTime startLocalDate = startDate != null ? 
-                startDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime() : 
-                LocalDateTime.of(1970, 1, 1, 0, 0);
-                
-            LocalDateTime endLocalDate = endDate != null ? 
-                endDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime().plusDays(1) : 
-                LocalDateTime.now().plusDays(1);
-                
-            transactions = transactions.stream()
-                .filter(t -> {
-                    LocalDateTime transDate = t.getDateTransaction().toInstant()
-                        .atZone(ZoneId.systemDefault()).toLocalDateTime();
-                    return !transDate.isBefore(startLocalDate) && !transDate.isAfter(endLocalDate);
-                })
-                .collect(Collectors.toList());
-        }
-        
-        int periodEntries = transactions.stream()
-            .filter(t -> t.getQuantite() > 0)
-            .mapToInt(Transaction::getQuantite)
-            .sum();
+        double totalValue = donnees.getValeurActive();
             
-        int periodExits = transactions.stream()
-            .filter(t -> t.getQuantite() < 0)
-            .mapToInt(Transaction::getQuantite)
-            .sum();
+        // Mouvements de la période (cumuls journaliers)
+        BilanStock bilan = donnees.getBilan();
+        long periodEntries = bilan.getQuantiteEntrees();
+        long periodExits = bilan.getQuantiteSorties();
             
         // Table pour les statistiques
         Table statsTable = new Table(UnitValue.createPercentArray(new float[]{1, 1, 1, 1}))
@@ -1416,7 +1632,7 @@ private void addGlobalStatistics(Document document, Map<Categorie, List<Bassin>>
         table.addCell(card);
     }
     
-private void addDetailedInventory(Document document, boolean showArchived) {
+private void addDetailedInventory(Document document, DonneesRapportStock donnees) {
     document.add(new Paragraph("INVENTAIRE DÉTAILLÉ PAR CATÉGORIE")
         .setFontSize(14)
         .setBold()
@@ -1424,139 +1640,128 @@ private void addDetailedInventory(Document document, boolean showArchived) {
         .setMarginTop(15)
         .setMarginBottom(10));
         
-    // Organisation par catégorie
-    Map<Categorie, List<Bassin>> bassinsParCategorie = organizeBassinsByCategory(null, showArchived);
+    // Organisation par catégorie (collectée avec l'inventaire)
+    for (DonneesRapportStock.InventaireCategorie categorie : donnees.getCategories().values()) {
+        String nomCategorie = categorie.getNomCategorie();
+        List<LigneInventaire> bassins = categorie.getBassins();
+            
+        document.add(new Paragraph(nomCategorie)
+            .setFontSize(12)
+            .setBold()
+            .setFontColor(SECONDARY_COLOR)
+            .setMarginTop(10));
+            
+        // Calculs pour la catégorie
+        int totalBassins = bassins.size();
+        int activeBassins = categorie.getBassinsActifs();
+        int archivedBassins = categorie.getBassinsArchives();
+        double totalValue = categorie.getValeurTotale();
+        long lowStock = categorie.getStockFaible();
+        long outOfStock = categorie.getRuptures();
+            
+        // Tableau des statistiques de la catégorie
+        Table categoryStats = new Table(UnitValue.createPercentArray(new float[]{1, 1, 1, 1}))
+            .setWidth(UnitValue.createPercentValue(100))
+            .setMarginBottom(10);
+            
+        addCategoryStatCard(categoryStats, "Total Bassins", String.valueOf(totalBassins));
+        addCategoryStatCard(categoryStats, "Actifs", String.valueOf(activeBassins), SUCCESS_COLOR);
+        addCategoryStatCard(categoryStats, "Archivés", String.valueOf(archivedBassins), DANGER_COLOR);
+        addCategoryStatCard(categoryStats, "Valeur totale", String.format("%,.2f DT", totalValue));
+        
+        document.add(categoryStats);
         
-    bassinsParCategorie.forEach((categorie, bassins) -> {
-        if (categorie != null) {
-            String nomCategorie = categorie.getNomCategorie() != null ? 
-                categorie.getNomCategorie() : "Catégorie sans nom";
-                
-            document.add(new Paragraph(nomCategorie)
-                .setFontSize(12)
-                .setBold()
-                .setFontColor(SECONDARY_COLOR)
-                .setMarginTop(10));
+        // Tableau détaillé des bassins
+        Table bassinsTable = new Table(UnitValue.createPercentArray(new float[]{3, 1, 1, 1, 1, 1, 1}))
+            .setWidth(UnitValue.createPercentValue(100));
+            
+        // En-têtes
+        Stream.of("Nom", "Prix", "Stock", "Valeur", "Matériau", "Statut", "Archivé")
+            .forEach(header -> {
+                bassinsTable.addHeaderCell(new Cell()
+                    .add(new Paragraph(header).setBold())
+                    .setBackgroundColor(LIGHT_BG_COLOR)
+                    .setTextAlignment(TextAlignment.CENTER));
+            });
+            
+        // Données des bassins
+        boolean alternate = false;
+        for (LigneInventaire bassin : bassins) {
+            DeviceRgb rowColor = alternate ? LIGHT_BG_COLOR : (DeviceRgb) ColorConstants.WHITE;
+            alternate = !alternate;
+            
+            // Nom
+            bassinsTable.addCell(new Cell()
+                .add(new Paragraph(bassin.getNomBassin()))
+                .setBackgroundColor(rowColor));
                 
-            // Calculs pour la catégorie
-            int totalBassins = bassins.size();
-            int activeBassins = (int) bassins.stream().filter(b -> !b.isArchive()).count();
-            int archivedBassins = (int) bassins.stream().filter(Bassin::isArchive).count();
-            int totalStock = bassins.stream().mapToInt(Bassin::getStock).sum();
-            double totalValue = bassins.stream()
-                .mapToDouble(b -> b.getPrix() * b.getStock())
-                .sum();
-            long lowStock = bassins.stream()
-                .filter(b -> b.getStock() < 5 && b.getStock() > 0)
-                .count();
-            long outOfStock = bassins.stream()
-                .filter(b -> b.getStock() == 0)
-                .count();
+            // Prix
+            bassinsTable.addCell(new Cell()
+                .add(new Paragraph(String.format("%,.2f DT", bassin.getPrix())))
+                .setTextAlignment(TextAlignment.RIGHT)
+                .setBackgroundColor(rowColor));
                 
-            // Tableau des statistiques de la catégorie
-            Table categoryStats = new Table(UnitValue.createPercentArray(new float[]{1, 1, 1, 1}))
-                .setWidth(UnitValue.createPercentValue(100))
-                .setMarginBottom(10);
+            // Stock (avec couleur selon niveau)
+            Cell stockCell = new Cell()
+                .add(new Paragraph(String.valueOf(bassin.getStock())))
+                .setTextAlignment(TextAlignment.CENTER)
+                .setBackgroundColor(rowColor);
                 
-            addCategoryStatCard(categoryStats, "Total Bassins", String.valueOf(totalBassins));
-            addCategoryStatCard(categoryStats, "Actifs", String.valueOf(activeBassins), SUCCESS_COLOR);
-            addCategoryStatCard(categoryStats, "Archivés", String.valueOf(archivedBassins), DANGER_COLOR);
-            addCategoryStatCard(categoryStats, "Valeur totale", String.format("%,.2f DT", totalValue));
-            
-            document.add(categoryStats);
+            if (bassin.getStock() == 0) {
+                stockCell.setFontColor(DANGER_COLOR);
+            } else if (bassin.getStock() < 5) {
+                stockCell.setFontColor(WARNING_COLOR);
+            }
+            bassinsTable.addCell(stockCell);
             
-            // Tableau détaillé des bassins
-            Table bassinsTable = new Table(UnitValue.createPercentArray(new float[]{3, 1, 1, 1, 1, 1, 1}))
-                .setWidth(UnitValue.createPercentValue(100));
-                
-            // En-têtes
-            Stream.of("Nom", "Prix", "Stock", "Valeur", "Matériau", "Statut", "Archivé")
-                .forEach(header -> {
-                    bassinsTable.addHeaderCell(new Cell()
-                        .add(new Paragraph(header).setBold())
-                        .setBackgroundColor(LIGHT_BG_COLOR)
-                        .setTextAlignment(TextAlignment.CENTER));
-                });
+            // Valeur
+            bassinsTable.addCell(new Cell()
+                .add(new Paragraph(String.format("%,.2f DT", bassin.getValeur())))
+                .setTextAlignment(TextAlignment.RIGHT)
+                .setBackgroundColor(rowColor));
                 
-            // Données des bassins
-            boolean alternate = false;
-            for (Bassin bassin : bassins) {
-                DeviceRgb rowColor = alternate ? LIGHT_BG_COLOR : (DeviceRgb) ColorConstants.WHITE;
-                alternate = !alternate;
+            // Matériau
+            bassinsTable.addCell(new Cell()
+                .add(new Paragraph(bassin.getMateriau() != null ? bassin.getMateriau() : "-"))
+                .setBackgroundColor(rowColor));
                 
-                // Nom
-                bassinsTable.addCell(new Cell()
-                    .add(new Paragraph(bassin.getNomBassin()))
-                    .setBackgroundColor(rowColor));
-                    
-                // Prix
-                bassinsTable.addCell(new Cell()
-                    .add(new Paragraph(String.format("%,.2f DT", bassin.getPrix())))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setBackgroundColor(rowColor));
-                    
-                // Stock (avec couleur selon niveau)
-                Cell stockCell = new Cell()
-                    .add(new Paragraph(String.valueOf(bassin.getStock())))
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setBackgroundColor(rowColor);
-                    
-                if (bassin.getStock() == 0) {
-                    stockCell.setFontColor(DANGER_COLOR);
-                } else if (bassin.getStock() < 5) {
-                    stockCell.setFontColor(WARNING_COLOR);
-                }
-                bassinsTable.addCell(stockCell);
+            // Statut
+            String status = bassin.isDisponible() ? "Disponible" : "Non disponible";
+            Cell statusCell = new Cell()
+                .add(new Paragraph(status))
+                .setTextAlignment(TextAlignment.CENTER)
+                .setBackgroundColor(rowColor);
                 
-                // Valeur
-                bassinsTable.addCell(new Cell()
-                    .add(new Paragraph(String.format("%,.2f DT", bassin.getPrix() * bassin.getStock())))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setBackgroundColor(rowColor));
-                    
-                // Matériau
-                bassinsTable.addCell(new Cell()
-                    .add(new Paragraph(bassin.getMateriau() != null ? bassin.getMateriau() : "-"))
-                    .setBackgroundColor(rowColor));
-                    
-                // Statut
-                String status = bassin.isDisponible() ? "Disponible" : "Non disponible";
-                Cell statusCell = new Cell()
-                    .add(new Paragraph(status))
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setBackgroundColor(rowColor);
-                    
-                if (!bassin.isDisponible()) {
-                    statusCell.setFontColor(WARNING_COLOR);
-                }
-                bassinsTable.addCell(statusCell);
+            if (!bassin.isDisponible()) {
+                statusCell.setFontColor(WARNING_COLOR);
+            }
+            bassinsTable.addCell(statusCell);
+            
+            // Archivé
+            String archivedStatus = bassin.isArchive() ? "Oui" : "Non";
+            Cell archivedCell = new Cell()
+                .add(new Paragraph(archivedStatus))
+                .setTextAlignment(TextAlignment.CENTER)
+                .setBackgroundColor(rowColor);
                 
-                // Archivé
-                String archivedStatus = bassin.isArchive() ? "Oui" : "Non";
-                Cell archivedCell = new Cell()
-                    .add(new Paragraph(archivedStatus))
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setBackgroundColor(rowColor);
-                    
-                if (bassin.isArchive()) {
-                    archivedCell.setFontColor(DANGER_COLOR);
-                }
-                bassinsTable.addCell(archivedCell);
+            if (bassin.isArchive()) {
+                archivedCell.setFontColor(DANGER_COLOR);
             }
-            
-            document.add(bassinsTable);
-            
-            // Résumé de la catégorie
-            document.add(new Paragraph(String.format(
-                "Résumé catégorie: %d bassins (%d actifs, %d archivés), %d en stock faible, %d en rupture de stock",
-                totalBassins, activeBassins, archivedBassins, lowStock, outOfStock
-            ))
-            .setItalic()
-            .setFontSize(10)
-            .setMarginTop(5)
-            .setMarginBottom(15));
+            bassinsTable.addCell(archivedCell);
         }
-    });
+        
+        document.add(bassinsTable);
+        
+        // Résumé de la catégorie
+        document.add(new Paragraph(String.format(
+            "Résumé catégorie: %d bassins (%d actifs, %d archivés), %d en stock faible, %d en rupture de stock",
+            totalBassins, activeBassins, archivedBassins, lowStock, outOfStock
+        ))
+        .setItalic()
+        .setFontSize(10)
+        .setMarginTop(5)
+        .setMarginBottom(15));
+    }
 }
 
 
@@ -1586,7 +1791,7 @@ private void addCategoryStatCard(Table table, String label, String value, Device
     table.addCell(cell);
 }
 
-private void addTransactionSummary(Document document, Date startDate, Date endDate) {
+private void addTransactionSummary(Document document, DonneesRapportStock donnees, Date startDate, Date endDate) {
     document.add(new Paragraph("RÉSUMÉ DES TRANSACTIONS")
         .setFontSize(14)
         .setBold()
@@ -1594,33 +1799,12 @@ private void addTransactionSummary(Document document, Date startDate, Date endDa
         .setMarginTop(15)
         .setMarginBottom(10));
         
-    // Récupérer toutes les transactions
-    List<Transaction> transactions = transactionRepository.findAll();
-    
-    // Filtrer par période si nécessaire
-    if (startDate != null || endDate != null) {
-        LocalDateTime start = startDate != null ? 
-            startDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime() : 
-            LocalDateTime.of(1970, 1, 1, 0, 0);
-            
-        LocalDateTime end = endDate != null ? 
-            endDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime().plusDays(1) : 
-            LocalDateTime.now().plusDays(1);
-            
-        transactions = transactions.stream()
-            .filter(t -> {
-                LocalDateTime transDate = t.getDateTransaction().toInstant()
-                    .atZone(ZoneId.systemDefault()).toLocalDateTime();
-                return !transDate.isBefore(start) && !transDate.isAfter(end);
-            })
-            .collect(Collectors.toList());
-    }
-    
-    // Calculer les statistiques
-    long totalTransactions = transactions.size();
-    long entries = transactions.stream().filter(t -> t.getQuantite() > 0).count();
-    long exits = transactions.stream().filter(t -> t.getQuantite() < 0).count();
-    int totalQuantity = transactions.stream().mapToInt(Transaction::getQuantite).sum();
+    // Statistiques de la période (cumuls journaliers)
+    BilanStock bilan = donnees.getBilan();
+    long totalTransactions = bilan.getNbTransactions();
+    long entries = bilan.getNbEntrees();
+    long exits = bilan.getNbSorties();
+    long totalQuantity = bilan.getVariationNette();
     
     // Créer le tableau de résumé
     Table summaryTable = new Table(UnitValue.createPercentArray(new float[]{1, 1, 1, 1}))
@@ -1641,7 +1825,7 @@ private void addTransactionSummary(Document document, Date startDate, Date endDa
         .setMarginTop(10));
 }
 
-private void addUserActivitySummary(Document document, Date startDate, Date endDate) {
+private void addUserActivitySummary(Document document, DonneesRapportStock donnees) {
     document.add(new Paragraph("ACTIVITÉ DES UTILISATEURS")
         .setFontSize(14)
         .setBold()
@@ -1649,44 +1833,19 @@ private void addUserActivitySummary(Document document, Date startDate, Date endD
         .setMarginTop(15)
         .setMarginBottom(10));
         
-    // Récupérer toutes les transactions
-    List<Transaction> transactions = transactionRepository.findAll();
-    
-    // Filtrer par période si nécessaire
-    if (startDate != null || endDate != null) {
-        LocalDateTime start = startDate != null ? 
-            startDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime() : 
-            LocalDateTime.of(1970, 1, 1, 0, 0);
-            
-        LocalDateTime end = endDate != null ? 
-            endDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime().plusDays(1) : 
-            LocalDateTime.now().plusDays(1);
-            
-        transactions = transactions.stream()
-            .filter(t -> {
-                LocalDateTime transDate = t.getDateTransaction().toInstant()
-                    .atZone(ZoneId.systemDefault()).toLocalDateTime();
-                return !transDate.isBefore(start) && !transDate.isAfter(end);
-            })
-            .collect(Collectors.toList());
+    // Cumuls de la période par utilisateur, regroupés par nom affiché :
+    // transactions, entrées, sorties, impact net
+    Map<String, long[]> activityByUser = new LinkedHashMap<>();
+    Map<Long, String> noms = new HashMap<>();
+    for (BilanStock bilan : donnees.getBilansParUtilisateur()) {
+        String username = nomUtilisateur(bilan.getUserId(), noms);
+        long[] activity = activityByUser.computeIfAbsent(username, u -> new long[4]);
+        activity[0] += bilan.getNbTransactions();
+        activity[1] += bilan.getNbEntrees();
+        activity[2] += bilan.getNbSorties();
+        activity[3] += bilan.getVariationNette();
     }
     
-    // Grouper par utilisateur
-    Map<String, List<Transaction>> transactionsByUser = transactions.stream()
-        .collect(Collectors.groupingBy(
-            t -> {
-                if (t.getUserId() != null) {
-                    try {
-                        User user = userServiceClient.getUserByUsername(t.getUserId().toString());
-                        return user != null ? user.getUsername() : "Inconnu";
-                    } catch (Exception e) {
-                        return "Inconnu";
-                    }
-                }
-                return "Système";
-            }
-        ));
-    
     // Créer le tableau d'activité
     Table activityTable = new Table(UnitValue.createPercentArray(new float[]{2, 1, 1, 1, 1}))
         .setWidth(UnitValue.createPercentValue(100));
@@ -1703,19 +1862,19 @@ private void addUserActivitySummary(Document document, Date startDate, Date endD
     
     // Données
     boolean alternate = false;
-    for (Map.Entry<String, List<Transaction>> entry : transactionsByUser.entrySet()) {
+    for (Map.Entry<String, long[]> entry : activityByUser.entrySet()) {
         DeviceRgb rowColor = alternate ? LIGHT_BG_COLOR : (DeviceRgb) ColorConstants.WHITE;
         alternate = !alternate;
         
         String username = entry.getKey();
-        List<Transaction> userTransactions = entry.getValue();
+        long[] activity = entry.getValue();
         
-        long entries = userTransactions.stream().filter(t -> t.getQuantite() > 0).count();
-        long exits = userTransactions.stream().filter(t -> t.getQuantite() < 0).count();
-        int netImpact = userTransactions.stream().mapToInt(Transaction::getQuantite).sum();
+        long entries = activity[1];
+        long exits = activity[2];
+        long netImpact = activity[3];
         
         activityTable.addCell(new Cell().add(new Paragraph(username)).setBackgroundColor(rowColor));
-        activityTable.addCell(new Cell().add(new Paragraph(String.valueOf(userTransactions.size())))
+        activityTable.addCell(new Cell().add(new Paragraph(String.valueOf(activity[0])))
             .setTextAlignment(TextAlignment.CENTER)
             .setBackgroundColor(rowColor));
         activityTable.addCell(new Cell().add(new Paragraph(String.valueOf(entries)))
@@ -1785,54 +1944,55 @@ private void addStatCard(Table table, String label, String value, DeviceRgb valu
     table.addCell(cell);
 }
 @Override
-@Transactional
 public Bassin mettreSurCommande(Long id, Integer dureeFabricationJours) {
-    Bassin bassin = bassinRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+    return reessaiOptimiste.executer(() -> {
+        Bassin bassin = bassinRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
 
-    // Vérifications
-    if (bassin.getStock() != 0) {
-        throw new IllegalStateException("Le bassin doit avoir un stock à 0 pour être mis sur commande");
-    }
+        // Vérifications
+        if (bassin.getStock() != 0) {
+            throw new IllegalStateException("Le bassin doit avoir un stock à 0 pour être mis sur commande");
+        }
     
-    if (dureeFabricationJours == null || dureeFabricationJours <= 0) {
-        // Si durée null ou invalide, utiliser valeurs par défaut
-        bassin.setDureeFabricationJours(null);
-        bassin.setDureeFabricationJoursMin(3);
-        bassin.setDureeFabricationJoursMax(15);
-    } else {
-        // Si durée spécifiée, utiliser la même valeur pour tous les champs
-        bassin.setDureeFabricationJours(dureeFabricationJours);
-        bassin.setDureeFabricationJoursMin(dureeFabricationJours);
-        bassin.setDureeFabricationJoursMax(dureeFabricationJours);
-    }
-
-    // Mise à jour du statut
-    bassin.setStatut("SUR_COMMANDE");
-    bassin.setArchive(false);
-    bassin.setSurCommande(true);
-
-    // Calcul de la date de disponibilité prévue
-    Calendar calendar = Calendar.getInstance();
-    int joursDelai = dureeFabricationJours != null ? dureeFabricationJours : 
-                     (bassin.getDureeFabricationJoursMin() + bassin.getDureeFabricationJoursMax()) / 2;
-    calendar.add(Calendar.DAY_OF_YEAR, joursDelai);
-
-    // Notification
-    Notification notification = new Notification();
-    String delaiMsg = dureeFabricationJours != null ? 
-                      dureeFabricationJours + " jours" : 
-                      "Entre " + bassin.getDureeFabricationJoursMin() + " et " + 
-                      bassin.getDureeFabricationJoursMax() + " jours";
+        if (dureeFabricationJours == null || dureeFabricationJours <= 0) {
+            // Si durée null ou invalide, utiliser valeurs par défaut
+            bassin.setDureeFabricationJours(null);
+            bassin.setDureeFabricationJoursMin(3);
+            bassin.setDureeFabricationJoursMax(15);
+        } else {
+            // Si durée spécifiée, utiliser la même valeur pour tous les champs
+            bassin.setDureeFabricationJours(dureeFabricationJours);
+            bassin.setDureeFabricationJoursMin(dureeFabricationJours);
+            bassin.setDureeFabricationJoursMax(dureeFabricationJours);
+        }
+
+        // Mise à jour du statut
+        bassin.setStatut("SUR_COMMANDE");
+        bassin.setArchive(false);
+        bassin.setSurCommande(true);
+
+        // Calcul de la date de disponibilité prévue
+        Calendar calendar = Calendar.getInstance();
+        int joursDelai = dureeFabricationJours != null ? dureeFabricationJours : 
+                         (bassin.getDureeFabricationJoursMin() + bassin.getDureeFabricationJoursMax()) / 2;
+        calendar.add(Calendar.DAY_OF_YEAR, joursDelai);
+
+        // Notification
+        Notification notification = new Notification();
+        String delaiMsg = dureeFabricationJours != null ? 
+                          dureeFabricationJours + " jours" : 
+                          "Entre " + bassin.getDureeFabricationJoursMin() + " et " + 
+                          bassin.getDureeFabricationJoursMax() + " jours";
                       
-    notification.setMessage("ℹ️ Bassin " + bassin.getNomBassin() +
-            " est maintenant sur commande (Délai: " + delaiMsg + ")");
-    notification.setType("info");
-    notification.setDate(new Date());
-    notification.setRead(false);
-    notificationRepository.save(notification);
-
-    return bassinRepository.save(bassin);
+        notification.setMessage("ℹ️ Bassin " + bassin.getNomBassin() +
+                " est maintenant sur commande (Délai: " + delaiMsg + ")");
+        notification.setType("info");
+        notification.setDate(new Date());
+        notification.setRead(false);
+        notificationRepository.save(notification);
+
+        return bassinRepository.save(bassin);
+    });
 }
 @Override
 public Bassin updateDureeFabrication(Long id, Integer duree) {
@@ -1842,43 +2002,45 @@ public Bassin updateDureeFabrication(Long id, Integer duree) {
 
 @Override
 public Bassin updateDureeFabrication(Long id, Integer dureeMin, Integer dureeMax) {
-    // Validation
-    if (dureeMin == null || dureeMax == null || dureeMin <= 0 || dureeMax <= 0 || dureeMin > dureeMax) {
-        throw new IllegalArgumentException("La durée doit être une fourchette valide (min ≤ max)");
-    }
+    return reessaiOptimiste.executer(() -> {
+        // Validation
+        if (dureeMin == null || dureeMax == null || dureeMin <= 0 || dureeMax <= 0 || dureeMin > dureeMax) {
+            throw new IllegalArgumentException("La durée doit être une fourchette valide (min ≤ max)");
+        }
     
-    Bassin bassin = bassinRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
+        Bassin bassin = bassinRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Bassin non trouvé"));
 
-    if (bassin.getStock() == 0 && !"SUR_COMMANDE".equals(bassin.getStatut())) {
-        bassin.setStatut("SUR_COMMANDE");
-        bassin.setSurCommande(true);
-    }
+        if (bassin.getStock() == 0 && !"SUR_COMMANDE".equals(bassin.getStatut())) {
+            bassin.setStatut("SUR_COMMANDE");
+            bassin.setSurCommande(true);
+        }
     
-    if (!"SUR_COMMANDE".equals(bassin.getStatut())) {
-        throw new IllegalStateException("La durée de fabrication ne peut être modifiée que pour les bassins sur commande");
-    }
+        if (!"SUR_COMMANDE".equals(bassin.getStatut())) {
+            throw new IllegalStateException("La durée de fabrication ne peut être modifiée que pour les bassins sur commande");
+        }
 
-    // Mise à jour des valeurs
-    if (dureeMin.equals(dureeMax)) {
-        bassin.setDureeFabricationJours(dureeMin);
-        bassin.setDureeFabricationJoursMin(null);
-        bassin.setDureeFabricationJoursMax(null);
-    } else {
-        bassin.setDureeFabricationJours(null);
-        bassin.setDureeFabricationJoursMin(dureeMin);
-        bassin.setDureeFabricationJoursMax(dureeMax);
-    }
+        // Mise à jour des valeurs
+        if (dureeMin.equals(dureeMax)) {
+            bassin.setDureeFabricationJours(dureeMin);
+            bassin.setDureeFabricationJoursMin(null);
+            bassin.setDureeFabricationJoursMax(null);
+        } else {
+            bassin.setDureeFabricationJours(null);
+            bassin.setDureeFabricationJoursMin(dureeMin);
+            bassin.setDureeFabricationJoursMax(dureeMax);
+        }
 
-    // Notification
-    Notification notification = new Notification();
-    notification.setMessage("ℹ️ Durée de fabrication mise à jour pour " + bassin.getNomBassin() + 
-            ": " + bassin.getDureeFabricationDisplay());
-    notification.setType("info");
-    notification.setDate(new Date());
-    notification.setRead(false);
-    notificationRepository.save(notification);
+        // Notification
+        Notification notification = new Notification();
+        notification.setMessage("ℹ️ Durée de fabrication mise à jour pour " + bassin.getNomBassin() + 
+                ": " + bassin.getDureeFabricationDisplay());
+        notification.setType("info");
+        notification.setDate(new Date());
+        notification.setRead(false);
+        notificationRepository.save(notification);
     
-    return bassinRepository.save(bassin);
+        return bassinRepository.save(bassin);
+    });
 }
 }
\ No newline at end of file
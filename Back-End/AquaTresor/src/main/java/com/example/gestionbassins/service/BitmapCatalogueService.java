@@ -0,0 +1,332 @@
+package com.example.gestionbassins.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import com.example.gestionbassins.projections.BassinIndexable;
+import com.example.gestionbassins.repos.BassinRepository;
+
+/**
+ * Index bitmap du catalogue : pour chaque valeur de catégorie, matériau, couleur, statut, archive
+ * et promotion, puis pour chaque tranche de prix, le bitmap compressé des ids de bassins qui la portent.
+ *
+ * Un filtre (ExpressionFiltre) s'évalue par ET / OU / SAUF de bitmaps, en microsecondes, sans requête ;
+ * seule la page d'ids retenue est ensuite lue en base. Chargé au démarrage puis tenu à jour bassin par
+ * bassin après chaque commit (CatalogueIndexListener).
+ */
+@Service
+public class BitmapCatalogueService implements IndexCatalogue, ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BitmapCatalogueService.class);
+
+    public static final String CATEGORIE = "categorie";
+    public static final String MATERIAU = "materiau";
+    public static final String COULEUR = "couleur";
+    public static final String STATUT = "statut";
+    public static final String ARCHIVE = "archive";
+    public static final String PROMOTION = "promotion";
+    public static final String PRIX = "prix";
+
+    public static final List<String> CHAMPS = List.of(CATEGORIE, MATERIAU, COULEUR, STATUT, ARCHIVE, PROMOTION);
+
+    @Value("${catalogue.bitmap.tranche-prix:100}")
+    private double tranchePrix;
+
+    @Autowired
+    private BassinRepository bassinRepository;
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    private final Map<Integer, BassinIndexable> bassins = new HashMap<>();
+    private BitmapCompresse tous = new BitmapCompresse();
+    // champ -> valeur normalisée -> bassins
+    private final Map<String, Map<String, BitmapCompresse>> index = new HashMap<>();
+    // champ -> valeur normalisée -> libellé affiché (nom de catégorie, première graphie rencontrée)
+    private final Map<String, Map<String, String>> libelles = new HashMap<>();
+    // numéro de tranche de prix -> bassins ; les bornes d'un intervalle sont vérifiées au prix exact
+    private final NavigableMap<Long, BitmapCompresse> tranches = new TreeMap<>();
+
+    public BitmapCatalogueService() {
+        for (String champ : CHAMPS) {
+            index.put(champ, new HashMap<>());
+            libelles.put(champ, new HashMap<>());
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconstruire();
+    }
+
+    // Verrou pris avant la lecture : une modification commitée pendant le chargement passe après
+    public void reconstruire() {
+        verrou.writeLock().lock();
+        try {
+            bassins.clear();
+            tous = new BitmapCompresse();
+            for (String champ : CHAMPS) {
+                index.get(champ).clear();
+                libelles.get(champ).clear();
+            }
+            tranches.clear();
+            bassinRepository.findIndexables().forEach(this::ajouter);
+            logger.info("Index bitmap du catalogue : {} bassin(s)", bassins.size());
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void indexer(BassinIndexable bassin) {
+        verrou.writeLock().lock();
+        try {
+            enlever(bassin.getIdBassin());
+            ajouter(bassin);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void retirer(Long idBassin) {
+        verrou.writeLock().lock();
+        try {
+            enlever(idBassin);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void renommerCategorie(Long idCategorie, String nomCategorie) {
+        verrou.writeLock().lock();
+        try {
+            String cle = idCategorie.toString();
+            if (index.get(CATEGORIE).containsKey(cle)) {
+                libelles.get(CATEGORIE).put(cle, nomCategorie);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Plusieurs lectures cohérentes entre elles (aucune écriture ne s'intercale). Les bitmaps obtenus
+     * par bitmap()/valeurs()/tous() appartiennent à l'index : à ne lire que dans la lecture.
+     */
+    public <T> T enLecture(Supplier<T> lecture) {
+        verrou.readLock().lock();
+        try {
+            return lecture.get();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // Bassins retenus par le filtre ; le résultat appartient à l'appelant
+    public BitmapCompresse filtrer(ExpressionFiltre filtre) {
+        return enLecture(() -> {
+            BitmapCompresse resultat = filtre.evaluer(this);
+            return filtre instanceof ExpressionFiltre.Terme ? resultat.copie() : resultat;
+        });
+    }
+
+    public BitmapCompresse tous() {
+        return tous;
+    }
+
+    public BitmapCompresse bitmap(String champ, String valeur) {
+        BitmapCompresse bitmap = index.get(champ).get(normaliser(valeur));
+        return bitmap != null ? bitmap : new BitmapCompresse();
+    }
+
+    // Valeurs connues d'un champ et leurs bassins
+    public Map<String, BitmapCompresse> valeurs(String champ) {
+        return Collections.unmodifiableMap(index.get(champ));
+    }
+
+    public String libelle(String champ, String valeur) {
+        return libelles.get(champ).get(valeur);
+    }
+
+    // Bassins dont le prix est dans [min, max] (bornes facultatives)
+    public BitmapCompresse prixEntre(Double min, Double max) {
+        if (tranches.isEmpty()) {
+            return new BitmapCompresse();
+        }
+        long premiere = min == null ? tranches.firstKey() : tranche(min);
+        long derniere = max == null ? tranches.lastKey() : tranche(max);
+        BitmapCompresse resultat = new BitmapCompresse();
+        if (premiere > derniere) {
+            return resultat;
+        }
+        List<BitmapCompresse> entieres = new ArrayList<>();
+        for (Map.Entry<Long, BitmapCompresse> e : tranches.subMap(premiere, true, derniere, true).entrySet()) {
+            if (e.getKey() > premiere && e.getKey() < derniere) {
+                entieres.add(e.getValue());
+            } else {
+                // Tranche de bord : prix exact
+                e.getValue().parcourir(id -> {
+                    double prix = bassins.get(id).getPrix();
+                    if ((min == null || prix >= min) && (max == null || prix <= max)) {
+                        resultat.ajouter(id);
+                    }
+                    return true;
+                });
+            }
+        }
+        entieres.add(resultat);
+        return BitmapCompresse.ouTous(entieres);
+    }
+
+    // Plus petit et plus grand prix parmi les bassins donnés (null si aucun)
+    public double[] bornesPrix(BitmapCompresse parmi) {
+        Double min = prixExtreme(parmi, tranches);
+        if (min == null) {
+            return null;
+        }
+        return new double[] { min, prixExtreme(parmi, tranches.descendingMap()) };
+    }
+
+    private Double prixExtreme(BitmapCompresse parmi, NavigableMap<Long, BitmapCompresse> ordre) {
+        for (BitmapCompresse tranche : ordre.values()) {
+            BitmapCompresse communs = tranche.et(parmi);
+            if (!communs.estVide()) {
+                double[] extreme = { Double.NaN };
+                boolean croissant = ordre == tranches;
+                communs.parcourir(id -> {
+                    double prix = bassins.get(id).getPrix();
+                    if (Double.isNaN(extreme[0]) || (croissant ? prix < extreme[0] : prix > extreme[0])) {
+                        extreme[0] = prix;
+                    }
+                    return true;
+                });
+                return extreme[0];
+            }
+        }
+        return null;
+    }
+
+    // Page d'ids croissants d'un résultat
+    public static List<Long> page(BitmapCompresse ids, int offset, int limit) {
+        List<Long> page = new ArrayList<>();
+        int[] rang = { 0 };
+        ids.parcourir(id -> {
+            if (rang[0]++ >= offset) {
+                page.add((long) id);
+            }
+            return page.size() < limit;
+        });
+        return page;
+    }
+
+    // Valeur normalisée d'un bassin pour un champ (null : absent de ce champ)
+    public static String valeur(BassinIndexable bassin, String champ) {
+        switch (champ) {
+            case CATEGORIE:
+                return bassin.getIdCategorie() == null ? null : bassin.getIdCategorie().toString();
+            case MATERIAU:
+                return normaliser(bassin.getMateriau());
+            case COULEUR:
+                return normaliser(bassin.getCouleur());
+            case STATUT:
+                return normaliser(bassin.getStatut());
+            case ARCHIVE:
+                return String.valueOf(bassin.isArchive());
+            default:
+                return String.valueOf(bassin.isPromotionActive());
+        }
+    }
+
+    // "Béton ", "béton" et "BÉTON" désignent la même valeur
+    public static String normaliser(String valeur) {
+        if (valeur == null || valeur.isBlank()) {
+            return null;
+        }
+        return valeur.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private long tranche(double prix) {
+        return (long) Math.floor(prix / tranchePrix);
+    }
+
+    private void ajouter(BassinIndexable bassin) {
+        int id = Math.toIntExact(bassin.getIdBassin());
+        bassins.put(id, bassin);
+        tous.ajouter(id);
+        for (String champ : CHAMPS) {
+            String valeur = valeur(bassin, champ);
+            if (valeur != null) {
+                index.get(champ).computeIfAbsent(valeur, v -> new BitmapCompresse()).ajouter(id);
+                if (CATEGORIE.equals(champ)) {
+                    libelles.get(champ).put(valeur, bassin.getNomCategorie());
+                } else {
+                    libelles.get(champ).putIfAbsent(valeur, libelleBrut(bassin, champ));
+                }
+            }
+        }
+        if (bassin.getPrix() != null) {
+            tranches.computeIfAbsent(tranche(bassin.getPrix()), t -> new BitmapCompresse()).ajouter(id);
+        }
+    }
+
+    private static String libelleBrut(BassinIndexable bassin, String champ) {
+        switch (champ) {
+            case MATERIAU:
+                return bassin.getMateriau().trim();
+            case COULEUR:
+                return bassin.getCouleur().trim();
+            case STATUT:
+                return bassin.getStatut().trim();
+            default:
+                return valeur(bassin, champ);
+        }
+    }
+
+    private void enlever(Long idBassin) {
+        int id = Math.toIntExact(idBassin);
+        BassinIndexable ancien = bassins.remove(id);
+        if (ancien == null) {
+            return;
+        }
+        tous.retirer(id);
+        for (String champ : CHAMPS) {
+            String valeur = valeur(ancien, champ);
+            BitmapCompresse bitmap = valeur == null ? null : index.get(champ).get(valeur);
+            if (bitmap != null) {
+                bitmap.retirer(id);
+                if (bitmap.estVide()) {
+                    index.get(champ).remove(valeur);
+                    libelles.get(champ).remove(valeur);
+                }
+            }
+        }
+        if (ancien.getPrix() != null) {
+            long t = tranche(ancien.getPrix());
+            BitmapCompresse bitmap = tranches.get(t);
+            if (bitmap != null) {
+                bitmap.retirer(id);
+                if (bitmap.estVide()) {
+                    tranches.remove(t);
+                }
+            }
+        }
+    }
+}
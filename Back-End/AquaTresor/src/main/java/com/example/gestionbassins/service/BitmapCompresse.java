@@ -0,0 +1,560 @@
+package com.example.gestionbassins.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntPredicate;
+
+/**
+ * Ensemble compressé d'entiers positifs (principe des "roaring bitmaps"). Les valeurs sont rangées
+ * par blocs de 65 536 selon leurs 16 bits de poids fort. Un bloc peu rempli est un tableau trié
+ * (2 octets par valeur), un bloc dense une table de 65 536 bits (8 Ko).
+ *
+ * ET / OU / SAUF travaillent bloc par bloc et rendent un nouveau bitmap, sans modifier les opérandes.
+ * Non thread-safe : les index qui en contiennent les protègent par un verrou.
+ */
+public final class BitmapCompresse {
+
+    // Au-delà, un tableau trié prend plus de place qu'une table de bits
+    private static final int SEUIL_TABLEAU = 4096;
+
+    private char[] cles = new char[2];
+    private Bloc[] blocs = new Bloc[2];
+    private int nombreBlocs;
+
+    public static BitmapCompresse de(int... valeurs) {
+        BitmapCompresse bitmap = new BitmapCompresse();
+        for (int valeur : valeurs) {
+            bitmap.ajouter(valeur);
+        }
+        return bitmap;
+    }
+
+    public static BitmapCompresse ouTous(Collection<BitmapCompresse> bitmaps) {
+        BitmapCompresse resultat = new BitmapCompresse();
+        for (BitmapCompresse bitmap : bitmaps) {
+            resultat = resultat.ou(bitmap);
+        }
+        return resultat;
+    }
+
+    public void ajouter(int valeur) {
+        verifier(valeur);
+        char cle = (char) (valeur >>> 16);
+        int i = chercher(cle);
+        if (i < 0) {
+            i = -i - 1;
+            insererBloc(i, cle, new BlocTableau());
+        }
+        blocs[i] = blocs[i].ajouter((char) valeur);
+    }
+
+    public void retirer(int valeur) {
+        if (valeur < 0) {
+            return;
+        }
+        int i = chercher((char) (valeur >>> 16));
+        if (i >= 0) {
+            blocs[i] = blocs[i].retirer((char) valeur);
+            if (blocs[i].cardinalite() == 0) {
+                supprimerBloc(i);
+            }
+        }
+    }
+
+    public boolean contient(int valeur) {
+        if (valeur < 0) {
+            return false;
+        }
+        int i = chercher((char) (valeur >>> 16));
+        return i >= 0 && blocs[i].contient((char) valeur);
+    }
+
+    public int cardinalite() {
+        int total = 0;
+        for (int i = 0; i < nombreBlocs; i++) {
+            total += blocs[i].cardinalite();
+        }
+        return total;
+    }
+
+    public boolean estVide() {
+        return nombreBlocs == 0;
+    }
+
+    public BitmapCompresse et(BitmapCompresse autre) {
+        BitmapCompresse resultat = new BitmapCompresse();
+        int i = 0;
+        int j = 0;
+        while (i < nombreBlocs && j < autre.nombreBlocs) {
+            if (cles[i] < autre.cles[j]) {
+                i++;
+            } else if (cles[i] > autre.cles[j]) {
+                j++;
+            } else {
+                resultat.ajouterBlocNonVide(cles[i], blocs[i].et(autre.blocs[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultat;
+    }
+
+    // Nombre d'éléments communs, sans construire l'intersection
+    public int cardinaliteEt(BitmapCompresse autre) {
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < nombreBlocs && j < autre.nombreBlocs) {
+            if (cles[i] < autre.cles[j]) {
+                i++;
+            } else if (cles[i] > autre.cles[j]) {
+                j++;
+            } else {
+                total += blocs[i].cardinaliteEt(autre.blocs[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    public BitmapCompresse ou(BitmapCompresse autre) {
+        BitmapCompresse resultat = new BitmapCompresse();
+        int i = 0;
+        int j = 0;
+        while (i < nombreBlocs || j < autre.nombreBlocs) {
+            if (j >= autre.nombreBlocs || (i < nombreBlocs && cles[i] < autre.cles[j])) {
+                resultat.ajouterBlocNonVide(cles[i], blocs[i].copie());
+                i++;
+            } else if (i >= nombreBlocs || cles[i] > autre.cles[j]) {
+                resultat.ajouterBlocNonVide(autre.cles[j], autre.blocs[j].copie());
+                j++;
+            } else {
+                resultat.ajouterBlocNonVide(cles[i], blocs[i].ou(autre.blocs[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultat;
+    }
+
+    public BitmapCompresse sauf(BitmapCompresse autre) {
+        BitmapCompresse resultat = new BitmapCompresse();
+        int j = 0;
+        for (int i = 0; i < nombreBlocs; i++) {
+            while (j < autre.nombreBlocs && autre.cles[j] < cles[i]) {
+                j++;
+            }
+            if (j < autre.nombreBlocs && autre.cles[j] == cles[i]) {
+                resultat.ajouterBlocNonVide(cles[i], blocs[i].sauf(autre.blocs[j]));
+            } else {
+                resultat.ajouterBlocNonVide(cles[i], blocs[i].copie());
+            }
+        }
+        return resultat;
+    }
+
+    // Parcours par valeurs croissantes, arrêté dès que l'action rend false
+    public void parcourir(IntPredicate action) {
+        for (int i = 0; i < nombreBlocs; i++) {
+            if (!blocs[i].parcourir(cles[i] << 16, action)) {
+                return;
+            }
+        }
+    }
+
+    public BitmapCompresse copie() {
+        BitmapCompresse copie = new BitmapCompresse();
+        copie.cles = Arrays.copyOf(cles, Math.max(2, nombreBlocs));
+        copie.blocs = new Bloc[copie.cles.length];
+        for (int i = 0; i < nombreBlocs; i++) {
+            copie.blocs[i] = blocs[i].copie();
+        }
+        copie.nombreBlocs = nombreBlocs;
+        return copie;
+    }
+
+    private static void verifier(int valeur) {
+        if (valeur < 0) {
+            throw new IllegalArgumentException("Valeur négative dans un bitmap : " + valeur);
+        }
+    }
+
+    private int chercher(char cle) {
+        return Arrays.binarySearch(cles, 0, nombreBlocs, cle);
+    }
+
+    // Les blocs d'un résultat arrivent dans l'ordre des clés
+    private void ajouterBlocNonVide(char cle, Bloc bloc) {
+        if (bloc.cardinalite() > 0) {
+            insererBloc(nombreBlocs, cle, bloc);
+        }
+    }
+
+    private void insererBloc(int i, char cle, Bloc bloc) {
+        if (nombreBlocs == cles.length) {
+            cles = Arrays.copyOf(cles, nombreBlocs * 2);
+            blocs = Arrays.copyOf(blocs, nombreBlocs * 2);
+        }
+        System.arraycopy(cles, i, cles, i + 1, nombreBlocs - i);
+        System.arraycopy(blocs, i, blocs, i + 1, nombreBlocs - i);
+        cles[i] = cle;
+        blocs[i] = bloc;
+        nombreBlocs++;
+    }
+
+    private void supprimerBloc(int i) {
+        System.arraycopy(cles, i + 1, cles, i, nombreBlocs - i - 1);
+        System.arraycopy(blocs, i + 1, blocs, i, nombreBlocs - i - 1);
+        nombreBlocs--;
+        blocs[nombreBlocs] = null;
+    }
+
+    // Un bloc : les 16 bits de poids faible des valeurs d'une même tranche de 65 536.
+    // Les mutations rendent le bloc à garder (il change de forme en passant le seuil).
+    private abstract static class Bloc {
+        abstract Bloc ajouter(char valeur);
+
+        abstract Bloc retirer(char valeur);
+
+        abstract boolean contient(char valeur);
+
+        abstract int cardinalite();
+
+        abstract Bloc et(Bloc autre);
+
+        abstract int cardinaliteEt(Bloc autre);
+
+        abstract Bloc ou(Bloc autre);
+
+        abstract Bloc sauf(Bloc autre);
+
+        abstract boolean parcourir(int base, IntPredicate action);
+
+        abstract Bloc copie();
+    }
+
+    private static final class BlocTableau extends Bloc {
+        private char[] valeurs;
+        private int taille;
+
+        BlocTableau() {
+            this(new char[4], 0);
+        }
+
+        BlocTableau(char[] valeurs, int taille) {
+            this.valeurs = valeurs;
+            this.taille = taille;
+        }
+
+        @Override
+        Bloc ajouter(char valeur) {
+            int i = Arrays.binarySearch(valeurs, 0, taille, valeur);
+            if (i >= 0) {
+                return this;
+            }
+            if (taille >= SEUIL_TABLEAU) {
+                return versBits().ajouter(valeur);
+            }
+            i = -i - 1;
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, Math.min(SEUIL_TABLEAU, taille * 2));
+            }
+            System.arraycopy(valeurs, i, valeurs, i + 1, taille - i);
+            valeurs[i] = valeur;
+            taille++;
+            return this;
+        }
+
+        @Override
+        Bloc retirer(char valeur) {
+            int i = Arrays.binarySearch(valeurs, 0, taille, valeur);
+            if (i >= 0) {
+                System.arraycopy(valeurs, i + 1, valeurs, i, taille - i - 1);
+                taille--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contient(char valeur) {
+            return Arrays.binarySearch(valeurs, 0, taille, valeur) >= 0;
+        }
+
+        @Override
+        int cardinalite() {
+            return taille;
+        }
+
+        @Override
+        Bloc et(Bloc autre) {
+            char[] communs = new char[taille];
+            int n = 0;
+            if (autre instanceof BlocTableau) {
+                BlocTableau t = (BlocTableau) autre;
+                int i = 0;
+                int j = 0;
+                while (i < taille && j < t.taille) {
+                    if (valeurs[i] < t.valeurs[j]) {
+                        i++;
+                    } else if (valeurs[i] > t.valeurs[j]) {
+                        j++;
+                    } else {
+                        communs[n++] = valeurs[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < taille; i++) {
+                    if (autre.contient(valeurs[i])) {
+                        communs[n++] = valeurs[i];
+                    }
+                }
+            }
+            return new BlocTableau(communs, n);
+        }
+
+        @Override
+        int cardinaliteEt(Bloc autre) {
+            int n = 0;
+            if (autre instanceof BlocTableau) {
+                BlocTableau t = (BlocTableau) autre;
+                int i = 0;
+                int j = 0;
+                while (i < taille && j < t.taille) {
+                    if (valeurs[i] < t.valeurs[j]) {
+                        i++;
+                    } else if (valeurs[i] > t.valeurs[j]) {
+                        j++;
+                    } else {
+                        n++;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < taille; i++) {
+                    if (autre.contient(valeurs[i])) {
+                        n++;
+                    }
+                }
+            }
+            return n;
+        }
+
+        @Override
+        Bloc ou(Bloc autre) {
+            if (autre instanceof BlocBits) {
+                return autre.ou(this);
+            }
+            BlocTableau t = (BlocTableau) autre;
+            if (taille + t.taille > SEUIL_TABLEAU) {
+                BlocBits bits = versBits();
+                for (int j = 0; j < t.taille; j++) {
+                    bits.ajouter(t.valeurs[j]);
+                }
+                return bits.normaliser();
+            }
+            char[] union = new char[taille + t.taille];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < taille || j < t.taille) {
+                if (j >= t.taille || (i < taille && valeurs[i] < t.valeurs[j])) {
+                    union[n++] = valeurs[i++];
+                } else if (i >= taille || valeurs[i] > t.valeurs[j]) {
+                    union[n++] = t.valeurs[j++];
+                } else {
+                    union[n++] = valeurs[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new BlocTableau(union, n);
+        }
+
+        @Override
+        Bloc sauf(Bloc autre) {
+            char[] restants = new char[taille];
+            int n = 0;
+            for (int i = 0; i < taille; i++) {
+                if (!autre.contient(valeurs[i])) {
+                    restants[n++] = valeurs[i];
+                }
+            }
+            return new BlocTableau(restants, n);
+        }
+
+        @Override
+        boolean parcourir(int base, IntPredicate action) {
+            for (int i = 0; i < taille; i++) {
+                if (!action.test(base | valeurs[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Bloc copie() {
+            return new BlocTableau(Arrays.copyOf(valeurs, Math.max(taille, 1)), taille);
+        }
+
+        private BlocBits versBits() {
+            BlocBits bits = new BlocBits();
+            for (int i = 0; i < taille; i++) {
+                bits.ajouter(valeurs[i]);
+            }
+            return bits;
+        }
+    }
+
+    private static final class BlocBits extends Bloc {
+        private final long[] mots;
+        private int cardinalite;
+
+        BlocBits() {
+            this(new long[1024], 0);
+        }
+
+        BlocBits(long[] mots, int cardinalite) {
+            this.mots = mots;
+            this.cardinalite = cardinalite;
+        }
+
+        @Override
+        Bloc ajouter(char valeur) {
+            long avant = mots[valeur >>> 6];
+            mots[valeur >>> 6] = avant | (1L << valeur);
+            if (avant != mots[valeur >>> 6]) {
+                cardinalite++;
+            }
+            return this;
+        }
+
+        @Override
+        Bloc retirer(char valeur) {
+            long avant = mots[valeur >>> 6];
+            mots[valeur >>> 6] = avant & ~(1L << valeur);
+            if (avant != mots[valeur >>> 6]) {
+                cardinalite--;
+            }
+            // Marge sous le seuil : un ajout puis un retrait autour du seuil ne convertit pas à chaque fois
+            return cardinalite < SEUIL_TABLEAU / 2 ? versTableau() : this;
+        }
+
+        @Override
+        boolean contient(char valeur) {
+            return (mots[valeur >>> 6] & (1L << valeur)) != 0;
+        }
+
+        @Override
+        int cardinalite() {
+            return cardinalite;
+        }
+
+        @Override
+        Bloc et(Bloc autre) {
+            if (autre instanceof BlocTableau) {
+                return autre.et(this);
+            }
+            long[] b = ((BlocBits) autre).mots;
+            long[] resultat = new long[1024];
+            int n = 0;
+            for (int k = 0; k < 1024; k++) {
+                resultat[k] = mots[k] & b[k];
+                n += Long.bitCount(resultat[k]);
+            }
+            return new BlocBits(resultat, n).normaliser();
+        }
+
+        @Override
+        int cardinaliteEt(Bloc autre) {
+            if (autre instanceof BlocTableau) {
+                return autre.cardinaliteEt(this);
+            }
+            long[] b = ((BlocBits) autre).mots;
+            int n = 0;
+            for (int k = 0; k < 1024; k++) {
+                n += Long.bitCount(mots[k] & b[k]);
+            }
+            return n;
+        }
+
+        @Override
+        Bloc ou(Bloc autre) {
+            long[] resultat = mots.clone();
+            if (autre instanceof BlocTableau) {
+                BlocBits bits = new BlocBits(resultat, cardinalite);
+                BlocTableau t = (BlocTableau) autre;
+                for (int j = 0; j < t.taille; j++) {
+                    bits.ajouter(t.valeurs[j]);
+                }
+                return bits;
+            }
+            long[] b = ((BlocBits) autre).mots;
+            int n = 0;
+            for (int k = 0; k < 1024; k++) {
+                resultat[k] |= b[k];
+                n += Long.bitCount(resultat[k]);
+            }
+            return new BlocBits(resultat, n);
+        }
+
+        @Override
+        Bloc sauf(Bloc autre) {
+            long[] resultat = mots.clone();
+            int n = 0;
+            if (autre instanceof BlocTableau) {
+                BlocTableau t = (BlocTableau) autre;
+                for (int j = 0; j < t.taille; j++) {
+                    resultat[t.valeurs[j] >>> 6] &= ~(1L << t.valeurs[j]);
+                }
+            } else {
+                long[] b = ((BlocBits) autre).mots;
+                for (int k = 0; k < 1024; k++) {
+                    resultat[k] &= ~b[k];
+                }
+            }
+            for (int k = 0; k < 1024; k++) {
+                n += Long.bitCount(resultat[k]);
+            }
+            return new BlocBits(resultat, n).normaliser();
+        }
+
+        @Override
+        boolean parcourir(int base, IntPredicate action) {
+            for (int k = 0; k < 1024; k++) {
+                long mot = mots[k];
+                while (mot != 0) {
+                    if (!action.test(base | (k << 6) | Long.numberOfTrailingZeros(mot))) {
+                        return false;
+                    }
+                    mot &= mot - 1;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Bloc copie() {
+            return new BlocBits(mots.clone(), cardinalite);
+        }
+
+        // Résultat d'une opération : retour au tableau s'il est plus compact
+        private Bloc normaliser() {
+            return cardinalite <= SEUIL_TABLEAU ? versTableau() : this;
+        }
+
+        private BlocTableau versTableau() {
+            char[] valeurs = new char[Math.max(cardinalite, 1)];
+            int[] n = { 0 };
+            parcourir(0, v -> {
+                valeurs[n[0]++] = (char) v;
+                return true;
+            });
+            return new BlocTableau(valeurs, n[0]);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.gestionbassins.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Backend de stockage des contenus (clé = sha256 + extension).
+ * Implémentation actuelle : LocalFileBlobStore (storage.backend=local). Un backend
+ * compatible S3 pourra garder une copie locale (cache) pour cheminLocal.
+ */
+public interface BlobStore {
+
+    /** Dossier où écrire les uploads en cours avant import (même volume que le stockage). */
+    Path zoneTemporaire() throws IOException;
+
+    /** Importe un fichier complet sous la clé donnée ; le fichier source est consommé. */
+    void importer(String cle, Path source) throws IOException;
+
+    boolean existe(String cle);
+
+    /** Chemin local du contenu (service HTTP, déclinaisons, PDF), ou null s'il est absent. */
+    Path cheminLocal(String cle);
+
+    void supprimer(String cle) throws IOException;
+}
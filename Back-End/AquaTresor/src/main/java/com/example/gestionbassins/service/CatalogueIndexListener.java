@@ -0,0 +1,214 @@
+package com.example.gestionbassins.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.gestionbassins.entities.Bassin;
+import com.example.gestionbassins.entities.Categorie;
+import com.example.gestionbassins.entities.ImageBassin;
+import com.example.gestionbassins.entities.Promotion;
+import com.example.gestionbassins.projections.BassinIndexable;
+import com.example.gestionbassins.repos.BassinRepository;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Tient les index en mémoire du catalogue à jour quel que soit le chemin d'écriture (services,
+ * contrôleurs, Spring Data REST). Les bassins touchés par une transaction (bassin, ses images)
+ * sont relus en une requête après le commit, jamais pour une transaction annulée ; de même pour
+ * les promotions, relues par le moteur de prix.
+ */
+@Component
+public class CatalogueIndexListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogueIndexListener.class);
+
+    // Fournisseurs : le listener est créé avec l'EntityManagerFactory, avant les repositories
+    @Autowired
+    private ObjectProvider<IndexCatalogue> indexes;
+
+    @Autowired
+    private ObjectProvider<BassinRepository> bassinRepository;
+
+    @Autowired
+    private ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    @Autowired
+    private ObjectProvider<PrixEffectifService> prixEffectifService;
+
+    @Autowired
+    private ObjectProvider<PromotionPlanificateur> promotionPlanificateur;
+
+    @PostPersist
+    @PostUpdate
+    public void apresEcriture(Object entite) {
+        if (entite instanceof Bassin) {
+            planifierBassin(((Bassin) entite).getIdBassin());
+        } else if (entite instanceof ImageBassin) {
+            // L'image principale d'un bassin fait partie des suggestions
+            planifierImage((ImageBassin) entite);
+        } else if (entite instanceof Categorie) {
+            Categorie categorie = (Categorie) entite;
+            Long idCategorie = categorie.getIdCategorie();
+            String nomCategorie = categorie.getNomCategorie();
+            apresCommit(() -> indexes.orderedStream().forEach(i -> i.renommerCategorie(idCategorie, nomCategorie)));
+        } else if (entite instanceof Promotion) {
+            planifierPromotion(((Promotion) entite).getIdPromotion());
+        }
+    }
+
+    @PostRemove
+    public void apresSuppression(Object entite) {
+        if (entite instanceof Bassin) {
+            planifierBassin(((Bassin) entite).getIdBassin());
+        } else if (entite instanceof ImageBassin) {
+            planifierImage((ImageBassin) entite);
+        } else if (entite instanceof Promotion) {
+            planifierPromotion(((Promotion) entite).getIdPromotion());
+        }
+    }
+
+    private void planifierImage(ImageBassin image) {
+        if (image.getBassin() != null) {
+            planifierBassin(image.getBassin().getIdBassin());
+        }
+    }
+
+    // À appeler aussi après un UPDATE en masse d'un bassin (stock et statut), sans callback d'entité
+    public void planifierBassin(Long idBassin) {
+        if (idBassin == null) {
+            return;
+        }
+        Rafraichissement rafraichissement = rafraichissementCourant();
+        if (rafraichissement != null) {
+            rafraichissement.ids.add(idBassin);
+        } else {
+            rafraichir(Set.of(idBassin));
+            promotionPlanificateur.getObject().synchroniser();
+        }
+    }
+
+    /**
+     * Promotion créée, modifiée ou supprimée ; à appeler aussi quand seuls ses bassins ou catégories
+     * ont changé, Hibernate ne signalant pas la modification d'une collection.
+     */
+    public void planifierPromotion(Long idPromotion) {
+        if (idPromotion == null) {
+            return;
+        }
+        Rafraichissement rafraichissement = rafraichissementCourant();
+        if (rafraichissement != null) {
+            rafraichissement.idsPromotion.add(idPromotion);
+        } else {
+            rafraichirPromotions(Set.of(idPromotion));
+            promotionPlanificateur.getObject().synchroniser();
+        }
+    }
+
+    // Colonnes de promotion réécrites en masse (sans callback d'entité) : les bassins sont relus
+    @EventListener
+    public void apresMajPrix(PrixCatalogueModifiesEvent evenement) {
+        rafraichir(evenement.getIdsBassins());
+    }
+
+    // Un seul rafraîchissement par transaction, quel que soit le nombre d'écritures (null hors transaction)
+    private Rafraichissement rafraichissementCourant() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            if (s instanceof Rafraichissement) {
+                return (Rafraichissement) s;
+            }
+        }
+        Rafraichissement rafraichissement = new Rafraichissement();
+        TransactionSynchronizationManager.registerSynchronization(rafraichissement);
+        return rafraichissement;
+    }
+
+    private final class Rafraichissement implements TransactionSynchronization {
+        private final Set<Long> ids = new LinkedHashSet<>();
+        private final Set<Long> idsPromotion = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            if (!ids.isEmpty()) {
+                rafraichir(ids);
+            }
+            if (!idsPromotion.isEmpty()) {
+                rafraichirPromotions(idsPromotion);
+            }
+            // Les colonnes de promotion des bassins suivent le prix recalculé
+            promotionPlanificateur.getObject().synchroniser();
+        }
+    }
+
+    private void rafraichir(Collection<Long> ids) {
+        try {
+            List<BassinIndexable> bassins = lecture().execute(status -> bassinRepository.getObject().findIndexablesByIds(ids));
+
+            Map<Long, BassinIndexable> parId = new LinkedHashMap<>();
+            bassins.forEach(b -> parId.put(b.getIdBassin(), b));
+            indexes.orderedStream().forEach(index -> {
+                for (Long id : ids) {
+                    BassinIndexable bassin = parId.get(id);
+                    if (bassin != null) {
+                        index.indexer(bassin);
+                    } else {
+                        index.retirer(id);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // Les données sont commitées : un index en retard ne doit pas faire échouer la requête
+            logger.error("Mise à jour des index du catalogue impossible pour {}", ids, e);
+        }
+    }
+
+    private void rafraichirPromotions(Collection<Long> idsPromotion) {
+        try {
+            lecture().executeWithoutResult(status -> prixEffectifService.getObject().rechargerPromotions(idsPromotion));
+        } catch (RuntimeException e) {
+            logger.error("Mise à jour des prix impossible pour les promotions {}", idsPromotion, e);
+        }
+    }
+
+    // Nouvelle transaction : celle qui vient d'être validée ne doit plus servir
+    private TransactionTemplate lecture() {
+        TransactionTemplate lecture = new TransactionTemplate(transactionManager.getObject());
+        lecture.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        lecture.setReadOnly(true);
+        return lecture;
+    }
+
+    private static void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.gestionbassins.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.gestionbassins.entities.Dimensions;
+
+/**
+ * Migration au démarrage : remplit les dimensions numériques (longueur_cm, largeur_cm, profondeur_cm,
+ * volume_litres) des bassins et des options de bassins personnalisés enregistrés avant leur ajout.
+ * Les nouvelles saisies sont mesurées par les entités elles-mêmes. Un texte illisible est laissé
+ * sans valeurs numériques (le bassin n'apparaît simplement pas dans les recherches par dimensions).
+ */
+@Component
+public class DimensionsMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DimensionsMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int bassins = migrerBassins();
+        int options = migrerBassinsPersonnalises();
+        if (bassins > 0 || options > 0) {
+            logger.info("Dimensions numériques : {} bassin(s) et {} option(s) de bassin personnalisé renseigné(s)",
+                    bassins, options);
+        }
+    }
+
+    private int migrerBassins() {
+        List<Map<String, Object>> lignes = jdbcTemplate.queryForList(
+                "select id_bassin as id, dimensions from bassin where dimensions is not null and longueur_cm is null");
+        List<Object[]> valeurs = new ArrayList<>();
+        for (Map<String, Object> ligne : lignes) {
+            Dimensions d = Dimensions.analyser((String) ligne.get("dimensions"));
+            if (d != null) {
+                valeurs.add(new Object[] { d.getLongueurCm(), d.getLargeurCm(), d.getProfondeurCm(),
+                        d.getVolumeLitres(), ligne.get("id") });
+            }
+        }
+        jdbcTemplate.batchUpdate("update bassin set longueur_cm = ?, largeur_cm = ?, profondeur_cm = ?, "
+                + "volume_litres = ? where id_bassin = ?", valeurs);
+        return valeurs.size();
+    }
+
+    // Uniquement les bassins personnalisés qui n'ont encore aucune dimension mesurée
+    private int migrerBassinsPersonnalises() {
+        List<Map<String, Object>> lignes = jdbcTemplate.queryForList(
+                "select d.id_bassin_personnalise as id, d.dimension from bassin_personnalise_dimensions d "
+                + "where d.dimension is not null and not exists (select 1 from bassin_personnalise_dimension_mesuree m "
+                + "where m.id_bassin_personnalise = d.id_bassin_personnalise)");
+        List<Object[]> valeurs = new ArrayList<>();
+        for (Map<String, Object> ligne : lignes) {
+            Dimensions d = Dimensions.analyser((String) ligne.get("dimension"));
+            if (d != null) {
+                valeurs.add(new Object[] { ligne.get("id"), d.getLongueurCm(), d.getLargeurCm(),
+                        d.getProfondeurCm(), d.getVolumeLitres() });
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into bassin_personnalise_dimension_mesuree "
+                + "(id_bassin_personnalise, longueur_cm, largeur_cm, profondeur_cm, volume_litres) values (?, ?, ?, ?, ?)",
+                valeurs);
+        return valeurs.size();
+    }
+}
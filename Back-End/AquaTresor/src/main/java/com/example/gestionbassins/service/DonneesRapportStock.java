@@ -0,0 +1,92 @@
+package com.example.gestionbassins.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.gestionbassins.projections.BilanStock;
+import com.example.gestionbassins.projections.LigneInventaire;
+
+import lombok.Getter;
+
+/**
+ * Données d'un rapport de stock, collectées avant la mise en page. Les lignes d'inventaire arrivent
+ * d'un seul curseur sur les bassins (ajouter) et alimentent en même temps le résumé global et les
+ * catégories ; seules les lignes affichées sont gardées, sous forme de projections légères. Les
+ * mouvements de la période viennent des cumuls journaliers : leur volume ne dépend que du nombre
+ * d'utilisateurs, pas de la longueur de l'historique.
+ */
+@Getter
+public class DonneesRapportStock {
+
+    // Résumé global : stock faible, ruptures et valeur ne comptent que les bassins actifs
+    private long totalBassins;
+    private long bassinsActifs;
+    private long bassinsArchives;
+    private long stockFaible;
+    private long ruptures;
+    private double valeurActive;
+
+    // Catégories dans l'ordre du curseur ; les bassins sans catégorie ne sont pas détaillés
+    private final Map<Long, InventaireCategorie> categories = new LinkedHashMap<>();
+
+    private BilanStock bilan;
+    private List<BilanStock> bilansParUtilisateur = new ArrayList<>();
+
+    @Getter
+    public static class InventaireCategorie {
+        private final String nomCategorie;
+        private final List<LigneInventaire> bassins = new ArrayList<>();
+        private int bassinsActifs;
+        private int bassinsArchives;
+        private int stockTotal;
+        private double valeurTotale;
+        private long stockFaible;
+        private long ruptures;
+
+        InventaireCategorie(String nomCategorie) {
+            this.nomCategorie = nomCategorie != null ? nomCategorie : "Catégorie sans nom";
+        }
+
+        private void ajouter(LigneInventaire ligne) {
+            bassins.add(ligne);
+            if (ligne.isArchive()) {
+                bassinsArchives++;
+            } else {
+                bassinsActifs++;
+            }
+            stockTotal += ligne.getStock();
+            valeurTotale += ligne.getValeur();
+            if (ligne.getStock() == 0) {
+                ruptures++;
+            } else if (ligne.getStock() > 0 && ligne.getStock() < 5) {
+                stockFaible++;
+            }
+        }
+    }
+
+    void ajouter(LigneInventaire ligne) {
+        totalBassins++;
+        if (ligne.isArchive()) {
+            bassinsArchives++;
+        } else {
+            bassinsActifs++;
+            valeurActive += ligne.getValeur();
+            if (ligne.getStock() == 0) {
+                ruptures++;
+            } else if (ligne.getStock() > 0 && ligne.getStock() < 5) {
+                stockFaible++;
+            }
+        }
+        if (ligne.getIdCategorie() != null) {
+            categories.computeIfAbsent(ligne.getIdCategorie(), id -> new InventaireCategorie(ligne.getNomCategorie()))
+                    .ajouter(ligne);
+        }
+    }
+
+    void setMouvements(BilanStock bilan, List<BilanStock> bilansParUtilisateur) {
+        this.bilan = bilan;
+        this.bilansParUtilisateur = bilansParUtilisateur;
+    }
+}
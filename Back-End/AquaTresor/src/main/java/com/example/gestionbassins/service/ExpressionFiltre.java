@@ -0,0 +1,243 @@
+package com.example.gestionbassins.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Expression de filtre du catalogue, évaluée sur les bitmaps de BitmapCatalogueService.
+ *
+ * Syntaxe : {@code champ:valeur}, combinés par AND (ou simple juxtaposition), OR, NOT et parenthèses ;
+ * NOT lie plus fort que AND, qui lie plus fort que OR. Une valeur avec des espaces se met entre
+ * guillemets. Le prix se filtre par intervalle : {@code prix:200-500}, {@code prix:200-}, {@code prix:-500}.
+ *
+ * Exemple : {@code categorie:3 AND (materiau:beton OR materiau:acier) AND NOT archive:true AND promotion:true}
+ */
+public abstract class ExpressionFiltre {
+
+    abstract BitmapCompresse evaluer(BitmapCatalogueService index);
+
+    /**
+     * @throws IllegalArgumentException si l'expression est mal formée ou utilise un champ inconnu
+     */
+    public static ExpressionFiltre analyser(String texte) {
+        if (texte == null || texte.isBlank()) {
+            throw new IllegalArgumentException("Filtre vide");
+        }
+        Analyseur analyseur = new Analyseur(decouper(texte));
+        ExpressionFiltre expression = analyseur.ou();
+        if (analyseur.position < analyseur.jetons.size()) {
+            throw new IllegalArgumentException("Élément inattendu dans le filtre : " + analyseur.jetons.get(analyseur.position));
+        }
+        return expression;
+    }
+
+    static final class Terme extends ExpressionFiltre {
+        private final String champ;
+        private final String valeur;
+
+        Terme(String champ, String valeur) {
+            this.champ = champ;
+            this.valeur = valeur;
+        }
+
+        @Override
+        BitmapCompresse evaluer(BitmapCatalogueService index) {
+            return index.bitmap(champ, valeur);
+        }
+    }
+
+    static final class Prix extends ExpressionFiltre {
+        private final Double min;
+        private final Double max;
+
+        Prix(Double min, Double max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        BitmapCompresse evaluer(BitmapCatalogueService index) {
+            return index.prixEntre(min, max);
+        }
+    }
+
+    static final class Et extends ExpressionFiltre {
+        private final List<ExpressionFiltre> membres;
+
+        Et(List<ExpressionFiltre> membres) {
+            this.membres = membres;
+        }
+
+        @Override
+        BitmapCompresse evaluer(BitmapCatalogueService index) {
+            // Les NOT se retranchent du résultat plutôt que d'être complétés sur tout le catalogue
+            BitmapCompresse resultat = null;
+            List<ExpressionFiltre> exclus = new ArrayList<>();
+            for (ExpressionFiltre membre : membres) {
+                if (membre instanceof Non) {
+                    exclus.add(((Non) membre).membre);
+                    continue;
+                }
+                BitmapCompresse bitmap = membre.evaluer(index);
+                resultat = resultat == null ? bitmap : resultat.et(bitmap);
+                if (resultat.estVide()) {
+                    return resultat;
+                }
+            }
+            if (resultat == null) {
+                resultat = index.tous();
+            }
+            for (ExpressionFiltre exclu : exclus) {
+                resultat = resultat.sauf(exclu.evaluer(index));
+            }
+            return resultat;
+        }
+    }
+
+    static final class Ou extends ExpressionFiltre {
+        private final List<ExpressionFiltre> membres;
+
+        Ou(List<ExpressionFiltre> membres) {
+            this.membres = membres;
+        }
+
+        @Override
+        BitmapCompresse evaluer(BitmapCatalogueService index) {
+            BitmapCompresse resultat = new BitmapCompresse();
+            for (ExpressionFiltre membre : membres) {
+                resultat = resultat.ou(membre.evaluer(index));
+            }
+            return resultat;
+        }
+    }
+
+    static final class Non extends ExpressionFiltre {
+        private final ExpressionFiltre membre;
+
+        Non(ExpressionFiltre membre) {
+            this.membre = membre;
+        }
+
+        @Override
+        BitmapCompresse evaluer(BitmapCatalogueService index) {
+            return index.tous().sauf(membre.evaluer(index));
+        }
+    }
+
+    // Jetons : parenthèses, mots-clés, ou "champ:valeur" (les guillemets protègent espaces et parenthèses)
+    private static List<String> decouper(String texte) {
+        List<String> jetons = new ArrayList<>();
+        int i = 0;
+        while (i < texte.length()) {
+            char c = texte.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                jetons.add(String.valueOf(c));
+                i++;
+            } else {
+                StringBuilder jeton = new StringBuilder();
+                while (i < texte.length() && !Character.isWhitespace(texte.charAt(i))
+                        && texte.charAt(i) != '(' && texte.charAt(i) != ')') {
+                    if (texte.charAt(i) == '"') {
+                        int fin = texte.indexOf('"', i + 1);
+                        if (fin < 0) {
+                            throw new IllegalArgumentException("Guillemet non fermé dans le filtre");
+                        }
+                        jeton.append(texte, i + 1, fin);
+                        i = fin + 1;
+                    } else {
+                        jeton.append(texte.charAt(i++));
+                    }
+                }
+                jetons.add(jeton.toString());
+            }
+        }
+        return jetons;
+    }
+
+    private static final class Analyseur {
+        private final List<String> jetons;
+        private int position;
+
+        Analyseur(List<String> jetons) {
+            this.jetons = jetons;
+        }
+
+        ExpressionFiltre ou() {
+            List<ExpressionFiltre> membres = new ArrayList<>();
+            membres.add(et());
+            while (motCle("OR")) {
+                position++;
+                membres.add(et());
+            }
+            return membres.size() == 1 ? membres.get(0) : new Ou(membres);
+        }
+
+        ExpressionFiltre et() {
+            List<ExpressionFiltre> membres = new ArrayList<>();
+            membres.add(non());
+            while (position < jetons.size() && !motCle("OR") && !")".equals(jetons.get(position))) {
+                if (motCle("AND")) {
+                    position++;
+                }
+                membres.add(non());
+            }
+            return membres.size() == 1 ? membres.get(0) : new Et(membres);
+        }
+
+        ExpressionFiltre non() {
+            if (position >= jetons.size()) {
+                throw new IllegalArgumentException("Filtre incomplet");
+            }
+            String jeton = jetons.get(position++);
+            if ("NOT".equalsIgnoreCase(jeton)) {
+                return new Non(non());
+            }
+            if ("(".equals(jeton)) {
+                ExpressionFiltre expression = ou();
+                if (position >= jetons.size() || !")".equals(jetons.get(position))) {
+                    throw new IllegalArgumentException("Parenthèse non fermée dans le filtre");
+                }
+                position++;
+                return expression;
+            }
+            return terme(jeton);
+        }
+
+        private boolean motCle(String motCle) {
+            return position < jetons.size() && motCle.equalsIgnoreCase(jetons.get(position));
+        }
+
+        private static ExpressionFiltre terme(String jeton) {
+            int deuxPoints = jeton.indexOf(':');
+            if (deuxPoints <= 0 || deuxPoints == jeton.length() - 1) {
+                throw new IllegalArgumentException("Terme attendu (champ:valeur) : " + jeton);
+            }
+            String champ = jeton.substring(0, deuxPoints).toLowerCase(Locale.ROOT);
+            String valeur = jeton.substring(deuxPoints + 1);
+            if (BitmapCatalogueService.PRIX.equals(champ)) {
+                return prix(valeur);
+            }
+            if (!BitmapCatalogueService.CHAMPS.contains(champ)) {
+                throw new IllegalArgumentException("Champ inconnu dans le filtre : " + champ);
+            }
+            return new Terme(champ, valeur);
+        }
+
+        private static ExpressionFiltre prix(String intervalle) {
+            int tiret = intervalle.indexOf('-');
+            if (tiret < 0) {
+                throw new IllegalArgumentException("Intervalle de prix attendu (min-max) : " + intervalle);
+            }
+            try {
+                String min = intervalle.substring(0, tiret).trim();
+                String max = intervalle.substring(tiret + 1).trim();
+                return new Prix(min.isEmpty() ? null : Double.valueOf(min), max.isEmpty() ? null : Double.valueOf(max));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Intervalle de prix invalide : " + intervalle);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.gestionbassins.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.gestionbassins.dto.FacetCount;
+import com.example.gestionbassins.dto.FiltreCatalogue;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Filtres à facettes du catalogue (matériau, couleur, catégorie, statut, archive, prix), évalués sur
+ * l'index bitmap (BitmapCatalogueService) : un bitmap par filtre actif (OU des valeurs cochées),
+ * leur ET donne les résultats. Le compteur d'une valeur est la cardinalité de son bitmap ET des autres
+ * filtres : les filtres d'une facette ne réduisent pas ses propres compteurs.
+ * Seule la page retournée est lue en base.
+ */
+@Service
+public class FacetteCatalogueService {
+
+    public static final String MATERIAU = BitmapCatalogueService.MATERIAU;
+    public static final String COULEUR = BitmapCatalogueService.COULEUR;
+    public static final String CATEGORIE = BitmapCatalogueService.CATEGORIE;
+    public static final String STATUT = BitmapCatalogueService.STATUT;
+    public static final String ARCHIVE = BitmapCatalogueService.ARCHIVE;
+
+    private static final List<String> FACETTES = List.of(MATERIAU, COULEUR, CATEGORIE, STATUT, ARCHIVE);
+    private static final String PRIX = BitmapCatalogueService.PRIX;
+
+    @Autowired
+    private BitmapCatalogueService bitmapCatalogueService;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Resultat {
+        private final List<Long> ids;
+        private final long total;
+        private final Map<String, List<FacetCount>> facettes;
+        private final Double prixMin;
+        private final Double prixMax;
+    }
+
+    /**
+     * Les bassins qui passent tous les filtres (par id croissant, de {@code offset} à
+     * {@code offset + limit}), leur nombre et les compteurs de chaque facette.
+     */
+    public Resultat filtrer(FiltreCatalogue filtre, int offset, int limit) {
+        Map<String, Set<String>> choisis = valeursChoisies(filtre);
+        return bitmapCatalogueService.enLecture(() -> {
+            Map<String, BitmapCompresse> filtres = new LinkedHashMap<>();
+            choisis.forEach((facette, valeurs) -> {
+                if (!valeurs.isEmpty()) {
+                    List<BitmapCompresse> bitmaps = new ArrayList<>();
+                    valeurs.forEach(v -> bitmaps.add(bitmapCatalogueService.bitmap(facette, v)));
+                    filtres.put(facette, BitmapCompresse.ouTous(bitmaps));
+                }
+            });
+            if (filtre.getPrixMin() != null || filtre.getPrixMax() != null) {
+                filtres.put(PRIX, bitmapCatalogueService.prixEntre(filtre.getPrixMin(), filtre.getPrixMax()));
+            }
+
+            BitmapCompresse retenus = sauf(filtres, null);
+            Map<String, List<FacetCount>> facettes = new LinkedHashMap<>();
+            for (String facette : FACETTES) {
+                BitmapCompresse base = filtres.containsKey(facette) ? sauf(filtres, facette) : retenus;
+                facettes.put(facette, compteurs(facette, base));
+            }
+            double[] bornes = bitmapCatalogueService.bornesPrix(filtres.containsKey(PRIX) ? sauf(filtres, PRIX) : retenus);
+
+            return new Resultat(BitmapCatalogueService.page(retenus, offset, limit), retenus.cardinalite(), facettes,
+                    bornes == null ? null : bornes[0], bornes == null ? null : bornes[1]);
+        });
+    }
+
+    // ET de tous les filtres sauf celui de la facette donnée (tout le catalogue s'il n'en reste aucun)
+    private BitmapCompresse sauf(Map<String, BitmapCompresse> filtres, String facetteIgnoree) {
+        BitmapCompresse resultat = null;
+        for (Map.Entry<String, BitmapCompresse> e : filtres.entrySet()) {
+            if (!e.getKey().equals(facetteIgnoree)) {
+                resultat = resultat == null ? e.getValue() : resultat.et(e.getValue());
+            }
+        }
+        return resultat != null ? resultat : bitmapCatalogueService.tous();
+    }
+
+    // Toutes les valeurs connues de la facette (à 0 si aucun bassin retenu), les plus fréquentes d'abord
+    private List<FacetCount> compteurs(String facette, BitmapCompresse base) {
+        List<FacetCount> liste = new ArrayList<>();
+        bitmapCatalogueService.valeurs(facette).forEach((valeur, bassins) -> liste.add(new FacetCount(valeur,
+                bitmapCatalogueService.libelle(facette, valeur), base.cardinaliteEt(bassins))));
+        liste.sort(Comparator.comparingLong(FacetCount::getNombre).reversed()
+                .thenComparing(c -> c.getLibelle() == null ? "" : c.getLibelle()));
+        return liste;
+    }
+
+    private static Map<String, Set<String>> valeursChoisies(FiltreCatalogue filtre) {
+        Map<String, Set<String>> choisis = new LinkedHashMap<>();
+        choisis.put(MATERIAU, nettoyer(filtre.getMateriaux()));
+        choisis.put(COULEUR, nettoyer(filtre.getCouleurs()));
+        choisis.put(CATEGORIE, nettoyer(filtre.getCategories()));
+        choisis.put(STATUT, nettoyer(filtre.getStatuts()));
+        choisis.put(ARCHIVE, filtre.getArchive() == null ? Set.of() : Set.of(filtre.getArchive().toString()));
+        return choisis;
+    }
+
+    private static Set<String> nettoyer(Collection<?> brutes) {
+        Set<String> propres = new HashSet<>();
+        if (brutes != null) {
+            for (Object brute : brutes) {
+                String valeur = brute == null ? null : BitmapCatalogueService.normaliser(brute.toString());
+                if (valeur != null) {
+                    propres.add(valeur);
+                }
+            }
+        }
+        return propres;
+    }
+}
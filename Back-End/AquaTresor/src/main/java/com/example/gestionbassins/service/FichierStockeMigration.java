@@ -0,0 +1,100 @@
+package com.example.gestionbassins.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Migration au démarrage : les fichiers encore référencés par leur ancien nom
+ * (C:/shared/images/7_1.jpg, C:/shared/imagesaccessoiresbassin/3_5.jpg…) sont importés
+ * dans le stockage par empreinte et les colonnes image_path réécrites avec la clé.
+ * Un ancien fichier n'est supprimé que si toutes les lignes qui le référencent ont été migrées.
+ * Sans effet quand toutes les valeurs sont déjà des clés ; une ligne dont le fichier
+ * est introuvable est laissée telle quelle.
+ */
+@Component
+public class FichierStockeMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FichierStockeMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Set<Path> anciensFichiers = new LinkedHashSet<>();
+        // Fichiers dont au moins une ligne n'a pas pu être migrée : elle pointe encore dessus
+        Set<Path> encoreReferences = new HashSet<>();
+        // Chaque table n'est cherchée que dans son propre dossier historique
+        int migrees = migrer("image_bassin", "id_image", fileStorageService::localiserImage, anciensFichiers, encoreReferences)
+                + migrer("bassin", "id_bassin", fileStorageService::localiserImage, anciensFichiers, encoreReferences)
+                + migrer("accessoire", "id_accessoire", fileStorageService::localiserAccessoire, anciensFichiers,
+                        encoreReferences);
+        anciensFichiers.removeAll(encoreReferences);
+
+        for (Path ancien : anciensFichiers) {
+            try {
+                imageRenditionService.supprimer(ancien);
+                Files.deleteIfExists(ancien);
+            } catch (IOException e) {
+                logger.warn("Ancien fichier {} non supprimé : {}", ancien, e.getMessage());
+            }
+        }
+        if (migrees > 0) {
+            logger.info("Stockage par empreinte : {} référence(s) migrée(s), {} ancien(s) fichier(s) supprimé(s)",
+                    migrees, anciensFichiers.size());
+        }
+    }
+
+    private int migrer(String table, String colonneId, Function<String, Path> localisation,
+                       Set<Path> anciensFichiers, Set<Path> encoreReferences) {
+        List<Map<String, Object>> lignes = jdbcTemplate.queryForList(
+                "select " + colonneId + " as id, image_path from " + table + " where image_path is not null");
+        int migrees = 0;
+        for (Map<String, Object> ligne : lignes) {
+            String ancienChemin = (String) ligne.get("image_path");
+            if (FileStorageService.estCle(ancienChemin)) {
+                continue;
+            }
+            Path fichier = localisation.apply(ancienChemin);
+            if (fichier == null) {
+                continue;
+            }
+            String cle = null;
+            try {
+                cle = fileStorageService.importer(fichier, Files.probeContentType(fichier));
+                jdbcTemplate.update("update " + table + " set image_path = ? where " + colonneId + " = ?",
+                        cle, ligne.get("id"));
+                anciensFichiers.add(fichier);
+                migrees++;
+            } catch (IOException | RuntimeException e) {
+                if (cle != null) {
+                    fileStorageService.liberer(cle);
+                }
+                encoreReferences.add(fichier);
+                logger.warn("Migration de {} ({}) impossible : {}", ancienChemin, table, e.getMessage());
+            }
+        }
+        return migrees;
+    }
+}
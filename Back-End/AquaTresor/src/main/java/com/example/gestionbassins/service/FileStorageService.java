@@ -1,49 +1,261 @@
 package com.example.gestionbassins.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.*;
+import com.example.gestionbassins.entities.FichierStocke;
+import com.example.gestionbassins.repos.FichierStockeRepository;
 
+/**
+ * Point d'entrée unique pour les fichiers uploadés (images de bassins, accessoires, modèles 3D).
+ *
+ * Chaque contenu est stocké une seule fois sous la clé sha256 + extension (ex. 3fa2…9c.jpg),
+ * quel que soit le nombre de bassins ou d'accessoires qui l'utilisent : stocker() ajoute une
+ * référence, liberer() en retire une et supprime le contenu à la dernière.
+ * Les lignes en base enregistrent la clé (imagePath) ; les anciens noms (7_1.jpg…) restent
+ * lisibles dans les dossiers historiques tant que FichierStockeMigration ne les a pas importés.
+ */
 @Service
 public class FileStorageService {
-    private final String uploadDir = "C:/shared/images/";  // 📌 Externaliser si possible
 
-    public FileStorageService() throws IOException {
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-            System.out.println("Dossier de stockage créé: " + uploadDir);
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
+
+    private static final Pattern CLE = Pattern.compile("^[0-9a-f]{64}(\\.[a-z0-9]{1,10})?$");
+    private static final Pattern EXTENSION = Pattern.compile("^\\.[a-z0-9]{1,10}$");
+
+    // Verrous par empreinte : sérialise incrément/import et décrément/suppression d'un même contenu
+    private final Object[] verrous = new Object[64];
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private FichierStockeRepository fichierStockeRepository;
+
+    @Autowired
+    private UploadStreamService uploadStreamService;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    // Compteurs mis à jour dans leur propre transaction, indépendante de celle de l'appelant
+    private TransactionTemplate nouvelleTransaction;
+
+    @Value("${storage.legacy.images-dir:C:/shared/images/}")
+    private String dossierHistoriqueImages;
+
+    @Value("${storage.legacy.accessoires-dir:C:/shared/imagesaccessoiresbassin/}")
+    private String dossierHistoriqueAccessoires;
+
+    public FileStorageService() {
+        for (int i = 0; i < verrous.length; i++) {
+            verrous[i] = new Object();
         }
     }
 
+    @Autowired
+    void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public static boolean estCle(String nom) {
+        return nom != null && CLE.matcher(nom).matches();
+    }
+
     /**
-     * Sauvegarde un fichier sur le disque et retourne son nom
+     * Enregistre le fichier uploadé (une référence de plus) et retourne sa clé.
+     * La référence est comptée tout de suite, avant que la ligne qui l'utilise soit enregistrée :
+     * appelée dans une transaction, elle est rendue si celle-ci est annulée ; hors transaction,
+     * l'appelant la libère lui-même si l'enregistrement de sa ligne échoue.
      */
-    public String saveFile(Long idBassin, MultipartFile file, int imageNumber) throws IOException {
+    public String stocker(MultipartFile file) throws IOException {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("Le fichier ne peut pas être vide.");
         }
+        String cle;
+        try (InputStream in = file.getInputStream()) {
+            cle = stocker(in, file.getOriginalFilename(), file.getContentType());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        libererMaintenant(cle);
+                    }
+                }
+            });
+        }
+        return cle;
+    }
+
+    /**
+     * Importe une copie d'un fichier déjà présent sur le disque (migration des anciens dossiers).
+     */
+    public String importer(Path fichier, String contentType) throws IOException {
+        try (InputStream in = Files.newInputStream(fichier)) {
+            return stocker(in, fichier.getFileName().toString(), contentType);
+        }
+    }
+
+    /**
+     * Retire une référence ; le contenu (et ses déclinaisons) est supprimé à la dernière.
+     * Appelée dans une transaction, la libération attend son commit : un rollback ne peut
+     * pas laisser une ligne pointer vers un fichier supprimé. Les anciens chemins sont ignorés.
+     */
+    public void liberer(String cle) {
+        if (!estCle(cle)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    libererMaintenant(cle);
+                }
+            });
+        } else {
+            libererMaintenant(cle);
+        }
+    }
 
-        // Obtenir l'extension du fichier original
-        String originalFileName = file.getOriginalFilename();
-        String extension = (originalFileName != null && originalFileName.contains(".")) 
-            ? originalFileName.substring(originalFileName.lastIndexOf(".")) 
-            : "";
+    private void libererMaintenant(String cle) {
+        String sha256 = cle.substring(0, 64);
+        synchronized (verrou(sha256)) {
+            Boolean orphelin = nouvelleTransaction.execute(status ->
+                    fichierStockeRepository.decrementerReferences(sha256) == 1
+                    && fichierStockeRepository.supprimerSiOrphelin(sha256) == 1);
+            if (!Boolean.TRUE.equals(orphelin)) {
+                return;
+            }
+            try {
+                Path chemin = blobStore.cheminLocal(cle);
+                if (chemin != null) {
+                    imageRenditionService.supprimer(chemin);
+                }
+                blobStore.supprimer(cle);
+            } catch (IOException e) {
+                logger.warn("Contenu {} déréférencé mais non supprimé : {}", cle, e.getMessage());
+            }
+        }
+    }
 
-        // Générer un nom de fichier sous la forme : idBassin_imageNumber.extension
-        String fileName = idBassin + "_" + imageNumber + extension;
-        Path filePath = Paths.get(uploadDir, fileName);
+    /**
+     * Chemin local d'une image de bassin : clé du stockage, ou ancien nom cherché dans le seul
+     * dossier historique des images. Retourne null si le fichier est introuvable.
+     */
+    public Path localiserImage(String nom) {
+        return localiser(nom, dossierHistoriqueImages);
+    }
 
-        // Écrire le fichier sur le disque (sans écraser les anciens)
-        Files.write(filePath, file.getBytes());
+    /**
+     * Chemin local d'une image d'accessoire : clé du stockage, ou ancien nom cherché dans le seul
+     * dossier historique des accessoires (les deux dossiers peuvent contenir un même nom, ex. 3_5.jpg).
+     */
+    public Path localiserAccessoire(String nom) {
+        return localiser(nom, dossierHistoriqueAccessoires);
+    }
 
-        // Vérifier que le fichier est bien écrit
-        if (Files.exists(filePath)) {
-            System.out.println("Fichier sauvegardé avec succès: " + filePath);
+    private Path localiser(String nom, String dossierHistorique) {
+        if (nom == null || nom.isBlank()) {
+            return null;
         }
+        if (estCle(nom)) {
+            return blobStore.cheminLocal(nom);
+        }
+        // Anciennes valeurs : simple nom (7_1.jpg) ou chemin complet Windows (C:\shared\...\3_5.jpg)
+        String nomFichier = nom.substring(Math.max(nom.lastIndexOf('/'), nom.lastIndexOf('\\')) + 1);
+        Path racine = Paths.get(dossierHistorique).toAbsolutePath().normalize();
+        Path chemin = racine.resolve(nomFichier).normalize();
+        return chemin.startsWith(racine) && Files.isRegularFile(chemin) ? chemin : null;
+    }
+
+    private String stocker(InputStream source, String nomOriginal, String contentType) throws IOException {
+        Path temporaire = blobStore.zoneTemporaire().resolve(UUID.randomUUID() + ".upload");
+        try {
+            UploadStreamService.FichierRecu recu = uploadStreamService.ecrire(source, temporaire);
+            return enregistrer(recu, extension(nomOriginal), contentType);
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    private String enregistrer(UploadStreamService.FichierRecu recu, String extension, String contentType)
+            throws IOException {
+        String sha256 = recu.getSha256();
+        synchronized (verrou(sha256)) {
+            if (incrementer(sha256)) {
+                // Contenu déjà stocké : on réutilise sa clé (extension du premier upload)
+                String cle = cleExistante(sha256, extension);
+                if (!blobStore.existe(cle)) {
+                    blobStore.importer(cle, recu.getChemin());
+                }
+                return cle;
+            }
+
+            String cle = sha256 + extension;
+            blobStore.importer(cle, recu.getChemin());
+            try {
+                FichierStocke fichier = new FichierStocke(sha256, extension, recu.getTaille(), contentType);
+                nouvelleTransaction.executeWithoutResult(status -> fichierStockeRepository.saveAndFlush(fichier));
+            } catch (DataIntegrityViolationException e) {
+                // Même contenu enregistré au même moment par une autre instance
+                incrementer(sha256);
+                return cleExistante(sha256, extension);
+            }
+
+            if (estImage(contentType, extension)) {
+                imageRenditionService.planifier(blobStore.cheminLocal(cle));
+            }
+            return cle;
+        }
+    }
+
+    private boolean incrementer(String sha256) {
+        Integer maj = nouvelleTransaction.execute(status -> fichierStockeRepository.incrementerReferences(sha256));
+        return maj != null && maj == 1;
+    }
+
+    private String cleExistante(String sha256, String extensionParDefaut) {
+        return fichierStockeRepository.findById(sha256)
+                .map(FichierStocke::getCle)
+                .orElse(sha256 + extensionParDefaut);
+    }
+
+    private Object verrou(String sha256) {
+        return verrous[Math.floorMod(sha256.hashCode(), verrous.length)];
+    }
+
+    private static String extension(String nomOriginal) {
+        if (nomOriginal == null || !nomOriginal.contains(".")) {
+            return "";
+        }
+        String extension = nomOriginal.substring(nomOriginal.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
 
-        return fileName; // Retourne le nom du fichier pour l'enregistrement en base de données
+    private static boolean estImage(String contentType, String extension) {
+        return (contentType != null && contentType.startsWith("image/"))
+                || extension.matches("\\.(jpe?g|png|gif|bmp)");
     }
 }
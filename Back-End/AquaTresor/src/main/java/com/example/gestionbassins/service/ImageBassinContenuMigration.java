@@ -0,0 +1,44 @@
+package com.example.gestionbassins.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Migration au démarrage : l'ancienne colonne image_bassin.image (BYTEA) est
+ * recopiée dans image_bassin_contenu puis supprimée. Sans effet une fois la
+ * colonne disparue (ddl-auto=update ne supprime jamais de colonne lui-même).
+ */
+@Component
+public class ImageBassinContenuMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageBassinContenuMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        Integer colonnes = jdbcTemplate.queryForObject(
+                "select count(*) from information_schema.columns "
+                + "where table_name = 'image_bassin' and column_name = 'image'", Integer.class);
+        if (colonnes == null || colonnes == 0) {
+            return;
+        }
+
+        int copiees = jdbcTemplate.update(
+                "insert into image_bassin_contenu (id_image, contenu) "
+                + "select i.id_image, i.image from image_bassin i "
+                + "where i.image is not null "
+                + "and not exists (select 1 from image_bassin_contenu c where c.id_image = i.id_image)");
+        jdbcTemplate.execute("alter table image_bassin drop column image");
+
+        logger.info("Migration des images : {} contenu(s) déplacé(s) vers image_bassin_contenu", copiees);
+    }
+}
@@ -8,19 +8,20 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 
 @Service
 public class ImageBassinServiceImpl implements ImageBassinService {
 
-	private final String uploadDir = "C:/shared/images/"; 
-	
     @Autowired
     private ImageBassinRepository imageBassinRepository;
 
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private SequenceImageBassinService sequenceImageBassinService;
+
     @Override
     public ImageBassin saveImage(ImageBassin imageBassin) {
         return imageBassinRepository.save(imageBassin);
@@ -35,52 +36,34 @@ public class ImageBassinServiceImpl implements ImageBassinService {
         ImageBassin imageBassin = imageBassinRepository.findById(idImage)
                 .orElseThrow(() -> new RuntimeException("Image non trouvée avec l'ID : " + idImage));
 
-        // 📌 Récupérer le chemin du fichier
-        String filePath = uploadDir + imageBassin.getImagePath();
-
-        try {
-            // 📌 Supprimer le fichier du disque si présent
-            Path path = Paths.get(filePath);
-            if (Files.exists(path)) {
-                Files.delete(path);
-                System.out.println("✅ Fichier supprimé : " + filePath);
-            } else {
-                System.out.println("⚠️ Fichier introuvable : " + filePath);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Erreur lors de la suppression du fichier : " + filePath, e);
-        }
-
         // 📌 Supprimer l'entrée en base de données
         imageBassinRepository.delete(imageBassin);
+
+        // 📌 Libérer le contenu (supprimé du disque s'il n'est plus utilisé ailleurs)
+        fileStorageService.liberer(imageBassin.getImagePath());
     }
     
     public void uploadImages(Bassin bassin, MultipartFile[] files) throws IOException {
-        String uploadDir = "C:/shared/images/";
-        Path uploadPath = Paths.get(uploadDir);
-
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        Integer lastImageId = imageBassinRepository.findLastImageIdByBassin(bassin.getIdBassin());
-        int newImageId = (lastImageId == null) ? 1 : lastImageId + 1;
+        int newImageId = sequenceImageBassinService.reserver(bassin.getIdBassin(), files.length);
 
         for (MultipartFile file : files) {
             String originalFileName = file.getOriginalFilename();
             String extension = originalFileName.substring(originalFileName.lastIndexOf("."));
             String fileName = bassin.getIdBassin() + "_" + newImageId + extension;
 
-            Path filePath = uploadPath.resolve(fileName);
-            Files.write(filePath, file.getBytes());
-
             ImageBassin image = new ImageBassin();
             image.setName(fileName);
             image.setBassin(bassin);
-            image.setImagePath(fileName);
+            image.setImagePath(fileStorageService.stocker(file));
             image.setType(file.getContentType());
 
-            imageBassinRepository.save(image);
+            try {
+                imageBassinRepository.save(image);
+            } catch (RuntimeException e) {
+                // Ligne non enregistrée : rendre la référence prise sur le contenu
+                fileStorageService.liberer(image.getImagePath());
+                throw e;
+            }
             newImageId++;
         }
     }
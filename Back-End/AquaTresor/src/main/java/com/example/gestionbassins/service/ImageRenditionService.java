@@ -0,0 +1,239 @@
+package com.example.gestionbassins.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Déclinaisons réduites des images (vignette, carte, détail) générées en tâche de fond
+ * après l'upload, à côté de l'original : thumbnail_7_1.jpg, card_7_1.jpg, detail_7_1.jpg.
+ *
+ * Tant qu'une déclinaison n'existe pas, StaticAssetService renvoie l'original et
+ * redemande la génération : les images déjà présentes sont donc rattrapées au fil de l'eau.
+ * Un original dont la génération a échoué n'est pas retenté tant que son contenu (taille et
+ * date de modification) reste le même.
+ */
+@Service
+public class ImageRenditionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditionService.class);
+
+    private static final float QUALITE_JPEG = 0.82f;
+
+    public enum Taille {
+        THUMBNAIL(160), CARD(480), DETAIL(1200);
+
+        private final int coteMax;
+
+        Taille(int coteMax) {
+            this.coteMax = coteMax;
+        }
+
+        public int getCoteMax() {
+            return coteMax;
+        }
+
+        public static Taille from(String value) {
+            try {
+                return Taille.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Taille inconnue : " + value
+                        + " (valeurs possibles : thumbnail, card, detail)");
+            }
+        }
+    }
+
+    @Autowired
+    @Qualifier("imageRenditionExecutor")
+    private TaskExecutor imageRenditionExecutor;
+
+    // Originaux en attente de traitement : évite d'empiler plusieurs fois le même travail
+    private final Set<Path> enAttente = ConcurrentHashMap.newKeySet();
+
+    // Originaux en échec -> version du fichier (taille-date) qui a échoué : un fichier remplacé sera retraité
+    private final Map<Path, String> echecs = new ConcurrentHashMap<>();
+
+    public static String nomRendition(String nomOriginal, Taille taille) {
+        int point = nomOriginal.lastIndexOf('.');
+        String radical = point > 0 ? nomOriginal.substring(0, point) : nomOriginal;
+        return taille.name().toLowerCase(Locale.ROOT) + "_" + radical + "." + formatSortie(nomOriginal);
+    }
+
+    public Path cheminRendition(Path original, Taille taille) {
+        return original.resolveSibling(nomRendition(original.getFileName().toString(), taille));
+    }
+
+    /**
+     * Demande la génération des déclinaisons d'un original. Ne bloque jamais l'appelant :
+     * si la file est pleine, la génération sera redemandée au premier affichage.
+     */
+    public void planifier(Path original) {
+        Path cle = original.toAbsolutePath().normalize();
+        if (enEchec(cle) || !enAttente.add(cle)) {
+            return;
+        }
+        try {
+            imageRenditionExecutor.execute(() -> generer(cle));
+        } catch (TaskRejectedException e) {
+            enAttente.remove(cle);
+            logger.warn("File de génération des images pleine, {} sera traité plus tard", cle.getFileName());
+        }
+    }
+
+    /**
+     * Vrai si la génération a déjà échoué pour cette version de l'original : ses déclinaisons
+     * n'arriveront pas, l'original peut être servi tel quel.
+     */
+    public boolean enEchec(Path original) {
+        Path cle = original.toAbsolutePath().normalize();
+        String version = echecs.get(cle);
+        if (version == null) {
+            return false;
+        }
+        if (version.equals(version(cle))) {
+            return true;
+        }
+        echecs.remove(cle, version);
+        return false;
+    }
+
+    public void supprimer(Path original) {
+        echecs.remove(original.toAbsolutePath().normalize());
+        for (Taille taille : Taille.values()) {
+            try {
+                Files.deleteIfExists(cheminRendition(original, taille));
+            } catch (IOException e) {
+                logger.warn("Impossible de supprimer la déclinaison {} de {} : {}", taille, original, e.getMessage());
+            }
+        }
+    }
+
+    private void generer(Path original) {
+        // Retiré avant la lecture : un nouvel upload pendant le traitement sera replanifié
+        enAttente.remove(original);
+        try {
+            if (!Files.isRegularFile(original)) {
+                return;
+            }
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                marquerEchec(original);
+                logger.info("Format non lisible par ImageIO, pas de déclinaison pour {}", original.getFileName());
+                return;
+            }
+            String format = formatSortie(original.getFileName().toString());
+            for (Taille taille : Taille.values()) {
+                BufferedImage reduite = redimensionner(source, taille.getCoteMax(), "png".equals(format));
+                ecrire(reduite, format, cheminRendition(original, taille));
+            }
+        } catch (IOException | RuntimeException e) {
+            marquerEchec(original);
+            logger.error("Échec de la génération des déclinaisons de {}", original, e);
+        }
+    }
+
+    private void marquerEchec(Path original) {
+        String version = version(original);
+        if (version != null) {
+            echecs.put(original, version);
+        }
+    }
+
+    // Version du contenu d'un original, null s'il n'est plus lisible
+    private static String version(Path original) {
+        try {
+            return Long.toHexString(Files.size(original)) + "-"
+                    + Long.toHexString(Files.getLastModifiedTime(original).toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String formatSortie(String nomOriginal) {
+        String nom = nomOriginal.toLowerCase(Locale.ROOT);
+        // PNG/GIF peuvent être transparents : on garde la transparence
+        return (nom.endsWith(".png") || nom.endsWith(".gif")) ? "png" : "jpg";
+    }
+
+    // Réduction par moitiés successives (bilinéaire) : bien plus net qu'un seul passage
+    private static BufferedImage redimensionner(BufferedImage source, int coteMax, boolean transparence) {
+        double echelle = Math.min(1.0, (double) coteMax / Math.max(source.getWidth(), source.getHeight()));
+        int largeurCible = Math.max(1, (int) Math.round(source.getWidth() * echelle));
+        int hauteurCible = Math.max(1, (int) Math.round(source.getHeight() * echelle));
+        int type = transparence ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage courante = source;
+        int largeur = source.getWidth();
+        int hauteur = source.getHeight();
+        do {
+            largeur = Math.max(largeurCible, largeur / 2);
+            hauteur = Math.max(hauteurCible, hauteur / 2);
+            BufferedImage etape = new BufferedImage(largeur, hauteur, type);
+            Graphics2D g = etape.createGraphics();
+            try {
+                if (!transparence) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, largeur, hauteur);
+                }
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(courante, 0, 0, largeur, hauteur, null);
+            } finally {
+                g.dispose();
+            }
+            courante = etape;
+        } while (largeur != largeurCible || hauteur != hauteurCible);
+        return courante;
+    }
+
+    // Écriture dans un fichier temporaire puis déplacement : jamais de fichier à moitié écrit servi
+    private static void ecrire(BufferedImage image, String format, Path destination) throws IOException {
+        Path temporaire = destination.resolveSibling(destination.getFileName() + ".tmp");
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("Aucun encodeur ImageIO pour le format " + format);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temporaire.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(QUALITE_JPEG);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        try {
+            Files.move(temporaire, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaire);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.gestionbassins.service;
+
+import com.example.gestionbassins.projections.BassinIndexable;
+
+/**
+ * Index en mémoire du catalogue (recherche, suggestions…), tenu à jour par CatalogueIndexListener
+ * après chaque commit. Chaque index se charge lui-même au démarrage.
+ */
+public interface IndexCatalogue {
+
+    // Ajoute ou remplace le bassin
+    void indexer(BassinIndexable bassin);
+
+    void retirer(Long idBassin);
+
+    // Le nom de la catégorie est indexé avec chaque bassin
+    void renommerCategorie(Long idCategorie, String nomCategorie);
+}
@@ -0,0 +1,65 @@
+package com.example.gestionbassins.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Stockage sur disque local (ou partage réseau commun à plusieurs instances).
+ * Les contenus sont répartis en sous-dossiers par les deux premiers caractères
+ * de l'empreinte : racine/3f/3fa2…9c.jpg
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalFileBlobStore implements BlobStore {
+
+    private final Path racine;
+
+    public LocalFileBlobStore(@Value("${storage.local.root:C:/shared/store/}") String racine) throws IOException {
+        this.racine = Paths.get(racine).toAbsolutePath().normalize();
+        Files.createDirectories(this.racine);
+    }
+
+    @Override
+    public Path zoneTemporaire() throws IOException {
+        return Files.createDirectories(racine.resolve(".tmp"));
+    }
+
+    @Override
+    public void importer(String cle, Path source) throws IOException {
+        Path cible = resoudre(cle);
+        Files.createDirectories(cible.getParent());
+        // Même contenu = même clé : écraser un fichier identique est sans risque
+        Files.move(source, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean existe(String cle) {
+        return Files.isRegularFile(resoudre(cle));
+    }
+
+    @Override
+    public Path cheminLocal(String cle) {
+        Path chemin = resoudre(cle);
+        return Files.isRegularFile(chemin) ? chemin : null;
+    }
+
+    @Override
+    public void supprimer(String cle) throws IOException {
+        Files.deleteIfExists(resoudre(cle));
+    }
+
+    private Path resoudre(String cle) {
+        Path chemin = racine.resolve(cle.substring(0, 2)).resolve(cle).normalize();
+        if (!chemin.startsWith(racine)) {
+            throw new IllegalArgumentException("Clé de stockage invalide : " + cle);
+        }
+        return chemin;
+    }
+}
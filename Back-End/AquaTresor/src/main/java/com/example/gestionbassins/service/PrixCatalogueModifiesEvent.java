@@ -0,0 +1,16 @@
+package com.example.gestionbassins.service;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Publié après la réécriture en masse des colonnes de promotion de bassins (PromotionPlanificateur) :
+ * les index et caches du catalogue qui en dépendent doivent relire ces bassins.
+ */
+@Getter
+@AllArgsConstructor
+public class PrixCatalogueModifiesEvent {
+    private final Set<Long> idsBassins;
+}
@@ -0,0 +1,477 @@
+package com.example.gestionbassins.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import com.example.gestionbassins.dto.PrixEffectif;
+import com.example.gestionbassins.projections.BassinIndexable;
+import com.example.gestionbassins.projections.PromotionCible;
+import com.example.gestionbassins.repos.BassinRepository;
+import com.example.gestionbassins.repos.PromotionRepository;
+
+/**
+ * Moteur de prix : le prix courant de chaque bassin (meilleure promotion en cours, liée au bassin ou à
+ * sa catégorie) est calculé d'avance et lu dans une table, sans requête ni parcours des promotions.
+ *
+ * Les périodes des promotions non terminées sont indexées par bassin et par catégorie, rangées par date
+ * de début. Le prix d'un bassin n'est recalculé qu'au passage de sa prochaine échéance (début ou fin d'une
+ * de ses promotions), ou quand le bassin (CatalogueIndexListener, comme les autres index) ou une de ses
+ * promotions (rechargerPromotions) est modifié.
+ * Une promotion terminée est retirée des index (période, cibles, intervalles vidés) au passage de sa fin.
+ *
+ * Les bassins dont les colonnes promotion_active, taux_reduction et prix_promo ne correspondent plus
+ * au prix calculé sont écrits par PromotionPlanificateur (aEnregistrer), qui se réveille à chaque échéance.
+ */
+@Service
+public class PrixEffectifService implements IndexCatalogue, ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrixEffectifService.class);
+
+    private static final long AUCUNE = Long.MAX_VALUE;
+
+    @Autowired
+    private BassinRepository bassinRepository;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // Bassins : prix de base et catégorie
+    private final Map<Long, BassinIndexable> bassins = new HashMap<>();
+    private final Map<Long, Set<Long>> bassinsParCategorie = new HashMap<>();
+
+    // Promotions non terminées et leurs cibles
+    private final Map<Long, Periode> periodes = new HashMap<>();
+    private final Map<Long, Intervalles> parBassin = new HashMap<>();
+    private final Map<Long, Intervalles> parCategorie = new HashMap<>();
+    private final Map<Long, Set<Long>> bassinsParPromotion = new HashMap<>();
+    private final Map<Long, Set<Long>> categoriesParPromotion = new HashMap<>();
+    // Fin de chaque promotion (premier instant hors période) : elle est alors retirée des index
+    private final NavigableMap<Long, Set<Long>> finsPromotions = new TreeMap<>();
+
+    // Prix calculés, et bassins à recalculer à chaque échéance
+    private final Map<Long, PrixEffectif> prix = new HashMap<>();
+    private final NavigableMap<Long, Set<Long>> echeances = new TreeMap<>();
+    private final Map<Long, Long> echeanceParBassin = new HashMap<>();
+    // Bassins dont les colonnes de promotion enregistrées diffèrent du prix calculé
+    private final Set<Long> desynchronises = new HashSet<>();
+    // Lue sans verrou : tant qu'elle n'est pas atteinte, aucun prix n'a changé
+    private volatile long prochaineEcheance = AUCUNE;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconstruire();
+    }
+
+    // Verrou pris avant la lecture : une modification commitée pendant le chargement passe après
+    public void reconstruire() {
+        verrou.writeLock().lock();
+        try {
+            long maintenant = System.currentTimeMillis();
+            bassins.clear();
+            bassinsParCategorie.clear();
+            periodes.clear();
+            parBassin.clear();
+            parCategorie.clear();
+            bassinsParPromotion.clear();
+            categoriesParPromotion.clear();
+            finsPromotions.clear();
+            prix.clear();
+            echeances.clear();
+            echeanceParBassin.clear();
+            desynchronises.clear();
+
+            bassinRepository.findIndexables().forEach(this::ajouterBassin);
+            Date depuis = new Date(maintenant);
+            promotionRepository.findCiblesBassins(depuis).forEach(c -> ajouterCible(c, false, maintenant));
+            promotionRepository.findCiblesCategories(depuis).forEach(c -> ajouterCible(c, true, maintenant));
+            bassins.keySet().forEach(id -> materialiser(id, maintenant));
+            majProchaineEcheance();
+            logger.info("Prix effectifs : {} bassin(s), {} promotion(s) en cours ou à venir", bassins.size(), periodes.size());
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Prix courant du bassin (null s'il est inconnu).
+     */
+    public PrixEffectif prix(Long idBassin) {
+        avancer();
+        verrou.readLock().lock();
+        try {
+            return prix.get(idBassin);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Prix courants des bassins connus parmi ceux donnés, dans l'ordre des ids.
+     */
+    public Map<Long, PrixEffectif> prix(Collection<Long> idsBassins) {
+        avancer();
+        Map<Long, PrixEffectif> resultat = new LinkedHashMap<>();
+        verrou.readLock().lock();
+        try {
+            for (Long id : idsBassins) {
+                PrixEffectif p = prix.get(id);
+                if (p != null) {
+                    resultat.put(id, p);
+                }
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+        return resultat;
+    }
+
+    /**
+     * Prix calculés des bassins dont les colonnes de promotion sont à réécrire.
+     */
+    public List<PrixEffectif> aEnregistrer() {
+        avancer();
+        verrou.readLock().lock();
+        try {
+            List<PrixEffectif> resultat = new ArrayList<>();
+            desynchronises.forEach(id -> resultat.add(prix.get(id)));
+            return resultat;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // Instant (ms) du prochain changement de prix, Long.MAX_VALUE si aucun n'est prévu
+    public long prochaineEcheance() {
+        return prochaineEcheance;
+    }
+
+    @Override
+    public void indexer(BassinIndexable bassin) {
+        verrou.writeLock().lock();
+        try {
+            enleverBassin(bassin.getIdBassin());
+            ajouterBassin(bassin);
+            materialiser(bassin.getIdBassin(), System.currentTimeMillis());
+            majProchaineEcheance();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void retirer(Long idBassin) {
+        verrou.writeLock().lock();
+        try {
+            enleverBassin(idBassin);
+            materialiser(idBassin, System.currentTimeMillis());
+            majProchaineEcheance();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void renommerCategorie(Long idCategorie, String nomCategorie) {
+        // Le nom de la catégorie n'intervient pas dans le prix
+    }
+
+    /**
+     * Relit les promotions données (créées, modifiées ou supprimées) et recalcule les bassins
+     * qu'elles visaient ou visent désormais. À appeler dans une transaction en lecture.
+     */
+    public void rechargerPromotions(Collection<Long> idsPromotion) {
+        if (idsPromotion.isEmpty()) {
+            return;
+        }
+        List<PromotionCible> versBassins = promotionRepository.findCiblesBassinsByPromotionIds(idsPromotion);
+        List<PromotionCible> versCategories = promotionRepository.findCiblesCategoriesByPromotionIds(idsPromotion);
+        verrou.writeLock().lock();
+        try {
+            long maintenant = System.currentTimeMillis();
+            Set<Long> touches = new LinkedHashSet<>();
+            idsPromotion.forEach(id -> enleverPromotion(id, touches));
+            versBassins.forEach(c -> touches.addAll(ajouterCible(c, false, maintenant)));
+            versCategories.forEach(c -> touches.addAll(ajouterCible(c, true, maintenant)));
+            touches.forEach(id -> materialiser(id, maintenant));
+            majProchaineEcheance();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Recalcule les bassins dont une échéance est passée (rien à faire avant la prochaine)
+    private void avancer() {
+        if (System.currentTimeMillis() < prochaineEcheance) {
+            return;
+        }
+        verrou.writeLock().lock();
+        try {
+            long maintenant = System.currentTimeMillis();
+            Set<Long> aRecalculer = new LinkedHashSet<>();
+            // Promotions terminées : leurs périodes, leurs cibles et les intervalles vidés disparaissent
+            while (!finsPromotions.isEmpty() && finsPromotions.firstKey() <= maintenant) {
+                for (Long idPromotion : finsPromotions.pollFirstEntry().getValue()) {
+                    enleverPromotion(idPromotion, aRecalculer);
+                }
+            }
+            while (!echeances.isEmpty() && echeances.firstKey() <= maintenant) {
+                for (Long id : echeances.pollFirstEntry().getValue()) {
+                    echeanceParBassin.remove(id);
+                    aRecalculer.add(id);
+                }
+            }
+            aRecalculer.forEach(id -> materialiser(id, maintenant));
+            majProchaineEcheance();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Une promotion sans bassin (catégorie vide) n'a pas d'échéance de prix mais doit être retirée à sa fin
+    private void majProchaineEcheance() {
+        prochaineEcheance = Math.min(echeances.isEmpty() ? AUCUNE : echeances.firstKey(),
+                finsPromotions.isEmpty() ? AUCUNE : finsPromotions.firstKey());
+    }
+
+    // Prix du bassin à l'instant donné et date de son prochain changement
+    private void materialiser(Long idBassin, long instant) {
+        Long ancienne = echeanceParBassin.remove(idBassin);
+        if (ancienne != null) {
+            Set<Long> aLaMeme = echeances.get(ancienne);
+            aLaMeme.remove(idBassin);
+            if (aLaMeme.isEmpty()) {
+                echeances.remove(ancienne);
+            }
+        }
+        BassinIndexable bassin = bassins.get(idBassin);
+        if (bassin == null) {
+            prix.remove(idBassin);
+            desynchronises.remove(idBassin);
+            return;
+        }
+
+        Periode meilleure = null;
+        long borne = AUCUNE;
+        Intervalles[] candidates = { parBassin.get(idBassin),
+                bassin.getIdCategorie() == null ? null : parCategorie.get(bassin.getIdCategorie()) };
+        for (Intervalles intervalles : candidates) {
+            if (intervalles != null) {
+                intervalles.purger(instant);
+                meilleure = intervalles.meilleure(instant, meilleure);
+                borne = Math.min(borne, intervalles.prochaineBorne(instant));
+            }
+        }
+
+        Double base = bassin.getPrix();
+        Double remise = (meilleure != null && base != null) ? base * (1 - meilleure.taux / 100) : base;
+        PrixEffectif calcule = new PrixEffectif(idBassin, base, remise,
+                meilleure == null ? null : meilleure.taux,
+                meilleure == null ? null : meilleure.idPromotion,
+                meilleure == null ? null : meilleure.nom,
+                borne == AUCUNE ? null : new Date(borne));
+        prix.put(idBassin, calcule);
+        if (enregistre(bassin, calcule)) {
+            desynchronises.remove(idBassin);
+        } else {
+            desynchronises.add(idBassin);
+        }
+        if (borne != AUCUNE) {
+            echeances.computeIfAbsent(borne, b -> new HashSet<>()).add(idBassin);
+            echeanceParBassin.put(idBassin, borne);
+        }
+    }
+
+    // Les colonnes lues avec le bassin correspondent-elles au prix calculé ? (prix_promo est calculé en base)
+    private static boolean enregistre(BassinIndexable bassin, PrixEffectif calcule) {
+        if (!calcule.isPromotionActive()) {
+            return !bassin.isPromotionActive() && bassin.getTauxReduction() == null && bassin.getPrixPromo() == null;
+        }
+        return bassin.isPromotionActive() && calcule.getTauxReduction().equals(bassin.getTauxReduction())
+                && proches(calcule.getPrixEffectif(), bassin.getPrixPromo());
+    }
+
+    private static boolean proches(Double a, Double b) {
+        return a == null ? b == null : b != null && Math.abs(a - b) < 0.005;
+    }
+
+    private void ajouterBassin(BassinIndexable bassin) {
+        bassins.put(bassin.getIdBassin(), bassin);
+        if (bassin.getIdCategorie() != null) {
+            bassinsParCategorie.computeIfAbsent(bassin.getIdCategorie(), c -> new HashSet<>()).add(bassin.getIdBassin());
+        }
+    }
+
+    private void enleverBassin(Long idBassin) {
+        BassinIndexable ancien = bassins.remove(idBassin);
+        if (ancien != null && ancien.getIdCategorie() != null) {
+            Set<Long> freres = bassinsParCategorie.get(ancien.getIdCategorie());
+            freres.remove(idBassin);
+            if (freres.isEmpty()) {
+                bassinsParCategorie.remove(ancien.getIdCategorie());
+            }
+        }
+    }
+
+    // Ajoute un lien promotion -> bassin ou catégorie ; retourne les bassins dont le prix peut changer
+    private Set<Long> ajouterCible(PromotionCible cible, boolean categorie, long instant) {
+        if (cible.getTauxReduction() == null || cible.getDateDebut() == null || cible.getDateFin() == null
+                || cible.getDateFin().getTime() < instant) {
+            return Set.of();
+        }
+        Periode periode = periodes.computeIfAbsent(cible.getIdPromotion(), id -> {
+            Periode nouvelle = new Periode(cible);
+            finsPromotions.computeIfAbsent(nouvelle.fin + 1, f -> new HashSet<>()).add(id);
+            return nouvelle;
+        });
+        Long idCible = cible.getIdCible();
+        if (categorie) {
+            parCategorie.computeIfAbsent(idCible, c -> new Intervalles()).ajouter(periode);
+            categoriesParPromotion.computeIfAbsent(periode.idPromotion, p -> new HashSet<>()).add(idCible);
+            return bassinsParCategorie.getOrDefault(idCible, Set.of());
+        }
+        parBassin.computeIfAbsent(idCible, b -> new Intervalles()).ajouter(periode);
+        bassinsParPromotion.computeIfAbsent(periode.idPromotion, p -> new HashSet<>()).add(idCible);
+        return Set.of(idCible);
+    }
+
+    private void enleverPromotion(Long idPromotion, Set<Long> touches) {
+        Periode periode = periodes.remove(idPromotion);
+        if (periode == null) {
+            return;
+        }
+        Set<Long> memeFin = finsPromotions.get(periode.fin + 1);
+        if (memeFin != null) {
+            memeFin.remove(idPromotion);
+            if (memeFin.isEmpty()) {
+                finsPromotions.remove(periode.fin + 1);
+            }
+        }
+        for (Long idBassin : bassinsParPromotion.getOrDefault(idPromotion, Set.of())) {
+            enleverPeriode(parBassin, idBassin, periode);
+            touches.add(idBassin);
+        }
+        for (Long idCategorie : categoriesParPromotion.getOrDefault(idPromotion, Set.of())) {
+            enleverPeriode(parCategorie, idCategorie, periode);
+            touches.addAll(bassinsParCategorie.getOrDefault(idCategorie, Set.of()));
+        }
+        bassinsParPromotion.remove(idPromotion);
+        categoriesParPromotion.remove(idPromotion);
+    }
+
+    private static void enleverPeriode(Map<Long, Intervalles> index, Long idCible, Periode periode) {
+        Intervalles intervalles = index.get(idCible);
+        if (intervalles != null) {
+            intervalles.retirer(periode);
+            if (intervalles.estVide()) {
+                index.remove(idCible);
+            }
+        }
+    }
+
+    // Période d'une promotion, bornes incluses (comme les requêtes "dateDebut <= now and dateFin >= now")
+    private static final class Periode {
+        private final Long idPromotion;
+        private final String nom;
+        private final double taux;
+        private final long debut;
+        private final long fin;
+
+        Periode(PromotionCible cible) {
+            this.idPromotion = cible.getIdPromotion();
+            this.nom = cible.getNomPromotion();
+            this.taux = cible.getTauxReduction();
+            this.debut = cible.getDateDebut().getTime();
+            this.fin = cible.getDateFin().getTime();
+        }
+
+        boolean enCours(long instant) {
+            return debut <= instant && instant <= fin;
+        }
+
+        // Plus forte remise d'abord, puis la plus ancienne promotion
+        boolean meilleureQue(Periode autre) {
+            return autre == null || taux > autre.taux || (taux == autre.taux && idPromotion < autre.idPromotion);
+        }
+    }
+
+    // Périodes visant un même bassin ou une même catégorie, par date de début
+    private static final class Intervalles {
+        private final NavigableMap<Long, List<Periode>> parDebut = new TreeMap<>();
+
+        void ajouter(Periode periode) {
+            List<Periode> memeDebut = parDebut.computeIfAbsent(periode.debut, d -> new ArrayList<>());
+            if (memeDebut.stream().noneMatch(p -> p.idPromotion.equals(periode.idPromotion))) {
+                memeDebut.add(periode);
+            }
+        }
+
+        void retirer(Periode periode) {
+            List<Periode> memeDebut = parDebut.get(periode.debut);
+            if (memeDebut != null) {
+                memeDebut.removeIf(p -> p.idPromotion.equals(periode.idPromotion));
+                if (memeDebut.isEmpty()) {
+                    parDebut.remove(periode.debut);
+                }
+            }
+        }
+
+        boolean estVide() {
+            return parDebut.isEmpty();
+        }
+
+        // Les périodes terminées ne peuvent plus s'appliquer
+        void purger(long instant) {
+            parDebut.headMap(instant, true).values().removeIf(memeDebut -> {
+                memeDebut.removeIf(p -> p.fin < instant);
+                return memeDebut.isEmpty();
+            });
+        }
+
+        Periode meilleure(long instant, Periode actuelle) {
+            Periode meilleure = actuelle;
+            for (List<Periode> memeDebut : parDebut.headMap(instant, true).values()) {
+                for (Periode p : memeDebut) {
+                    if (p.enCours(instant) && p.meilleureQue(meilleure)) {
+                        meilleure = p;
+                    }
+                }
+            }
+            return meilleure;
+        }
+
+        // Premier instant après celui donné où une période commence ou se termine
+        long prochaineBorne(long instant) {
+            Long debut = parDebut.higherKey(instant);
+            long borne = debut == null ? AUCUNE : debut;
+            for (List<Periode> memeDebut : parDebut.headMap(instant, true).values()) {
+                for (Periode p : memeDebut) {
+                    if (p.fin >= instant) {
+                        borne = Math.min(borne, p.fin + 1);
+                    }
+                }
+            }
+            return borne;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.gestionbassins.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.gestionbassins.dto.PrixEffectif;
+import com.example.gestionbassins.repos.BassinRepository;
+
+/**
+ * Tient à jour les colonnes promotion_active, taux_reduction et prix_promo des bassins, pour que les
+ * lectures s'y fient sans revérifier les dates des promotions.
+ *
+ * Un seul réveil est programmé, à la prochaine échéance du moteur de prix (début ou fin de promotion, la
+ * plus proche de sa file ordonnée par instant). À chaque réveil, et après chaque modification de bassin ou
+ * de promotion, les bassins dont les colonnes ne correspondent plus au prix calculé sont réécrits par un
+ * UPDATE en masse par taux de réduction, puis PrixCatalogueModifiesEvent est publié.
+ */
+@Service
+public class PromotionPlanificateur {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromotionPlanificateur.class);
+
+    // Après un échec d'écriture, nouvel essai sans attendre la prochaine échéance
+    private static final long DELAI_NOUVEL_ESSAI_MS = 60_000;
+
+    @Autowired
+    private PrixEffectifService prixEffectifService;
+
+    @Autowired
+    private BassinRepository bassinRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private ScheduledFuture<?> reveil;
+    private long reveilPrevu = Long.MAX_VALUE;
+
+    // Après les ApplicationRunner : le moteur de prix est chargé
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        synchroniser();
+    }
+
+    /**
+     * Réécrit les bassins désynchronisés puis programme le réveil suivant.
+     */
+    public synchronized void synchroniser() {
+        long prochain;
+        try {
+            List<PrixEffectif> aEcrire = prixEffectifService.aEnregistrer();
+            if (!aEcrire.isEmpty()) {
+                enregistrer(aEcrire);
+            }
+            prochain = prixEffectifService.prochaineEcheance();
+        } catch (RuntimeException e) {
+            logger.error("Mise à jour des promotions des bassins impossible", e);
+            prochain = Math.min(prixEffectifService.prochaineEcheance(), System.currentTimeMillis() + DELAI_NOUVEL_ESSAI_MS);
+        }
+        programmer(prochain);
+    }
+
+    private void enregistrer(List<PrixEffectif> aEcrire) {
+        List<Long> sansPromotion = new ArrayList<>();
+        Map<Double, List<Long>> parTaux = new HashMap<>();
+        Set<Long> ids = new LinkedHashSet<>();
+        for (PrixEffectif prix : aEcrire) {
+            if (prix.isPromotionActive()) {
+                parTaux.computeIfAbsent(prix.getTauxReduction(), t -> new ArrayList<>()).add(prix.getIdBassin());
+            } else {
+                sansPromotion.add(prix.getIdBassin());
+            }
+            ids.add(prix.getIdBassin());
+        }
+
+        TransactionTemplate ecriture = new TransactionTemplate(transactionManager);
+        ecriture.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        ecriture.executeWithoutResult(status -> {
+            if (!sansPromotion.isEmpty()) {
+                bassinRepository.retirerPromotion(sansPromotion);
+            }
+            parTaux.forEach((taux, bassins) -> bassinRepository.appliquerPromotion(bassins, taux));
+        });
+        logger.info("Promotions : {} bassin(s) mis à jour ({} en promotion)", ids.size(), ids.size() - sansPromotion.size());
+        eventPublisher.publishEvent(new PrixCatalogueModifiesEvent(ids));
+    }
+
+    private void programmer(long instant) {
+        if (reveil != null && !reveil.isDone() && instant == reveilPrevu) {
+            return;
+        }
+        if (reveil != null) {
+            reveil.cancel(false);
+        }
+        reveilPrevu = instant;
+        reveil = instant == Long.MAX_VALUE ? null : taskScheduler.schedule(this::synchroniser, Instant.ofEpochMilli(instant));
+    }
+}
@@ -1,16 +1,21 @@
 package com.example.gestionbassins.service;
 
+import com.example.gestionbassins.dto.BassinAvecPromotionsDTO;
+import com.example.gestionbassins.dto.PromotionAppliquee;
 import com.example.gestionbassins.dto.PromotionDTO;
+import com.example.gestionbassins.dto.SearchPage;
 import com.example.gestionbassins.dto.UpdatePromotionDTO;
 import com.example.gestionbassins.entities.Promotion;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public interface PromotionService {
     Promotion createPromotion(PromotionDTO promotionDTO); // Ajoutez cette méthode
-    Promotion applyPromotionToBassins(Long idPromotion, List<Long> bassinIds);
-    Promotion applyPromotionToCategorie(Long idPromotion, Long idCategorie);
+    // Appliquées en base (INSERT ... SELECT) ; seul un bilan est renvoyé
+    PromotionAppliquee applyPromotionToBassins(Long idPromotion, List<Long> bassinIds);
+    PromotionAppliquee applyPromotionToCategorie(Long idPromotion, Long idCategorie);
     List<Promotion> getAllPromotions();
     Promotion getPromotionById(Long id);
     void deletePromotion(Long id);
@@ -22,6 +27,16 @@ public interface PromotionService {
     List<Promotion> getOverlappingPromotionsForBassin(Long bassinId, Date dateDebut, Date dateFin);
     List<Promotion> getOverlappingPromotionsForCategorie(Long categorieId, Date dateDebut, Date dateFin); 
     public List<Promotion> getActivePromotionsForBassin(Long bassinId) ;
+
+    // Conflits de dates des bassins et catégories donnés, en une requête par type (hors promotionId)
+    Map<String, List<Map<String, Object>>> verifierChevauchements(List<Long> bassinIds, List<Long> categorieIds,
+                                                                 Date dateDebut, Date dateFin, Long promotionId);
+
+    // Page de bassins (par id) avec, si demandé, leurs promotions en cours ; page commence à 0
+    SearchPage<BassinAvecPromotionsDTO> getBassinsAvecPromotions(boolean includePromotions, Integer page, Integer size);
+
+    // Mêmes lignes pour des bassins donnés (ids inconnus ignorés), au plus une page de taille maximale
+    List<BassinAvecPromotionsDTO> getBassinsAvecPromotions(boolean includePromotions, List<Long> ids);
         
     
     }
\ No newline at end of file
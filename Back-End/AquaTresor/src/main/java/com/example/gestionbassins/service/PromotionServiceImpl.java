@@ -1,22 +1,41 @@
 package com.example.gestionbassins.service;
 
+import com.example.gestionbassins.dto.BassinAvecPromotionsDTO;
+import com.example.gestionbassins.dto.PrixEffectif;
+import com.example.gestionbassins.dto.PromotionAppliquee;
 import com.example.gestionbassins.dto.PromotionDTO;
+import com.example.gestionbassins.dto.PromotionResume;
+import com.example.gestionbassins.dto.SearchPage;
 import com.example.gestionbassins.dto.UpdatePromotionDTO;
 import com.example.gestionbassins.entities.Bassin;
 import com.example.gestionbassins.entities.Categorie;
 import com.example.gestionbassins.entities.Promotion;
+import com.example.gestionbassins.projections.BassinCatalogueView;
+import com.example.gestionbassins.projections.PromotionCible;
+import com.example.gestionbassins.repos.BassinRepository;
+import com.example.gestionbassins.repos.CategorieRepository;
 import com.example.gestionbassins.repos.PromotionRepository;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -31,6 +50,24 @@ public class PromotionServiceImpl implements PromotionService {
     @Autowired
     private CategorieService categorieService;
 
+    @Autowired
+    private PrixEffectifService prixEffectifService;
+
+    @Autowired
+    private CatalogueIndexListener catalogueIndexListener;
+
+    @Autowired
+    private BassinRepository bassinRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Value("${catalogue.page.default-size:24}")
+    private int catalogueDefaultPageSize;
+
+    @Value("${catalogue.page.max-size:100}")
+    private int catalogueMaxPageSize;
+
     @Override
     @Transactional
     public Promotion createPromotion(PromotionDTO promotionDTO) {
@@ -40,17 +77,9 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setDateDebut(promotionDTO.getDateDebut());
         promotion.setDateFin(promotionDTO.getDateFin());
 
-        // Convertir les IDs des bassins en objets Bassin
-        List<Bassin> bassins = promotionDTO.getBassins().stream()
-                .map(bassinService::getBassinById)
-                .collect(Collectors.toList());
-        promotion.setBassins(bassins);
-
-        // Convertir les IDs des catégories en objets Categorie
-        List<Categorie> categories = promotionDTO.getCategories().stream()
-                .map(categorieService::getCategorieById)
-                .collect(Collectors.toList());
-        promotion.setCategories(categories);
+        // Convertir les IDs des bassins et des catégories en objets (une requête chacun)
+        promotion.setBassins(resoudreBassins(promotionDTO.getBassins()));
+        promotion.setCategories(resoudreCategories(promotionDTO.getCategories()));
 
         validatePromotion(promotion);
         checkOverlappingPromotions(promotion, null);
@@ -77,48 +106,44 @@ public class PromotionServiceImpl implements PromotionService {
 
     @Override
     @Transactional
-    public Promotion applyPromotionToBassins(Long idPromotion, List<Long> bassinIds) {
+    public PromotionAppliquee applyPromotionToBassins(Long idPromotion, List<Long> bassinIds) {
         Promotion promotion = promotionRepository.findById(idPromotion)
                 .orElseThrow(() -> new RuntimeException("Promotion non trouvée"));
 
-        List<Bassin> bassins = bassinService.getAllBassins().stream()
-                .filter(bassin -> bassinIds.contains(bassin.getIdBassin()))
-                .collect(Collectors.toList());
-
-        if (bassins.isEmpty()) {
+        // Seuls les ids sont lus : aucun bassin n'est chargé
+        Set<Long> demandes = bassinIds == null ? Set.of() : new LinkedHashSet<>(bassinIds);
+        Set<Long> existants = demandes.isEmpty() ? Set.of() : new HashSet<>(bassinRepository.findIdsExistants(demandes));
+        if (existants.isEmpty()) {
             throw new IllegalArgumentException("Aucun bassin valide trouvé");
         }
 
-        promotion.setBassins(bassins);
-        return promotionRepository.save(promotion);
+        // La promotion porte exactement les bassins demandés : les autres liens sont retirés
+        int retires = promotionRepository.delierBassinsSauf(idPromotion, existants);
+        int ajoutes = promotionRepository.lierBassins(idPromotion, existants);
+        List<Long> introuvables = demandes.stream()
+                .filter(id -> !existants.contains(id))
+                .collect(Collectors.toList());
+
+        catalogueIndexListener.planifierPromotion(idPromotion);
+        return new PromotionAppliquee(idPromotion, promotion.getNomPromotion(), null, ajoutes, retires, introuvables);
     }
 
     @Override
     @Transactional
-    public Promotion applyPromotionToCategorie(Long idPromotion, Long idCategorie) {
+    public PromotionAppliquee applyPromotionToCategorie(Long idPromotion, Long idCategorie) {
         Promotion promotion = promotionRepository.findById(idPromotion)
                 .orElseThrow(() -> new RuntimeException("Promotion non trouvée"));
 
-        Categorie categorie = categorieService.getCategorieById(idCategorie);
-        if (categorie == null) {
+        if (!categorieRepository.existsById(idCategorie)) {
             throw new RuntimeException("Catégorie non trouvée");
         }
 
-        List<Categorie> categories = promotion.getCategories();
-        if (categories == null) {
-            categories = new ArrayList<>();
-        }
-        categories.add(categorie);
-        promotion.setCategories(categories);
-
-        List<Bassin> bassins = bassinService.findByCategorie(categorie);
-        if (promotion.getBassins() == null) {
-            promotion.setBassins(bassins);
-        } else {
-            promotion.getBassins().addAll(bassins);
-        }
+        // Lien à la catégorie puis à chacun de ses bassins, en deux INSERT ... SELECT
+        promotionRepository.lierCategorie(idPromotion, idCategorie);
+        int ajoutes = promotionRepository.lierBassinsDeCategorie(idPromotion, idCategorie);
 
-        return promotionRepository.save(promotion);
+        catalogueIndexListener.planifierPromotion(idPromotion);
+        return new PromotionAppliquee(idPromotion, promotion.getNomPromotion(), idCategorie, ajoutes, 0, List.of());
     }
 
     @Override
@@ -148,42 +173,62 @@ public class PromotionServiceImpl implements PromotionService {
         existingPromotion.setDateDebut(promotionDTO.getDateDebut());
         existingPromotion.setDateFin(promotionDTO.getDateFin());
 
-        List<Bassin> bassins = promotionDTO.getBassins().stream()
-                .map(bassinService::getBassinById)
-                .collect(Collectors.toList());
-        existingPromotion.setBassins(bassins);
-
-        List<Categorie> categories = promotionDTO.getCategories().stream()
-                .map(categorieService::getCategorieById)
-                .collect(Collectors.toList());
-        existingPromotion.setCategories(categories);
+        existingPromotion.setBassins(resoudreBassins(promotionDTO.getBassins()));
+        existingPromotion.setCategories(resoudreCategories(promotionDTO.getCategories()));
 
         validatePromotion(existingPromotion);
         checkOverlappingPromotions(existingPromotion, id);
+        catalogueIndexListener.planifierPromotion(id);
         return promotionRepository.save(existingPromotion);
     }
 
+    // Bassins et catégories chargés par findAllById, dans l'ordre des ids reçus ; un id inconnu est refusé
+    private List<Bassin> resoudreBassins(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Bassin> trouves = bassinRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Bassin::getIdBassin, b -> b));
+        return ids.stream()
+                .map(id -> Optional.ofNullable(trouves.get(id))
+                        .orElseThrow(() -> new RuntimeException("Bassin non trouvé avec l'ID : " + id)))
+                .collect(Collectors.toList());
+    }
+
+    private List<Categorie> resoudreCategories(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Categorie> trouvees = categorieRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Categorie::getIdCategorie, c -> c));
+        return ids.stream()
+                .map(id -> Optional.ofNullable(trouvees.get(id))
+                        .orElseThrow(() -> new RuntimeException("Categorie introuvable !")))
+                .collect(Collectors.toList());
+    }
+
+    // Une requête pour tous les bassins, une pour toutes les catégories
     private void checkOverlappingPromotions(Promotion promotion, Long promotionId) {
         List<String> overlappingBassins = new ArrayList<>();
         List<String> overlappingCategories = new ArrayList<>();
 
         if (promotion.getBassins() != null && !promotion.getBassins().isEmpty()) {
+            Set<Long> enConflit = idsCibles(promotionRepository.findChevauchementsBassins(
+                    promotion.getBassins().stream().map(Bassin::getIdBassin).collect(Collectors.toSet()),
+                    promotion.getDateDebut(), promotion.getDateFin(), promotionId));
             for (Bassin bassin : promotion.getBassins()) {
-                List<Promotion> overlappingPromotions = promotionRepository.findOverlappingPromotionsForBassin(
-                        bassin.getIdBassin(), promotion.getDateDebut(), promotion.getDateFin(), promotionId);
-
-                if (!overlappingPromotions.isEmpty()) {
+                if (enConflit.contains(bassin.getIdBassin())) {
                     overlappingBassins.add(bassin.getNomBassin());
                 }
             }
         }
 
         if (promotion.getCategories() != null && !promotion.getCategories().isEmpty()) {
+            Set<Long> enConflit = idsCibles(promotionRepository.findChevauchementsCategories(
+                    promotion.getCategories().stream().map(Categorie::getIdCategorie).collect(Collectors.toSet()),
+                    promotion.getDateDebut(), promotion.getDateFin(), promotionId));
             for (Categorie categorie : promotion.getCategories()) {
-                List<Promotion> overlappingPromotions = promotionRepository.findOverlappingPromotionsForCategorie(
-                        categorie.getIdCategorie(), promotion.getDateDebut(), promotion.getDateFin(), promotionId);
-
-                if (!overlappingPromotions.isEmpty()) {
+                if (enConflit.contains(categorie.getIdCategorie())) {
                     overlappingCategories.add(categorie.getNomCategorie());
                 }
             }
@@ -206,13 +251,78 @@ public class PromotionServiceImpl implements PromotionService {
         }
     }
 
+    private static Set<Long> idsCibles(List<PromotionCible> cibles) {
+        return cibles.stream().map(PromotionCible::getIdCible).collect(Collectors.toSet());
+    }
+
+    @Override
+    public Map<String, List<Map<String, Object>>> verifierChevauchements(List<Long> bassinIds, List<Long> categorieIds,
+                                                                        Date dateDebut, Date dateFin, Long promotionId) {
+        Map<String, List<Map<String, Object>>> result = new HashMap<>();
+        List<Map<String, Object>> overlappingBassins = new ArrayList<>();
+        List<Map<String, Object>> overlappingCategories = new ArrayList<>();
+
+        if (bassinIds != null && !bassinIds.isEmpty()) {
+            Map<Long, List<PromotionCible>> conflits = parCible(
+                    promotionRepository.findChevauchementsBassins(bassinIds, dateDebut, dateFin, promotionId));
+            Map<Long, String> noms = conflits.isEmpty() ? Map.of()
+                    : bassinRepository.findAllById(conflits.keySet()).stream()
+                            .collect(Collectors.toMap(Bassin::getIdBassin, Bassin::getNomBassin));
+            for (Long bassinId : bassinIds) {
+                if (conflits.containsKey(bassinId)) {
+                    overlappingBassins.add(conflit(bassinId, noms.get(bassinId), conflits.get(bassinId)));
+                }
+            }
+        }
+
+        if (categorieIds != null && !categorieIds.isEmpty()) {
+            Map<Long, List<PromotionCible>> conflits = parCible(
+                    promotionRepository.findChevauchementsCategories(categorieIds, dateDebut, dateFin, promotionId));
+            Map<Long, String> noms = conflits.isEmpty() ? Map.of()
+                    : categorieRepository.findAllById(conflits.keySet()).stream()
+                            .collect(Collectors.toMap(Categorie::getIdCategorie, Categorie::getNomCategorie));
+            for (Long categorieId : categorieIds) {
+                if (conflits.containsKey(categorieId)) {
+                    overlappingCategories.add(conflit(categorieId, noms.get(categorieId), conflits.get(categorieId)));
+                }
+            }
+        }
+
+        result.put("bassins", overlappingBassins);
+        result.put("categories", overlappingCategories);
+        return result;
+    }
+
+    private static Map<Long, List<PromotionCible>> parCible(List<PromotionCible> cibles) {
+        return cibles.stream().collect(Collectors.groupingBy(PromotionCible::getIdCible));
+    }
+
+    private static Map<String, Object> conflit(Long id, String nom, List<PromotionCible> promotions) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("id", id);
+        info.put("nom", nom);
+        info.put("promotions", promotions.stream()
+                .map(p -> Map.of(
+                        "id", p.getIdPromotion(),
+                        "nom", p.getNomPromotion(),
+                        "dateDebut", p.getDateDebut(),
+                        "dateFin", p.getDateFin()
+                ))
+                .collect(Collectors.toList()));
+        return info;
+    }
+
  
     
     
     @Override
     public Promotion getActivePromotionForBassin(Long bassinId) {
-        Date now = new Date();
-        return promotionRepository.findActivePromotionForBassin(bassinId, now);
+        // Meilleure promotion en cours déjà résolue par le moteur de prix : aucune requête sans promotion
+        PrixEffectif prix = prixEffectifService.prix(bassinId);
+        if (prix == null || !prix.isPromotionActive()) {
+            return null;
+        }
+        return promotionRepository.findById(prix.getIdPromotion()).orElse(null);
     }
 
     @Override
@@ -229,4 +339,55 @@ public class PromotionServiceImpl implements PromotionService {
         Date now = new Date();
         return promotionRepository.findActivePromotionsForBassin(bassinId, now);
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchPage<BassinAvecPromotionsDTO> getBassinsAvecPromotions(boolean includePromotions, Integer page, Integer size) {
+        int pageSize = (size == null || size <= 0) ? catalogueDefaultPageSize : Math.min(size, catalogueMaxPageSize);
+        int numeroPage = (page == null || page < 0) ? 0 : page;
+        Page<Long> ids = bassinRepository.findIdsPage(PageRequest.of(numeroPage, pageSize));
+        return new SearchPage<>(avecPromotions(includePromotions, ids.getContent()), ids.getTotalElements(),
+                numeroPage, pageSize, ids.hasNext(), null);
+    }
+
+    @Override
+    public List<BassinAvecPromotionsDTO> getBassinsAvecPromotions(boolean includePromotions, List<Long> ids) {
+        if (ids.size() > catalogueMaxPageSize) {
+            throw new IllegalArgumentException("Au plus " + catalogueMaxPageSize + " bassins par requête");
+        }
+        return avecPromotions(includePromotions, ids.stream().distinct().collect(Collectors.toList()));
+    }
+
+    private List<BassinAvecPromotionsDTO> avecPromotions(boolean includePromotions, List<Long> ids) {
+        List<BassinCatalogueView> bassins = bassinService.getCatalogueViews(ids);
+
+        // Deux requêtes pour toute la page (liens directs, puis par catégorie), regroupées par bassin
+        Map<Long, Map<Long, PromotionCible>> parBassin = new HashMap<>();
+        if (includePromotions && !ids.isEmpty()) {
+            Date now = new Date();
+            List<PromotionCible> actives = new ArrayList<>(promotionRepository.findActivesParBassins(ids, now));
+            actives.addAll(promotionRepository.findActivesParCategoriesDesBassins(ids, now));
+            for (PromotionCible cible : actives) {
+                parBassin.computeIfAbsent(cible.getIdCible(), id -> new LinkedHashMap<>())
+                        .putIfAbsent(cible.getIdPromotion(), cible);
+            }
+        }
+
+        List<BassinAvecPromotionsDTO> items = new ArrayList<>();
+        for (BassinCatalogueView bassin : bassins) {
+            if (!includePromotions) {
+                items.add(new BassinAvecPromotionsDTO(bassin, null, null));
+                continue;
+            }
+            // La plus forte remise d'abord, puis la plus ancienne promotion (même choix que PrixEffectifService)
+            List<PromotionResume> promotions = parBassin.getOrDefault(bassin.getIdBassin(), Map.of()).values().stream()
+                    .sorted(Comparator.comparing(PromotionCible::getTauxReduction,
+                            Comparator.nullsFirst(Comparator.<Double>naturalOrder())).reversed()
+                            .thenComparing(PromotionCible::getIdPromotion))
+                    .map(PromotionResume::de)
+                    .collect(Collectors.toList());
+            items.add(new BassinAvecPromotionsDTO(bassin, promotions, promotions.isEmpty() ? null : promotions.get(0)));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.gestionbassins.service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.gestionbassins.dto.RapportJob;
+
+/**
+ * Rapports PDF générés en tâche de fond : une demande crée un job, rendu par le pool borné
+ * rapportExecutor dans un fichier de rapports.dossier, puis téléchargé une fois terminé. Les jobs
+ * sont tenus en mémoire et effacés (fichier compris) rapports.retention-minutes après leur fin ;
+ * les fichiers restés d'un précédent démarrage sont supprimés au lancement.
+ *
+ * Deux demandes identiques (même type, mêmes paramètres) tant que la première n'est pas finie
+ * partagent le même job : le rapport n'est rendu qu'une fois.
+ */
+@Service
+public class RapportJobService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(RapportJobService.class);
+
+    @Value("${rapports.dossier:${java.io.tmpdir}/aquatresor-rapports}")
+    private String dossier;
+
+    @Value("${rapports.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Autowired
+    private BassinService bassinService;
+
+    @Autowired
+    @Qualifier("rapportExecutor")
+    private TaskExecutor rapportExecutor;
+
+    private final Map<String, RapportJob> jobs = new ConcurrentHashMap<>();
+
+    // clé (type + paramètres) -> job en attente ou en cours
+    private final Map<String, RapportJob> enCours = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Path racine = Paths.get(dossier);
+        Files.createDirectories(racine);
+        int supprimes = 0;
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(racine, "rapport-*.pdf")) {
+            for (Path fichier : fichiers) {
+                if (Files.deleteIfExists(fichier)) {
+                    supprimes++;
+                }
+            }
+        }
+        if (supprimes > 0) {
+            logger.info("Rapports : {} fichier(s) d'un précédent démarrage supprimé(s)", supprimes);
+        }
+    }
+
+    public RapportJob soumettreGlobal(Date startDate, Date endDate) {
+        Map<String, Object> parametres = new LinkedHashMap<>();
+        parametres.put("startDate", startDate);
+        parametres.put("endDate", endDate);
+        return soumettre("global", parametres, "rapport-global-stock.pdf",
+                out -> bassinService.writeGlobalStockReport(startDate, endDate, out));
+    }
+
+    public RapportJob soumettreBassin(Long bassinId, Date startDate, Date endDate) {
+        Map<String, Object> parametres = new LinkedHashMap<>();
+        parametres.put("bassinId", bassinId);
+        parametres.put("startDate", startDate);
+        parametres.put("endDate", endDate);
+        return soumettre("bassin", parametres, "rapport-bassin-" + bassinId + ".pdf",
+                out -> bassinService.writeBassinStockReport(bassinId, startDate, endDate, out));
+    }
+
+    public RapportJob soumettreStock(Long categorieId, boolean showArchived) {
+        Map<String, Object> parametres = new LinkedHashMap<>();
+        parametres.put("categorieId", categorieId);
+        parametres.put("showArchived", showArchived);
+        return soumettre("stock", parametres, "rapport-stock.pdf",
+                out -> bassinService.writeStockReport(categorieId, showArchived, out));
+    }
+
+    public RapportJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * @return le job existant si une demande identique n'est pas encore finie, sinon un nouveau job
+     * @throws TaskRejectedException si la file des rapports est pleine
+     */
+    private RapportJob soumettre(String type, Map<String, Object> parametres, String nomFichier,
+                                 Consumer<OutputStream> rendu) {
+        RapportJob demande = new RapportJob(UUID.randomUUID().toString(), type, parametres, nomFichier);
+        RapportJob job = enCours.computeIfAbsent(demande.getCle(), cle -> {
+            jobs.put(demande.getId(), demande);
+            return demande;
+        });
+        if (job != demande) {
+            return job;
+        }
+        try {
+            rapportExecutor.execute(() -> generer(job, rendu));
+        } catch (TaskRejectedException e) {
+            enCours.remove(job.getCle(), job);
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    private void generer(RapportJob job, Consumer<OutputStream> rendu) {
+        job.demarrer();
+        Path fichier = null;
+        try {
+            Path racine = Files.createDirectories(Paths.get(dossier));
+            fichier = Files.createTempFile(racine, "rapport-", ".pdf");
+            try (OutputStream out = new CompteurOctets(new BufferedOutputStream(Files.newOutputStream(fichier)), job)) {
+                rendu.accept(out);
+            }
+            job.terminer(fichier);
+            logger.info("Rapport {} {} généré : {} octets", job.getType(), job.getId(), job.getOctetsEcrits());
+        } catch (IOException | RuntimeException e) {
+            supprimer(fichier);
+            job.echouer(e.getMessage());
+            logger.error("Échec du rapport {} {}", job.getType(), job.getId(), e);
+        } finally {
+            enCours.remove(job.getCle(), job);
+        }
+    }
+
+    /**
+     * Oublie les jobs finis depuis plus de rapports.retention-minutes et supprime leurs fichiers.
+     */
+    @Scheduled(fixedDelayString = "${rapports.nettoyage-ms:300000}")
+    public void nettoyer() {
+        long limite = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        int supprimes = 0;
+        for (RapportJob job : jobs.values()) {
+            if (job.isFini() && job.getDateFin().getTime() < limite && jobs.remove(job.getId(), job)) {
+                supprimer(job.getFichier());
+                supprimes++;
+            }
+        }
+        if (supprimes > 0) {
+            logger.info("Rapports : {} rapport(s) expiré(s) supprimé(s)", supprimes);
+        }
+    }
+
+    private void supprimer(Path fichier) {
+        if (fichier == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fichier);
+        } catch (IOException e) {
+            logger.warn("Impossible de supprimer le rapport {} : {}", fichier, e.getMessage());
+        }
+    }
+
+    // Compte les octets écrits dans le fichier : progression visible pendant le rendu
+    private static class CompteurOctets extends FilterOutputStream {
+        private final RapportJob job;
+
+        CompteurOctets(OutputStream out, RapportJob job) {
+            super(out);
+            this.job = job;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            job.progresser(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            job.progresser(len);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.gestionbassins.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import com.example.gestionbassins.projections.BassinIndexable;
+import com.example.gestionbassins.repos.BassinRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Recherche plein texte du catalogue : index inversé en mémoire sur le nom, la description,
+ * le matériau, la couleur et la catégorie des bassins, résultats classés par pertinence (BM25).
+ *
+ * L'index est chargé au démarrage puis tenu à jour bassin par bassin après chaque commit
+ * (CatalogueIndexListener). Une recherche ne parcourt que les listes des termes demandés :
+ * son coût suit le nombre de bassins trouvés, pas la taille du catalogue.
+ */
+@Service
+public class RechercheCatalogueService implements IndexCatalogue, ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(RechercheCatalogueService.class);
+
+    // Paramètres BM25 usuels
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Poids des champs : un terme du nom compte plus qu'un terme de la description
+    private static final float POIDS_NOM = 3f;
+    private static final float POIDS_CATEGORIE = 2f;
+    private static final float POIDS_MATERIAU = 2f;
+    private static final float POIDS_COULEUR = 2f;
+    private static final float POIDS_DESCRIPTION = 1f;
+
+    // Le dernier mot tapé est aussi cherché comme préfixe (saisie en cours), avec un poids moindre
+    private static final float POIDS_PREFIXE = 0.6f;
+    private static final int MAX_TERMES_PREFIXE = 64;
+
+    private static final Pattern SEPARATEURS = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    private static final Set<String> MOTS_VIDES = Set.of(
+            "le", "la", "les", "un", "une", "des", "du", "de", "et", "ou", "en", "au", "aux",
+            "pour", "avec", "sans", "sur", "dans", "par", "est", "qui", "que", "ce", "cette");
+
+    @Autowired
+    private BassinRepository bassinRepository;
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // terme -> (idBassin -> fréquence pondérée par champ) ; trié pour la recherche par préfixe
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private double longueurTotale;
+
+    private static final class Document {
+        private final BassinIndexable source;
+        private final Map<String, Float> termes;
+        private final float longueur;
+
+        private Document(BassinIndexable source, Map<String, Float> termes, float longueur) {
+            this.source = source;
+            this.termes = termes;
+            this.longueur = longueur;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Resultat {
+        private final List<Long> ids;
+        private final int total;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconstruire();
+    }
+
+    /**
+     * Recharge tout l'index depuis la base. Le verrou est pris avant la lecture : une modification
+     * commitée pendant le chargement est appliquée après, jamais écrasée par l'état plus ancien.
+     */
+    public void reconstruire() {
+        verrou.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            longueurTotale = 0;
+            List<BassinIndexable> bassins = bassinRepository.findIndexables();
+            bassins.forEach(this::ajouter);
+            logger.info("Index de recherche du catalogue : {} bassin(s), {} terme(s)", documents.size(), postings.size());
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void indexer(BassinIndexable bassin) {
+        verrou.writeLock().lock();
+        try {
+            enlever(bassin.getIdBassin());
+            ajouter(bassin);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void retirer(Long idBassin) {
+        verrou.writeLock().lock();
+        try {
+            enlever(idBassin);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void renommerCategorie(Long idCategorie, String nomCategorie) {
+        verrou.writeLock().lock();
+        try {
+            List<BassinIndexable> concernes = new ArrayList<>();
+            for (Document d : documents.values()) {
+                BassinIndexable s = d.source;
+                if (idCategorie.equals(s.getIdCategorie())) {
+                    concernes.add(s.avecCategorie(nomCategorie));
+                }
+            }
+            for (BassinIndexable b : concernes) {
+                enlever(b.getIdBassin());
+                ajouter(b);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bassins correspondant à tous les mots de la requête, du plus pertinent au moins pertinent.
+     * archive et idCategorie sont des filtres optionnels (null = pas de filtre).
+     */
+    public Resultat rechercher(String requete, Boolean archive, Long idCategorie, int debut, int taille) {
+        if (debut < 0) {
+            throw new IllegalArgumentException("Début de page négatif : " + debut);
+        }
+        List<String> jetons = analyser(requete);
+        if (jetons.isEmpty() || taille <= 0) {
+            return new Resultat(Collections.emptyList(), 0);
+        }
+        boolean saisieEnCours = requete != null && !requete.isEmpty()
+                && Character.isLetterOrDigit(requete.charAt(requete.length() - 1));
+
+        verrou.readLock().lock();
+        try {
+            int n = documents.size();
+            if (n == 0) {
+                return new Resultat(Collections.emptyList(), 0);
+            }
+            double longueurMoyenne = longueurTotale / n;
+
+            // Termes candidats de chaque mot, en commençant par le plus sélectif
+            List<Map<String, Float>> expansions = new ArrayList<>();
+            for (int i = 0; i < jetons.size(); i++) {
+                boolean prefixe = saisieEnCours && i == jetons.size() - 1;
+                Map<String, Float> termes = expansions(jetons.get(i), prefixe);
+                if (termes.isEmpty()) {
+                    return new Resultat(Collections.emptyList(), 0);
+                }
+                expansions.add(termes);
+            }
+            expansions.sort(Comparator.comparingInt(this::volume));
+
+            Map<Long, Float> scores = null;
+            for (Map<String, Float> termes : expansions) {
+                Map<Long, Float> scoresMot = new HashMap<>();
+                for (Map.Entry<String, Float> terme : termes.entrySet()) {
+                    Map<Long, Float> liste = postings.get(terme.getKey());
+                    double idf = Math.log(1 + (n - liste.size() + 0.5) / (liste.size() + 0.5));
+                    for (Map.Entry<Long, Float> posting : liste.entrySet()) {
+                        Long id = posting.getKey();
+                        if (scores != null && !scores.containsKey(id)) {
+                            continue;
+                        }
+                        float tf = posting.getValue();
+                        double norme = 1 - B + B * documents.get(id).longueur / longueurMoyenne;
+                        float score = (float) (terme.getValue() * idf * tf * (K1 + 1) / (tf + K1 * norme));
+                        // Plusieurs termes pour un même mot (préfixe) : on garde le meilleur
+                        scoresMot.merge(id, score, Math::max);
+                    }
+                }
+                if (scores != null) {
+                    final Map<Long, Float> precedents = scores;
+                    scoresMot.replaceAll((id, s) -> s + precedents.get(id));
+                }
+                scores = scoresMot;
+                if (scores.isEmpty()) {
+                    return new Resultat(Collections.emptyList(), 0);
+                }
+            }
+
+            // Tas borné : seuls les debut + taille meilleurs sont triés
+            Comparator<Map.Entry<Long, Float>> pertinence = Map.Entry.<Long, Float>comparingByValue()
+                    .reversed().thenComparing(Map.Entry.comparingByKey());
+            PriorityQueue<Map.Entry<Long, Float>> meilleurs = new PriorityQueue<>(pertinence.reversed());
+            // Sans débordement ; une page au-delà des résultats ne fait que les compter
+            long limite = (long) debut + taille;
+            boolean pageVide = debut >= scores.size();
+            int total = 0;
+            for (Map.Entry<Long, Float> e : scores.entrySet()) {
+                BassinIndexable source = documents.get(e.getKey()).source;
+                if ((archive != null && source.isArchive() != archive)
+                        || (idCategorie != null && !idCategorie.equals(source.getIdCategorie()))) {
+                    continue;
+                }
+                total++;
+                if (pageVide) {
+                    continue;
+                }
+                meilleurs.offer(e);
+                if (meilleurs.size() > limite) {
+                    meilleurs.poll();
+                }
+            }
+            List<Map.Entry<Long, Float>> tries = new ArrayList<>(meilleurs);
+            tries.sort(pertinence);
+            List<Long> ids = new ArrayList<>();
+            for (int i = debut; i < tries.size(); i++) {
+                ids.add(tries.get(i).getKey());
+            }
+            return new Resultat(ids, total);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Découpe un texte en termes d'index : minuscules, sans accents, mots vides retirés,
+     * pluriel simple ramené au singulier (bassins -> bassin, carrés -> carre).
+     */
+    public static List<String> analyser(String texte) {
+        List<String> termes = new ArrayList<>();
+        if (texte == null || texte.isBlank()) {
+            return termes;
+        }
+        String normalise = DIACRITIQUES.matcher(Normalizer.normalize(texte, Normalizer.Form.NFD))
+                .replaceAll("").toLowerCase(Locale.ROOT);
+        for (String mot : SEPARATEURS.split(normalise)) {
+            if (mot.isEmpty() || MOTS_VIDES.contains(mot)
+                    || (mot.length() < 2 && !Character.isDigit(mot.charAt(0)))) {
+                continue;
+            }
+            termes.add(singulier(mot));
+        }
+        return termes;
+    }
+
+    private static String singulier(String mot) {
+        if (mot.length() > 3 && (mot.endsWith("s") || mot.endsWith("x")) && !mot.endsWith("ss")
+                && !Character.isDigit(mot.charAt(0))) {
+            return mot.substring(0, mot.length() - 1);
+        }
+        return mot;
+    }
+
+    private Map<String, Float> expansions(String jeton, boolean prefixe) {
+        Map<String, Float> termes = new HashMap<>();
+        if (postings.containsKey(jeton)) {
+            termes.put(jeton, 1f);
+        }
+        if (prefixe) {
+            for (String terme : postings.subMap(jeton, false, jeton + Character.MAX_VALUE, false).keySet()) {
+                if (termes.size() >= MAX_TERMES_PREFIXE) {
+                    break;
+                }
+                termes.put(terme, POIDS_PREFIXE);
+            }
+        }
+        return termes;
+    }
+
+    private int volume(Map<String, Float> termes) {
+        int total = 0;
+        for (String terme : termes.keySet()) {
+            total += postings.get(terme).size();
+        }
+        return total;
+    }
+
+    private void ajouter(BassinIndexable bassin) {
+        Map<String, Float> termes = new HashMap<>();
+        ponderer(termes, bassin.getNomBassin(), POIDS_NOM);
+        ponderer(termes, bassin.getNomCategorie(), POIDS_CATEGORIE);
+        ponderer(termes, bassin.getMateriau(), POIDS_MATERIAU);
+        ponderer(termes, bassin.getCouleur(), POIDS_COULEUR);
+        ponderer(termes, bassin.getDescription(), POIDS_DESCRIPTION);
+
+        float longueur = 0;
+        for (Map.Entry<String, Float> terme : termes.entrySet()) {
+            postings.computeIfAbsent(terme.getKey(), t -> new HashMap<>()).put(bassin.getIdBassin(), terme.getValue());
+            longueur += terme.getValue();
+        }
+        documents.put(bassin.getIdBassin(), new Document(bassin, termes, longueur));
+        longueurTotale += longueur;
+    }
+
+    private void enlever(Long idBassin) {
+        Document ancien = documents.remove(idBassin);
+        if (ancien == null) {
+            return;
+        }
+        for (String terme : ancien.termes.keySet()) {
+            Map<Long, Float> liste = postings.get(terme);
+            if (liste != null) {
+                liste.remove(idBassin);
+                if (liste.isEmpty()) {
+                    postings.remove(terme);
+                }
+            }
+        }
+        longueurTotale -= ancien.longueur;
+    }
+
+    private static void ponderer(Map<String, Float> termes, String texte, float poids) {
+        for (String terme : analyser(texte)) {
+            termes.merge(terme, poids, Float::sum);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.gestionbassins.service;
+
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Exécute une écriture d'entité (lecture, modification, save) dans sa propre transaction et la rejoue
+ * depuis la lecture quand le verrouillage optimiste la refuse : un mouvement de stock ou une autre
+ * écriture est passé entre-temps. Dans une transaction déjà ouverte, l'écriture est exécutée une seule
+ * fois, la rejouer ne relirait pas des données plus fraîches.
+ */
+@Component
+public class ReessaiOptimiste {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReessaiOptimiste.class);
+
+    @Value("${bassins.ecriture.tentatives:3}")
+    private int tentatives;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public <T> T executer(Supplier<T> ecriture) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return ecriture.get();
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return transaction.execute(status -> ecriture.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (tentative >= tentatives) {
+                    throw e;
+                }
+                logger.debug("Écriture concurrente, tentative {} sur {}", tentative + 1, tentatives);
+            }
+        }
+    }
+}
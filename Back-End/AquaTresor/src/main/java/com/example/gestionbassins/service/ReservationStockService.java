@@ -0,0 +1,262 @@
+package com.example.gestionbassins.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.gestionbassins.entities.ReservationStock;
+import com.example.gestionbassins.exceptions.InsufficientStockException;
+import com.example.gestionbassins.repos.BassinRepository;
+import com.example.gestionbassins.repos.ReservationStockRepository;
+
+/**
+ * Réservations de stock des paniers (orders-microservice) : un article mis au panier retient sa
+ * quantité pendant panier.expiration.hours, prolongée à chaque activité du panier. Le stock
+ * disponible d'un bassin est son stock moins ses réservations.
+ *
+ * Les quantités réservées sont tenues en mémoire par bassin (compteur atomique) : la vérification
+ * d'une réservation est un compare-and-set sur ce compteur, sans verrou ni somme en base. Le compteur
+ * vaut toujours la somme des lignes du registre (y compris les expirées pas encore balayées) ; il est
+ * rechargé au démarrage. Un panier a au plus une ligne par bassin (uk_reservation_panier_bassin).
+ * Le balayage et la libération d'un panier ne suppriment les lignes que si elles n'ont pas changé
+ * depuis leur lecture, et seul celui qui les supprime rend leur quantité : le balayage, une
+ * libération et une prolongation concurrentes ne comptent jamais une réservation deux fois.
+ */
+@Service
+public class ReservationStockService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationStockService.class);
+
+    @Value("${panier.expiration.hours:2}")
+    private long dureeHeures;
+
+    @Autowired
+    private ReservationStockRepository reservationStockRepository;
+
+    @Autowired
+    private BassinRepository bassinRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // bassin -> quantité réservée par les lignes du registre
+    private final Map<Long, AtomicInteger> reservees = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconstruire();
+    }
+
+    public void reconstruire() {
+        Map<Long, Integer> totaux = new HashMap<>();
+        reservationStockRepository.findAll()
+                .forEach(r -> totaux.merge(r.getIdBassin(), r.getQuantite(), Integer::sum));
+        reservees.clear();
+        totaux.forEach((idBassin, quantite) -> reservees.put(idBassin, new AtomicInteger(quantite)));
+        logger.info("Réservations de stock : {} bassin(s) réservé(s)", totaux.size());
+    }
+
+    public int reservees(Long idBassin) {
+        AtomicInteger compteur = reservees.get(idBassin);
+        return compteur == null ? 0 : compteur.get();
+    }
+
+    /**
+     * @return stock moins réservations, null si le bassin n'existe pas
+     */
+    public Integer disponible(Long idBassin) {
+        Integer stock = bassinRepository.findStock(idBassin);
+        return stock == null ? null : stock - reservees(idBassin);
+    }
+
+    /**
+     * Fixe les réservations du panier aux quantités données (bassin absent ou à 0 : réservation libérée)
+     * et les prolonge toutes. Tout ou rien : si un bassin n'a pas assez de stock disponible,
+     * aucune réservation du panier ne change.
+     *
+     * Chaque ligne est relue sous verrou (au plus une par panier et bassin) et modifiée par son id : la
+     * variation du compteur part de la quantité réellement en base, même si une prolongation, le
+     * balayage ou un appel concurrent pour le même panier l'a changée depuis.
+     *
+     * @return les réservations du panier
+     * @throws InsufficientStockException avec le stock disponible du premier bassin refusé
+     */
+    public List<ReservationStock> reserverPanier(String panier, Map<Long, Integer> quantites) {
+        Timestamp expiration = new Timestamp(echeance(new Date()).getTime());
+        // Ordre des bassins : deux appels concurrents verrouillent les lignes dans le même ordre
+        Map<Long, Integer> voulues = new TreeMap<>();
+        reservationStockRepository.findByPanier(panier).forEach(r -> voulues.put(r.getIdBassin(), 0));
+        quantites.forEach((idBassin, q) -> voulues.put(idBassin, q == null ? 0 : Math.max(q, 0)));
+
+        // Hausses appliquées au compteur pendant la transaction (défaites si elle échoue),
+        // baisses rendues une fois les lignes validées
+        Map<Long, Integer> prises = new HashMap<>();
+        Map<Long, Integer> rendues = new HashMap<>();
+        List<ReservationStock> resultat;
+        try {
+            resultat = new TransactionTemplate(transactionManager).execute(status -> {
+                voulues.forEach((idBassin, voulu) -> {
+                    long[] ligne = lireVerrouillee(panier, idBassin);
+                    if (ligne == null && voulu > 0) {
+                        prendre(idBassin, voulu);
+                        prises.put(idBassin, voulu);
+                        if (jdbcTemplate.update("insert into reservation_stock (panier, id_bassin, quantite, expiration) "
+                                + "values (?, ?, ?, ?) on conflict (panier, id_bassin) do nothing",
+                                panier, idBassin, voulu, expiration) > 0) {
+                            return;
+                        }
+                        // Insérée entre-temps par un appel concurrent : relue ci-dessous
+                        rendre(idBassin, prises.remove(idBassin));
+                        ligne = lireVerrouillee(panier, idBassin);
+                    }
+                    if (ligne == null) {
+                        return;
+                    }
+                    int delta = voulu - (int) ligne[1];
+                    if (delta > 0) {
+                        prendre(idBassin, delta);
+                        prises.put(idBassin, delta);
+                    } else if (delta < 0) {
+                        rendues.put(idBassin, -delta);
+                    }
+                    if (voulu == 0) {
+                        jdbcTemplate.update("delete from reservation_stock where id_reservation = ?", ligne[0]);
+                    } else {
+                        jdbcTemplate.update("update reservation_stock set quantite = ?, expiration = ? "
+                                + "where id_reservation = ?", voulu, expiration, ligne[0]);
+                    }
+                });
+                return reservationStockRepository.findByPanier(panier);
+            });
+        } catch (RuntimeException e) {
+            prises.forEach(this::rendre);
+            throw e;
+        }
+        rendues.forEach(this::rendre);
+        return resultat;
+    }
+
+    // Ligne du panier pour ce bassin, verrouillée jusqu'à la fin de la transaction : {id, quantité}
+    private long[] lireVerrouillee(String panier, Long idBassin) {
+        return jdbcTemplate.query("select id_reservation, quantite from reservation_stock "
+                + "where panier = ? and id_bassin = ? for update",
+                rs -> rs.next() ? new long[] { rs.getLong(1), rs.getInt(2) } : null, panier, idBassin);
+    }
+
+    /**
+     * Repousse l'expiration des réservations encore actives du panier.
+     *
+     * @return le nombre de réservations prolongées
+     */
+    @Transactional
+    public int prolonger(String panier) {
+        Date maintenant = new Date();
+        return reservationStockRepository.prolonger(panier, echeance(maintenant), maintenant);
+    }
+
+    /**
+     * Supprime toutes les réservations du panier (commande passée, panier vidé ou expiré).
+     *
+     * @return le nombre de réservations libérées
+     */
+    public int libererPanier(String panier) {
+        List<ReservationStock> lignes = reservationStockRepository.findByPanier(panier);
+        return rendreSupprimees(lignes, supprimer(lignes));
+    }
+
+    /**
+     * Libère les réservations expirées, par lots dans l'ordre d'expiration.
+     */
+    @Scheduled(fixedDelayString = "${stock.reservations.balayage-ms:30000}")
+    public void balayer() {
+        Date maintenant = new Date();
+        int total = 0;
+        List<ReservationStock> expirees;
+        do {
+            expirees = reservationStockRepository.findTop500ByExpirationLessThanEqualOrderByExpirationAsc(maintenant);
+            total += rendreSupprimees(expirees, supprimer(expirees));
+        } while (expirees.size() == 500);
+        if (total > 0) {
+            logger.info("Réservations de stock : {} réservation(s) expirée(s) libérée(s)", total);
+        }
+    }
+
+    private Date echeance(Date maintenant) {
+        return new Date(maintenant.getTime() + TimeUnit.HOURS.toMillis(dureeHeures));
+    }
+
+    private AtomicInteger compteur(Long idBassin) {
+        return reservees.computeIfAbsent(idBassin, id -> new AtomicInteger());
+    }
+
+    // Réserve delta unités si stock - réservées le permet
+    private void prendre(Long idBassin, int delta) {
+        Integer stock = bassinRepository.findStock(idBassin);
+        if (stock == null) {
+            throw new RuntimeException("Bassin non trouvé avec l'ID : " + idBassin);
+        }
+        AtomicInteger compteur = compteur(idBassin);
+        int avant;
+        do {
+            avant = compteur.get();
+            if (stock - avant < delta) {
+                int disponible = Math.max(stock - avant, 0);
+                throw new InsufficientStockException("Stock insuffisant pour le bassin " + idBassin
+                        + ". Disponible: " + disponible, disponible);
+            }
+        } while (!compteur.compareAndSet(avant, avant + delta));
+    }
+
+    private void rendre(Long idBassin, int quantite) {
+        compteur(idBassin).addAndGet(-quantite);
+    }
+
+    // Suppression conditionnelle (ligne inchangée depuis sa lecture), en un seul lot
+    private int[] supprimer(List<ReservationStock> lignes) {
+        if (lignes.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> valeurs = new ArrayList<>();
+        for (ReservationStock r : lignes) {
+            valeurs.add(new Object[] { r.getIdReservation(), r.getQuantite(),
+                    new Timestamp(r.getExpiration().getTime()) });
+        }
+        return jdbcTemplate.batchUpdate("delete from reservation_stock where id_reservation = ? "
+                + "and quantite = ? and expiration = ?", valeurs);
+    }
+
+    // Rend la quantité des seules lignes effectivement supprimées
+    private int rendreSupprimees(List<ReservationStock> lignes, int[] suppressions) {
+        int rendues = 0;
+        for (int i = 0; i < suppressions.length; i++) {
+            if (suppressions[i] > 0) {
+                rendre(lignes.get(i).getIdBassin(), lignes.get(i).getQuantite());
+                rendues++;
+            }
+        }
+        return rendues;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.gestionbassins.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.gestionbassins.entities.SequenceImageBassin;
+import com.example.gestionbassins.repos.ImageBassinRepository;
+import com.example.gestionbassins.repos.SequenceImageBassinRepository;
+
+/**
+ * Attribution des numéros d'image par bassin (7_1.jpg, 7_2.jpg…).
+ * Un seul UPDATE indexé par upload au lieu d'analyser tous les noms d'images du bassin.
+ */
+@Service
+public class SequenceImageBassinService {
+
+    @Autowired
+    private SequenceImageBassinRepository sequenceRepository;
+
+    @Autowired
+    private ImageBassinRepository imageBassinRepository;
+
+    private TransactionTemplate nouvelleTransaction;
+
+    @Autowired
+    void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Réserve {@code nombre} numéros consécutifs pour le bassin et renvoie le premier.
+     */
+    @Transactional
+    public int reserver(Long idBassin, int nombre) {
+        if (nombre < 1) {
+            throw new IllegalArgumentException("Le nombre de numéros à réserver doit être positif.");
+        }
+        if (sequenceRepository.avancer(idBassin, nombre) == 0) {
+            initialiser(idBassin);
+            sequenceRepository.avancer(idBassin, nombre);
+        }
+        return sequenceRepository.findDernierNumero(idBassin) - nombre + 1;
+    }
+
+    // Premier upload depuis la mise en place du compteur : reprise des numéros déjà utilisés
+    private void initialiser(Long idBassin) {
+        Integer dernier = imageBassinRepository.findLastImageIdByBassin(idBassin);
+        try {
+            nouvelleTransaction.executeWithoutResult(status -> sequenceRepository.saveAndFlush(
+                    new SequenceImageBassin(idBassin, dernier == null ? 0 : dernier)));
+        } catch (DataIntegrityViolationException e) {
+            // Compteur créé au même moment par un autre upload : il suffit de l'avancer
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.gestionbassins.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service des fichiers statiques (images) depuis le disque.
+ *
+ * Le fichier n'est jamais chargé en mémoire : on renvoie une FileSystemResource
+ * que Spring MVC recopie par blocs vers la réponse. Le même ResponseEntity
+ * donne gratuitement :
+ *  - 304 Not Modified si If-None-Match / If-Modified-Since correspondent (GET/HEAD),
+ *  - 206 Partial Content sur un en-tête Range (ResourceRegion).
+ * Les noms sont résolus par FileStorageService (clé du stockage ou ancien nom), dans le dossier
+ * historique des images de bassins ou dans celui des accessoires selon la route.
+ */
+@Service
+public class StaticAssetService {
+
+    // Nom dont le radical contient une empreinte hexadécimale (clés du FileStorageService, ex. 3fa2…9c.jpg,
+    // et leurs déclinaisons card_3fa2…9c.jpg) : le contenu ne change jamais pour ce nom, cache illimité.
+    private static final Pattern NOM_HACHE = Pattern.compile("(?:^|[._-])([0-9a-fA-F]{16,64})\\.[A-Za-z0-9]+$");
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Value("${assets.cache.max-age-seconds:3600}")
+    private long maxAgeSeconds;
+
+    public ResponseEntity<Resource> servirImage(String nomFichier, String size) {
+        return servir(nomFichier, size, fileStorageService::localiserImage);
+    }
+
+    public ResponseEntity<Resource> servirAccessoire(String nomFichier, String size) {
+        return servir(nomFichier, size, fileStorageService::localiserAccessoire);
+    }
+
+    /**
+     * Sélection de taille optionnelle (?size=thumbnail|card|detail). Si la déclinaison
+     * n'est pas encore générée, l'original est renvoyé sans cache (no-cache) et la
+     * génération est replanifiée ; si elle a échoué, l'original est renvoyé normalement.
+     */
+    private ResponseEntity<Resource> servir(String nomFichier, String size, Function<String, Path> localisation) {
+        ImageRenditionService.Taille taille = null;
+        if (size != null && !size.isBlank()) {
+            try {
+                taille = ImageRenditionService.Taille.from(size);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        Path original = localisation.apply(nomFichier);
+        if (original == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (taille == null) {
+            return reponse(original, null);
+        }
+        Path rendition = imageRenditionService.cheminRendition(original, taille);
+        if (Files.isRegularFile(rendition)) {
+            return reponse(rendition, null);
+        }
+        // Génération déjà en échec pour ce contenu : l'original est la réponse définitive
+        if (imageRenditionService.enEchec(original)) {
+            return reponse(original, null);
+        }
+        imageRenditionService.planifier(original);
+        return reponse(original, CacheControl.noCache());
+    }
+
+    private ResponseEntity<Resource> reponse(Path fichier, CacheControl cacheForce) {
+        try {
+            long taille = Files.size(fichier);
+            long derniereModif = Files.getLastModifiedTime(fichier).toMillis();
+            String nom = fichier.getFileName().toString();
+            boolean immuable = NOM_HACHE.matcher(nom).find();
+
+            // Nom haché : le radical suffit comme ETag (il distingue aussi les déclinaisons thumbnail_…, card_…)
+            String etag = immuable
+                    ? "\"" + nom.substring(0, nom.lastIndexOf('.')).toLowerCase() + "\""
+                    : "\"" + Long.toHexString(taille) + "-" + Long.toHexString(derniereModif) + "\"";
+            CacheControl cacheControl = cacheForce != null ? cacheForce
+                    : immuable
+                    ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                    : CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+
+            return ResponseEntity.ok()
+                    .contentType(MediaTypeFactory.getMediaType(nom).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                    .eTag(etag)
+                    .lastModified(derniereModif)
+                    .cacheControl(cacheControl)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(new FileSystemResource(fichier));
+        } catch (IOException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
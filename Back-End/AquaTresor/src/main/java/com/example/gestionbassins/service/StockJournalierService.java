@@ -0,0 +1,167 @@
+package com.example.gestionbassins.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.gestionbassins.entities.StockJournalier;
+import com.example.gestionbassins.projections.BilanStock;
+import com.example.gestionbassins.repos.StockJournalierRepository;
+import com.example.gestionbassins.repos.TransactionRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Cumuls journaliers des transactions de stock (stock_journalier) : entrées, sorties et variation nette
+ * par bassin, par utilisateur et par jour. Chaque écriture de Transaction y ajoute son mouvement dans
+ * la même transaction (upsert PostgreSQL) ; l'historique complet n'est relu que par la reconstruction,
+ * au premier démarrage puis chaque nuit pour rattraper d'éventuelles corrections faites en base.
+ * Le jour d'un mouvement est sa date locale (fuseau du serveur), comme dans les rapports.
+ */
+@Service
+public class StockJournalierService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockJournalierService.class);
+
+    private static final String CUMULER = "insert into stock_journalier (jour, bassin_id, user_id, nb_transactions, "
+            + "nb_entrees, nb_sorties, quantite_entrees, quantite_sorties) values (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "on conflict (jour, bassin_id, user_id) do update set "
+            + "nb_transactions = stock_journalier.nb_transactions + excluded.nb_transactions, "
+            + "nb_entrees = stock_journalier.nb_entrees + excluded.nb_entrees, "
+            + "nb_sorties = stock_journalier.nb_sorties + excluded.nb_sorties, "
+            + "quantite_entrees = stock_journalier.quantite_entrees + excluded.quantite_entrees, "
+            + "quantite_sorties = stock_journalier.quantite_sorties + excluded.quantite_sorties";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockJournalierRepository stockJournalierRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Mouvement {
+        private final Long bassinId;
+        private final Long userId;
+        private final Date date;
+        private final int quantite;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (stockJournalierRepository.count() == 0 && transactionRepository.count() > 0) {
+            reconstruire();
+        }
+    }
+
+    /**
+     * Ajoute des mouvements aux cumuls, dans la transaction de l'appelant (celle qui écrit les
+     * Transaction) : un upsert par jour, bassin et utilisateur, envoyés en un batch.
+     */
+    @Transactional
+    public void cumuler(List<Mouvement> mouvements) {
+        Map<List<Object>, int[]> cumuls = new LinkedHashMap<>();
+        for (Mouvement m : mouvements) {
+            List<Object> cle = List.of(jour(m.getDate()), m.getBassinId(),
+                    m.getUserId() != null ? m.getUserId() : StockJournalier.SYSTEME);
+            int[] c = cumuls.computeIfAbsent(cle, k -> new int[5]);
+            c[0]++;
+            if (m.getQuantite() > 0) {
+                c[1]++;
+                c[3] += m.getQuantite();
+            } else if (m.getQuantite() < 0) {
+                c[2]++;
+                c[4] += m.getQuantite();
+            }
+        }
+        // Ordre fixe des lignes verrouillées : deux lots concurrents ne s'interbloquent pas
+        List<Object[]> valeurs = new ArrayList<>();
+        cumuls.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<List<Object>, int[]> e) -> (java.sql.Date) e.getKey().get(0))
+                        .thenComparing(e -> (Long) e.getKey().get(1))
+                        .thenComparing(e -> (Long) e.getKey().get(2)))
+                .forEach(e -> valeurs.add(new Object[] { e.getKey().get(0), e.getKey().get(1), e.getKey().get(2),
+                        e.getValue()[0], e.getValue()[1], e.getValue()[2], e.getValue()[3], e.getValue()[4] }));
+        jdbcTemplate.batchUpdate(CUMULER, valeurs);
+    }
+
+    /**
+     * Recalcule tous les cumuls depuis l'historique des transactions, en une requête.
+     *
+     * La table est d'abord verrouillée contre les écritures : le verrou attend la fin des transactions
+     * dont les cumuls sont en cours (leurs mouvements sont alors validés et relus par la requête), et
+     * les cumuls suivants attendent la fin de la reconstruction pour s'ajouter à son résultat au lieu
+     * d'entrer en conflit avec ses lignes (uk_stock_journalier). Verrou, suppression et insertion sont
+     * dans une même transaction ouverte ici : run() appelle cette méthode sans passer par le proxy.
+     *
+     * @return le nombre de cumuls journaliers
+     */
+    @Scheduled(cron = "${stock.journalier.reconstruction-cron:0 30 3 * * *}")
+    public int reconstruire() {
+        int cumuls = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("lock table stock_journalier in share row exclusive mode");
+            jdbcTemplate.update("delete from stock_journalier");
+            return jdbcTemplate.update("insert into stock_journalier (jour, bassin_id, user_id, nb_transactions, "
+                    + "nb_entrees, nb_sorties, quantite_entrees, quantite_sorties) "
+                    + "select cast(date_transaction as date), bassin_id, coalesce(user_id, 0), count(*), "
+                    + "sum(case when quantite > 0 then 1 else 0 end), sum(case when quantite < 0 then 1 else 0 end), "
+                    + "sum(case when quantite > 0 then quantite else 0 end), sum(case when quantite < 0 then quantite else 0 end) "
+                    + "from transaction where bassin_id is not null and date_transaction is not null "
+                    + "group by cast(date_transaction as date), bassin_id, coalesce(user_id, 0)");
+        });
+        logger.info("Cumuls journaliers de stock reconstruits : {} ligne(s)", cumuls);
+        return cumuls;
+    }
+
+    /**
+     * Bilan d'une période en jours entiers : du jour de startDate (sinon depuis toujours) au jour de
+     * endDate inclus (sinon aujourd'hui).
+     */
+    public BilanStock bilan(Date startDate, Date endDate) {
+        return stockJournalierRepository.findBilan(debut(startDate), fin(endDate));
+    }
+
+    public List<BilanStock> bilansParUtilisateur(Date startDate, Date endDate) {
+        return stockJournalierRepository.findBilansParUtilisateur(debut(startDate), fin(endDate));
+    }
+
+    public List<BilanStock> bilansParJour(Date startDate, Date endDate, Long bassinId) {
+        return stockJournalierRepository.findBilansParJour(debut(startDate), fin(endDate), bassinId);
+    }
+
+    private static Date debut(Date startDate) {
+        return startDate != null ? jour(startDate) : java.sql.Date.valueOf(LocalDate.of(1970, 1, 1));
+    }
+
+    private static Date fin(Date endDate) {
+        return jour(endDate != null ? endDate : new Date());
+    }
+
+    private static java.sql.Date jour(Date date) {
+        return java.sql.Date.valueOf(LocalDate.ofInstant(new Date(date.getTime()).toInstant(), ZoneId.systemDefault()));
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.gestionbassins.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.gestionbassins.dto.ResultatMouvementStock;
+import com.example.gestionbassins.dto.TransactionDTO;
+import com.example.gestionbassins.entities.Bassin;
+import com.example.gestionbassins.entities.Notification;
+import com.example.gestionbassins.exceptions.InsufficientStockException;
+import com.example.gestionbassins.exceptions.StockConflictException;
+import com.example.gestionbassins.repos.BassinRepository;
+import com.example.gestionbassins.repos.NotificationRepository;
+
+/**
+ * Mouvements de stock des bassins, chacun en un UPDATE conditionnel (stock + delta >= 0) : pas de
+ * lecture préalable, donc ni mise à jour perdue ni stock négatif quand commandes et ajustements
+ * d'administration arrivent en même temps. La ligne n'est verrouillée que le temps de l'instruction
+ * et de la fin de la transaction appelante.
+ *
+ * Chaque mouvement incrémente la version du bassin. Les écritures d'entité (édition d'une fiche,
+ * changement de statut) ne touchent pas au stock, sauf une saisie explicite acceptée par
+ * reporterSaisie seulement si le client a lu la version courante.
+ */
+@Service
+public class StockService {
+
+    @Autowired
+    private BassinRepository bassinRepository;
+
+    @Autowired
+    private CatalogueIndexListener catalogueIndexListener;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockJournalierService stockJournalierService;
+
+    /**
+     * @return le nouveau stock
+     * @throws InsufficientStockException si le stock deviendrait négatif
+     */
+    @Transactional
+    public int ajuster(Long idBassin, int delta) {
+        verifier(bassinRepository.ajusterStock(idBassin, delta), idBassin, delta);
+        return bassinRepository.findStock(idBassin);
+    }
+
+    /**
+     * Comme ajuster, et le statut suit le nouveau stock : SUR_COMMANDE à 0, DISPONIBLE sinon.
+     */
+    @Transactional
+    public int ajusterAvecStatut(Long idBassin, int delta) {
+        verifier(bassinRepository.ajusterStockEtStatut(idBassin, delta), idBassin, delta);
+        // Le statut fait partie des index du catalogue
+        catalogueIndexListener.planifierBassin(idBassin);
+        return bassinRepository.findStock(idBassin);
+    }
+
+    /**
+     * Fixe le stock en une instruction (désarchivage avec une nouvelle quantité).
+     */
+    @Transactional
+    public void definir(Long idBassin, int stock) {
+        if (stock < 0) {
+            throw new IllegalArgumentException("Le stock ne peut pas être négatif : " + stock);
+        }
+        if (bassinRepository.definirStock(idBassin, stock) == 0) {
+            throw new RuntimeException("Bassin non trouvé avec l'ID : " + idBassin);
+        }
+    }
+
+    /**
+     * Stock saisi sur une fiche bassin, reporté sur l'entité existante seulement si le client a lu la
+     * version courante : le save de l'entité vérifie ensuite cette même version, donc aucun mouvement
+     * intervenu entre-temps n'est écrasé. Rejoué par ReessaiOptimiste après un mouvement concurrent,
+     * l'appel relit une version plus récente et refuse la saisie.
+     *
+     * @throws StockConflictException si le stock saisi diffère du stock courant et que le client a lu
+     *                                une version périmée
+     */
+    public void reporterSaisie(Bassin existant, Bassin saisi) {
+        if (saisi.getStock() == existant.getStock()) {
+            return;
+        }
+        if (saisi.getVersion() != existant.getVersion()) {
+            throw new StockConflictException("Le stock du bassin a changé depuis sa lecture (stock actuel : "
+                    + existant.getStock() + "), rechargez le bassin", existant.getStock());
+        }
+        existant.setStock(saisi.getStock());
+    }
+
+    /**
+     * Lot de mouvements (livraison fournisseur, inventaire…) en une transaction : les UPDATE
+     * conditionnels partent en un seul batch JDBC, dans l'ordre des lignes (plusieurs lignes d'un même
+     * bassin s'enchaînent), puis les lignes de Transaction des mouvements appliqués en un second batch.
+     * Une ligne refusée (bassin inconnu, stock insuffisant) n'empêche pas les autres.
+     *
+     * @param utilisateurs nom d'utilisateur -> id, résolus par l'appelant
+     * @return un résultat par ligne, dans l'ordre
+     */
+    @Transactional
+    public List<ResultatMouvementStock> ajusterLot(List<TransactionDTO> lignes, Map<String, Long> utilisateurs) {
+        List<Object[]> mouvements = new ArrayList<>();
+        for (TransactionDTO ligne : lignes) {
+            mouvements.add(new Object[] { ligne.getQuantite(), ligne.getBassinId(), ligne.getQuantite() });
+        }
+        int[] modifiees = jdbcTemplate.batchUpdate("update bassin set stock = stock + ?, version = version + 1 "
+                + "where id_bassin = ? and stock + ? >= 0", mouvements);
+
+        // Stocks finaux (lignes verrouillées jusqu'au commit), puis stock après chaque ligne en remontant le lot
+        Set<Long> ids = new LinkedHashSet<>();
+        lignes.forEach(l -> ids.add(l.getBassinId()));
+        ids.remove(null);
+        Map<Long, Integer> stocks = new HashMap<>();
+        Map<Long, String> noms = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object[] b : bassinRepository.findStocks(ids)) {
+                stocks.put((Long) b[0], (Integer) b[2]);
+                noms.put((Long) b[0], (String) b[1]);
+            }
+        }
+        Map<Long, Integer> finaux = new HashMap<>(stocks);
+
+        ResultatMouvementStock[] resultats = new ResultatMouvementStock[lignes.size()];
+        for (int i = lignes.size() - 1; i >= 0; i--) {
+            TransactionDTO ligne = lignes.get(i);
+            Integer stock = stocks.get(ligne.getBassinId());
+            boolean applique = modifiees[i] > 0;
+            String message;
+            if (stock == null) {
+                message = "Bassin non trouvé avec l'ID : " + ligne.getBassinId();
+            } else if (!applique) {
+                message = "La quantité ne peut pas rendre le stock négatif (stock actuel : " + stock
+                        + ", mouvement : " + ligne.getQuantite() + ")";
+            } else {
+                message = null;
+            }
+            resultats[i] = new ResultatMouvementStock(i, ligne.getBassinId(), ligne.getQuantite(), applique, stock, message);
+            if (applique) {
+                stocks.put(ligne.getBassinId(), stock - ligne.getQuantite());
+            }
+        }
+
+        Timestamp maintenant = new Timestamp(System.currentTimeMillis());
+        List<Object[]> transactions = new ArrayList<>();
+        List<StockJournalierService.Mouvement> cumuls = new ArrayList<>();
+        for (int i = 0; i < lignes.size(); i++) {
+            if (resultats[i].isApplique()) {
+                TransactionDTO ligne = lignes.get(i);
+                Long userId = utilisateurs.get(ligne.getUtilisateur());
+                transactions.add(new Object[] { ligne.getBassinId(), ligne.getQuantite(), ligne.getTypeOperation(),
+                        ligne.getRaison(), maintenant, userId });
+                cumuls.add(new StockJournalierService.Mouvement(ligne.getBassinId(), userId, maintenant, ligne.getQuantite()));
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into transaction (bassin_id, quantite, type_operation, raison, "
+                + "date_transaction, user_id) values (?, ?, ?, ?, ?, ?)", transactions);
+        stockJournalierService.cumuler(cumuls);
+
+        // Une notification par bassin, sur son stock final (comme adjustStock)
+        List<Notification> notifications = new ArrayList<>();
+        Set<Long> mouvementes = new LinkedHashSet<>();
+        for (ResultatMouvementStock r : resultats) {
+            if (r.isApplique()) {
+                mouvementes.add(r.getBassinId());
+            }
+        }
+        for (Long id : mouvementes) {
+            int stock = finaux.get(id);
+            if (stock < 5 && stock > 0) {
+                notifications.add(notification("⚠️ Stock faible: " + noms.get(id) + " - " + stock + " unité(s)", "warning"));
+            } else if (stock == 0) {
+                notifications.add(notification("🚫 RUPTURE DE STOCK: " + noms.get(id), "danger"));
+            }
+        }
+        notificationRepository.saveAll(notifications);
+
+        return List.of(resultats);
+    }
+
+    private static Notification notification(String message, String type) {
+        Notification notification = new Notification();
+        notification.setMessage(message);
+        notification.setType(type);
+        notification.setDate(new Date());
+        notification.setRead(false);
+        return notification;
+    }
+
+    // Aucune ligne modifiée : bassin inconnu ou stock insuffisant
+    private void verifier(int lignes, Long idBassin, int delta) {
+        if (lignes > 0) {
+            return;
+        }
+        Integer stock = bassinRepository.findStock(idBassin);
+        if (stock == null) {
+            throw new RuntimeException("Bassin non trouvé avec l'ID : " + idBassin);
+        }
+        throw new InsufficientStockException("La quantité ne peut pas rendre le stock négatif (stock actuel : "
+                + stock + ", mouvement : " + delta + ")", stock);
+    }
+}
@@ -0,0 +1,428 @@
+package com.example.gestionbassins.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import com.example.gestionbassins.dto.SuggestionDTO;
+import com.example.gestionbassins.projections.BassinIndexable;
+import com.example.gestionbassins.repos.BassinRepository;
+
+/**
+ * Suggestions de la barre de recherche : noms de bassins (non archivés) et de catégories,
+ * par préfixe du dernier mot tapé et tolérantes aux fautes de frappe.
+ *
+ * Tout est en mémoire : un dictionnaire trié des mots (préfixes) et un index de trigrammes
+ * (mots proches, vérifiés par distance d'édition). Aucune requête en base par frappe.
+ */
+@Service
+public class SuggestionCatalogueService implements IndexCatalogue, ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionCatalogueService.class);
+
+    public static final int NOMBRE_PAR_DEFAUT = 8;
+    public static final int NOMBRE_MAX = 20;
+
+    // Qualité d'une correspondance mot de la requête / mot du nom
+    private static final float EXACT = 1f;
+    private static final float PREFIXE = 0.8f;
+    private static final float APPROCHE = 0.6f;
+    private static final float PENALITE_PAR_FAUTE = 0.15f;
+
+    private static final int MAX_MOTS_PREFIXE = 256;
+    private static final String TYPE_BASSIN = "bassin";
+    private static final String TYPE_CATEGORIE = "categorie";
+
+    @Autowired
+    private BassinRepository bassinRepository;
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    private final Map<Long, Entree> bassins = new HashMap<>();
+    private final Map<Long, Entree> categories = new HashMap<>();
+    // Une catégorie n'est suggérée que si au moins un bassin visible y est rangé
+    private final Map<Long, Integer> bassinsParCategorie = new HashMap<>();
+    // À score égal, le nom le plus court (le plus proche de la saisie) puis l'ordre alphabétique
+    private static final Comparator<Entree> ORDRE_NOM = Comparator.comparingInt((Entree e) -> e.nom.length())
+            .thenComparing(e -> e.nom)
+            .thenComparing(e -> e.type)
+            .thenComparing(e -> e.id);
+
+    // mot -> entrées dont le nom contient ce mot, dans l'ordre ORDRE_NOM ; trié pour les préfixes
+    private final NavigableMap<String, Set<Entree>> mots = new TreeMap<>();
+    // trigramme -> mots du dictionnaire qui le contiennent
+    private final Map<String, Set<String>> trigrammes = new HashMap<>();
+
+    private static final class Entree {
+        private final String type;
+        private final Long id;
+        private final String nom;
+        private final String imagePath;
+        private final Long idCategorie;
+        private final Set<String> mots;
+
+        private Entree(String type, Long id, String nom, String imagePath, Long idCategorie) {
+            this.type = type;
+            this.id = id;
+            this.nom = nom;
+            this.imagePath = imagePath;
+            this.idCategorie = idCategorie;
+            this.mots = new HashSet<>(RechercheCatalogueService.analyser(nom));
+        }
+    }
+
+    private static final class Score {
+        private final Entree entree;
+        private final float valeur;
+
+        private Score(Entree entree, float valeur) {
+            this.entree = entree;
+            this.valeur = valeur;
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconstruire();
+    }
+
+    // Verrou pris avant la lecture : une modification commitée pendant le chargement passe après
+    public void reconstruire() {
+        verrou.writeLock().lock();
+        try {
+            bassins.clear();
+            categories.clear();
+            bassinsParCategorie.clear();
+            mots.clear();
+            trigrammes.clear();
+            bassinRepository.findIndexables().forEach(this::ajouter);
+            logger.info("Suggestions du catalogue : {} bassin(s), {} catégorie(s), {} mot(s)",
+                    bassins.size(), categories.size(), mots.size());
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void indexer(BassinIndexable bassin) {
+        verrou.writeLock().lock();
+        try {
+            enlever(bassin.getIdBassin());
+            ajouter(bassin);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void retirer(Long idBassin) {
+        verrou.writeLock().lock();
+        try {
+            enlever(idBassin);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void renommerCategorie(Long idCategorie, String nomCategorie) {
+        verrou.writeLock().lock();
+        try {
+            Entree ancienne = categories.remove(idCategorie);
+            if (ancienne != null) {
+                desindexer(ancienne);
+            }
+            if (bassinsParCategorie.containsKey(idCategorie) && nomCategorie != null && !nomCategorie.isBlank()) {
+                Entree nouvelle = new Entree(TYPE_CATEGORIE, idCategorie, nomCategorie, null, null);
+                categories.put(idCategorie, nouvelle);
+                indexerMots(nouvelle);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Les {@code nombre} meilleures suggestions pour la saisie : chaque mot doit correspondre à un mot
+     * du nom (exact, à une ou deux fautes près, ou préfixe pour le dernier mot en cours de frappe).
+     */
+    public List<SuggestionDTO> suggerer(String saisie, int nombre) {
+        List<String> jetons = RechercheCatalogueService.analyser(saisie);
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        if (jetons.isEmpty() || nombre <= 0) {
+            return suggestions;
+        }
+        boolean saisieEnCours = Character.isLetterOrDigit(saisie.charAt(saisie.length() - 1));
+
+        verrou.readLock().lock();
+        try {
+            List<Map<String, Float>> candidats = new ArrayList<>();
+            int pivot = 0;
+            int volumePivot = Integer.MAX_VALUE;
+            for (int i = 0; i < jetons.size(); i++) {
+                Map<String, Float> motsDuJeton = motsCorrespondants(jetons.get(i), saisieEnCours && i == jetons.size() - 1);
+                if (motsDuJeton.isEmpty()) {
+                    return suggestions;
+                }
+                int volume = 0;
+                for (String mot : motsDuJeton.keySet()) {
+                    volume += mots.get(mot).size();
+                }
+                if (volume < volumePivot) {
+                    pivot = i;
+                    volumePivot = volume;
+                }
+                candidats.add(motsDuJeton);
+            }
+
+            // Borne du score apporté par les autres mots, pour arrêter le parcours au plus tôt
+            float bonusMax = 0;
+            for (int i = 0; i < candidats.size(); i++) {
+                if (i != pivot) {
+                    bonusMax += Collections.max(candidats.get(i).values());
+                }
+            }
+
+            // On part du mot le plus sélectif, meilleures correspondances d'abord ; les autres mots
+            // ne sont vérifiés que sur ces entrées. Une entrée garde sa première (meilleure) qualité.
+            List<Map.Entry<String, Float>> motsPivot = new ArrayList<>(candidats.get(pivot).entrySet());
+            motsPivot.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+            Comparator<Score> ordre = Comparator.comparingDouble((Score r) -> -r.valeur)
+                    .thenComparing(r -> r.entree, ORDRE_NOM);
+            PriorityQueue<Score> meilleures = new PriorityQueue<>(ordre.reversed());
+            Set<Entree> vues = new HashSet<>();
+            for (Map.Entry<String, Float> motPivot : motsPivot) {
+                for (Entree entree : mots.get(motPivot.getKey())) {
+                    // Entrées triées par nom : dès que même la borne ne suffit plus, la suite non plus
+                    if (meilleures.size() == nombre
+                            && ordre.compare(new Score(entree, motPivot.getValue() + bonusMax), meilleures.peek()) >= 0) {
+                        break;
+                    }
+                    if (!vues.add(entree)) {
+                        continue;
+                    }
+                    float total = motPivot.getValue();
+                    for (int i = 0; i < candidats.size() && total > 0; i++) {
+                        if (i != pivot) {
+                            float qualite = meilleureQualite(entree, candidats.get(i));
+                            total = qualite > 0 ? total + qualite : 0;
+                        }
+                    }
+                    if (total > 0) {
+                        meilleures.offer(new Score(entree, total));
+                        if (meilleures.size() > nombre) {
+                            meilleures.poll();
+                        }
+                    }
+                }
+            }
+            List<Score> triees = new ArrayList<>(meilleures);
+            triees.sort(ordre);
+            for (Score score : triees) {
+                Entree entree = score.entree;
+                suggestions.add(new SuggestionDTO(entree.type, entree.id, entree.nom, entree.imagePath,
+                        entree.imagePath != null ? "/api/assets/bassins/" + entree.imagePath + "?size=thumbnail" : null));
+            }
+            return suggestions;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private static float meilleureQualite(Entree entree, Map<String, Float> candidats) {
+        float meilleure = 0;
+        for (String mot : entree.mots) {
+            Float qualite = candidats.get(mot);
+            if (qualite != null && qualite > meilleure) {
+                meilleure = qualite;
+            }
+        }
+        return meilleure;
+    }
+
+    // Mots du dictionnaire qui correspondent au jeton, avec la qualité de la correspondance
+    private Map<String, Float> motsCorrespondants(String jeton, boolean prefixe) {
+        Map<String, Float> candidats = new HashMap<>();
+        if (mots.containsKey(jeton)) {
+            candidats.put(jeton, EXACT);
+        }
+        if (prefixe) {
+            int n = 0;
+            for (String mot : mots.subMap(jeton, false, jeton + Character.MAX_VALUE, false).keySet()) {
+                if (n++ >= MAX_MOTS_PREFIXE) {
+                    break;
+                }
+                candidats.put(mot, PREFIXE);
+            }
+        }
+        // Fautes de frappe : une faute tolérée jusqu'à 5 lettres, deux au-delà ; rien sous 3 lettres
+        int fautesMax = jeton.length() < 3 ? 0 : (jeton.length() <= 5 ? 1 : 2);
+        if (fautesMax == 0) {
+            return candidats;
+        }
+        Set<String> proches = new HashSet<>();
+        for (String trigramme : trigrammes(jeton)) {
+            Set<String> avecTrigramme = trigrammes.get(trigramme);
+            if (avecTrigramme != null) {
+                proches.addAll(avecTrigramme);
+            }
+        }
+        for (String mot : proches) {
+            if (candidats.containsKey(mot)) {
+                continue;
+            }
+            int fautes = prefixe ? distancePrefixe(jeton, mot, fautesMax) : distance(jeton, mot, fautesMax);
+            if (fautes <= fautesMax) {
+                candidats.put(mot, APPROCHE - PENALITE_PAR_FAUTE * fautes);
+            }
+        }
+        return candidats;
+    }
+
+    private static Set<String> trigrammes(String mot) {
+        Set<String> resultat = new HashSet<>();
+        String borne = "^" + mot;
+        for (int i = 0; i + 3 <= borne.length(); i++) {
+            resultat.add(borne.substring(i, i + 3));
+        }
+        if (borne.length() < 3) {
+            resultat.add(borne);
+        }
+        return resultat;
+    }
+
+    private static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[][] d = tableDistances(a, b);
+        return d[a.length()][b.length()];
+    }
+
+    // Distance entre le jeton et le meilleur début du mot (le mot peut être plus long que la saisie)
+    private static int distancePrefixe(String jeton, String mot, int max) {
+        int[][] d = tableDistances(jeton, mot);
+        int meilleure = max + 1;
+        int debut = Math.max(0, jeton.length() - max);
+        int fin = Math.min(mot.length(), jeton.length() + max);
+        for (int j = debut; j <= fin; j++) {
+            meilleure = Math.min(meilleure, d[jeton.length()][j]);
+        }
+        return meilleure;
+    }
+
+    // Distance d'édition avec transposition de deux lettres voisines (Damerau, alignement optimal)
+    private static int[][] tableDistances(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cout = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cout);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d;
+    }
+
+    private void ajouter(BassinIndexable bassin) {
+        if (bassin.isArchive()) {
+            return;
+        }
+        Entree entree = new Entree(TYPE_BASSIN, bassin.getIdBassin(), bassin.getNomBassin(), bassin.getImagePath(),
+                bassin.getIdCategorie());
+        bassins.put(bassin.getIdBassin(), entree);
+        indexerMots(entree);
+
+        Long idCategorie = bassin.getIdCategorie();
+        if (idCategorie != null && bassinsParCategorie.merge(idCategorie, 1, Integer::sum) == 1
+                && bassin.getNomCategorie() != null && !bassin.getNomCategorie().isBlank()) {
+            Entree categorie = new Entree(TYPE_CATEGORIE, idCategorie, bassin.getNomCategorie(), null, null);
+            categories.put(idCategorie, categorie);
+            indexerMots(categorie);
+        }
+    }
+
+    private void enlever(Long idBassin) {
+        Entree entree = bassins.remove(idBassin);
+        if (entree == null) {
+            return;
+        }
+        desindexer(entree);
+        if (entree.idCategorie != null) {
+            decrementerCategorie(entree.idCategorie);
+        }
+    }
+
+    private void decrementerCategorie(Long idCategorie) {
+        Integer reste = bassinsParCategorie.merge(idCategorie, -1, Integer::sum);
+        if (reste == null || reste <= 0) {
+            bassinsParCategorie.remove(idCategorie);
+            Entree categorie = categories.remove(idCategorie);
+            if (categorie != null) {
+                desindexer(categorie);
+            }
+        }
+    }
+
+    private void indexerMots(Entree entree) {
+        for (String mot : entree.mots) {
+            Set<Entree> entrees = mots.get(mot);
+            if (entrees == null) {
+                entrees = new TreeSet<>(ORDRE_NOM);
+                mots.put(mot, entrees);
+                for (String trigramme : trigrammes(mot)) {
+                    trigrammes.computeIfAbsent(trigramme, t -> new HashSet<>()).add(mot);
+                }
+            }
+            entrees.add(entree);
+        }
+    }
+
+    private void desindexer(Entree entree) {
+        for (String mot : entree.mots) {
+            Set<Entree> entrees = mots.get(mot);
+            if (entrees == null) {
+                continue;
+            }
+            entrees.remove(entree);
+            if (entrees.isEmpty()) {
+                mots.remove(mot);
+                for (String trigramme : trigrammes(mot)) {
+                    Set<String> avecTrigramme = trigrammes.get(trigramme);
+                    if (avecTrigramme != null) {
+                        avecTrigramme.remove(mot);
+                        if (avecTrigramme.isEmpty()) {
+                            trigrammes.remove(trigramme);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
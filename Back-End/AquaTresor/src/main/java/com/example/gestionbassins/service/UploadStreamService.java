@@ -0,0 +1,70 @@
+package com.example.gestionbassins.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.Getter;
+
+/**
+ * Écriture des fichiers uploadés en un seul passage : le flux de la partie multipart
+ * (fichier temporaire au-delà de spring.servlet.multipart.file-size-threshold) est
+ * recopié par blocs sur le disque et haché en SHA-256 au passage.
+ * Le contenu n'est jamais matérialisé dans un byte[].
+ */
+@Service
+public class UploadStreamService {
+
+    public FichierRecu ecrire(MultipartFile file, Path destination) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Le fichier ne peut pas être vide.");
+        }
+        return ecrire(file.getInputStream(), destination);
+    }
+
+    public FichierRecu ecrire(InputStream source, Path destination) throws IOException {
+        Files.createDirectories(destination.toAbsolutePath().getParent());
+
+        MessageDigest sha256 = sha256();
+        // Fichier temporaire puis déplacement : un lecteur ne voit jamais un fichier à moitié écrit
+        Path temporaire = destination.resolveSibling(destination.getFileName() + ".upload");
+        long taille;
+        try (InputStream in = new DigestInputStream(source, sha256)) {
+            taille = Files.copy(in, temporaire, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporaire, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+        return new FichierRecu(destination, taille, HexFormat.of().formatHex(sha256.digest()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    @Getter
+    public static class FichierRecu {
+        private final Path chemin;
+        private final long taille;
+        private final String sha256;
+
+        public FichierRecu(Path chemin, long taille, String sha256) {
+            this.chemin = chemin;
+            this.taille = taille;
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.gestionbassins.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class DimensionsTest {
+
+    @Test
+    void centimetresAvecVolumeIndique() {
+        assertEquals(new Dimensions(300.0, 200.0, 150.0, 9000.0), Dimensions.analyser("300x200x150 cm (≈ 9 000L)"));
+    }
+
+    @Test
+    void metresEtDecimales() {
+        assertEquals(new Dimensions(200.0, 150.0, 100.0, 3000.0), Dimensions.analyser("2m x 1.5m x 1m"));
+        assertEquals(new Dimensions(250.0, 120.0, null, null), Dimensions.analyser("2,5 × 1,2 m"));
+    }
+
+    @Test
+    void sansUnite() {
+        // 30 ou moins : des mètres ; au-delà : des centimètres
+        assertEquals(new Dimensions(300.0, 200.0, null, null), Dimensions.analyser("3x2"));
+        assertEquals(new Dimensions(200.0, 150.0, 100.0, 3000.0), Dimensions.analyser("200x150x100"));
+    }
+
+    @Test
+    void unitesMelangees() {
+        assertEquals(new Dimensions(200.0, 150.0, 50.0, 1500.0), Dimensions.analyser("2m x 150cm x 500mm"));
+    }
+
+    @Test
+    void volumeEnLitres() {
+        assertEquals(new Dimensions(120.0, 80.0, 60.0, 500.0), Dimensions.analyser("120 x 80 x 60 cm (500 litres)"));
+    }
+
+    @Test
+    void texteSansDimensions() {
+        assertNull(Dimensions.analyser(null));
+        assertNull(Dimensions.analyser("  "));
+        assertNull(Dimensions.analyser("Grand bassin"));
+        assertNull(Dimensions.analyser("300"));
+        assertNull(Dimensions.analyser("1x2x3x4"));
+        assertNull(Dimensions.analyser("3 x deux"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.gestionbassins.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.gestionbassins.projections.BassinCatalogueView;
+
+class BassinCursorTest {
+
+    private static BassinCatalogueView vue(Long id, String nom, Double prix, Date dateAjout) {
+        return new BassinCatalogueView(id, nom, null, prix, null, null, null, true, 3, false, "DISPONIBLE",
+                false, null, null, null, dateAjout, null, null, null, null);
+    }
+
+    private static BassinCursor allerRetour(BassinCursor.Tri tri, BassinCatalogueView dernier) {
+        return BassinCursor.decode(BassinCursor.apres(tri, dernier).encode(), tri);
+    }
+
+    @Test
+    void allerRetourParTri() {
+        Date dateAjout = new Date(1_700_000_000_123L);
+        BassinCatalogueView dernier = vue(42L, "Bassin: Lotus é", 1299.5, dateAjout);
+
+        assertEquals(42L, allerRetour(BassinCursor.Tri.ID, dernier).getIdBassin());
+
+        BassinCursor nom = allerRetour(BassinCursor.Tri.NOM, dernier);
+        // Le nom peut contenir le séparateur
+        assertEquals("Bassin: Lotus é", nom.getNom());
+        assertEquals(42L, nom.getIdBassin());
+
+        assertEquals(1299.5, allerRetour(BassinCursor.Tri.PRIX_ASC, dernier).getPrix());
+        assertEquals(1299.5, allerRetour(BassinCursor.Tri.PRIX_DESC, dernier).getPrix());
+        assertEquals(dateAjout, allerRetour(BassinCursor.Tri.DATE_DESC, dernier).getDateAjout());
+    }
+
+    @Test
+    void nomAbsent() {
+        assertEquals("", allerRetour(BassinCursor.Tri.NOM, vue(7L, null, 10.0, null)).getNom());
+    }
+
+    @Test
+    void curseurDUnAutreTri() {
+        String curseur = BassinCursor.apres(BassinCursor.Tri.NOM, vue(1L, "Koi", 10.0, null)).encode();
+        assertThrows(IllegalArgumentException.class, () -> BassinCursor.decode(curseur, BassinCursor.Tri.PRIX_ASC));
+    }
+
+    @Test
+    void curseurInvalide() {
+        assertThrows(IllegalArgumentException.class, () -> BassinCursor.decode("pas un curseur !", BassinCursor.Tri.ID));
+        assertThrows(IllegalArgumentException.class, () -> BassinCursor.decode("SUQ", BassinCursor.Tri.ID));
+    }
+
+    @Test
+    void triDepuisLaRequete() {
+        assertEquals(BassinCursor.Tri.ID, BassinCursor.Tri.from(null));
+        assertEquals(BassinCursor.Tri.PRIX_DESC, BassinCursor.Tri.from("prix-desc"));
+        assertThrows(IllegalArgumentException.class, () -> BassinCursor.Tri.from("stock"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.gestionbassins.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class BitmapCompresseTest {
+
+    // Blocs de 65 536 valeurs : un bloc clairsemé (tableau), un bloc dense (bits), un bloc éloigné
+    private static TreeSet<Integer> echantillon(Random aleatoire, int decalage) {
+        TreeSet<Integer> valeurs = new TreeSet<>();
+        for (int i = 0; i < 300; i++) {
+            valeurs.add(aleatoire.nextInt(65_536));
+        }
+        for (int i = 0; i < 9_000; i++) {
+            valeurs.add(65_536 + aleatoire.nextInt(65_536));
+        }
+        for (int i = 0; i < 50; i++) {
+            valeurs.add(5 * 65_536 + decalage + aleatoire.nextInt(1_000));
+        }
+        // Bornes des blocs
+        valeurs.add(65_535);
+        valeurs.add(65_536);
+        valeurs.add(Integer.MAX_VALUE);
+        return valeurs;
+    }
+
+    private static BitmapCompresse bitmap(TreeSet<Integer> valeurs) {
+        BitmapCompresse bitmap = new BitmapCompresse();
+        valeurs.forEach(bitmap::ajouter);
+        return bitmap;
+    }
+
+    private static List<Integer> contenu(BitmapCompresse bitmap) {
+        List<Integer> valeurs = new ArrayList<>();
+        bitmap.parcourir(v -> valeurs.add(v));
+        return valeurs;
+    }
+
+    @Test
+    void operationsIdentiquesAUnEnsemble() {
+        Random aleatoire = new Random(42);
+        TreeSet<Integer> a = echantillon(aleatoire, 0);
+        TreeSet<Integer> b = echantillon(aleatoire, 500);
+        BitmapCompresse ba = bitmap(a);
+        BitmapCompresse bb = bitmap(b);
+
+        TreeSet<Integer> et = new TreeSet<>(a);
+        et.retainAll(b);
+        TreeSet<Integer> ou = new TreeSet<>(a);
+        ou.addAll(b);
+        TreeSet<Integer> sauf = new TreeSet<>(a);
+        sauf.removeAll(b);
+
+        assertEquals(new ArrayList<>(a), contenu(ba));
+        assertEquals(a.size(), ba.cardinalite());
+        assertEquals(new ArrayList<>(et), contenu(ba.et(bb)));
+        assertEquals(et.size(), ba.cardinaliteEt(bb));
+        assertEquals(new ArrayList<>(ou), contenu(ba.ou(bb)));
+        assertEquals(new ArrayList<>(ou), contenu(BitmapCompresse.ouTous(List.of(ba, bb))));
+        assertEquals(new ArrayList<>(sauf), contenu(ba.sauf(bb)));
+        // Les opérandes ne sont pas modifiés
+        assertEquals(new ArrayList<>(a), contenu(ba));
+        assertEquals(new ArrayList<>(b), contenu(bb));
+    }
+
+    @Test
+    void blocDenseRedevientTableauApresRetraits() {
+        TreeSet<Integer> valeurs = new TreeSet<>();
+        for (int v = 0; v < 10_000; v++) {
+            valeurs.add(65_536 + v);
+        }
+        BitmapCompresse bitmap = bitmap(valeurs);
+        for (int v = 0; v < 9_000; v++) {
+            bitmap.retirer(65_536 + v);
+            valeurs.remove(65_536 + v);
+        }
+        assertEquals(new ArrayList<>(valeurs), contenu(bitmap));
+        assertFalse(bitmap.contient(65_536));
+        assertTrue(bitmap.contient(65_536 + 9_999));
+
+        // Intersection d'un bloc dense avec un bloc clairsemé, et différence qui vide un bloc
+        BitmapCompresse dense = bitmap(new TreeSet<>(List.of(65_536 + 9_000, 65_536 + 9_500, 3)));
+        assertEquals(List.of(65_536 + 9_000, 65_536 + 9_500), contenu(bitmap.et(dense)));
+        assertTrue(bitmap.sauf(bitmap.copie()).estVide());
+    }
+
+    @Test
+    void parcoursInterrompu() {
+        BitmapCompresse bitmap = BitmapCompresse.de(1, 70_000, 200_000);
+        List<Integer> vus = new ArrayList<>();
+        bitmap.parcourir(v -> {
+            vus.add(v);
+            return vus.size() < 2;
+        });
+        assertEquals(List.of(1, 70_000), vus);
+    }
+
+    @Test
+    void copieIndependante() {
+        BitmapCompresse bitmap = BitmapCompresse.de(1, 2, 3);
+        BitmapCompresse copie = bitmap.copie();
+        copie.ajouter(4);
+        copie.retirer(1);
+        assertEquals(List.of(1, 2, 3), contenu(bitmap));
+        assertEquals(List.of(2, 3, 4), contenu(copie));
+    }
+
+    @Test
+    void valeurNegativeRefusee() {
+        assertThrows(IllegalArgumentException.class, () -> new BitmapCompresse().ajouter(-1));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.gestionbassins.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.gestionbassins.projections.BassinIndexable;
+
+class ExpressionFiltreTest {
+
+    private BitmapCatalogueService index;
+    private final List<BassinIndexable> catalogue = new ArrayList<>();
+
+    // Ids sur plusieurs blocs : 1..10 000 (blocs denses) et quelques-uns au-delà de 65 536
+    @BeforeEach
+    void indexer() {
+        index = new BitmapCatalogueService();
+        ReflectionTestUtils.setField(index, "tranchePrix", 100.0);
+        for (long id = 1; id <= 10_000; id++) {
+            catalogue.add(bassin(id));
+        }
+        for (long id = 70_000; id < 70_200; id++) {
+            catalogue.add(bassin(id));
+        }
+        catalogue.forEach(index::indexer);
+    }
+
+    private static BassinIndexable bassin(long id) {
+        return new BassinIndexable(id, "Bassin " + id, null, id % 2 == 0 ? "Béton" : "Acier",
+                id % 3 == 0 ? "Bleu" : "Blanc", id % 5, "Catégorie " + id % 5, id % 7 == 0,
+                (double) (id % 1000), "DISPONIBLE", false, null, null, null);
+    }
+
+    private List<Integer> attendus(Predicate<BassinIndexable> filtre) {
+        List<Integer> ids = new ArrayList<>();
+        for (BassinIndexable b : catalogue) {
+            if (filtre.test(b)) {
+                ids.add(b.getIdBassin().intValue());
+            }
+        }
+        return ids;
+    }
+
+    private List<Integer> filtrer(String expression) {
+        List<Integer> ids = new ArrayList<>();
+        index.filtrer(ExpressionFiltre.analyser(expression)).parcourir(ids::add);
+        return ids;
+    }
+
+    private static boolean beton(BassinIndexable b) {
+        return b.getIdBassin() % 2 == 0;
+    }
+
+    private static boolean bleu(BassinIndexable b) {
+        return b.getIdBassin() % 3 == 0;
+    }
+
+    private static boolean archive(BassinIndexable b) {
+        return b.isArchive();
+    }
+
+    @Test
+    void termeSeulInsensibleALaCasse() {
+        assertEquals(attendus(ExpressionFiltreTest::beton), filtrer("materiau:BÉTON"));
+        assertEquals(attendus(b -> b.getIdCategorie() == 3), filtrer("categorie:3"));
+    }
+
+    @Test
+    void etOuNon() {
+        assertEquals(attendus(b -> beton(b) && bleu(b)), filtrer("materiau:béton AND couleur:bleu"));
+        // AND implicite entre deux termes
+        assertEquals(attendus(b -> beton(b) && bleu(b)), filtrer("materiau:béton couleur:bleu"));
+        assertEquals(attendus(b -> beton(b) || bleu(b)), filtrer("materiau:béton OR couleur:bleu"));
+        assertEquals(attendus(b -> !archive(b)), filtrer("NOT archive:true"));
+        assertEquals(attendus(b -> beton(b) && !archive(b)), filtrer("materiau:béton NOT archive:true"));
+        assertEquals(attendus(b -> !beton(b) && !archive(b)), filtrer("NOT materiau:béton AND NOT archive:true"));
+    }
+
+    @Test
+    void prioriteEtParentheses() {
+        // AND avant OR
+        assertEquals(attendus(b -> archive(b) || (beton(b) && bleu(b))),
+                filtrer("archive:true OR materiau:béton AND couleur:bleu"));
+        assertEquals(attendus(b -> (archive(b) || beton(b)) && bleu(b)),
+                filtrer("(archive:true OR materiau:béton) AND couleur:bleu"));
+        assertEquals(attendus(b -> !(beton(b) || bleu(b))), filtrer("NOT (materiau:béton OR couleur:bleu)"));
+    }
+
+    @Test
+    void intervallesDePrix() {
+        assertEquals(attendus(b -> b.getPrix() >= 250 && b.getPrix() <= 420), filtrer("prix:250-420"));
+        assertEquals(attendus(b -> b.getPrix() >= 990), filtrer("prix:990-"));
+        assertEquals(attendus(b -> b.getPrix() <= 5 && bleu(b)), filtrer("prix:-5 couleur:bleu"));
+    }
+
+    @Test
+    void guillemets() {
+        index.indexer(new BassinIndexable(80_000L, "Spécial", null, "Pierre naturelle", "Gris", null, null,
+                false, 10.0, "DISPONIBLE", false, null, null, null));
+        assertEquals(List.of(80_000), filtrer("materiau:\"pierre naturelle\""));
+    }
+
+    @Test
+    void filtresMalFormes() {
+        assertThrows(IllegalArgumentException.class, () -> ExpressionFiltre.analyser(" "));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionFiltre.analyser("poids:12"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionFiltre.analyser("materiau:\"béton"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionFiltre.analyser("(materiau:béton"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionFiltre.analyser("materiau:béton)"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionFiltre.analyser("materiau:béton AND"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionFiltre.analyser("prix:abc-12"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionFiltre.analyser("prix:12"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.gestionbassins.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ImageRenditionServiceTest {
+
+    @TempDir
+    Path dossier;
+
+    private ImageRenditionService renditions;
+
+    private final AtomicInteger generations = new AtomicInteger();
+
+    @BeforeEach
+    void creer() {
+        renditions = new ImageRenditionService();
+        // Génération synchrone, comptée
+        TaskExecutor executor = tache -> {
+            generations.incrementAndGet();
+            tache.run();
+        };
+        ReflectionTestUtils.setField(renditions, "imageRenditionExecutor", executor);
+    }
+
+    @Test
+    void echecMemoriseTantQueLeContenuNeChangePas() throws IOException {
+        Path original = Files.writeString(dossier.resolve("bassin_7_1.jpg"), "pas une image");
+
+        renditions.planifier(original);
+        assertEquals(1, generations.get());
+        assertTrue(renditions.enEchec(original));
+        assertFalse(Files.exists(renditions.cheminRendition(original, ImageRenditionService.Taille.CARD)));
+
+        // Pas de nouvelle tentative pour le même contenu
+        renditions.planifier(original);
+        assertEquals(1, generations.get());
+
+        // Fichier remplacé : retraité
+        Files.writeString(original, "toujours pas une image");
+        Files.setLastModifiedTime(original, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        assertFalse(renditions.enEchec(original));
+        renditions.planifier(original);
+        assertEquals(2, generations.get());
+    }
+
+    @Test
+    void suppressionOublieLEchec() throws IOException {
+        Path original = Files.writeString(dossier.resolve("koi.png"), "pas une image");
+        renditions.planifier(original);
+        assertTrue(renditions.enEchec(original));
+
+        renditions.supprimer(original);
+        assertFalse(renditions.enEchec(original));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.gestionbassins.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.gestionbassins.dto.PrixEffectif;
+import com.example.gestionbassins.projections.BassinIndexable;
+import com.example.gestionbassins.projections.PromotionCible;
+import com.example.gestionbassins.repos.BassinRepository;
+import com.example.gestionbassins.repos.PromotionRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PrixEffectifServiceTest {
+
+    private static final long HEURE = 3_600_000L;
+
+    @Mock
+    private BassinRepository bassinRepository;
+
+    @Mock
+    private PromotionRepository promotionRepository;
+
+    @InjectMocks
+    private PrixEffectifService prixEffectifService;
+
+    private final long maintenant = System.currentTimeMillis();
+
+    private static BassinIndexable bassin(long id, Long idCategorie, double prix) {
+        return new BassinIndexable(id, "Bassin " + id, null, null, null, idCategorie, null, false, prix,
+                "DISPONIBLE", false, null, null, null);
+    }
+
+    private static PromotionCible promotion(long id, double taux, long debut, long fin, long idCible) {
+        return new PromotionCible(id, "Promo " + id, taux, new Date(debut), new Date(fin), idCible);
+    }
+
+    private void charger(List<BassinIndexable> bassins, List<PromotionCible> versBassins,
+                         List<PromotionCible> versCategories) {
+        when(bassinRepository.findIndexables()).thenReturn(bassins);
+        when(promotionRepository.findCiblesBassins(any())).thenReturn(versBassins);
+        when(promotionRepository.findCiblesCategories(any())).thenReturn(versCategories);
+        prixEffectifService.reconstruire();
+    }
+
+    @Test
+    void promotionEnCours() {
+        long fin = maintenant + HEURE;
+        charger(List.of(bassin(1, null, 1000)), List.of(promotion(7, 20, maintenant - HEURE, fin, 1)), List.of());
+
+        PrixEffectif prix = prixEffectifService.prix(1L);
+        assertTrue(prix.isPromotionActive());
+        assertEquals(800.0, prix.getPrixEffectif(), 1e-9);
+        assertEquals(7L, prix.getIdPromotion());
+        // Fin incluse : le prix change à l'instant suivant
+        assertEquals(new Date(fin + 1), prix.getValidJusqua());
+        assertEquals(fin + 1, prixEffectifService.prochaineEcheance());
+    }
+
+    @Test
+    void promotionAVenir() {
+        long debut = maintenant + HEURE;
+        charger(List.of(bassin(1, null, 1000)), List.of(promotion(7, 20, debut, debut + HEURE, 1)), List.of());
+
+        PrixEffectif prix = prixEffectifService.prix(1L);
+        assertFalse(prix.isPromotionActive());
+        assertEquals(1000.0, prix.getPrixEffectif(), 1e-9);
+        assertEquals(new Date(debut), prix.getValidJusqua());
+    }
+
+    @Test
+    void promotionTermineeIgnoree() {
+        charger(List.of(bassin(1, null, 1000)),
+                List.of(promotion(7, 20, maintenant - 2 * HEURE, maintenant - HEURE, 1)), List.of());
+
+        PrixEffectif prix = prixEffectifService.prix(1L);
+        assertFalse(prix.isPromotionActive());
+        assertNull(prix.getValidJusqua());
+    }
+
+    @Test
+    void plusForteRemiseParmiLesChevauchements() {
+        charger(List.of(bassin(1, 10L, 1000)),
+                List.of(promotion(1, 10, maintenant - HEURE, maintenant + HEURE, 1),
+                        promotion(2, 25, maintenant - HEURE, maintenant + 2 * HEURE, 1)),
+                List.of(promotion(3, 15, maintenant - HEURE, maintenant + HEURE, 10)));
+
+        PrixEffectif prix = prixEffectifService.prix(1L);
+        assertEquals(2L, prix.getIdPromotion());
+        assertEquals(750.0, prix.getPrixEffectif(), 1e-9);
+        // La promotion 1 se termine avant la 2 : c'est la prochaine échéance du bassin
+        assertEquals(new Date(maintenant + HEURE + 1), prix.getValidJusqua());
+    }
+
+    @Test
+    void aRemiseEgaleLaPlusAnciennePromotion() {
+        charger(List.of(bassin(1, 10L, 1000)),
+                List.of(promotion(5, 20, maintenant - HEURE, maintenant + HEURE, 1)),
+                List.of(promotion(3, 20, maintenant - HEURE, maintenant + HEURE, 10)));
+
+        assertEquals(3L, prixEffectifService.prix(1L).getIdPromotion());
+    }
+
+    @Test
+    void promotionDeCategorie() {
+        charger(List.of(bassin(1, 10L, 1000), bassin(2, 20L, 500)), List.of(),
+                List.of(promotion(3, 30, maintenant - HEURE, maintenant + HEURE, 10)));
+
+        Map<Long, PrixEffectif> prix = prixEffectifService.prix(List.of(2L, 99L, 1L));
+        assertEquals(List.of(2L, 1L), List.copyOf(prix.keySet()));
+        assertEquals(700.0, prix.get(1L).getPrixEffectif(), 1e-9);
+        assertFalse(prix.get(2L).isPromotionActive());
+    }
+
+    @Test
+    void colonnesAReecrire() {
+        BassinIndexable enregistre = new BassinIndexable(2L, "Bassin 2", null, null, null, null, null, false, 1000.0,
+                "DISPONIBLE", true, 20.0, 800.0, null);
+        charger(List.of(bassin(1, null, 1000), enregistre, bassin(3, null, 1000)),
+                List.of(promotion(7, 20, maintenant - HEURE, maintenant + HEURE, 1),
+                        promotion(7, 20, maintenant - HEURE, maintenant + HEURE, 2)),
+                List.of());
+
+        List<PrixEffectif> aEnregistrer = prixEffectifService.aEnregistrer();
+        assertEquals(1, aEnregistrer.size());
+        assertEquals(1L, aEnregistrer.get(0).getIdBassin());
+    }
+
+    @Test
+    void passageDesEcheances() throws InterruptedException {
+        long debut = System.currentTimeMillis() + 500;
+        long fin = debut + 500;
+        charger(List.of(bassin(1, 10L, 1000)), List.of(promotion(7, 20, debut, fin, 1)),
+                List.of(promotion(8, 50, debut, fin, 99)));
+        assertFalse(prixEffectifService.prix(1L).isPromotionActive());
+
+        attendre(debut);
+        assertEquals(7L, prixEffectifService.prix(1L).getIdPromotion());
+
+        attendre(fin + 1);
+        assertFalse(prixEffectifService.prix(1L).isPromotionActive());
+        // Promotions terminées retirées, y compris celle d'une catégorie sans bassin
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(prixEffectifService, "periodes")).isEmpty());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(prixEffectifService, "parBassin")).isEmpty());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(prixEffectifService, "parCategorie")).isEmpty());
+        assertEquals(Long.MAX_VALUE, prixEffectifService.prochaineEcheance());
+    }
+
+    private static void attendre(long instant) throws InterruptedException {
+        long reste = instant - System.currentTimeMillis();
+        if (reste > 0) {
+            Thread.sleep(reste + 5);
+        }
+    }
+}
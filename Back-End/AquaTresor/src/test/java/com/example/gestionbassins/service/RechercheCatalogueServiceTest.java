@@ -0,0 +1,123 @@
+package com.example.gestionbassins.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.gestionbassins.projections.BassinIndexable;
+
+class RechercheCatalogueServiceTest {
+
+    private RechercheCatalogueService recherche;
+
+    @BeforeEach
+    void creer() {
+        recherche = new RechercheCatalogueService();
+    }
+
+    private void indexer(long id, String nom, String description) {
+        indexer(id, nom, description, null, false);
+    }
+
+    private void indexer(long id, String nom, String description, Long idCategorie, boolean archive) {
+        recherche.indexer(new BassinIndexable(id, nom, description, null, null, idCategorie, null, archive,
+                100.0, "DISPONIBLE", false, null, null, null));
+    }
+
+    // Requêtes terminées par un espace : pas de recherche par préfixe du dernier mot
+    private List<Long> ids(String requete) {
+        return recherche.rechercher(requete, null, null, 0, 10).getIds();
+    }
+
+    @Test
+    void leNomComptePlusQueLaDescription() {
+        indexer(1, "Bassin", "Fleurs de lotus");
+        indexer(2, "Lotus", "Coque");
+        assertEquals(List.of(2L, 1L), ids("lotus "));
+    }
+
+    @Test
+    void unDocumentCourtPasseAvantUnLong() {
+        indexer(1, "Lotus", "Coque rigide noire grande taille pour jardin");
+        indexer(2, "Lotus", null);
+        assertEquals(List.of(2L, 1L), ids("lotus "));
+    }
+
+    @Test
+    void leTermeRareDecide() {
+        // 1 : terme courant dans le nom ; 2 : terme rare dans le nom ; même longueur
+        indexer(1, "Commun", "rare");
+        indexer(2, "Rare", "commun");
+        indexer(3, "Commun", null);
+        indexer(4, "Commun", null);
+        indexer(5, "Commun", null);
+        RechercheCatalogueService.Resultat resultat = recherche.rechercher("rare commun ", null, null, 0, 10);
+        assertEquals(List.of(2L, 1L), resultat.getIds());
+        assertEquals(2, resultat.getTotal());
+    }
+
+    @Test
+    void tousLesMotsSontExiges() {
+        indexer(1, "Bassin Koi", null);
+        indexer(2, "Bassin Lotus", null);
+        assertEquals(List.of(1L), ids("bassin koi "));
+        assertTrue(ids("bassin nenuphar ").isEmpty());
+    }
+
+    @Test
+    void paginationATotalConstant() {
+        for (long id = 1; id <= 5; id++) {
+            indexer(id, "Bassin " + id, null);
+        }
+        // À score égal, l'ordre des ids
+        RechercheCatalogueService.Resultat page = recherche.rechercher("bassin ", null, null, 2, 2);
+        assertEquals(List.of(3L, 4L), page.getIds());
+        assertEquals(5, page.getTotal());
+    }
+
+    @Test
+    void pageAuDelaDesResultats() {
+        indexer(1, "Bassin Lotus", null);
+        // Le début de page additionné à la taille dépasserait Integer.MAX_VALUE
+        RechercheCatalogueService.Resultat page = recherche.rechercher("bassin ", null, null,
+                Integer.MAX_VALUE - 5, 10);
+        assertTrue(page.getIds().isEmpty());
+        assertEquals(1, page.getTotal());
+    }
+
+    @Test
+    void prefixeDuDernierMotEnCoursDeSaisie() {
+        indexer(1, "Bassin Lotus", null);
+        assertEquals(List.of(1L), ids("bassin lot"));
+        assertTrue(ids("bassin lot ").isEmpty());
+    }
+
+    @Test
+    void filtresArchiveEtCategorie() {
+        indexer(1, "Lotus", null, 10L, false);
+        indexer(2, "Lotus", null, 20L, false);
+        indexer(3, "Lotus", null, 10L, true);
+        assertEquals(List.of(1L, 2L), recherche.rechercher("lotus ", false, null, 0, 10).getIds());
+        assertEquals(List.of(1L, 3L), recherche.rechercher("lotus ", null, 10L, 0, 10).getIds());
+    }
+
+    @Test
+    void reindexationEtRetrait() {
+        indexer(1, "Bassin Lotus", null);
+        indexer(1, "Bassin Koi", null);
+        assertTrue(ids("lotus ").isEmpty());
+        assertEquals(List.of(1L), ids("koi "));
+        recherche.retirer(1L);
+        assertTrue(ids("bassin ").isEmpty());
+    }
+
+    @Test
+    void analyseDuTexte() {
+        assertEquals(List.of("bassin", "carre", "beton", "300"),
+                RechercheCatalogueService.analyser("Les Bassins carrés en BÉTON, 300 L"));
+    }
+}
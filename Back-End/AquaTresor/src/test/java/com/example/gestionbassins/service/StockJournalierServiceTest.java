@@ -0,0 +1,74 @@
+package com.example.gestionbassins.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.example.gestionbassins.repos.StockJournalierRepository;
+import com.example.gestionbassins.repos.TransactionRepository;
+
+@ExtendWith(MockitoExtension.class)
+class StockJournalierServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private StockJournalierRepository stockJournalierRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    @InjectMocks
+    private StockJournalierService stockJournalierService;
+
+    @Test
+    void premierDemarrageReconstruitDansUneTransaction() {
+        when(stockJournalierRepository.count()).thenReturn(0L);
+        when(transactionRepository.count()).thenReturn(12L);
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        when(jdbcTemplate.update("delete from stock_journalier")).thenReturn(0);
+        when(jdbcTemplate.update(startsWith("insert into stock_journalier"))).thenReturn(4);
+
+        stockJournalierService.run(new DefaultApplicationArguments());
+
+        // Le verrou de table n'est accepté par PostgreSQL que dans une transaction ouverte
+        InOrder ordre = inOrder(transactionManager, jdbcTemplate);
+        ordre.verify(transactionManager).getTransaction(any());
+        ordre.verify(jdbcTemplate).execute("lock table stock_journalier in share row exclusive mode");
+        ordre.verify(jdbcTemplate).update("delete from stock_journalier");
+        ordre.verify(jdbcTemplate).update(startsWith("insert into stock_journalier"));
+        ordre.verify(transactionManager).commit(transactionStatus);
+    }
+
+    @Test
+    void cumulsDejaPresents() {
+        when(stockJournalierRepository.count()).thenReturn(3L);
+
+        stockJournalierService.run(new DefaultApplicationArguments());
+
+        verify(transactionManager, never()).getTransaction(any());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.gestionbassins.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.gestionbassins.dto.ResultatMouvementStock;
+import com.example.gestionbassins.dto.TransactionDTO;
+import com.example.gestionbassins.entities.Notification;
+import com.example.gestionbassins.repos.BassinRepository;
+import com.example.gestionbassins.repos.NotificationRepository;
+
+@ExtendWith(MockitoExtension.class)
+class StockServiceTest {
+
+    @Mock
+    private BassinRepository bassinRepository;
+
+    @Mock
+    private CatalogueIndexListener catalogueIndexListener;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private StockJournalierService stockJournalierService;
+
+    @InjectMocks
+    private StockService stockService;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> transactions;
+
+    @Captor
+    private ArgumentCaptor<List<StockJournalierService.Mouvement>> cumuls;
+
+    @Captor
+    private ArgumentCaptor<List<Notification>> notifications;
+
+    private static TransactionDTO ligne(Long bassinId, int quantite) {
+        TransactionDTO ligne = new TransactionDTO();
+        ligne.setBassinId(bassinId);
+        ligne.setQuantite(quantite);
+        ligne.setTypeOperation(quantite > 0 ? "ENTREE" : "SORTIE");
+        ligne.setRaison("Inventaire");
+        ligne.setUtilisateur("admin");
+        return ligne;
+    }
+
+    @Test
+    void resultatParLigne() {
+        // Bassin 1 : 10 en stock, bassin 2 : 3, bassin 99 inconnu
+        List<TransactionDTO> lignes = List.of(
+                ligne(1L, 5),
+                ligne(2L, -5),
+                ligne(1L, -12),
+                ligne(99L, 1),
+                ligne(2L, -3));
+        when(jdbcTemplate.batchUpdate(startsWith("update bassin"), anyList()))
+                .thenReturn(new int[] { 1, 0, 1, 0, 1 });
+        when(jdbcTemplate.batchUpdate(startsWith("insert into transaction"), anyList())).thenReturn(new int[3]);
+        List<Object[]> stocksFinaux = new ArrayList<>();
+        stocksFinaux.add(new Object[] { 1L, "Lotus", 3 });
+        stocksFinaux.add(new Object[] { 2L, "Koi", 0 });
+        when(bassinRepository.findStocks(anyCollection())).thenReturn(stocksFinaux);
+
+        List<ResultatMouvementStock> resultats = stockService.ajusterLot(lignes, Map.of("admin", 7L));
+
+        assertEquals(5, resultats.size());
+        verifier(resultats.get(0), 0, 1L, true, 15);
+        verifier(resultats.get(1), 1, 2L, false, 3);
+        assertTrue(resultats.get(1).getMessage().contains("stock actuel : 3"));
+        verifier(resultats.get(2), 2, 1L, true, 3);
+        verifier(resultats.get(3), 3, 99L, false, null);
+        assertTrue(resultats.get(3).getMessage().contains("Bassin non trouvé"));
+        verifier(resultats.get(4), 4, 2L, true, 0);
+
+        // Transactions et cumuls des seules lignes appliquées, dans l'ordre
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into transaction"), transactions.capture());
+        List<Object[]> inserees = transactions.getValue();
+        assertEquals(3, inserees.size());
+        assertEquals(List.of(1L, 1L, 2L), List.of(inserees.get(0)[0], inserees.get(1)[0], inserees.get(2)[0]));
+        assertEquals(7L, inserees.get(0)[5]);
+        verify(stockJournalierService).cumuler(cumuls.capture());
+        assertEquals(3, cumuls.getValue().size());
+
+        // Une notification par bassin, sur le stock final : faible pour 1, rupture pour 2
+        verify(notificationRepository).saveAll(notifications.capture());
+        List<Notification> envoyees = notifications.getValue();
+        assertEquals(2, envoyees.size());
+        assertEquals("warning", envoyees.get(0).getType());
+        assertEquals("danger", envoyees.get(1).getType());
+    }
+
+    private static void verifier(ResultatMouvementStock resultat, int ligne, Long bassinId, boolean applique,
+                                 Integer stock) {
+        assertEquals(ligne, resultat.getLigne());
+        assertEquals(bassinId, resultat.getBassinId());
+        assertEquals(applique, resultat.isApplique());
+        assertEquals(stock, resultat.getStock());
+        if (applique) {
+            assertNull(resultat.getMessage());
+        } else {
+            assertFalse(resultat.getMessage().isEmpty());
+        }
+    }
+}
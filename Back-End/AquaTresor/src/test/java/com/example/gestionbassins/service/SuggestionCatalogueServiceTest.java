@@ -0,0 +1,102 @@
+package com.example.gestionbassins.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.gestionbassins.projections.BassinIndexable;
+
+class SuggestionCatalogueServiceTest {
+
+    private SuggestionCatalogueService suggestions;
+
+    @BeforeEach
+    void creer() {
+        suggestions = new SuggestionCatalogueService();
+    }
+
+    private void indexer(long id, String nom, Long idCategorie, String nomCategorie, boolean archive) {
+        suggestions.indexer(new BassinIndexable(id, nom, null, null, null, idCategorie, nomCategorie, archive,
+                100.0, "DISPONIBLE", false, null, null, null));
+    }
+
+    private List<String> noms(String saisie) {
+        return suggestions.suggerer(saisie, SuggestionCatalogueService.NOMBRE_PAR_DEFAUT).stream()
+                .map(s -> s.getType() + ":" + s.getNom())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void prefixeDuMotEnCours() {
+        indexer(1, "Bassin Nénuphar", null, null, false);
+        indexer(2, "Fontaine Zen", null, null, false);
+        assertEquals(List.of("bassin:Bassin Nénuphar"), noms("nenu"));
+        // Mot terminé : plus de préfixe
+        assertTrue(noms("nenu ").isEmpty());
+    }
+
+    @Test
+    void transpositionCompteUneSeuleFaute() {
+        indexer(1, "Bassin Carpe", null, null, false);
+        // 5 lettres : une faute tolérée ; "capre" est à une transposition de "carpe" (deux en Levenshtein)
+        assertEquals(List.of("bassin:Bassin Carpe"), noms("capre "));
+        assertTrue(noms("cxpre ").isEmpty());
+    }
+
+    @Test
+    void deuxFautesAuDelaDeCinqLettres() {
+        indexer(1, "Fontaine Cascade", null, null, false);
+        assertEquals(List.of("bassin:Fontaine Cascade"), noms("fointane "));
+        assertTrue(noms("fxintxnx ").isEmpty());
+        // Moins de trois lettres : aucune faute
+        assertTrue(noms("fo ").isEmpty());
+    }
+
+    @Test
+    void exactAvantApproche() {
+        indexer(1, "Lotos", null, null, false);
+        indexer(2, "Lotus", null, null, false);
+        assertEquals(List.of("bassin:Lotus", "bassin:Lotos"), noms("lotus "));
+    }
+
+    @Test
+    void aScoreEgalLeNomLePlusCourt() {
+        indexer(1, "Bassin Lotus Grand Modèle", null, null, false);
+        indexer(2, "Bassin Lotus", null, null, false);
+        assertEquals(List.of("bassin:Bassin Lotus", "bassin:Bassin Lotus Grand Modèle"), noms("lotus "));
+    }
+
+    @Test
+    void tousLesMotsDoiventCorrespondre() {
+        indexer(1, "Bassin Lotus", null, null, false);
+        indexer(2, "Bassin Koi", null, null, false);
+        assertEquals(List.of("bassin:Bassin Koi"), noms("bassin koi"));
+    }
+
+    @Test
+    void categoriesDesBassinsVisibles() {
+        indexer(1, "Lotus", 10L, "Préformés", false);
+        indexer(2, "Koi", 20L, "Maçonnés", true);
+        assertEquals(List.of("categorie:Préformés"), noms("preform"));
+        // Bassin archivé : ni lui ni sa catégorie
+        assertTrue(noms("koi ").isEmpty());
+        assertTrue(noms("maconne").isEmpty());
+        // Dernier bassin visible retiré : la catégorie disparaît
+        suggestions.retirer(1L);
+        assertTrue(noms("preform").isEmpty());
+    }
+
+    @Test
+    void nombreDeSuggestionsBorne() {
+        for (long id = 1; id <= 30; id++) {
+            indexer(id, "Bassin " + id, null, null, false);
+        }
+        assertEquals(3, suggestions.suggerer("bassin ", 3).size());
+        assertTrue(suggestions.suggerer("bassin ", 0).isEmpty());
+    }
+}
@@ -8,6 +8,7 @@ import feign.Logger;
 import feign.RequestInterceptor;
 import feign.codec.Decoder;
 import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
 import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
 import org.springframework.cloud.openfeign.support.SpringDecoder;
@@ -20,12 +21,19 @@ import org.springframework.security.oauth2.jwt.Jwt;
 
 @Configuration
 public class FeignConfig {
+
+    // Secret partagé avec AquaTresor : ouvre les endpoints internes (réservations de stock)
+    @Value("${services.token}")
+    private String serviceToken;
     
     @Bean
     public RequestInterceptor requestInterceptor() {
         return requestTemplate -> {
             // Headers communs
             requestTemplate.header("Content-Type", "application/json");
+            if (serviceToken != null && !serviceToken.isBlank()) {
+                requestTemplate.header("X-Service-Token", serviceToken);
+            }
             
             // Ajout du JWT si disponible
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -0,0 +1,21 @@
+package com.example.orders_microservice.dto;
+
+import lombok.Data;
+
+/**
+ * Prix courant d'un bassin calculé par AquaTresor (GET /api/catalogue/prix) : prix de base, meilleure
+ * promotion en cours et prix remisé. tauxReduction, idPromotion et nomPromotion sont null sans promotion.
+ */
+@Data
+public class PrixEffectifDTO {
+    private Long idBassin;
+    private Double prix;
+    private Double prixEffectif;
+    private Double tauxReduction;
+    private Long idPromotion;
+    private String nomPromotion;
+
+    public boolean isPromotionActive() {
+        return idPromotion != null;
+    }
+}
@@ -84,6 +84,9 @@ public ResponseEntity<?> getPanier(
             panier = panierService.getOrCreatePanier(null, sessionId);
         }
         
+        // Consulter le panier prolonge ses réservations de stock
+        panierService.prolongerReservations(panier);
+        
         // Convertir le panier en réponse
         PanierResponse response = mapToPanierResponse(panier);
         
@@ -137,14 +140,7 @@ public ResponseEntity<?> addItemToCart(@Valid @RequestBody PanierItemRequest req
             request.validateForCustomBassin();
         }
 
-        // Stock check for standard items
-        if (!request.getIsCustomized() && request.getBassinId() != null) {
-            BassinDTO bassin = bassinClient.getBassinDetails(request.getBassinId());
-            if ("DISPONIBLE".equals(bassin.getStatus()) && bassin.getStock() < request.getQuantity()) {
-                throw new InsufficientStockException("Stock insuffisant. Disponible: " + bassin.getStock(),
-                        bassin.getStock());
-            }
-        }
+        // Le stock des articles standards est réservé par addItemToPanier (409 si insuffisant)
         
         // Validation du statut
         if (request.getStatus() == null) {
@@ -4,10 +4,14 @@ package com.example.orders_microservice.service;
 import com.example.orders_microservice.config.FeignClientConfig;
 import com.example.orders_microservice.config.FeignConfig;
 import com.example.orders_microservice.dto.BassinDTO;
+import com.example.orders_microservice.dto.PrixEffectifDTO;
 import com.example.orders_microservice.dto.UpdateStockRequest;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @FeignClient(
 	    name = "bassins-microservice", 
 	    url = "http://localhost:8089/aquatresor",
@@ -18,6 +22,20 @@ import org.springframework.web.bind.annotation.*;
 	    @GetMapping("/api/getbyid/{id}")
 	    BassinDTO getBassinDetails(@PathVariable Long id);
 	    
+	    // Prix courants (promotion en cours comprise) calculés par le catalogue ; ids inconnus ignorés
+	    @GetMapping("/api/catalogue/prix")
+	    List<PrixEffectifDTO> getPrixEffectifs(@RequestParam("ids") List<Long> ids);
+	    
 	    @PostMapping("/api/bassins/update-stock")
 	    void updateStock(@RequestBody UpdateStockRequest request);
+	    
+	    // Réservations de stock du panier : bassin -> quantité, les bassins absents sont libérés
+	    @PutMapping("/api/reservations/paniers/{panier}")
+	    void reserverPanier(@PathVariable("panier") String panier, @RequestBody Map<Long, Integer> quantites);
+	    
+	    @PostMapping("/api/reservations/paniers/{panier}/prolonger")
+	    void prolongerReservations(@PathVariable("panier") String panier);
+	    
+	    @DeleteMapping("/api/reservations/paniers/{panier}")
+	    void libererReservations(@PathVariable("panier") String panier);
 	}
\ No newline at end of file
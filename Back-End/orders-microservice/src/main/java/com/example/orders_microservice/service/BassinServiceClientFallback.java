@@ -1,11 +1,21 @@
 package com.example.orders_microservice.service;
 
 import com.example.orders_microservice.dto.BassinDTO;
+import com.example.orders_microservice.dto.PrixEffectifDTO;
 import com.example.orders_microservice.dto.UpdateStockRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
 
 @Component
 public class BassinServiceClientFallback implements BassinServiceClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(BassinServiceClientFallback.class);
     
     @Override
     public BassinDTO getBassinDetails(Long id) {
@@ -17,10 +27,33 @@ public class BassinServiceClientFallback implements BassinServiceClient {
         return fallbackBassin;
     }
     
+    @Override
+    public List<PrixEffectifDTO> getPrixEffectifs(List<Long> ids) {
+        // Aucun prix : les articles gardent le dernier prix connu
+        return List.of();
+    }
+    
     @Override
     public void updateStock(UpdateStockRequest request) {
-        // Log the error
-        System.err.println("Failed to update stock for bassin: " + request.getBassinId());
+        logger.error("Failed to update stock for bassin: {}", request.getBassinId());
         // Consider implementing retry logic here or queue the request for later
     }
+    
+    @Override
+    public void reserverPanier(String panier, Map<Long, Integer> quantites) {
+        // Sans réservation confirmée, le panier ne doit pas être modifié : une panne n'est pas un succès
+        logger.error("Failed to reserve stock for cart: {}", panier);
+        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Stock reservation unavailable, please try again later");
+    }
+    
+    @Override
+    public void prolongerReservations(String panier) {
+        logger.warn("Failed to extend stock reservations for cart: {}", panier);
+    }
+    
+    @Override
+    public void libererReservations(String panier) {
+        logger.warn("Failed to release stock reservations for cart: {}", panier);
+    }
 }
\ No newline at end of file
@@ -23,5 +23,6 @@ public interface PanierService {
     public void removeItemFromPanier(Long userId, String sessionId, Long itemId) ;
     public PanierItem updateItemQuantity(Long userId, String sessionId, Long itemId, int newQuantity) ;
     public void updatePanierTotals(Panier panier);
+    public void prolongerReservations(Panier panier);
     
 }
\ No newline at end of file
@@ -4,7 +4,7 @@ import com.example.orders_microservice.dto.AccessoireDTO;
 import com.example.orders_microservice.dto.BassinDTO;
 import com.example.orders_microservice.dto.BassinPersonnaliseDTO;
 import com.example.orders_microservice.dto.PanierItemRequest;
-import com.example.orders_microservice.dto.PromotionDTO;
+import com.example.orders_microservice.dto.PrixEffectifDTO;
 import com.example.orders_microservice.entities.BassinCustomization;
 import com.example.orders_microservice.entities.CustomizationAccessoire;
 import com.example.orders_microservice.entities.Panier;
@@ -17,6 +17,10 @@ import com.example.orders_microservice.repos.PanierItemAccessoireRepository;
 import com.example.orders_microservice.repos.PanierItemRepository;
 import com.example.orders_microservice.repos.PanierRepository;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import feign.FeignException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
@@ -36,7 +40,6 @@ public class PanierServiceImpl implements PanierService {
 	private static final Logger logger = LoggerFactory.getLogger(PanierServiceImpl.class);
 
 	private final PanierItemAccessoireRepository panierItemAccessoireRepository;
-	private final PromotionServiceClient promotionClient;
 	private final AccessoireServiceClient accessoireClient;
 
 	@Autowired
@@ -60,14 +63,15 @@ public class PanierServiceImpl implements PanierService {
 	
 	private static final int SESSION_CART_EXPIRATION_HOURS = 48;
 
+	private static final ObjectMapper REPONSE_MAPPER = new ObjectMapper();
+
 	public PanierServiceImpl(PanierRepository panierRepository, PanierItemRepository panierItemRepository,
 			PanierItemAccessoireRepository panierItemAccessoireRepository, BassinServiceClient bassinClient,
-			PromotionServiceClient promotionClient, AccessoireServiceClient accessoireClient,BassinPersonnaliseClient bassinPersonnaliseClient ) {
+			AccessoireServiceClient accessoireClient,BassinPersonnaliseClient bassinPersonnaliseClient ) {
 		this.panierRepository = panierRepository;
 		this.panierItemRepository = panierItemRepository;
 		this.panierItemAccessoireRepository = panierItemAccessoireRepository;
 		this.bassinClient = bassinClient;
-		this.promotionClient = promotionClient;
 		this.accessoireClient = accessoireClient;
 		this.bassinPersonnaliseClient = bassinPersonnaliseClient;
 	}
@@ -125,6 +129,7 @@ public class PanierServiceImpl implements PanierService {
             
             // Mettre à jour la date de dernière modification
             userPanier.setLastUpdated(LocalDateTime.now());
+            actualiserPrix(userPanier);
             return panierRepository.save(userPanier);
         }
         
@@ -143,6 +148,7 @@ public class PanierServiceImpl implements PanierService {
         
         // Mettre à jour la date de dernière modification
         sessionPanier.setLastUpdated(LocalDateTime.now());
+        actualiserPrix(sessionPanier);
         return panierRepository.save(sessionPanier);
     }
 
@@ -194,34 +200,44 @@ public class PanierServiceImpl implements PanierService {
 				.findFirst();
 	}
 
-	private void applyPromotionToItem(PanierItem item, PromotionDTO promotion) {
-		item.setPromotionActive(true);
-		item.setNomPromotion(promotion.getNomPromotion());
-		item.setTauxReduction(promotion.getTauxReduction());
-		item.setPrixPromo(calculatePromoPrice(item.getPrixOriginal(), promotion.getTauxReduction()));
-	}
-
-	private double calculatePromoPrice(double originalPrice, double reductionRate) {
-		return originalPrice * (1 - (reductionRate / 100.0));
+	// Prix et promotion des articles du catalogue, lus dans le moteur de prix d'AquaTresor en un appel
+	// pour tous les articles ; les articles personnalisés gardent leur prix estimé.
+	// Retourne true si des prix ont été lus.
+	private boolean actualiserPrix(List<PanierItem> items) {
+		List<Long> ids = items.stream()
+				.filter(item -> !Boolean.TRUE.equals(item.getIsCustomized()) && item.getBassinId() != null)
+				.map(PanierItem::getBassinId)
+				.distinct()
+				.collect(Collectors.toList());
+		if (ids.isEmpty()) {
+			return false;
+		}
+		Map<Long, PrixEffectifDTO> prix = new HashMap<>();
+		try {
+			bassinClient.getPrixEffectifs(ids).forEach(p -> prix.put(p.getIdBassin(), p));
+		} catch (Exception e) {
+			logger.warn("Could not read catalogue prices for items {}: {}", ids, e.getMessage());
+			return false;
+		}
+		for (PanierItem item : items) {
+			PrixEffectifDTO p = Boolean.TRUE.equals(item.getIsCustomized()) ? null : prix.get(item.getBassinId());
+			if (p != null && p.getPrixEffectif() != null) {
+				item.setPrixOriginal(p.getPrix());
+				item.setPromotionActive(p.isPromotionActive());
+				item.setNomPromotion(p.getNomPromotion());
+				item.setTauxReduction(p.getTauxReduction());
+				item.setPrixPromo(p.isPromotionActive() ? p.getPrixEffectif() : null);
+				item.setEffectivePrice(p.getPrixEffectif());
+				item.setSubtotal(item.getEffectivePrice() * item.getQuantity());
+			}
+		}
+		return !prix.isEmpty();
 	}
 
-	private void updateItemPromotion(PanierItem item, PanierItemRequest request) {
-		if (request.getPromotionId() != null) {
-			PromotionDTO promotion = promotionClient.getPromotionById(request.getPromotionId());
-			applyPromotionToItem(item, promotion);
-		} else if (request.getTauxReduction() != null) {
-			item.setPromotionActive(true);
-			item.setNomPromotion(request.getNomPromotion());
-			item.setTauxReduction(request.getTauxReduction());
-			item.setPrixPromo(calculatePromoPrice(item.getPrixOriginal(), request.getTauxReduction()));
-		} else if (!item.getIsCustomized() && item.getBassinId() != null) {
-			BassinDTO bassin = bassinClient.getBassinDetails(item.getBassinId());
-			if (bassin.getPromotionId() != null) {
-				PromotionDTO promotion = promotionClient.getPromotionById(bassin.getPromotionId());
-				if (promotion.isActive()) {
-					applyPromotionToItem(item, promotion);
-				}
-			}
+	// Prix courants à chaque lecture du panier : une promotion commencée ou terminée depuis l'ajout s'applique
+	private void actualiserPrix(Panier panier) {
+		if (panier.getItems() != null && actualiserPrix(panier.getItems())) {
+			panier.setTotalPrice(panier.getItems().stream().mapToDouble(PanierItem::getSubtotal).sum());
 		}
 	}
 
@@ -264,6 +280,11 @@ public class PanierServiceImpl implements PanierService {
 		panierItemRepository.delete(item);
 
 		updatePanierTotals(panier);
+		try {
+			synchroniserReservations(panier);
+		} catch (Exception e) {
+			logger.warn("Could not update stock reservations for cart {}: {}", panier.getId(), e.getMessage());
+		}
 	}
 	 
     @Override
@@ -273,12 +294,14 @@ public class PanierServiceImpl implements PanierService {
                 panier.getItems().clear();
                 panier.setLastUpdated(LocalDateTime.now());
                 panierRepository.save(panier);
+                libererReservations(panier);
             });
         } else if (sessionId != null) {
             panierRepository.findBySessionId(sessionId).ifPresent(panier -> {
                 panier.getItems().clear();
                 panier.setLastUpdated(LocalDateTime.now());
                 panierRepository.save(panier);
+                libererReservations(panier);
             });
         }
     }
@@ -340,6 +363,7 @@ public class PanierServiceImpl implements PanierService {
 			try {
 				panierItemRepository.deleteAll(expiredCart.getItems());
 				panierRepository.delete(expiredCart);
+				libererReservations(expiredCart);
 			} catch (Exception e) {
 				logger.error("Error deleting expired cart: {}", e.getMessage());
 			}
@@ -425,15 +449,13 @@ public class PanierServiceImpl implements PanierService {
 		PanierItem item = panierItemRepository.findByIdAndPanierId(itemId, panier.getId())
 				.orElseThrow(() -> new EntityNotFoundException("Item not found in cart"));
 
-		// Vérifier le stock uniquement pour les articles DISPONIBLES
+		item.setQuantity(newQuantity);
+
+		// Réserver le stock uniquement pour les articles DISPONIBLES (refus : la transaction est annulée)
 		if (!item.getIsCustomized() && item.getBassinId() != null && "DISPONIBLE".equalsIgnoreCase(item.getStatus())) {
-			BassinDTO bassin = bassinClient.getBassinDetails(item.getBassinId());
-			if (bassin.getStock() < newQuantity) {
-				throw new InsufficientStockException("Insufficient stock", bassin.getStock());
-			}
+			synchroniserReservations(panier);
 		}
 
-		item.setQuantity(newQuantity);
 		item = panierItemRepository.save(item);
 
 		updatePanierTotals(panier);
@@ -545,28 +567,9 @@ private PanierItem handleStandardBassin(Panier panier, PanierItemRequest request
     item.setStatus(bassin.getStatus());
     item.setPrixOriginal(bassin.getPrix());
     
-    // Handle promotion
-    if (request.getPromotionId() != null) {
-        try {
-            PromotionDTO promotion = promotionClient.getPromotionDetails(request.getPromotionId());
-            if (promotion != null && promotion.isActive()) {
-                item.setPromotionActive(true);
-                item.setNomPromotion(promotion.getNomPromotion());
-                item.setTauxReduction(promotion.getTauxReduction());
-                
-                double discountedPrice = Math.round(bassin.getPrix() * (1 - promotion.getTauxReduction() / 100.0) * 100.0) / 100.0;
-                
-                item.setPrixPromo(discountedPrice);
-                item.setEffectivePrice(discountedPrice);
-            }
-        } catch (Exception e) {
-            logger.warn("Could not apply promotion", e);
-        }
-    }
-    
-    if (item.getEffectivePrice() == null) {
-        item.setEffectivePrice(bassin.getPrix());
-    }
+    // Prix et promotion en cours : moteur de prix du catalogue
+    item.setEffectivePrice(bassin.getPrix());
+    actualiserPrix(List.of(item));
     
     // Process accessories
     if (request.getAccessoireIds() != null && !request.getAccessoireIds().isEmpty()) {
@@ -593,8 +596,11 @@ private PanierItem handleStandardBassin(Panier panier, PanierItemRequest request
     // Calculate subtotal
     item.setSubtotal(item.getEffectivePrice() * item.getQuantity());
     
-    // Save the item
+    // Réserver le stock avant d'enregistrer (refus : la transaction est annulée)
     panier.getItems().add(item);
+    synchroniserReservations(panier);
+    
+    // Save the item
     panierRepository.save(panier);
     updatePanierTotals(panier);
     
@@ -614,23 +620,9 @@ private PanierItem handleStandardBassin(Panier panier, PanierItemRequest request
 		item.setIsCustomized(false);
 		item.setStatus(request.getStatus());
 
-		// Set promotion details if applicable - handle null case
-		Boolean isPromotionActive = request.getPromotionActive();
-		if (isPromotionActive != null && isPromotionActive) {
-			item.setPromotionActive(true);
-			item.setNomPromotion(request.getNomPromotion());
-			item.setTauxReduction(request.getTauxReduction());
-			item.setPrixPromo(request.getPrixPromo());
-		} else {
-			item.setPromotionActive(false);
-		}
-
-		// Set effective price
-		if (item.isPromotionActive() && item.getPrixPromo() != null) {
-			item.setEffectivePrice(item.getPrixPromo());
-		} else {
-			item.setEffectivePrice(item.getPrixOriginal());
-		}
+		// Prix et promotion en cours : moteur de prix du catalogue
+		item.setEffectivePrice(item.getPrixOriginal());
+		actualiserPrix(List.of(item));
 
 		// Set subtotal
 		item.setSubtotal(item.getEffectivePrice() * item.getQuantity());
@@ -759,6 +751,7 @@ private PanierItem handleStandardBassin(Panier panier, PanierItemRequest request
 
 		updatePanierTotals(userCart);
 		panierRepository.delete(sessionCart);
+		transfererReservations(sessionCart, userCart);
 
 		if (!problematicItems.isEmpty()) {
 			logger.warn("{} items had issues during migration", problematicItems.size());
@@ -864,6 +857,7 @@ private PanierItem handleStandardBassin(Panier panier, PanierItemRequest request
 		} catch (Exception e) {
 			logger.error("Error deleting secondary cart: {}", e.getMessage());
 		}
+		transfererReservations(secondaryCart, primaryCart);
 
 		if (!problematicItems.isEmpty()) {
 			logger.warn("{} items had issues during merge", problematicItems.size());
@@ -872,31 +866,69 @@ private PanierItem handleStandardBassin(Panier panier, PanierItemRequest request
 		return primaryCart;
 	}
 
-	private PanierItem updateExistingItem(PanierItem item, PanierItemRequest request, BassinDTO bassin) {
-		int newQuantity = item.getQuantity() + request.getQuantity();
+	@Override
+	public void prolongerReservations(Panier panier) {
+		if (panier.getId() == null || panier.getItems() == null || panier.getItems().isEmpty()) {
+			return;
+		}
+		try {
+			bassinClient.prolongerReservations(panier.getId().toString());
+		} catch (Exception e) {
+			logger.warn("Could not extend stock reservations for cart {}: {}", panier.getId(), e.getMessage());
+		}
+	}
 
-		// Vérification du stock uniquement pour les articles DISPONIBLES
-		if (!item.getIsCustomized() && item.getBassinId() != null && "DISPONIBLE".equalsIgnoreCase(item.getStatus())) {
-			if (bassin.getStock() < newQuantity) {
-				throw new InsufficientStockException("Stock total insuffisant", bassin.getStock());
+	/**
+	 * Réserve chez AquaTresor le stock des bassins DISPONIBLES du panier (quantités cumulées par bassin) ;
+	 * les réservations des bassins qui n'y sont plus sont libérées.
+	 *
+	 * @throws InsufficientStockException si un bassin n'a plus assez de stock non réservé
+	 */
+	private void synchroniserReservations(Panier panier) {
+		Map<Long, Integer> quantites = new HashMap<>();
+		if (panier.getItems() != null) {
+			for (PanierItem item : panier.getItems()) {
+				if (!Boolean.TRUE.equals(item.getIsCustomized()) && item.getBassinId() != null
+						&& "DISPONIBLE".equalsIgnoreCase(item.getStatus())) {
+					quantites.merge(item.getBassinId(), item.getQuantity(), Integer::sum);
+				}
 			}
 		}
-
-		item.setQuantity(newQuantity);
-		updateItemPromotion(item, request);
-
-		if (request.getPrixOriginal() != null) {
-			item.setPrixOriginal(request.getPrixOriginal());
+		try {
+			bassinClient.reserverPanier(panier.getId().toString(), quantites);
+		} catch (FeignException.Conflict e) {
+			int disponible = 0;
+			String message = "Stock insuffisant";
+			try {
+				JsonNode corps = REPONSE_MAPPER.readTree(e.contentUTF8());
+				disponible = corps.path("availableStock").asInt(0);
+				message = corps.path("message").asText(message);
+			} catch (Exception ignored) {
+				// Corps illisible : message par défaut
+			}
+			throw new InsufficientStockException(message, disponible);
 		}
+	}
 
-		// Mise à jour de la durée de fabrication pour les articles personnalisés
-		if (item.getIsCustomized() && request.getDureeFabrication() != null) {
-			item.setDureeFabrication(request.getDureeFabrication() + " jours");
+	private void libererReservations(Panier panier) {
+		if (panier.getId() == null) {
+			return;
 		}
+		try {
+			bassinClient.libererReservations(panier.getId().toString());
+		} catch (Exception e) {
+			logger.warn("Could not release stock reservations for cart {}: {}", panier.getId(), e.getMessage());
+		}
+	}
 
-		panierItemRepository.save(item);
-		updatePanierTotals(item.getPanier());
-		return item;
+	// Fusion de paniers : les réservations passent du panier supprimé au panier conservé
+	private void transfererReservations(Panier source, Panier cible) {
+		libererReservations(source);
+		try {
+			synchroniserReservations(cible);
+		} catch (Exception e) {
+			logger.warn("Could not reserve stock for merged cart {}: {}", cible.getId(), e.getMessage());
+		}
 	}
 
 private PanierItem createNewPanierItem(Panier panier, PanierItemRequest request, BassinDTO bassin) {
@@ -921,7 +953,7 @@ private PanierItem createNewPanierItem(Panier panier, PanierItemRequest request,
         handleStandardItem(panierItem, request, bassin);
     }
 
-    handlePromotion(panierItem, request);
+    actualiserPrix(List.of(panierItem));
 
     PanierItem savedItem = panierItemRepository.save(panierItem);
     if (panierItem.getAccessoires() != null && !panierItem.getAccessoires().isEmpty()) {
@@ -1009,34 +1041,6 @@ private void setFabricationDuration(PanierItem panierItem, BassinDTO bassin) {
     }
 }
 
-private void handlePromotion(PanierItem panierItem, PanierItemRequest request) {
-    if (request.getPromotionId() != null) {
-        applyPromotionFromId(panierItem, request);
-    } else if (request.getTauxReduction() != null) {
-        applyDirectPromotion(panierItem, request);
-    }
-}
-
-private void applyPromotionFromId(PanierItem panierItem, PanierItemRequest request) {
-    PromotionDTO promotion = promotionClient.getPromotionById(request.getPromotionId());
-    if (promotion != null && promotion.isActive()) {
-        panierItem.setPromotionActive(true);
-        panierItem.setNomPromotion(promotion.getNomPromotion());
-        panierItem.setTauxReduction(promotion.getTauxReduction());
-        panierItem.setPrixPromo(calculateDiscountedPrice(panierItem.getPrixOriginal(), promotion.getTauxReduction()));
-    }
-}
-
-private void applyDirectPromotion(PanierItem panierItem, PanierItemRequest request) {
-    panierItem.setPromotionActive(true);
-    panierItem.setNomPromotion(request.getNomPromotion());
-    panierItem.setTauxReduction(request.getTauxReduction());
-    panierItem.setPrixPromo(calculateDiscountedPrice(panierItem.getPrixOriginal(), request.getTauxReduction()));
-}
-
-private double calculateDiscountedPrice(double originalPrice, double discountRate) {
-    return originalPrice * (1 - discountRate / 100);
-}
 	private PanierItem saveItem(PanierItem item) {
 	    if (item.getPromotionActive() == null) {
 	        item.setPromotionActive(false);
@@ -11,4 +11,5 @@ public interface UserRepository extends JpaRepository<User, Long> {
     User findByUsername(String username);
     Optional<User> findByEmail(String email);
     List<User> findByRoles_Role(String role);
+    long countByProfileImage(String profileImage);
 }
\ No newline at end of file
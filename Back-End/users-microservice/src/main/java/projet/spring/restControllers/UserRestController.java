@@ -19,15 +19,19 @@ import projet.spring.service.UserService;
 import projet.spring.service.exceptions.*;
 import projet.spring.service.register.RegistrationRequest;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.net.MalformedURLException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @CrossOrigin(origins = "*")
@@ -133,18 +137,27 @@ public class UserRestController {
 	
 	@GetMapping("/downloadFile/{fileName}")
 	public ResponseEntity<Resource> downloadFile(@PathVariable String fileName) {
-	    try {
-	        Path filePath = fileStorageService.loadFile(fileName);
-	        Resource resource = new UrlResource(filePath.toUri());
+	    Path filePath = fileStorageService.loadFile(fileName);
+	    if (filePath == null || !Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
+	        return ResponseEntity.notFound().build();
+	    }
 
-	        if (resource.exists() || resource.isReadable()) {
-	            return ResponseEntity.ok()
-	                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-	                    .body(resource);
-	        } else {
-	            throw new RuntimeException("Impossible de lire le fichier : " + fileName);
-	        }
-	    } catch (MalformedURLException e) {
+	    try {
+	        // Le fichier est recopié en flux par Spring : 304 sur If-None-Match / If-Modified-Since,
+	        // 206 sur un en-tête Range, jamais de lecture complète en mémoire.
+	        long lastModified = Files.getLastModifiedTime(filePath).toMillis();
+	        String etag = "\"" + Long.toHexString(Files.size(filePath)) + "-" + Long.toHexString(lastModified) + "\"";
+	        String name = filePath.getFileName().toString();
+
+	        return ResponseEntity.ok()
+	                .contentType(MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM))
+	                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "\"")
+	                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+	                .eTag(etag)
+	                .lastModified(lastModified)
+	                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate().mustRevalidate())
+	                .body(new FileSystemResource(filePath));
+	    } catch (IOException e) {
 	        throw new RuntimeException("Erreur lors de la lecture du fichier : " + fileName, e);
 	    }
 	}
@@ -1,18 +1,38 @@
 package projet.spring.service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 @Service
 public class FileStorageService {
 
-    private final String uploadDir = "C:/uploads";
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
 
+    // Content-addressed names: sha256 of the bytes + extension
+    private static final Pattern NOM_HACHE = Pattern.compile("^[0-9a-f]{64}(\\.[a-z0-9]{1,10})?$");
+
+    @Value("${storage.local.root:C:/uploads}")
+    private String uploadDir;
+
+    /**
+     * Streams the upload to a temp file while hashing it, then names it after its SHA-256.
+     * Identical images are stored once: if the name already exists, the temp file is dropped.
+     */
     public String storeFile(MultipartFile file) throws IOException {
         Path uploadPath = Paths.get(uploadDir);
 
@@ -21,18 +41,63 @@ public class FileStorageService {
             Files.createDirectories(uploadPath);
         }
 
-        // Generate a unique filename
-        String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(fileName);
+        Path temp = Files.createTempFile(uploadPath, "upload-", ".tmp");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String fileName = HexFormat.of().formatHex(digest.digest()) + extension(file.getOriginalFilename());
+            Path filePath = uploadPath.resolve(fileName);
+            if (!Files.exists(filePath)) {
+                try {
+                    Files.move(temp, filePath, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    // Stored concurrently by another request: same bytes, keep the existing file
+                    if (!Files.exists(filePath)) {
+                        throw e;
+                    }
+                }
+            }
+            return fileName;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-        // Save the file
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    public Path loadFile(String fileName) {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path file = root.resolve(fileName).normalize();
+        // Never serve anything outside the upload directory (../ or absolute names)
+        return file.startsWith(root) ? file : null;
+    }
 
-        // Return the filename
-        return fileName;
+    /**
+     * Deletes a stored file. Callers must first check that no user references it anymore
+     * (the reference count is the number of users pointing at the name).
+     */
+    public void deleteFile(String fileName) {
+        if (fileName == null || !NOM_HACHE.matcher(fileName).matches()) {
+            return; // legacy timestamped names are left untouched
+        }
+        Path file = loadFile(fileName);
+        try {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete {}: {}", fileName, e.getMessage());
+        }
     }
 
-    public Path loadFile(String fileName) {
-        return Paths.get(uploadDir).resolve(fileName);
+    private static String extension(String originalName) {
+        if (originalName == null) {
+            return "";
+        }
+        int dot = originalName.lastIndexOf('.');
+        String ext = dot >= 0 ? originalName.substring(dot).toLowerCase(Locale.ROOT) : "";
+        return ext.matches("\\.[a-z0-9]{1,10}") ? ext : "";
     }
-}
\ No newline at end of file
+}
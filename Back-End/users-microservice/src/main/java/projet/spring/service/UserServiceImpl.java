@@ -6,6 +6,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import projet.spring.entities.Role;
 import projet.spring.entities.User;
@@ -35,6 +37,9 @@ public class UserServiceImpl implements UserService {
 	@Autowired
 	private EmailSender emailSender;
 
+	@Autowired
+	private FileStorageService fileStorageService;
+
 	@Autowired
 	public UserServiceImpl(UserRepository userRep, RoleRepository roleRep, BCryptPasswordEncoder bCryptPasswordEncoder,
 			VerificationTokenRepository verificationTokenRepo, EmailSender emailSender) {
@@ -193,13 +198,34 @@ public class UserServiceImpl implements UserService {
 	    }
 
 	    // Mise à jour de l'image de profil
+	    String ancienneImage = user.getProfileImage();
 	    if (profileImagePath != null && !profileImagePath.isEmpty()) {
 	        user.setProfileImage(profileImagePath); // Stockez uniquement le nom du fichier
 	    }
 	    userRep.save(user);
+
+	    // Les images sont nommées par leur empreinte (partagées entre utilisateurs) :
+	    // l'ancienne n'est supprimée qu'une fois plus aucun utilisateur ne la référence
+	    if (ancienneImage != null && !ancienneImage.equals(user.getProfileImage())
+	            && userRep.countByProfileImage(ancienneImage) == 0) {
+	        supprimerApresCommit(ancienneImage);
+	    }
 	    return true;
 	}
 	
+	private void supprimerApresCommit(String fileName) {
+	    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+	        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+	            @Override
+	            public void afterCommit() {
+	                fileStorageService.deleteFile(fileName);
+	            }
+	        });
+	    } else {
+	        fileStorageService.deleteFile(fileName);
+	    }
+	}
+
 	@Override
 	public void sendInstallerInvitation(String email) {
 		String token = UUID.randomUUID().toString();
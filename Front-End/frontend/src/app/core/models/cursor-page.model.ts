@@ -0,0 +1,7 @@
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor?: string;
+  hasMore: boolean;
+  size: number;
+  sort: string;
+}
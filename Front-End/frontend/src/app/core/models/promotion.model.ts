@@ -25,4 +25,14 @@ export class Promotion {
       this.categories = data.categories || [];
     }
   }
-}
\ No newline at end of file
+}
+
+// Bilan renvoyé par applyToBassins / applyToCategorie
+export interface PromotionAppliquee {
+  idPromotion: number;
+  nomPromotion: string;
+  idCategorie?: number;
+  bassinsAjoutes: number;
+  bassinsRetires: number;
+  bassinsIntrouvables: number[];
+}
@@ -0,0 +1,8 @@
+export interface SearchPage<T> {
+  items: T[];
+  total: number;
+  page: number;
+  size: number;
+  hasMore: boolean;
+  query?: string;
+}
@@ -4,13 +4,15 @@ import { Bassin } from '../models/bassin.models';
 import { Categorie } from '../models/categorie.models';
 import { ImageBassin } from '../models/image.models';
 
-import { catchError, map, Observable ,of, switchMap, throwError} from 'rxjs';
+import { catchError, EMPTY, expand, forkJoin, map, Observable ,of, reduce, switchMap, throwError} from 'rxjs';
 import { HttpClient, HttpErrorResponse, HttpHeaders, HttpParams } from '@angular/common/http';
 import { AuthService } from '../authentication/auth.service';
 import { CategorieWrapper } from '../models/CategorieWrapper.models';
 import { BassinPersonnalise } from '../models/bassinpersonnalise.models';
 import { Accessoire } from '../models/accessoire.models';
 import { Promotion } from '../models/promotion.model';
+import { CursorPage } from '../models/cursor-page.model';
+import { SearchPage } from '../models/search-page.model';
 
 const httpOptions = {
   headers: new HttpHeaders({ 'Content-Type': 'application/json' })
@@ -416,17 +418,32 @@ return this.http.get<Bassin[]>(this.apiURL + "/all", { headers }).pipe(
 }
 
 getBassinsNonArchives(): Observable<Bassin[]> {
-return this.http.get<Bassin[]>(`${this.apiURL}/non-archives`).pipe(
+return this.getAllPages(`${this.apiURL}/non-archives`).pipe(
   map(bassins => bassins.map(bassin => this.syncBassinStatus(bassin)))
 );
 }
 
 getBassinsArchives(): Observable<Bassin[]> {
-return this.http.get<Bassin[]>(`${this.apiURL}/archives`).pipe(
+return this.getAllPages(`${this.apiURL}/archives`).pipe(
   map(bassins => bassins.map(bassin => this.syncBassinStatus(bassin)))
 );
 }
 
+// Parcourt toutes les pages d'un listing paginé par curseur
+private getAllPages(url: string): Observable<Bassin[]> {
+  const fetchPage = (cursor?: string) => {
+    let params = new HttpParams().set('size', 100);
+    if (cursor) {
+      params = params.set('cursor', cursor);
+    }
+    return this.http.get<CursorPage<Bassin>>(url, { params });
+  };
+  return fetchPage().pipe(
+    expand(page => page.hasMore && page.nextCursor ? fetchPage(page.nextCursor) : EMPTY),
+    reduce((acc, page) => acc.concat(page.items), [] as Bassin[])
+  );
+}
+
 archiverBassin(id: number): Observable<Bassin> {
   const headers = new HttpHeaders({
     'Authorization': `Bearer ${this.getAuthService().getToken()}`
@@ -524,61 +541,85 @@ listeBassinClient(): Observable<Bassin[]> {
   );
 }
 
-// Liste des bassins avec leurs promotions actives
-listeBassinsAvecPromotions(): Observable<Bassin[]> {
-  return this.http.get<any[]>(`${this.apiURL}/promotions/bassins?includePromotions=true`, {
-    headers: {
-      Authorization: `Bearer ${this.getAuthService().getToken()}`,
-    }
+// Une page des bassins avec leurs promotions actives (page commence à 0)
+listeBassinsAvecPromotions(page: number = 0, size: number = 24): Observable<SearchPage<Bassin>> {
+  return this.http.get<SearchPage<any>>(`${this.apiURL}/promotions/bassins`, {
+    headers: this.promotionsHeaders(),
+    params: new HttpParams().set('includePromotions', true).set('page', page).set('size', size)
   }).pipe(
-    map(data => {
-      const now = new Date(); // Ajout de la date actuelle pour vérification
-      
-      return data.map(item => {
-        const bassin = new Bassin();
-        bassin.idBassin = item.idBassin;
-        bassin.nomBassin = item.nomBassin;
-        bassin.description = item.description;
-        bassin.prix = item.prix;
-        bassin.materiau = item.materiau;
-        bassin.couleur = item.couleur;
-        bassin.dimensions = item.dimensions;
-        bassin.disponible = item.disponible;
-        bassin.stock = item.stock;
-        bassin.archive = item.archive;
-        bassin.categorie = item.categorie;
-        bassin.imagesBassin = item.imagesBassin;
-        
-        // Gérer les promotions
-        if (item.activePromotion) {
-          bassin.promotion = new Promotion({
-            idPromotion: item.activePromotion.idPromotion,
-            nomPromotion: item.activePromotion.nomPromotion,
-            tauxReduction: item.activePromotion.tauxReduction,
-            dateDebut: item.activePromotion.dateDebut,
-            dateFin: item.activePromotion.dateFin,
-            status: 'ACTIVE'
-          });
-
-          // Vérifier si la promotion est active en fonction des dates
-          const startDate = new Date(item.activePromotion.dateDebut);
-          const endDate = new Date(item.activePromotion.dateFin);
-          bassin.promotionActive = now >= startDate && now <= endDate;
+    map(resultat => ({ ...resultat, items: resultat.items.map(item => this.versBassinAvecPromotion(item)) }))
+  );
+}
 
-          // Calculer le prix promo si la promotion est active
-          if (bassin.promotionActive) {
-            bassin.prixPromo = bassin.prix * (1 - (item.activePromotion.tauxReduction / 100));
-          }
-        } else {
-          bassin.promotionActive = false;
-        }
-        
-        return this.chargerImagesPourBassin(bassin);
-      });
-    })
+// Promotions actives de bassins précis (fiche, panier, bassins en promotion d'une liste), par lots de 100 ids
+bassinsAvecPromotions(ids: number[]): Observable<Bassin[]> {
+  const distincts = Array.from(new Set(ids));
+  if (distincts.length === 0) {
+    return of([]);
+  }
+  const lots: number[][] = [];
+  for (let i = 0; i < distincts.length; i += 100) {
+    lots.push(distincts.slice(i, i + 100));
+  }
+  return forkJoin(lots.map(lot => this.http.get<SearchPage<any>>(`${this.apiURL}/promotions/bassins`, {
+    headers: this.promotionsHeaders(),
+    params: new HttpParams().set('includePromotions', true).set('ids', lot.join(','))
+  }))).pipe(
+    map(pages => pages.flatMap(resultat => resultat.items.map(item => this.versBassinAvecPromotion(item))))
   );
 }
 
+private promotionsHeaders(): HttpHeaders {
+  return new HttpHeaders({
+    Authorization: `Bearer ${this.getAuthService().getToken()}`,
+  });
+}
+
+private versBassinAvecPromotion(item: any): Bassin {
+  const now = new Date(); // Ajout de la date actuelle pour vérification
+
+  const bassin = new Bassin();
+  bassin.idBassin = item.idBassin;
+  bassin.nomBassin = item.nomBassin;
+  bassin.description = item.description;
+  bassin.prix = item.prix;
+  bassin.materiau = item.materiau;
+  bassin.couleur = item.couleur;
+  bassin.dimensions = item.dimensions;
+  bassin.disponible = item.disponible;
+  bassin.stock = item.stock;
+  bassin.archive = item.archive;
+  bassin.categorie = item.categorie;
+  // La liste ne porte que l'image principale
+  bassin.imagesBassin = item.imagePath ? [{ imagePath: item.imagePath } as ImageBassin] : [];
+  
+  // Gérer les promotions
+  if (item.activePromotion) {
+    bassin.promotion = new Promotion({
+      idPromotion: item.activePromotion.idPromotion,
+      nomPromotion: item.activePromotion.nomPromotion,
+      tauxReduction: item.activePromotion.tauxReduction,
+      dateDebut: item.activePromotion.dateDebut,
+      dateFin: item.activePromotion.dateFin,
+      status: 'ACTIVE'
+    });
+
+    // Vérifier si la promotion est active en fonction des dates
+    const startDate = new Date(item.activePromotion.dateDebut);
+    const endDate = new Date(item.activePromotion.dateFin);
+    bassin.promotionActive = now >= startDate && now <= endDate;
+
+    // Calculer le prix promo si la promotion est active
+    if (bassin.promotionActive) {
+      bassin.prixPromo = bassin.prix * (1 - (item.activePromotion.tauxReduction / 100));
+    }
+  } else {
+    bassin.promotionActive = false;
+  }
+  
+  return this.chargerImagesPourBassin(bassin);
+}
+
 mettreSurCommande(id: number, dureeJours: number): Observable<Bassin> {
   const headers = new HttpHeaders({
       'Authorization': `Bearer ${this.getAuthService().getToken()}`
@@ -1,9 +1,10 @@
 import { Injectable } from '@angular/core';
-import { HttpClient, HttpHeaders } from '@angular/common/http';
+import { HttpClient, HttpHeaders, HttpParams } from '@angular/common/http';
 import { Observable, tap } from 'rxjs';
-import { Promotion } from '../models/promotion.model';
+import { Promotion, PromotionAppliquee } from '../models/promotion.model';
 import { Bassin } from '../models/bassin.models';
 import { AuthService } from '../authentication/auth.service';
+import { SearchPage } from '../models/search-page.model';
 
 @Injectable({
   providedIn: 'root'
@@ -44,20 +45,24 @@ export class PromotionService {
     return this.http.delete(`${this.apiURL}/delete/${id}`, { headers: this.getHeaders() });
   }
   
-  applyPromotionToBassins(promotionId: number, bassinIds: number[]): Observable<Promotion> {
-    return this.http.post<Promotion>(`${this.apiURL}/applyToBassins/${promotionId}`, bassinIds, { headers: this.getHeaders() });
+  applyPromotionToBassins(promotionId: number, bassinIds: number[]): Observable<PromotionAppliquee> {
+    return this.http.post<PromotionAppliquee>(`${this.apiURL}/applyToBassins/${promotionId}`, bassinIds, { headers: this.getHeaders() });
   }
   
-  applyPromotionToCategorie(promotionId: number, categorieId: number): Observable<Promotion> {
-    return this.http.post<Promotion>(`${this.apiURL}/applyToCategorie/${promotionId}/${categorieId}`, {}, { headers: this.getHeaders() });
+  applyPromotionToCategorie(promotionId: number, categorieId: number): Observable<PromotionAppliquee> {
+    return this.http.post<PromotionAppliquee>(`${this.apiURL}/applyToCategorie/${promotionId}/${categorieId}`, {}, { headers: this.getHeaders() });
   }
  
   checkOverlappingPromotions(data: {bassins: number[], categories: number[], dateDebut: string, dateFin: string, promotionId?: number}): Observable<any> {
     return this.http.post<any>(`${this.apiURL}/check-overlaps`, data, { headers: this.getHeaders() });
   }
 
-  getBassinsWithPromotions(): Observable<Bassin[]> {
-    return this.http.get<Bassin[]>(`${this.apiURL}/bassins?includePromotions=true`, { headers: this.getHeaders() });
+  // Une page de la liste des bassins avec leurs promotions en cours (page commence à 0)
+  getBassinsWithPromotions(page: number = 0, size: number = 24): Observable<SearchPage<Bassin>> {
+    return this.http.get<SearchPage<Bassin>>(`${this.apiURL}/bassins`, {
+      headers: this.getHeaders(),
+      params: new HttpParams().set('includePromotions', true).set('page', page).set('size', size)
+    });
   }
 
   archivePromotion(id: number): Observable<any> {
@@ -76,7 +76,7 @@ chargerBassin(): void {
       this.totalPages = Math.ceil(this.bassins.length / this.itemsPerPage); // Mise à jour du nombre total de pages
       this.bassins.forEach((b) => {
         if (b.imagesBassin && b.imagesBassin.length > 0) {
-          b.imageStr = `http://localhost:8089/aquatresor/api/imagesBassin/getFS/${b.imagesBassin[0].imagePath}`;
+          b.imageStr = `http://localhost:8089/aquatresor/api/imagesBassin/getFS/${b.imagesBassin[0].imagePath}?size=card`;
         } else {
           b.imageStr = 'assets/default-image.png';
         }
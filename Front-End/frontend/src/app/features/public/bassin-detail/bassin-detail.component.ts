@@ -1664,7 +1664,7 @@ private getCustomizationSuccessHtml(customization: any, accessoiresPrice: number
           this.loadCustomizationOptions(id);
 
           // Fetch promotions as a separate stream
-          return this.bassinService.listeBassinsAvecPromotions().pipe(
+          return this.bassinService.bassinsAvecPromotions([bassin.idBassin]).pipe(
             map((promotions) => {
               const bassinPromo = promotions.find(
                 (p) => p.idBassin === bassin.idBassin
@@ -156,7 +156,9 @@ export class CartComponent implements OnInit, OnDestroy {
   checkPromotionsUpdates(): void {
     if (this.cartItems.length === 0 || !this.isBrowser) return;
 
-    this.bassinService.listeBassinsAvecPromotions().subscribe({
+    this.bassinService.bassinsAvecPromotions(
+      this.cartItems.filter(item => item.bassinId).map(item => item.bassinId)
+    ).subscribe({
       next: (updatedBassins) => {
         let needsUpdate = false;
 
@@ -532,7 +532,7 @@ isItemOnPromotion(item: PanierItem): boolean {
               this.bassinService.apiURL
             }/imagesBassin/getFS/${encodeURIComponent(
               bassin.imagesBassin[0].imagePath
-            )}`;
+            )}?size=thumbnail`;
           }
           this.cdr.detectChanges();
         },
@@ -631,7 +631,7 @@ isItemOnPromotion(item: PanierItem): boolean {
         this.bassinService.apiURL
       }/imagesBassin/getFS/${encodeURIComponent(
         item.bassin.imagesBassin[0].imagePath
-      )}`;
+      )}?size=thumbnail`;
     }
 
     return 'assets/default-image.webp';
@@ -667,7 +667,7 @@ isItemOnPromotion(item: PanierItem): boolean {
         this.bassinService.apiURL
       }/imagesBassin/getFS/${encodeURIComponent(
         item.bassin.imagesBassin[0].imagePath
-      )}`;
+      )}?size=thumbnail`;
     }
 
     return 'assets/default-image.webp';
@@ -1364,7 +1364,7 @@ item.effectivePrice = item.customization?.prixEstime ?? item.prixOriginal;
         this.bassinService.apiURL
       }/imagesBassin/getFS/${encodeURIComponent(
         item.bassin.imagesBassin[0].imagePath
-      )}`;
+      )}?size=thumbnail`;
     }
     return 'assets/default-image.webp';
   }
@@ -5,7 +5,7 @@ import { Categorie } from '../../../core/models/categorie.models';
 import { Promotion } from '../../../core/models/promotion.model';
 import { BassinService } from '../../../core/services/bassin.service';
 import { CategorieService } from '../../../core/services/categorie.service';
-import { catchError, debounceTime, distinctUntilChanged, finalize, forkJoin, interval, lastValueFrom, map, of, Subject, Subscription, takeUntil, timeout } from 'rxjs';
+import { catchError, debounceTime, distinctUntilChanged, finalize, forkJoin, interval, lastValueFrom, map, of, Subject, Subscription, switchMap, takeUntil, timeout } from 'rxjs';
 import { CartService } from '../../../core/services/cart.service';
 import { Router } from '@angular/router';
 import { trigger, transition, style, animate, query, stagger } from '@angular/animations';
@@ -196,14 +196,18 @@ showFiltersMobile: boolean = false;
           console.error('Error loading categories:', err);
           return of([] as Categorie[]);
         })
-      ),
-      promotions: this.bassinService.listeBassinsAvecPromotions().pipe(
+      )
+    }).pipe(
+      // Détail des promotions pour les seuls bassins que le catalogue signale en promotion
+      switchMap(data => this.bassinService.bassinsAvecPromotions(
+        data.bassins.filter(bassin => bassin.promotionActive).map(bassin => bassin.idBassin)
+      ).pipe(
         catchError(err => {
           console.error('Error loading promotions:', err);
           return of([] as Bassin[]);
-        })
-      )
-    }).pipe(
+        }),
+        map(promotions => ({ ...data, promotions }))
+      )),
       takeUntil(this.destroy$),
       finalize(() => {
         this.isLoading = false;
@@ -636,7 +640,7 @@ getBassinImageUrl(bassin: Bassin): string {
   if (bassin.imagesBassin && bassin.imagesBassin.length > 0) {
     const firstImage = bassin.imagesBassin[0];
     if (firstImage && firstImage.imagePath) {
-      return `${this.bassinService.apiURL}/imagesBassin/getFS/${encodeURIComponent(firstImage.imagePath)}`;
+      return `${this.bassinService.apiURL}/imagesBassin/getFS/${encodeURIComponent(firstImage.imagePath)}?size=card`;
     }
   }
   